@@ -0,0 +1,61 @@
+package com.chintan.shopifychallenge.benchmarks;
+
+import com.chintan.shopifychallenge.MainApplication;
+import com.chintan.shopifychallenge.models.Money;
+import com.chintan.shopifychallenge.models.Product;
+import com.chintan.shopifychallenge.repository.ProductRepository;
+import com.chintan.shopifychallenge.services.ProductService;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Starts the application without the web server against its own embedded H2 database so the benchmarks measure the
+ * services and repositories exactly the way they run in production.
+ */
+final class BenchmarkApplication {
+  static final int TITLE_COUNT = 1_000;
+
+  private static final int SEED_BATCH_SIZE = 1_000;
+
+  private BenchmarkApplication() {}
+
+  static ConfigurableApplicationContext start(final String databaseName) {
+    return new SpringApplicationBuilder(MainApplication.class)
+        .web(WebApplicationType.NONE)
+        .properties(
+            "spring.datasource.url=jdbc:h2:mem:" + databaseName + ";DB_CLOSE_ON_EXIT=FALSE",
+            "spring.jpa.show-sql=false",
+            "logging.level.root=WARN")
+        .run();
+  }
+
+  /**
+   * Adds a synthetic catalog of the given size, every {@link #TITLE_COUNT}th product shares a title and every
+   * other product is out of stock.
+   */
+  static void seedCatalog(final ConfigurableApplicationContext context, final int catalogSize) {
+    final ProductRepository productRepository = context.getBean(ProductRepository.class);
+
+    final List<Product> batch = new ArrayList<>(SEED_BATCH_SIZE);
+    for (int i = 0; i < catalogSize; i++) {
+      batch.add(new Product(null, title(i), Money.ofCents(100 + i % 10_000), i % 2 == 0 ? 1_000_000 : 0));
+
+      if (batch.size() == SEED_BATCH_SIZE) {
+        productRepository.saveAll(batch);
+        batch.clear();
+      }
+    }
+    productRepository.saveAll(batch);
+
+    // The catalog was written straight to the database so the in-memory indexes have to be rebuilt
+    context.getBean(ProductService.class).loadProductIndexes();
+  }
+
+  static String title(final int productNumber) {
+    return "Benchmark Product " + (productNumber % TITLE_COUNT);
+  }
+}
@@ -0,0 +1,48 @@
+package com.chintan.shopifychallenge.benchmarks;
+
+import com.chintan.shopifychallenge.models.Cart;
+import com.chintan.shopifychallenge.models.Money;
+import com.chintan.shopifychallenge.models.Product;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of adding products to carts of different sizes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CartBenchmark {
+  @Param({"10", "100", "1000"})
+  private int cartSize;
+
+  private Product[] products;
+  private Product extraProduct;
+  private Cart fullCart;
+
+  @Setup
+  public void setup() {
+    products = new Product[cartSize];
+    for (int i = 0; i < cartSize; i++) products[i] = new Product(i, "product" + i, Money.ofCents(100 + i), 10);
+    extraProduct = new Product(cartSize, "extra product", Money.ofCents(999), 10);
+
+    fullCart = buildCart();
+  }
+
+  @Benchmark
+  public Cart buildCart() {
+    final Cart cart = new Cart();
+    for (final Product product : products) cart.addProduct(product);
+
+    return cart;
+  }
+
+  @Benchmark
+  public Cart addProductToFullCart() {
+    fullCart.addProduct(extraProduct);
+    fullCart.removeProduct(extraProduct.getProductId());
+
+    return fullCart;
+  }
+}
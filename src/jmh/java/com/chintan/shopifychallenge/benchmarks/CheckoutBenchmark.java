@@ -0,0 +1,60 @@
+package com.chintan.shopifychallenge.benchmarks;
+
+import com.chintan.shopifychallenge.models.Product;
+import com.chintan.shopifychallenge.repository.ProductRepository;
+import com.chintan.shopifychallenge.services.CartService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Measures completing a purchase against the embedded H2 database for carts of different sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CheckoutBenchmark {
+  private static final int CATALOG_SIZE = 1_000;
+
+  @Param({"1", "10", "50"})
+  private int cartSize;
+
+  private ConfigurableApplicationContext context;
+  private CartService cartService;
+  private List<Product> productsInCart;
+
+  private Integer cartId;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    context = BenchmarkApplication.start("checkout-" + cartSize);
+    BenchmarkApplication.seedCatalog(context, CATALOG_SIZE);
+
+    cartService = context.getBean(CartService.class);
+    productsInCart = context.getBean(ProductRepository.class)
+        .findAll()
+        .stream()
+        .filter(Product::inStock)
+        .limit(cartSize)
+        .collect(Collectors.toList());
+  }
+
+  // Every purchase deletes its cart so a new one is needed before each invocation
+  @Setup(Level.Invocation)
+  public void createCart() {
+    cartId = cartService.createNewCart(productsInCart).getCartId();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public void completeCartPurchase() {
+    cartService.completeCartPurchase(cartId);
+  }
+}
@@ -0,0 +1,99 @@
+package com.chintan.shopifychallenge.benchmarks;
+
+import com.chintan.shopifychallenge.models.Cart;
+import com.chintan.shopifychallenge.models.Money;
+import com.chintan.shopifychallenge.models.Product;
+import com.chintan.shopifychallenge.models.controllers.CreateCart;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Compares encoding and decoding the product and cart payloads as JSON, CBOR and Smile, using the same Jackson
+ * settings as the message converters. The size of every payload is printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PayloadFormatBenchmark {
+  public enum Format {
+    JSON(Jackson2ObjectMapperBuilder::json),
+    CBOR(Jackson2ObjectMapperBuilder::cbor),
+    SMILE(Jackson2ObjectMapperBuilder::smile);
+
+    private final Supplier<Jackson2ObjectMapperBuilder> objectMapperBuilder;
+
+    Format(final Supplier<Jackson2ObjectMapperBuilder> objectMapperBuilder) {
+      this.objectMapperBuilder = objectMapperBuilder;
+    }
+  }
+
+  private static final TypeReference<List<Product>> PRODUCT_LIST = new TypeReference<List<Product>>() {};
+
+  @Param({"JSON", "CBOR", "SMILE"})
+  private Format format;
+
+  // The catalog has this many products and the cart half as many
+  @Param({"1000", "100000"})
+  private int catalogSize;
+
+  private ObjectMapper objectMapper;
+  private List<Product> catalog;
+  private Cart cart;
+  private CreateCart createCart;
+
+  private byte[] encodedCatalog;
+  private byte[] encodedCreateCart;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    objectMapper = format.objectMapperBuilder.get().build();
+
+    catalog = new ArrayList<>(catalogSize);
+    final List<Integer> productIdsInCart = new ArrayList<>(catalogSize / 2);
+    cart = new Cart();
+    for (int i = 0; i < catalogSize; i++) {
+      final Product product = new Product(i, BenchmarkApplication.title(i), Money.ofCents(100 + i % 10_000), i % 50);
+      catalog.add(product);
+      if (i % 2 == 0) {
+        cart.addProduct(product);
+        productIdsInCart.add(i);
+      }
+    }
+    createCart = new CreateCart(productIdsInCart);
+
+    encodedCatalog = encodeCatalog();
+    encodedCreateCart = objectMapper.writeValueAsBytes(createCart);
+
+    System.out.printf("%n%s payloads for %d products: catalog %d bytes, cart %d bytes, create cart request %d bytes%n",
+        format, catalogSize, encodedCatalog.length, encodeCart().length, encodedCreateCart.length);
+  }
+
+  @Benchmark
+  public byte[] encodeCatalog() throws IOException {
+    return objectMapper.writeValueAsBytes(catalog);
+  }
+
+  @Benchmark
+  public List<Product> decodeCatalog() throws IOException {
+    return objectMapper.readValue(encodedCatalog, PRODUCT_LIST);
+  }
+
+  @Benchmark
+  public byte[] encodeCart() throws IOException {
+    return objectMapper.writeValueAsBytes(cart);
+  }
+
+  // Carts are only ever sent by the server, what clients send is the request to create one
+  @Benchmark
+  public CreateCart decodeCreateCart() throws IOException {
+    return objectMapper.readValue(encodedCreateCart, CreateCart.class);
+  }
+}
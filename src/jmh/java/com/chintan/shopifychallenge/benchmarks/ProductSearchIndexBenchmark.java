@@ -0,0 +1,57 @@
+package com.chintan.shopifychallenge.benchmarks;
+
+import com.chintan.shopifychallenge.catalog.ProductSearchIndex;
+import com.chintan.shopifychallenge.models.Money;
+import com.chintan.shopifychallenge.models.Product;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures searching the product titles without the rest of the application. Titles are made of three to five words
+ * picked from a fixed vocabulary, so some words are in a large part of the catalog and others in only a few titles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProductSearchIndexBenchmark {
+  private static final String[] COMMON_WORDS = {
+      "cable", "usb", "charger", "case", "black", "white", "pack", "pro", "mini", "wireless"};
+  private static final int RARE_WORD_COUNT = 50_000;
+  private static final int SEARCH_LIMIT = 20;
+
+  @Param({"100000", "1000000"})
+  private int catalogSize;
+
+  @Param({"cable", "wireless cable", "ca", "word123", "lightning"})
+  private String query;
+
+  private ProductSearchIndex productSearchIndex;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    final Random random = new Random(42);
+    productSearchIndex = new ProductSearchIndex();
+
+    for (int i = 0; i < catalogSize; i++) {
+      final StringBuilder title = new StringBuilder("word").append(random.nextInt(RARE_WORD_COUNT));
+      final int commonWords = 2 + random.nextInt(3);
+      for (int j = 0; j < commonWords; j++) title.append(' ').append(COMMON_WORDS[random.nextInt(COMMON_WORDS.length)]);
+
+      productSearchIndex.index(new Product(i + 1, title.toString(), Money.ofCents(100 + i % 10_000), i % 2));
+    }
+  }
+
+  @Benchmark
+  public List<Integer> search() {
+    return productSearchIndex.search(query, SEARCH_LIMIT, productId -> true);
+  }
+
+  // Every other product is filtered out, like searching with showInStockOnly when half the catalog is sold out
+  @Benchmark
+  public List<Integer> searchHalfFiltered() {
+    return productSearchIndex.search(query, SEARCH_LIMIT, productId -> productId % 2 == 0);
+  }
+}
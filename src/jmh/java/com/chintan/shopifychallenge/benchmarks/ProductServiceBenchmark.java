@@ -0,0 +1,47 @@
+package com.chintan.shopifychallenge.benchmarks;
+
+import com.chintan.shopifychallenge.models.Product;
+import com.chintan.shopifychallenge.services.ProductService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the product lookups that are served from the in-memory indexes across different catalog sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProductServiceBenchmark {
+  @Param({"1000", "10000", "100000"})
+  private int catalogSize;
+
+  private ConfigurableApplicationContext context;
+  private ProductService productService;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    context = BenchmarkApplication.start("products-" + catalogSize);
+    BenchmarkApplication.seedCatalog(context, catalogSize);
+    productService = context.getBean(ProductService.class);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public List<Product> getProductsByTitle() {
+    final int productNumber = ThreadLocalRandom.current().nextInt(BenchmarkApplication.TITLE_COUNT);
+    return productService.getProductsByTitle(BenchmarkApplication.title(productNumber));
+  }
+
+  @Benchmark
+  public List<Product> getAllInStockProducts() {
+    return productService.getAllInStockProducts();
+  }
+}
@@ -0,0 +1,80 @@
+package com.chintan.shopifychallenge.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records the latency of every request per endpoint in HdrHistograms, which any number of threads can write to
+ * without locking, and prints the percentiles and throughput for each endpoint.
+ */
+final class EndpointLatencies {
+  private static final int SIGNIFICANT_DIGITS = 3;
+
+  private final Map<String, Recorder> recorders = new ConcurrentHashMap<>();
+  private final Map<String, LongAdder> failures = new ConcurrentHashMap<>();
+  private final Map<String, LongAdder> soldOuts = new ConcurrentHashMap<>();
+
+  void record(final String endpoint, final long latencyNanos, final boolean succeeded) {
+    recorders.computeIfAbsent(endpoint, key -> new Recorder(SIGNIFICANT_DIGITS)).recordValue(latencyNanos);
+    if (!succeeded) failures.computeIfAbsent(endpoint, key -> new LongAdder()).increment();
+  }
+
+  // NOTE: The request itself is recorded as usual, this only counts how many of them found the product sold out
+  void recordSoldOut(final String endpoint) {
+    soldOuts.computeIfAbsent(endpoint, key -> new LongAdder()).increment();
+  }
+
+  /**
+   * Prints everything recorded since the last report (or since the start) and resets all the recorders.
+   *
+   * @return the highest p99 latency of all endpoints in nanoseconds
+   */
+  long report(final String title, final Duration elapsed, final PrintStream out) {
+    long highestP99 = 0;
+
+    out.println();
+    out.println("=== " + title + " (" + elapsed.getSeconds() + "s) ===");
+    out.println(String.format("%-45s %10s %10s %10s %10s %10s %10s %10s %10s",
+        "endpoint", "requests", "failed", "sold out", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms"));
+
+    for (final Map.Entry<String, Recorder> entry : new TreeMap<>(recorders).entrySet()) {
+      final Histogram histogram = entry.getValue().getIntervalHistogram();
+      final LongAdder failed = failures.remove(entry.getKey());
+      final LongAdder soldOut = soldOuts.remove(entry.getKey());
+      final long requests = histogram.getTotalCount();
+
+      out.println(String.format("%-45s %10d %10d %10d %10.1f %10.2f %10.2f %10.2f %10.2f",
+          entry.getKey(),
+          requests,
+          failed == null ? 0 : failed.sum(),
+          soldOut == null ? 0 : soldOut.sum(),
+          requests / Math.max(elapsed.toMillis() / 1000.0, 0.001),
+          toMillis(histogram.getValueAtPercentile(50)),
+          toMillis(histogram.getValueAtPercentile(99)),
+          toMillis(histogram.getValueAtPercentile(99.9)),
+          toMillis(histogram.getMaxValue())));
+
+      highestP99 = Math.max(highestP99, histogram.getValueAtPercentile(99));
+    }
+
+    return highestP99;
+  }
+
+  void reset() {
+    recorders.values().forEach(Recorder::reset);
+    failures.clear();
+    soldOuts.clear();
+  }
+
+  private static double toMillis(final long nanos) {
+    return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+  }
+}
@@ -0,0 +1,83 @@
+package com.chintan.shopifychallenge.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimal blocking HTTP client built on {@link HttpURLConnection} (which keeps connections alive between requests)
+ * so the load tests don't need any tooling outside of the JDK. Every request is timed and recorded under its endpoint.
+ */
+final class LoadTestClient {
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  private final String baseUrl;
+  private final EndpointLatencies endpointLatencies;
+
+  LoadTestClient(final int port, final EndpointLatencies endpointLatencies) {
+    this.baseUrl = "http://localhost:" + port;
+    this.endpointLatencies = endpointLatencies;
+  }
+
+  /**
+   * Sends the request and returns the parsed JSON body, or null if the request didn't succeed.
+   *
+   * @param endpoint the name the latency is recorded under, e.g. "GET /products/{productId}"
+   */
+  JsonNode send(final String endpoint, final String method, final String path, final String jsonBody) {
+    final long startTime = System.nanoTime();
+    boolean succeeded = false;
+
+    try {
+      final HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+      connection.setRequestMethod(method);
+      connection.setRequestProperty("Accept", "application/json");
+
+      if (jsonBody != null) {
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/json");
+        try (OutputStream outputStream = connection.getOutputStream()) {
+          outputStream.write(jsonBody.getBytes(StandardCharsets.UTF_8));
+        }
+      }
+
+      final int status = connection.getResponseCode();
+      succeeded = status >= 200 && status < 300;
+
+      // The body always has to be read fully, otherwise the connection can't be reused for the next request
+      final byte[] responseBody = readFully(succeeded ? connection.getInputStream() : connection.getErrorStream());
+      return succeeded && responseBody.length > 0 ? OBJECT_MAPPER.readTree(responseBody) : null;
+    } catch (IOException e) {
+      return null;
+    } finally {
+      endpointLatencies.record(endpoint, System.nanoTime() - startTime, succeeded);
+    }
+  }
+
+  /**
+   * Counts a request that succeeded but found the product it asked for sold out, these are reported apart from the
+   * other requests of the endpoint.
+   */
+  void recordSoldOut(final String endpoint) {
+    endpointLatencies.recordSoldOut(endpoint);
+  }
+
+  private static byte[] readFully(final InputStream inputStream) throws IOException {
+    if (inputStream == null) return new byte[0];
+
+    try (InputStream stream = inputStream) {
+      final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+      final byte[] buffer = new byte[8192];
+      for (int read = stream.read(buffer); read != -1; read = stream.read(buffer)) outputStream.write(buffer, 0, read);
+
+      return outputStream.toByteArray();
+    }
+  }
+}
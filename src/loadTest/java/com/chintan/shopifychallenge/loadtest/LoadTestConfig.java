@@ -0,0 +1,37 @@
+package com.chintan.shopifychallenge.loadtest;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Settings for a load test run, read from "loadtest.*" system properties (e.g. ./gradlew loadTest -Dloadtest.threads=64).
+ */
+final class LoadTestConfig {
+  final List<Scenario> scenarios;
+  final int threads;
+  final Duration warmup;
+  final Duration duration;
+  final int catalogSize;
+  final int hotProductInventory;
+  // NOTE: When set, the run fails if the p99 latency of any endpoint is above this many milliseconds
+  final Long maxP99Millis;
+
+  private LoadTestConfig() {
+    this.scenarios = Arrays.stream(System.getProperty("loadtest.scenarios", "BROWSE_HEAVY,CART_BUILDING,CHECKOUT_STORM").split(","))
+        .map(String::trim)
+        .map(Scenario::valueOf)
+        .collect(Collectors.toList());
+    this.threads = Integer.getInteger("loadtest.threads", 32);
+    this.warmup = Duration.ofSeconds(Long.getLong("loadtest.warmup-seconds", 10));
+    this.duration = Duration.ofSeconds(Long.getLong("loadtest.duration-seconds", 30));
+    this.catalogSize = Integer.getInteger("loadtest.catalog-size", 10_000);
+    this.hotProductInventory = Integer.getInteger("loadtest.hot-product-inventory", 1_000);
+    this.maxP99Millis = Long.getLong("loadtest.max-p99-millis");
+  }
+
+  static LoadTestConfig fromSystemProperties() {
+    return new LoadTestConfig();
+  }
+}
@@ -0,0 +1,82 @@
+package com.chintan.shopifychallenge.loadtest;
+
+import com.chintan.shopifychallenge.MainApplication;
+import com.chintan.shopifychallenge.services.ProductService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts the application on Jetty with a synthetic catalog and runs every configured scenario against it over
+ * localhost, printing the latency percentiles and throughput per endpoint after each one.
+ *
+ * The process exits with a non-zero status when "loadtest.max-p99-millis" is set and any endpoint is slower than that,
+ * so it can be used to gate releases.
+ */
+public final class LoadTestRunner {
+  private LoadTestRunner() {}
+
+  public static void main(final String[] args) throws InterruptedException {
+    final LoadTestConfig config = LoadTestConfig.fromSystemProperties();
+    // Lets every worker thread keep its own connection alive instead of reconnecting for every request
+    System.setProperty("http.maxConnections", String.valueOf(config.threads));
+
+    final ConfigurableApplicationContext context = new SpringApplicationBuilder(MainApplication.class)
+        .properties(
+            "server.port=0",
+            "spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_ON_EXIT=FALSE",
+            "logging.level.root=WARN")
+        .run(args);
+
+    final int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+    final SyntheticCatalog catalog = SyntheticCatalog.seed(context, config.catalogSize, config.hotProductInventory);
+    final EndpointLatencies endpointLatencies = new EndpointLatencies();
+    final LoadTestClient client = new LoadTestClient(port, endpointLatencies);
+
+    long highestP99 = 0;
+    for (final Scenario scenario : config.scenarios) {
+      run(scenario, client, catalog, config.threads, config.warmup);
+      endpointLatencies.reset();
+
+      // The warmup takes stock of the hot product so it gets topped up before the storm is measured
+      if (scenario == Scenario.CHECKOUT_STORM)
+        context.getBean(ProductService.class).restockProduct(catalog.hotProductId(), config.hotProductInventory);
+
+      final long restocksBefore = catalog.hotProductRestocks();
+      run(scenario, client, catalog, config.threads, config.duration);
+      highestP99 = Math.max(highestP99, endpointLatencies.report(scenario.name(), config.duration, System.out));
+      if (scenario == Scenario.CHECKOUT_STORM)
+        System.out.println("hot product sold out and was restocked " + (catalog.hotProductRestocks() - restocksBefore) + " times");
+    }
+
+    context.close();
+
+    if (config.maxP99Millis != null && highestP99 > TimeUnit.MILLISECONDS.toNanos(config.maxP99Millis)) {
+      System.err.println(String.format("p99 latency of %.2f ms is above the allowed %d ms",
+          highestP99 / 1_000_000.0, config.maxP99Millis));
+      System.exit(1);
+    }
+    System.exit(0);
+  }
+
+  private static void run(final Scenario scenario, final LoadTestClient client, final SyntheticCatalog catalog,
+                          final int threads, final Duration duration) throws InterruptedException {
+    final long deadline = System.nanoTime() + duration.toNanos();
+    final ExecutorService workers = Executors.newFixedThreadPool(threads);
+
+    for (int i = 0; i < threads; i++) {
+      workers.execute(() -> {
+        while (System.nanoTime() < deadline) scenario.runIteration(client, catalog, ThreadLocalRandom.current());
+      });
+    }
+
+    workers.shutdown();
+    workers.awaitTermination(duration.getSeconds() + 60, TimeUnit.SECONDS);
+  }
+}
@@ -0,0 +1,71 @@
+package com.chintan.shopifychallenge.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Random;
+
+/**
+ * The traffic mixes the load test can drive. Every worker thread keeps running iterations of the scenario until the
+ * time is up, an iteration is one "user" doing something against the API.
+ */
+enum Scenario {
+  // Storefront traffic: mostly looking at single products and listings, the occasional title search
+  BROWSE_HEAVY {
+    @Override
+    void runIteration(final LoadTestClient client, final SyntheticCatalog catalog, final Random random) {
+      final int roll = random.nextInt(100);
+
+      if (roll < 50) {
+        client.send("GET /products/{productId}", "GET", "/products/" + catalog.randomProductId(random), null);
+      } else if (roll < 70) {
+        client.send("GET /products/page?showInStockOnly=true", "GET",
+            "/products/page?showInStockOnly=true&limit=50&afterId=" + catalog.randomProductId(random), null);
+      } else if (roll < 85) {
+        client.send("GET /products?productTitle=", "GET",
+            "/products?productTitle=" + SyntheticCatalog.title(random.nextInt(SyntheticCatalog.TITLE_COUNT)).replace(" ", "%20"), null);
+      } else {
+        client.send("GET /products/page", "GET", "/products/page?limit=100&afterId=" + catalog.randomProductId(random), null);
+      }
+    }
+  },
+
+  // Shoppers putting carts together: create a cart, add and remove products and look at it
+  CART_BUILDING {
+    @Override
+    void runIteration(final LoadTestClient client, final SyntheticCatalog catalog, final Random random) {
+      final int firstProductId = catalog.randomProductId(random);
+      final JsonNode cart = client.send("POST /carts", "POST", "/carts", "{\"productIds\":[" + firstProductId + "]}");
+      if (cart == null) return;
+
+      final int cartId = cart.get("cartId").asInt();
+      for (int i = 0; i < 3; i++) {
+        final int productId = catalog.randomProductId(random);
+        if (productId == firstProductId) continue;
+        client.send("PUT /carts/{cartId}/products/{productId}", "PUT", "/carts/" + cartId + "/products/" + productId, null);
+      }
+
+      client.send("GET /carts/{cartId}", "GET", "/carts/" + cartId, null);
+      client.send("DELETE /carts/{cartId}/products/{productId}", "DELETE", "/carts/" + cartId + "/products/" + firstProductId, null);
+    }
+  },
+
+  // A flash sale: everyone checks out the same product at once, it is restocked every time it sells out
+  CHECKOUT_STORM {
+    @Override
+    void runIteration(final LoadTestClient client, final SyntheticCatalog catalog, final Random random) {
+      final JsonNode cart = client.send("POST /carts", "POST", "/carts", "{\"productIds\":[" + catalog.hotProductId() + "]}");
+      if (cart == null) return;
+
+      // A sold out product is left out of the new cart, checking out the empty cart would not measure anything
+      if (cart.get("products").size() == 0) {
+        client.recordSoldOut("POST /carts");
+        catalog.restockHotProductIfSoldOut();
+        return;
+      }
+
+      client.send("PUT /carts/{cartId}/complete", "PUT", "/carts/" + cart.get("cartId").asInt() + "/complete", null);
+    }
+  };
+
+  abstract void runIteration(LoadTestClient client, SyntheticCatalog catalog, Random random);
+}
@@ -0,0 +1,95 @@
+package com.chintan.shopifychallenge.loadtest;
+
+import com.chintan.shopifychallenge.models.Money;
+import com.chintan.shopifychallenge.models.Product;
+import com.chintan.shopifychallenge.repository.ProductRepository;
+import com.chintan.shopifychallenge.services.ProductService;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A generated catalog written straight to the database before the load test starts.
+ *
+ * Every product is in stock with plenty of inventory except the single "hot" product, which only has a limited amount
+ * of stock so the checkout storm scenario can fight over it. It is restocked every time it sells out so the storm
+ * keeps checking it out for the whole run.
+ */
+final class SyntheticCatalog {
+  static final int TITLE_COUNT = 500;
+
+  private static final int SEED_BATCH_SIZE = 1_000;
+  private static final int REGULAR_INVENTORY = 1_000_000;
+
+  private final ProductService productService;
+  private final int[] productIds;
+  private final int hotProductId;
+  private final int hotProductInventory;
+  private final LongAdder hotProductRestocks = new LongAdder();
+
+  private SyntheticCatalog(final ProductService productService, final int[] productIds, final int hotProductId,
+                           final int hotProductInventory) {
+    this.productService = productService;
+    this.productIds = productIds;
+    this.hotProductId = hotProductId;
+    this.hotProductInventory = hotProductInventory;
+  }
+
+  static SyntheticCatalog seed(final ConfigurableApplicationContext context, final int catalogSize, final int hotProductInventory) {
+    final ProductRepository productRepository = context.getBean(ProductRepository.class);
+    final Random random = new Random(catalogSize);
+
+    final int[] productIds = new int[catalogSize];
+    final List<Product> batch = new ArrayList<>(SEED_BATCH_SIZE);
+    for (int i = 0; i < catalogSize; i++) {
+      batch.add(new Product(null, title(i), Money.ofCents(50 + random.nextInt(20_000)), REGULAR_INVENTORY));
+
+      if (batch.size() == SEED_BATCH_SIZE || i == catalogSize - 1) {
+        final int firstIndex = i - batch.size() + 1;
+        final List<Product> savedProducts = productRepository.saveAll(batch);
+        for (int j = 0; j < savedProducts.size(); j++) productIds[firstIndex + j] = savedProducts.get(j).getProductId();
+        batch.clear();
+      }
+    }
+
+    final Product hotProduct = productRepository.save(
+        new Product(null, "Flash Sale Product", Money.ofCents(999), hotProductInventory));
+
+    // The catalog was written straight to the database so the in-memory indexes have to be rebuilt
+    final ProductService productService = context.getBean(ProductService.class);
+    productService.loadProductIndexes();
+
+    return new SyntheticCatalog(productService, productIds, hotProduct.getProductId(), hotProductInventory);
+  }
+
+  static String title(final int productNumber) {
+    return "Load Test Product " + (productNumber % TITLE_COUNT);
+  }
+
+  int randomProductId(final Random random) {
+    return productIds[random.nextInt(productIds.length)];
+  }
+
+  int hotProductId() {
+    return hotProductId;
+  }
+
+  /**
+   * Puts the hot product's initial inventory back once it has sold out. Every worker that got a sold-out response
+   * calls this, so it only restocks when the product is still sold out after the workers before it.
+   */
+  synchronized void restockHotProductIfSoldOut() {
+    final boolean soldOut = productService.getProductById(hotProductId).map(product -> !product.inStock()).orElse(false);
+    if (!soldOut) return;
+
+    productService.restockProduct(hotProductId, hotProductInventory);
+    hotProductRestocks.increment();
+  }
+
+  long hotProductRestocks() {
+    return hotProductRestocks.sum();
+  }
+}
@@ -0,0 +1,116 @@
+package com.chintan.shopifychallenge.cart;
+
+import com.chintan.shopifychallenge.models.Cart;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The compact form a cart is kept in while it is in memory: the sorted IDs of its products, what each of them cost
+ * when it was added and the cart's total cost.
+ *
+ * Instances are never changed, every change to the cart creates a new instance with the next version. The version
+ * that was last written to the "cart" table is carried along so the store knows which carts still have to be written.
+ */
+final class ActiveCart {
+  final int cartId;
+  final int[] productIds;
+  // NOTE: Parallel to the product IDs
+  final long[] pricesInCents;
+  final long totalCostInCents;
+  final long version;
+  // NOTE: Zero means the cart has never been written to the "cart" table
+  final long writtenVersion;
+
+  // Only used to find idle carts, so it doesn't matter if a concurrent access is lost
+  volatile long lastAccessMillis;
+
+  private ActiveCart(final int cartId, final int[] productIds, final long[] pricesInCents, final long totalCostInCents,
+                     final long version, final long writtenVersion, final long lastAccessMillis) {
+    this.cartId = cartId;
+    this.productIds = productIds;
+    this.pricesInCents = pricesInCents;
+    this.totalCostInCents = totalCostInCents;
+    this.version = version;
+    this.writtenVersion = writtenVersion;
+    this.lastAccessMillis = lastAccessMillis;
+  }
+
+  static ActiveCart created(final Cart cart, final long nowMillis) {
+    return of(cart, 0, nowMillis);
+  }
+
+  // A cart read back from the "cart" table, which is written as far as the store is concerned
+  static ActiveCart loaded(final Cart cart, final long nowMillis) {
+    return of(cart, 1, nowMillis);
+  }
+
+  boolean containsProduct(final int productId) {
+    return Arrays.binarySearch(productIds, productId) >= 0;
+  }
+
+  ActiveCart withProduct(final int productId, final long priceInCents, final long nowMillis) {
+    final int insertionPoint = -Arrays.binarySearch(productIds, productId) - 1;
+
+    final int[] newProductIds = new int[productIds.length + 1];
+    System.arraycopy(productIds, 0, newProductIds, 0, insertionPoint);
+    newProductIds[insertionPoint] = productId;
+    System.arraycopy(productIds, insertionPoint, newProductIds, insertionPoint + 1, productIds.length - insertionPoint);
+
+    final long[] newPricesInCents = new long[pricesInCents.length + 1];
+    System.arraycopy(pricesInCents, 0, newPricesInCents, 0, insertionPoint);
+    newPricesInCents[insertionPoint] = priceInCents;
+    System.arraycopy(pricesInCents, insertionPoint, newPricesInCents, insertionPoint + 1, pricesInCents.length - insertionPoint);
+
+    return new ActiveCart(cartId, newProductIds, newPricesInCents, Math.addExact(totalCostInCents, priceInCents),
+        version + 1, writtenVersion, nowMillis);
+  }
+
+  // The product is taken off the total at the price it was added at, whatever it costs now
+  ActiveCart withoutProduct(final int productId, final long nowMillis) {
+    final int index = Arrays.binarySearch(productIds, productId);
+
+    final int[] newProductIds = new int[productIds.length - 1];
+    System.arraycopy(productIds, 0, newProductIds, 0, index);
+    System.arraycopy(productIds, index + 1, newProductIds, index, productIds.length - index - 1);
+
+    final long[] newPricesInCents = new long[pricesInCents.length - 1];
+    System.arraycopy(pricesInCents, 0, newPricesInCents, 0, index);
+    System.arraycopy(pricesInCents, index + 1, newPricesInCents, index, pricesInCents.length - index - 1);
+
+    return new ActiveCart(cartId, newProductIds, newPricesInCents,
+        Math.subtractExact(totalCostInCents, pricesInCents[index]), version + 1, writtenVersion, nowMillis);
+  }
+
+  ActiveCart written(final long version) {
+    return new ActiveCart(cartId, productIds, pricesInCents, totalCostInCents, this.version,
+        Math.max(writtenVersion, version), lastAccessMillis);
+  }
+
+  // The price each product was added at, by the product's ID in ascending order
+  Map<Integer, Long> productPricesInCents() {
+    final Map<Integer, Long> productPricesInCents = new LinkedHashMap<>();
+    for (int i = 0; i < productIds.length; i++) productPricesInCents.put(productIds[i], pricesInCents[i]);
+
+    return productPricesInCents;
+  }
+
+  boolean isDirty() {
+    return version != writtenVersion;
+  }
+
+  boolean isInCartTable() {
+    return writtenVersion > 0;
+  }
+
+  private static ActiveCart of(final Cart cart, final long writtenVersion, final long nowMillis) {
+    // The product IDs of a cart are already in ascending order
+    final int[] productIds = cart.getProductIds().stream().mapToInt(Integer::intValue).toArray();
+    final long[] pricesInCents = new long[productIds.length];
+    for (int i = 0; i < productIds.length; i++) pricesInCents[i] = cart.getPriceInCents(productIds[i]);
+
+    return new ActiveCart(cart.getCartId(), productIds, pricesInCents, cart.getTotalCost().getCents(), 1,
+        writtenVersion, nowMillis);
+  }
+}
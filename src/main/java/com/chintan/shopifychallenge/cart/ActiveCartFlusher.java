@@ -0,0 +1,34 @@
+package com.chintan.shopifychallenge.cart;
+
+import com.chintan.shopifychallenge.models.Cart;
+import com.chintan.shopifychallenge.repository.CartRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Writes carts that changed in memory to the "cart" table.
+ */
+@Component
+public class ActiveCartFlusher {
+  private final CartRepository cartRepository;
+
+  @Autowired
+  public ActiveCartFlusher(final CartRepository cartRepository) {
+    this.cartRepository = cartRepository;
+  }
+
+  /**
+   * Inserts or updates all the given carts in one transaction.
+   */
+  @Transactional
+  public void flushCarts(final List<Cart> carts) {
+    // The carts that are already in the table are read with their products in one query, so saving them only
+    // writes what changed instead of reading every cart on its own first
+    cartRepository.findAllById(carts.stream().map(Cart::getCartId).collect(Collectors.toList()));
+    cartRepository.saveAll(carts);
+  }
+}
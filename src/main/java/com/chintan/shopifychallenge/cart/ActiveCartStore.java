@@ -0,0 +1,386 @@
+package com.chintan.shopifychallenge.cart;
+
+import com.chintan.shopifychallenge.config.ActiveCartProperties;
+import com.chintan.shopifychallenge.models.Cart;
+import com.chintan.shopifychallenge.models.Money;
+import com.chintan.shopifychallenge.models.Product;
+import com.chintan.shopifychallenge.repository.CartRepository;
+import com.chintan.shopifychallenge.repository.ProductRepository;
+import com.chintan.shopifychallenge.repository.ReservationRepository;
+import com.chintan.shopifychallenge.services.CartService;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Striped;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Keeps the carts that are in use in memory, so creating a cart and adding or removing products doesn't write to
+ * the database. Most carts are never purchased, and the ones that are usually are within minutes of being created.
+ *
+ * Carts that changed are written to the "cart" table in the background every "carts.active.write-behind-interval"
+ * (and when the application shuts down), so a crash loses at most that much of the changes made to carts. Carts that
+ * are purchased before they are written never reach the table at all. Carts that haven't been used for a while are
+ * dropped from memory once they are written and read back from the table the next time they are used.
+ *
+ * A cart being purchased is taken out of the store by the purchase's transaction and is only put back if the
+ * transaction rolls back, so the same cart can't be purchased twice.
+ *
+ * NOTE: Cart IDs are handed out by this instance (carrying on from the highest ID in the database at startup) and
+ * the carts in memory belong to it, so the store only works when a single instance is running.
+ */
+@Component
+public class ActiveCartStore {
+  public static final String ACTIVE_CARTS_METER_NAME = "carts.active";
+  public static final String WRITTEN_CARTS_METER_NAME = "carts.active.writes";
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ActiveCartStore.class);
+  private static final int WRITE_BATCH_SIZE = 100;
+
+  private final ActiveCartProperties activeCartProperties;
+  private final CartRepository cartRepository;
+  private final ProductRepository productRepository;
+  private final ReservationRepository reservationRepository;
+  private final ActiveCartFlusher activeCartFlusher;
+  private final Counter writtenCarts;
+
+  private final Map<Integer, ActiveCart> carts = new ConcurrentHashMap<>();
+  // Carts taken out by purchases whose transactions haven't finished yet
+  private final Map<Integer, ActiveCart> claimedCarts = new ConcurrentHashMap<>();
+  // NOTE: Loading a cart, claiming it for a purchase and writing it hold the cart's lock. Changing the products of a
+  // cart that is in memory doesn't, those changes are atomic updates of the map.
+  private final Striped<Lock> cartLocks = Striped.lock(1024);
+  private final AtomicInteger lastCartId = new AtomicInteger();
+
+  private final ScheduledExecutorService writeBehindScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    final Thread thread = new Thread(runnable, "cart-write-behind");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private volatile boolean started = false;
+
+  @Autowired
+  public ActiveCartStore(final ActiveCartProperties activeCartProperties, final CartRepository cartRepository,
+                         final ProductRepository productRepository, final ReservationRepository reservationRepository,
+                         final ActiveCartFlusher activeCartFlusher, final MeterRegistry meterRegistry) {
+    this.activeCartProperties = activeCartProperties;
+    this.cartRepository = cartRepository;
+    this.productRepository = productRepository;
+    this.reservationRepository = reservationRepository;
+    this.activeCartFlusher = activeCartFlusher;
+    this.writtenCarts = Counter.builder(WRITTEN_CARTS_METER_NAME).register(meterRegistry);
+    meterRegistry.gaugeMapSize(ACTIVE_CARTS_METER_NAME, Collections.emptyList(), carts);
+  }
+
+  // Runs before the web server starts accepting requests so no cart can be created before the IDs are set up
+  @EventListener(ContextRefreshedEvent.class)
+  public synchronized void start() {
+    if (started) return;
+
+    // Reservations can outlive carts that were only ever in memory, their IDs mustn't be handed out again either
+    lastCartId.set(Math.max(cartRepository.findMaxCartId().orElse(0), reservationRepository.findMaxCartId().orElse(0)));
+
+    final long intervalMillis = activeCartProperties.getWriteBehindInterval().toMillis();
+    writeBehindScheduler.scheduleWithFixedDelay(this::writeBehindSafely, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    started = true;
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    writeBehindScheduler.shutdown();
+    writeBehindScheduler.awaitTermination(10, TimeUnit.SECONDS);
+    if (started) writeBehindSafely();
+  }
+
+  public Integer newCartId() {
+    if (!started) throw new IllegalStateException("Carts can't be created before the application has started.");
+
+    return lastCartId.incrementAndGet();
+  }
+
+  /**
+   * Adds a new cart, which has to have an ID from {@link #newCartId()}.
+   */
+  public Cart create(final Cart cart) {
+    carts.put(cart.getCartId(), ActiveCart.created(cart, System.currentTimeMillis()));
+    return cart;
+  }
+
+  // A cart that is being purchased can still be viewed until the purchase has gone through
+  public Optional<Cart> get(final Integer cartId) {
+    final ActiveCart cart = load(cartId);
+    if (Objects.nonNull(cart)) {
+      cart.lastAccessMillis = System.currentTimeMillis();
+      return Optional.of(toCart(cart));
+    }
+
+    return Optional.ofNullable(claimedCarts.get(cartId)).map(this::toCart);
+  }
+
+  public boolean containsProduct(final Integer cartId, final Integer productId) {
+    final ActiveCart cart = load(cartId);
+    if (Objects.isNull(cart)) throw new IllegalArgumentException(CartService.CART_DOES_NOT_EXIST_EXCEPTION_MESSAGE);
+
+    return cart.containsProduct(productId);
+  }
+
+  public Cart addProduct(final Integer cartId, final Product product) {
+    return toCart(update(cartId, cart -> {
+      if (cart.containsProduct(product.getProductId()))
+        throw new IllegalArgumentException(Cart.PRODUCT_ALREADY_IN_CART_EXCEPTION_MESSAGE);
+      return cart.withProduct(product.getProductId(), product.getPrice().getCents(), System.currentTimeMillis());
+    }));
+  }
+
+  // The product is taken off the total at the price it was added at, even if its price has changed since
+  public Cart removeProduct(final Integer cartId, final Integer productId) {
+    return toCart(update(cartId, cart -> {
+      if (!cart.containsProduct(productId)) throw new IllegalArgumentException(Cart.PRODUCT_NOT_PRESENT_EXCEPTION_MESSAGE);
+      return cart.withoutProduct(productId, System.currentTimeMillis());
+    }));
+  }
+
+  /**
+   * Takes the cart out of the store to purchase it, or returns nothing if it doesn't exist or is already being
+   * purchased.
+   *
+   * Has to be called inside a transaction: the cart is put back if the transaction rolls back, the transaction has
+   * to call {@link #complete(Collection)} if the purchase goes through.
+   */
+  public Optional<CheckedOutCart> checkOut(final Integer cartId) {
+    return Optional.ofNullable(checkOutAll(Collections.singletonList(cartId)).get(cartId));
+  }
+
+  /**
+   * Same as {@link #checkOut(Integer)} for many carts at once, the carts are returned by their ID.
+   *
+   * NOTE: No products are read here, so the purchase's first read of them is the one that locks their rows.
+   */
+  public Map<Integer, CheckedOutCart> checkOutAll(final Collection<Integer> cartIds) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive())
+      throw new IllegalStateException("Carts can only be checked out inside a transaction.");
+
+    final List<ActiveCart> checkedOutCarts = new ArrayList<>();
+    for (final Integer cartId : new TreeSet<>(cartIds)) {
+      final Lock lock = cartLocks.get(cartId);
+      lock.lock();
+      try {
+        final ActiveCart cart = Objects.isNull(load(cartId)) ? null : carts.remove(cartId);
+        if (Objects.isNull(cart)) continue;
+
+        claimedCarts.put(cartId, cart);
+        checkedOutCarts.add(cart);
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+      @Override
+      public void afterCompletion(final int status) {
+        final boolean committed = status == TransactionSynchronization.STATUS_COMMITTED;
+        checkedOutCarts.forEach(cart -> {
+          if (committed) unclaim(cart.cartId);
+          else putBack(cart.cartId);
+        });
+      }
+    });
+
+    final Map<Integer, CheckedOutCart> checkedOutCartsById = new LinkedHashMap<>();
+    checkedOutCarts.forEach(cart -> checkedOutCartsById.put(cart.cartId, new CheckedOutCart(cart.cartId,
+        IntStream.of(cart.productIds).boxed().collect(Collectors.toList()), Money.ofCents(cart.totalCostInCents))));
+    return checkedOutCartsById;
+  }
+
+  // Puts a checked out cart back right away, e.g. when one cart in a batch of purchases fails
+  public void putBack(final Integer cartId) {
+    final Lock lock = cartLocks.get(cartId);
+    lock.lock();
+    try {
+      final ActiveCart cart = claimedCarts.remove(cartId);
+      if (Objects.nonNull(cart)) carts.put(cartId, cart);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Deletes the purchased carts that had been written to the "cart" table, as part of the purchase's transaction.
+   */
+  public void complete(final Collection<Integer> cartIds) {
+    final List<Integer> cartIdsInTable = cartIds.stream()
+        .map(claimedCarts::get)
+        .filter(cart -> Objects.nonNull(cart) && cart.isInCartTable())
+        .map(cart -> cart.cartId)
+        .collect(Collectors.toList());
+    if (cartIdsInTable.isEmpty()) return;
+
+    cartRepository.deleteAll(cartRepository.findAllById(cartIdsInTable));
+  }
+
+  /**
+   * Writes every cart that changed since it was last written and drops idle carts from memory.
+   */
+  public void writeBehind() {
+    final List<Integer> dirtyCartIds = carts.values()
+        .stream()
+        .filter(ActiveCart::isDirty)
+        .map(cart -> cart.cartId)
+        .sorted()
+        .collect(Collectors.toList());
+    Lists.partition(dirtyCartIds, WRITE_BATCH_SIZE).forEach(this::write);
+
+    evictIdleCarts();
+  }
+
+  private void writeBehindSafely() {
+    try {
+      writeBehind();
+    } catch (final RuntimeException e) {
+      // The carts stay dirty so the next run writes them
+      LOGGER.error("Failed to write carts to the database", e);
+    }
+  }
+
+  private void write(final List<Integer> cartIds) {
+    // The locks are taken in a consistent order so writing can't deadlock with purchases of the same carts
+    final List<Lock> locks = Lists.newArrayList(cartLocks.bulkGet(cartIds));
+    locks.forEach(Lock::lock);
+    try {
+      // Carts purchased in the meantime are no longer in the map, so they are never written
+      final List<ActiveCart> cartsToWrite = cartIds.stream()
+          .map(carts::get)
+          .filter(cart -> Objects.nonNull(cart) && cart.isDirty())
+          .collect(Collectors.toList());
+      if (cartsToWrite.isEmpty()) return;
+
+      activeCartFlusher.flushCarts(new ArrayList<>(toCarts(cartsToWrite).values()));
+      cartsToWrite.forEach(writtenCart ->
+          carts.computeIfPresent(writtenCart.cartId, (id, cart) -> cart.written(writtenCart.version)));
+      writtenCarts.increment(cartsToWrite.size());
+    } finally {
+      Lists.reverse(locks).forEach(Lock::unlock);
+    }
+  }
+
+  private void evictIdleCarts() {
+    final long idleSince = System.currentTimeMillis() - activeCartProperties.getIdleTimeout().toMillis();
+    carts.values()
+        .stream()
+        .filter(cart -> !cart.isDirty() && cart.lastAccessMillis < idleSince)
+        .forEach(this::evict);
+
+    final int excessCarts = carts.size() - activeCartProperties.getMaximumSize();
+    if (excessCarts <= 0) return;
+
+    carts.values()
+        .stream()
+        .filter(cart -> !cart.isDirty())
+        .sorted(Comparator.comparingLong(cart -> cart.lastAccessMillis))
+        .limit(excessCarts)
+        .collect(Collectors.toList())
+        .forEach(this::evict);
+  }
+
+  private void evict(final ActiveCart cart) {
+    final Lock lock = cartLocks.get(cart.cartId);
+    lock.lock();
+    try {
+      // Only dropped if it hasn't changed since it was written
+      carts.remove(cart.cartId, cart);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void unclaim(final Integer cartId) {
+    final Lock lock = cartLocks.get(cartId);
+    lock.lock();
+    try {
+      claimedCarts.remove(cartId);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private ActiveCart update(final Integer cartId, final UnaryOperator<ActiveCart> change) {
+    while (true) {
+      if (Objects.isNull(load(cartId))) throw new IllegalArgumentException(CartService.CART_DOES_NOT_EXIST_EXCEPTION_MESSAGE);
+
+      final ActiveCart updatedCart = carts.computeIfPresent(cartId, (id, cart) -> change.apply(cart));
+      if (Objects.nonNull(updatedCart)) return updatedCart;
+      // The cart was dropped from memory or checked out after it was loaded, loading it again tells which
+    }
+  }
+
+  // Returns the cart if it is in memory or in the "cart" table, carts that are being purchased are left out
+  private ActiveCart load(final Integer cartId) {
+    final ActiveCart cart = carts.get(cartId);
+    if (Objects.nonNull(cart)) return cart;
+
+    final Lock lock = cartLocks.get(cartId);
+    lock.lock();
+    try {
+      if (carts.containsKey(cartId)) return carts.get(cartId);
+      if (claimedCarts.containsKey(cartId)) return null;
+
+      final Optional<Cart> storedCart = cartRepository.findById(cartId);
+      if (!storedCart.isPresent()) return null;
+
+      final ActiveCart loadedCart = ActiveCart.loaded(storedCart.get(), System.currentTimeMillis());
+      carts.put(cartId, loadedCart);
+      return loadedCart;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private Cart toCart(final ActiveCart cart) {
+    return toCarts(Collections.singletonList(cart)).get(cart.cartId);
+  }
+
+  // Reads the products of all the carts in one query
+  private Map<Integer, Cart> toCarts(final List<ActiveCart> activeCarts) {
+    final Set<Integer> productIds = activeCarts.stream()
+        .flatMapToInt(cart -> IntStream.of(cart.productIds))
+        .boxed()
+        .collect(Collectors.toSet());
+    final Map<Integer, Product> productsById = productIds.isEmpty() ? Collections.emptyMap() :
+        productRepository.findAllById(productIds)
+            .stream()
+            .collect(Collectors.toMap(Product::getProductId, Function.identity()));
+
+    final Map<Integer, Cart> cartsById = new LinkedHashMap<>();
+    for (final ActiveCart cart : activeCarts) {
+      final List<Product> products = IntStream.of(cart.productIds)
+          .mapToObj(productsById::get)
+          .filter(Objects::nonNull)
+          .collect(Collectors.toList());
+      cartsById.put(cart.cartId,
+          new Cart(cart.cartId, products, cart.productPricesInCents(), Money.ofCents(cart.totalCostInCents)));
+    }
+
+    return cartsById;
+  }
+}
@@ -0,0 +1,18 @@
+package com.chintan.shopifychallenge.cart;
+
+import com.chintan.shopifychallenge.models.Money;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * A cart taken out of the {@link ActiveCartStore} to be purchased. Only the IDs of its products are carried along,
+ * the purchase reads (and locks) the products itself so it never works with product rows read before the lock.
+ */
+@Value
+public class CheckedOutCart {
+  Integer cartId;
+  // NOTE: Sorted in ascending order
+  List<Integer> productIds;
+  Money totalCost;
+}
@@ -0,0 +1,106 @@
+package com.chintan.shopifychallenge.catalog;
+
+import com.chintan.shopifychallenge.models.Product;
+
+import java.util.*;
+
+/**
+ * An immutable view of every product, kept in arrays sorted by product ID.
+ *
+ * A snapshot is never changed once it has been built: applying changes builds a new snapshot (copying the arrays,
+ * which only copies references), so any number of threads can read a snapshot without locks. The products are copies
+ * that aren't attached to any persistence context and must not be changed by whoever reads them.
+ */
+public final class CatalogSnapshot {
+  static final CatalogSnapshot EMPTY = new CatalogSnapshot(new int[0], new Product[0]);
+
+  private final int[] productIds;
+  private final Product[] products;
+  private final List<Product> allProducts;
+  private final List<Product> inStockProducts;
+
+  private CatalogSnapshot(final int[] productIds, final Product[] products) {
+    this.productIds = productIds;
+    this.products = products;
+    this.allProducts = Collections.unmodifiableList(Arrays.asList(products));
+    this.inStockProducts = Collections.unmodifiableList(Arrays.asList(
+        Arrays.stream(products).filter(Product::inStock).toArray(Product[]::new)));
+  }
+
+  static CatalogSnapshot of(final Collection<Product> products) {
+    return EMPTY.withChanges(products);
+  }
+
+  /**
+   * Returns a new snapshot with the given products added or replaced.
+   */
+  CatalogSnapshot withChanges(final Collection<Product> changedProducts) {
+    if (changedProducts.isEmpty()) return this;
+
+    // The last change to a product wins
+    final SortedMap<Integer, Product> changesById = new TreeMap<>();
+    changedProducts.forEach(product -> changesById.put(product.getProductId(), copyOf(product)));
+
+    final int[] newProductIds = new int[productIds.length + changesById.size()];
+    final Product[] newProducts = new Product[newProductIds.length];
+    int size = 0;
+    int index = 0;
+
+    // Merges the sorted changes into the sorted products, changed products replace the ones with the same ID
+    for (final Product change : changesById.values()) {
+      while (index < productIds.length && productIds[index] < change.getProductId()) {
+        newProductIds[size] = productIds[index];
+        newProducts[size++] = products[index++];
+      }
+      if (index < productIds.length && productIds[index] == change.getProductId()) index++;
+
+      newProductIds[size] = change.getProductId();
+      newProducts[size++] = change;
+    }
+    final int remaining = productIds.length - index;
+    System.arraycopy(productIds, index, newProductIds, size, remaining);
+    System.arraycopy(products, index, newProducts, size, remaining);
+    size += remaining;
+
+    return new CatalogSnapshot(Arrays.copyOf(newProductIds, size), Arrays.copyOf(newProducts, size));
+  }
+
+  public Optional<Product> get(final Integer productId) {
+    final int index = Arrays.binarySearch(productIds, productId);
+    return index >= 0 ? Optional.of(products[index]) : Optional.empty();
+  }
+
+  /**
+   * Returns the given products sorted by ID, IDs that aren't in the snapshot are left out.
+   */
+  public List<Product> getAll(final Collection<Integer> productIds) {
+    final List<Product> foundProducts = new ArrayList<>(productIds.size());
+    productIds.stream()
+        .sorted()
+        .distinct()
+        .forEach(productId -> get(productId).ifPresent(foundProducts::add));
+
+    return foundProducts;
+  }
+
+  // Sorted by ID
+  public List<Product> getAll() {
+    return allProducts;
+  }
+
+  // Sorted by ID
+  public List<Product> getInStock() {
+    return inStockProducts;
+  }
+
+  public int size() {
+    return products.length;
+  }
+
+  private static Product copyOf(final Product product) {
+    final Product copy =
+        new Product(product.getProductId(), product.getTitle(), product.getPrice(), product.getInventoryCount());
+    copy.setVersion(product.getVersion());
+    return copy;
+  }
+}
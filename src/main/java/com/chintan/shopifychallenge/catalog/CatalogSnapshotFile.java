@@ -0,0 +1,149 @@
+package com.chintan.shopifychallenge.catalog;
+
+import com.chintan.shopifychallenge.models.Money;
+import com.chintan.shopifychallenge.models.Product;
+import com.google.common.base.Preconditions;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Compact binary file format for the whole catalog, meant to be memory-mapped at startup.
+ *
+ * The file is a 16 byte header (magic number, format version, number of products and size of the string table),
+ * followed by one fixed-width 24 byte record per product (ID, price in cents, inventory count and the offset and
+ * length of its title) and a string table holding every distinct title once as UTF-8. All numbers are big-endian.
+ */
+public final class CatalogSnapshotFile {
+  public static final String INVALID_FILE_EXCEPTION_MESSAGE = "This is not a catalog snapshot file.";
+  public static final String UNSUPPORTED_VERSION_EXCEPTION_MESSAGE = "This catalog snapshot file has an unsupported version.";
+  public static final String TRUNCATED_FILE_EXCEPTION_MESSAGE = "This catalog snapshot file is incomplete.";
+
+  static final int MAGIC = 0x43415453; // "CATS"
+  static final int VERSION = 1;
+  static final int HEADER_BYTES = 16;
+  static final int RECORD_BYTES = 24;
+
+  private CatalogSnapshotFile() {
+  }
+
+  /**
+   * Writes the products to the file. The file is written next to the destination first and then moved over it, so a
+   * failed write never leaves a broken snapshot behind.
+   */
+  public static long write(final Path path, final Collection<Product> products) throws IOException {
+    final Map<String, Integer> titleOffsets = new HashMap<>();
+    final ByteBuffer records = ByteBuffer.allocate(Math.multiplyExact(products.size(), RECORD_BYTES));
+    final StringTable stringTable = new StringTable();
+
+    for (final Product product : products) {
+      final byte[] title = product.getTitle().getBytes(StandardCharsets.UTF_8);
+      final int titleOffset = titleOffsets.computeIfAbsent(product.getTitle(), ignored -> stringTable.add(title));
+
+      records.putInt(product.getProductId())
+          .putLong(product.getPrice().getCents())
+          .putInt(product.getInventoryCount())
+          .putInt(titleOffset)
+          .putInt(title.length);
+    }
+
+    final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+        .putInt(MAGIC)
+        .putInt(VERSION)
+        .putInt(products.size())
+        .putInt(stringTable.size());
+    header.flip();
+    records.flip();
+
+    final Path temporaryPath = path.resolveSibling(path.getFileName() + ".tmp");
+    try (final FileChannel channel = FileChannel.open(temporaryPath,
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      for (final ByteBuffer buffer : new ByteBuffer[]{header, records, stringTable.toByteBuffer()})
+        while (buffer.hasRemaining()) channel.write(buffer);
+      channel.force(true);
+    }
+    Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+    return Files.size(path);
+  }
+
+  /**
+   * Reads all the products from the file by memory-mapping it, products come back in the order they were written.
+   */
+  public static List<Product> read(final Path path) throws IOException {
+    final MappedByteBuffer buffer;
+    try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      Preconditions.checkArgument(channel.size() >= HEADER_BYTES, TRUNCATED_FILE_EXCEPTION_MESSAGE);
+      // The mapping stays valid after the channel has been closed
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+
+    Preconditions.checkArgument(buffer.getInt() == MAGIC, INVALID_FILE_EXCEPTION_MESSAGE);
+    Preconditions.checkArgument(buffer.getInt() == VERSION, UNSUPPORTED_VERSION_EXCEPTION_MESSAGE);
+    final int productCount = buffer.getInt();
+    final int stringTableBytes = buffer.getInt();
+
+    final long stringTableStart = HEADER_BYTES + (long) productCount * RECORD_BYTES;
+    Preconditions.checkArgument(productCount >= 0 && stringTableBytes >= 0
+        && stringTableStart + stringTableBytes == buffer.capacity(), TRUNCATED_FILE_EXCEPTION_MESSAGE);
+
+    // Titles are shared between products, so each one is only decoded once
+    final Map<Integer, String> titlesByOffset = new HashMap<>();
+    final List<Product> products = new ArrayList<>(productCount);
+    for (int i = 0; i < productCount; i++) {
+      final int productId = buffer.getInt();
+      final long priceInCents = buffer.getLong();
+      final int inventoryCount = buffer.getInt();
+      final int titleOffset = buffer.getInt();
+      final int titleLength = buffer.getInt();
+      Preconditions.checkArgument(titleOffset >= 0 && titleLength >= 0 && (long) titleOffset + titleLength <= stringTableBytes,
+          TRUNCATED_FILE_EXCEPTION_MESSAGE);
+
+      final String title = titlesByOffset.computeIfAbsent(titleOffset,
+          ignored -> decode(buffer, (int) stringTableStart + titleOffset, titleLength));
+      products.add(new Product(productId, title, Money.ofCents(priceInCents), inventoryCount));
+    }
+
+    return products;
+  }
+
+  private static String decode(final ByteBuffer buffer, final int start, final int length) {
+    final byte[] bytes = new byte[length];
+    final ByteBuffer title = buffer.duplicate();
+    title.position(start);
+    title.get(bytes);
+
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static class StringTable {
+    private byte[] bytes = new byte[4096];
+    private int size;
+
+    // Returns the offset the string was added at
+    private int add(final byte[] string) {
+      if (size + string.length > bytes.length)
+        bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, Math.addExact(size, string.length)));
+
+      System.arraycopy(string, 0, bytes, size, string.length);
+      size += string.length;
+      return size - string.length;
+    }
+
+    private int size() {
+      return size;
+    }
+
+    private ByteBuffer toByteBuffer() {
+      return ByteBuffer.wrap(bytes, 0, size);
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package com.chintan.shopifychallenge.catalog;
+
+import com.chintan.shopifychallenge.config.CatalogSnapshotFileProperties;
+import com.chintan.shopifychallenge.models.Product;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import lombok.Value;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Actuator endpoint that writes the catalog of this running instance to a {@link CatalogSnapshotFile}, which other
+ * instances can then start from ("POST /actuator/catalogsnapshot").
+ */
+@Component
+@Endpoint(id = "catalogsnapshot")
+public class CatalogSnapshotFileEndpoint {
+  public static final String MISSING_PATH_ERROR_MESSAGE = "\"catalog.snapshot-file.path\" has to be set to write the file.";
+
+  private final ProductCatalog productCatalog;
+  private final CatalogSnapshotFileProperties catalogSnapshotFileProperties;
+
+  @Autowired
+  public CatalogSnapshotFileEndpoint(final ProductCatalog productCatalog,
+                                     final CatalogSnapshotFileProperties catalogSnapshotFileProperties) {
+    this.productCatalog = productCatalog;
+    this.catalogSnapshotFileProperties = catalogSnapshotFileProperties;
+  }
+
+  /**
+   * Writes the file to "catalog.snapshot-file.path", replacing the one that is there.
+   */
+  // NOTE: The path can't be passed in so this endpoint can't be used to write files anywhere else
+  @WriteOperation
+  public WrittenSnapshot writeSnapshot() throws IOException {
+    final String snapshotPath = catalogSnapshotFileProperties.getPath();
+    Preconditions.checkState(!Strings.isNullOrEmpty(snapshotPath), MISSING_PATH_ERROR_MESSAGE);
+
+    // The products are taken from memory so writing the file doesn't scan the "product" table, changes that are
+    // still waiting to be swapped into the snapshot are swapped in first
+    productCatalog.publishPendingChanges();
+    final List<Product> products = productCatalog.snapshot().getAll();
+    final Path writtenPath = Paths.get(snapshotPath).toAbsolutePath();
+
+    return new WrittenSnapshot(writtenPath.toString(), products.size(), CatalogSnapshotFile.write(writtenPath, products));
+  }
+
+  @Value
+  public static class WrittenSnapshot {
+    private final String path;
+    private final int products;
+    private final long bytes;
+  }
+}
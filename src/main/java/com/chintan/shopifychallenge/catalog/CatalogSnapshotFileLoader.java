@@ -0,0 +1,120 @@
+package com.chintan.shopifychallenge.catalog;
+
+import com.chintan.shopifychallenge.config.CatalogSnapshotFileProperties;
+import com.chintan.shopifychallenge.models.Product;
+import com.google.common.base.Strings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads the catalog from a {@link CatalogSnapshotFile} at startup instead of building it row by row from SQL.
+ *
+ * The products are inserted with plain JDBC batches once every bean has been created, which is before anything
+ * reads the catalog on the context refresh. The products read from the file are then handed to whoever builds the
+ * in-memory catalog so it doesn't have to read them back from the database.
+ *
+ * The products keep the IDs they have in the file, so the ID sequence is restarted after the highest of them in the
+ * same transaction. Otherwise the next product added through Hibernate could be given an ID that is already taken
+ * (data.sql does the same for its products, but it isn't run when the file is used).
+ */
+@Component
+public class CatalogSnapshotFileLoader implements SmartInitializingSingleton {
+  private static final Logger LOGGER = LoggerFactory.getLogger(CatalogSnapshotFileLoader.class);
+
+  private static final String INSERT_PRODUCT_SQL =
+      "INSERT INTO product (product_id, title, price_in_cents, inventory_count) VALUES (?, ?, ?, ?)";
+  private static final String COUNT_PRODUCTS_SQL = "SELECT COUNT(*) FROM product";
+  // NOTE: Sequence values can't be bound as parameters, the value is always a number read from the file
+  private static final String RESTART_SEQUENCE_SQL = "ALTER SEQUENCE hibernate_sequence RESTART WITH %d";
+
+  private final CatalogSnapshotFileProperties catalogSnapshotFileProperties;
+  private final JdbcTemplate jdbcTemplate;
+  private final TransactionTemplate transactionTemplate;
+
+  private volatile List<Product> loadedProducts;
+
+  @Autowired
+  public CatalogSnapshotFileLoader(final CatalogSnapshotFileProperties catalogSnapshotFileProperties,
+                                   final JdbcTemplate jdbcTemplate, final PlatformTransactionManager transactionManager) {
+    this.catalogSnapshotFileProperties = catalogSnapshotFileProperties;
+    this.jdbcTemplate = jdbcTemplate;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+  }
+
+  @Override
+  public void afterSingletonsInstantiated() {
+    if (Strings.isNullOrEmpty(catalogSnapshotFileProperties.getPath())) return;
+
+    final Path path = Paths.get(catalogSnapshotFileProperties.getPath());
+    if (!Files.exists(path)) {
+      LOGGER.info("No catalog snapshot file at {}, the catalog is read from the database", path);
+      return;
+    }
+
+    // NOTE: Products loaded by data.sql (or still there from a previous run) are never overwritten, so the file
+    // should be used with "spring.datasource.initialization-mode=never"
+    if (jdbcTemplate.queryForObject(COUNT_PRODUCTS_SQL, Long.class) > 0) {
+      LOGGER.warn("The product table isn't empty, the catalog snapshot file at {} was not loaded", path);
+      return;
+    }
+
+    final long startNanos = System.nanoTime();
+    final List<Product> products;
+    try {
+      products = CatalogSnapshotFile.read(path);
+    } catch (final IOException e) {
+      throw new UncheckedIOException("Failed to read the catalog snapshot file at " + path, e);
+    }
+    transactionTemplate.execute(status -> {
+      insertProducts(products);
+      restartIdSequence(products);
+      return null;
+    });
+
+    loadedProducts = products;
+    LOGGER.info("Loaded {} products from the catalog snapshot file at {} in {} ms", products.size(), path,
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+  }
+
+  /**
+   * Returns the products that were loaded from the file at startup, only the first call gets them so they can be
+   * garbage collected once the catalog has been built.
+   */
+  public synchronized Optional<List<Product>> takeLoadedProducts() {
+    final Optional<List<Product>> products = Optional.ofNullable(loadedProducts);
+    loadedProducts = null;
+
+    return products;
+  }
+
+  private void restartIdSequence(final List<Product> products) {
+    final OptionalInt maxProductId = products.stream().mapToInt(Product::getProductId).max();
+    if (maxProductId.isPresent()) jdbcTemplate.execute(String.format(RESTART_SEQUENCE_SQL, maxProductId.getAsInt() + 1L));
+  }
+
+  private void insertProducts(final List<Product> products) {
+    jdbcTemplate.batchUpdate(INSERT_PRODUCT_SQL, products, catalogSnapshotFileProperties.getInsertBatchSize(),
+        (statement, product) -> {
+          statement.setInt(1, product.getProductId());
+          statement.setString(2, product.getTitle());
+          statement.setLong(3, product.getPrice().getCents());
+          statement.setInt(4, product.getInventoryCount());
+        });
+  }
+}
@@ -0,0 +1,17 @@
+package com.chintan.shopifychallenge.catalog;
+
+import lombok.Value;
+
+/**
+ * A list of products that has already been encoded as a JSON response body, both as is and gzipped.
+ *
+ * The entity tags are strong and derived from the encoded products, so they stay the same for the same products
+ * across restarts. The gzipped body has its own tag since it is a different representation.
+ */
+@Value
+public class EncodedCatalog {
+  private final String entityTag;
+  private final String gzipEntityTag;
+  private final byte[] json;
+  private final byte[] gzippedJson;
+}
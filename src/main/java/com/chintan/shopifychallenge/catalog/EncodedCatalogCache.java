@@ -0,0 +1,108 @@
+package com.chintan.shopifychallenge.catalog;
+
+import com.chintan.shopifychallenge.models.Product;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.hash.Hashing;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the encoded bodies of the whole catalog ("GET /products") and of the in-stock products for the current
+ * {@link CatalogSnapshot}.
+ *
+ * Products are only encoded again once the snapshot has been swapped out, i.e. after a purchase, restock or other
+ * committed change. Every other request gets the same bytes without going through Jackson or gzip again.
+ */
+@Component
+public class EncodedCatalogCache {
+  public static final String ENCODINGS_METER_NAME = "catalog.responses.encodings";
+
+  private final ProductCatalog productCatalog;
+  private final ObjectMapper objectMapper;
+  private final Counter encodings;
+
+  private volatile Entry allProducts;
+  private volatile Entry inStockProducts;
+
+  @Autowired
+  public EncodedCatalogCache(final ProductCatalog productCatalog, final ObjectMapper objectMapper,
+                             final MeterRegistry meterRegistry) {
+    this.productCatalog = productCatalog;
+    this.objectMapper = objectMapper;
+    this.encodings = meterRegistry.counter(ENCODINGS_METER_NAME);
+  }
+
+  public EncodedCatalog getAllProducts() {
+    final CatalogSnapshot snapshot = productCatalog.snapshot();
+    final Entry entry = allProducts;
+    if (isCurrent(entry, snapshot)) return entry.encodedCatalog;
+
+    return encodeAllProducts(snapshot);
+  }
+
+  public EncodedCatalog getInStockProducts() {
+    final CatalogSnapshot snapshot = productCatalog.snapshot();
+    final Entry entry = inStockProducts;
+    if (isCurrent(entry, snapshot)) return entry.encodedCatalog;
+
+    return encodeInStockProducts(snapshot);
+  }
+
+  // NOTE: Encoding is synchronized so the pollers that all miss right after a change wait for one encoding of the new
+  // snapshot instead of each encoding it themselves
+  private synchronized EncodedCatalog encodeAllProducts(final CatalogSnapshot snapshot) {
+    if (!isCurrent(allProducts, snapshot)) allProducts = encode(snapshot, CatalogSnapshot::getAll);
+    return allProducts.encodedCatalog;
+  }
+
+  private synchronized EncodedCatalog encodeInStockProducts(final CatalogSnapshot snapshot) {
+    if (!isCurrent(inStockProducts, snapshot)) inStockProducts = encode(snapshot, CatalogSnapshot::getInStock);
+    return inStockProducts.encodedCatalog;
+  }
+
+  private Entry encode(final CatalogSnapshot snapshot, final Function<CatalogSnapshot, List<Product>> products) {
+    try {
+      final byte[] json = objectMapper.writeValueAsBytes(products.apply(snapshot));
+      final String hash = Hashing.murmur3_128().hashBytes(json).toString();
+      encodings.increment();
+
+      return new Entry(snapshot, new EncodedCatalog("\"" + hash + "\"", "\"" + hash + "-gzip\"", json, gzip(json)));
+    } catch (final JsonProcessingException e) {
+      throw new IllegalStateException("Failed to encode the catalog", e);
+    }
+  }
+
+  // Snapshots are immutable so the encoded bodies are current for as long as the snapshot hasn't been replaced
+  private static boolean isCurrent(final Entry entry, final CatalogSnapshot snapshot) {
+    return Objects.nonNull(entry) && entry.snapshot == snapshot;
+  }
+
+  private static byte[] gzip(final byte[] bytes) {
+    final ByteArrayOutputStream outputStream = new ByteArrayOutputStream(bytes.length / 4);
+    try (final GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream)) {
+      gzipOutputStream.write(bytes);
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    return outputStream.toByteArray();
+  }
+
+  @AllArgsConstructor
+  private static class Entry {
+    private final CatalogSnapshot snapshot;
+    private final EncodedCatalog encodedCatalog;
+  }
+}
@@ -0,0 +1,39 @@
+package com.chintan.shopifychallenge.catalog;
+
+import com.chintan.shopifychallenge.models.Product;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Collectors;
+
+/**
+ * Live set of the IDs of all products that currently have inventory left.
+ *
+ * A product only enters or leaves the set when its inventory crosses zero (a purchase selling the last unit or a
+ * restock of a sold out product), every other inventory change leaves the set untouched.
+ */
+@Component
+public class InStockProductIndex {
+  private final NavigableSet<Integer> inStockProductIds = new ConcurrentSkipListSet<>();
+
+  public void index(final Product product) {
+    if (product.inStock()) inStockProductIds.add(product.getProductId());
+    else inStockProductIds.remove(product.getProductId());
+  }
+
+  public boolean isInStock(final Integer productId) {
+    return inStockProductIds.contains(productId);
+  }
+
+  /**
+   * Returns at most {@code limit} in-stock product IDs greater than {@code afterProductId} in ascending order.
+   */
+  public List<Integer> getInStockProductIds(final Integer afterProductId, final int limit) {
+    return inStockProductIds.tailSet(afterProductId, false)
+        .stream()
+        .limit(limit)
+        .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,60 @@
+package com.chintan.shopifychallenge.catalog;
+
+import com.chintan.shopifychallenge.config.ProductCacheProperties;
+import com.chintan.shopifychallenge.models.Product;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache of single products in front of the "product" table.
+ *
+ * Entries are evicted once the cache grows past its maximum size or once they are older than the configured expiry,
+ * and cached products are replaced as soon as a {@link ProductsChangedEvent} tells us their inventory changed.
+ * Hit, miss and eviction statistics are published as the "cache.*" metrics tagged with cache=products.
+ */
+@Component
+public class ProductCache {
+  public static final String CACHE_NAME = "products";
+
+  private final Cache<Integer, Product> productsById;
+
+  @Autowired
+  public ProductCache(final ProductCacheProperties productCacheProperties, final MeterRegistry meterRegistry) {
+    this.productsById = CacheBuilder.newBuilder()
+        .maximumSize(productCacheProperties.getMaximumSize())
+        .expireAfterWrite(productCacheProperties.getExpireAfterWrite().toMillis(), TimeUnit.MILLISECONDS)
+        .recordStats()
+        .build();
+
+    GuavaCacheMetrics.monitor(meterRegistry, productsById, CACHE_NAME);
+  }
+
+  public Optional<Product> get(final Integer productId, final Function<Integer, Optional<Product>> productLoader) {
+    final Product cachedProduct = productsById.getIfPresent(productId);
+    if (Objects.nonNull(cachedProduct)) return Optional.of(cachedProduct);
+
+    // A change can be cached while the product is being loaded, the loaded copy doesn't replace it if it is older
+    final Optional<Product> loadedProduct = productLoader.apply(productId);
+    loadedProduct.ifPresent(product -> productsById.asMap().merge(productId, product, Product::newer));
+
+    return loadedProduct;
+  }
+
+  /**
+   * Replaces the cached copy of the product if there is one and it is older, products that aren't cached yet are left
+   * alone.
+   */
+  public void update(final Product product) {
+    productsById.asMap()
+        .computeIfPresent(product.getProductId(), (productId, cachedProduct) -> Product.newer(cachedProduct, product));
+  }
+}
@@ -0,0 +1,117 @@
+package com.chintan.shopifychallenge.catalog;
+
+import com.chintan.shopifychallenge.config.CatalogSnapshotProperties;
+import com.chintan.shopifychallenge.models.Product;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the current {@link CatalogSnapshot} that product reads are served from.
+ *
+ * Changed products are gathered as they come in and swapped into a new snapshot together every
+ * "catalog.snapshot.max-staleness", so a burst of purchases costs one copy of the snapshot instead of one per
+ * purchase. Readers just read the current snapshot, they never wait for a swap. Changes themselves always go to the
+ * database first and only reach the snapshot once they have been committed.
+ */
+@Component
+public class ProductCatalog {
+  public static final String SNAPSHOT_SIZE_METER_NAME = "catalog.snapshot.size";
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ProductCatalog.class);
+
+  private final CatalogSnapshotProperties catalogSnapshotProperties;
+  private final Map<Integer, Product> pendingChanges = new ConcurrentHashMap<>();
+  private volatile CatalogSnapshot snapshot = CatalogSnapshot.EMPTY;
+
+  private final ScheduledExecutorService publishScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    final Thread thread = new Thread(runnable, "catalog-snapshot");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  @Autowired
+  public ProductCatalog(final CatalogSnapshotProperties catalogSnapshotProperties, final MeterRegistry meterRegistry) {
+    this.catalogSnapshotProperties = catalogSnapshotProperties;
+    meterRegistry.gauge(SNAPSHOT_SIZE_METER_NAME, this, productCatalog -> productCatalog.snapshot.size());
+  }
+
+  @PostConstruct
+  public void start() {
+    final long maxStalenessMillis = catalogSnapshotProperties.getMaxStaleness().toMillis();
+    if (maxStalenessMillis <= 0) return;
+
+    publishScheduler.scheduleWithFixedDelay(this::publishPendingChangesSafely, maxStalenessMillis, maxStalenessMillis,
+        TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    publishScheduler.shutdown();
+    publishScheduler.awaitTermination(10, TimeUnit.SECONDS);
+  }
+
+  public CatalogSnapshot snapshot() {
+    return snapshot;
+  }
+
+  /**
+   * Replaces the whole snapshot, e.g. once the products have been loaded at startup. Changes that haven't been
+   * swapped in yet are applied on top.
+   */
+  public synchronized void replaceAll(final Collection<Product> products) {
+    snapshot = CatalogSnapshot.of(products).withChanges(drainPendingChanges());
+  }
+
+  /**
+   * Queues committed product changes, they are swapped in at the next publish (or right away without a staleness
+   * bound). The changes of a product have to come in the order they were made, the last one queued wins (see
+   * {@link com.chintan.shopifychallenge.services.ProductService#onProductsChanged}).
+   */
+  public void update(final Collection<Product> changedProducts) {
+    changedProducts.forEach(product -> pendingChanges.put(product.getProductId(), product));
+    if (catalogSnapshotProperties.getMaxStaleness().toMillis() <= 0) publishPendingChanges();
+  }
+
+  public synchronized void publishPendingChanges() {
+    if (pendingChanges.isEmpty()) return;
+
+    snapshot = snapshot.withChanges(drainPendingChanges());
+  }
+
+  private Collection<Product> drainPendingChanges() {
+    if (pendingChanges.isEmpty()) return Collections.emptyList();
+
+    // A change that comes in while draining is either taken now or left for the next publish, never lost
+    final Collection<Product> changes = new ArrayList<>(pendingChanges.size());
+    pendingChanges.keySet().forEach(productId -> {
+      final Product change = pendingChanges.remove(productId);
+      if (Objects.nonNull(change)) changes.add(change);
+    });
+
+    return changes;
+  }
+
+  private void publishPendingChangesSafely() {
+    try {
+      publishPendingChanges();
+    } catch (final RuntimeException e) {
+      // The changes that weren't swapped in are lost, the next change to the same products brings them up to date
+      LOGGER.error("Failed to publish product changes to the catalog snapshot", e);
+    }
+  }
+}
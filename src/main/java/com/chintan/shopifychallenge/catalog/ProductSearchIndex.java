@@ -0,0 +1,296 @@
+package com.chintan.shopifychallenge.catalog;
+
+import com.chintan.shopifychallenge.models.Product;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+/**
+ * In-memory full-text index over product titles.
+ *
+ * Titles are split into lower-cased words and every word points to the products whose title contains it. The words
+ * are kept sorted, so a query word also matches every word it is the start of ("cab" finds "cable") with a range scan
+ * instead of storing every prefix of every word. Each query word adds to the score of the products it matches: rare
+ * words count for more than common ones and a whole word counts for more than the start of one. Only the words of a
+ * title that changed are touched when a product is indexed again.
+ *
+ * Products are numbered densely inside the index so the word postings and the scores of a search are plain int and
+ * double arrays, a common word in a million titles is scored without creating an object per product.
+ */
+@Component
+public class ProductSearchIndex {
+  // Query words shorter than this only match whole words, a single letter would otherwise match most of the catalog
+  static final int MIN_PREFIX_LENGTH = 2;
+  // A query word never matches the start of more than this many different words
+  static final int MAX_PREFIX_EXPANSIONS = 64;
+  // The start of a word counts for at most this fraction of the whole word
+  private static final double PREFIX_WEIGHT = 0.5;
+  private static final int INITIAL_CAPACITY = 1024;
+
+  // NOTE: Searches share the read lock, indexing a product takes the write lock for as long as it takes to move the
+  // product between the postings of the words that changed
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<Integer, Integer> documentsByProductId = new HashMap<>();
+  private final Deque<Integer> freeDocuments = new ArrayDeque<>();
+  private final NavigableMap<String, Postings> postingsByWord = new TreeMap<>();
+  private int[] productIds = new int[INITIAL_CAPACITY];
+  private Title[] titles = new Title[INITIAL_CAPACITY];
+  private int[] titleLengths = new int[INITIAL_CAPACITY];
+  private int documentCount;
+
+  // NOTE: The scores of a search take a few bytes per product, so they are handed back once the search is done and
+  // reused by the next one. There are only ever as many as there have been searches running at the same time.
+  private final Queue<Scores> idleScores = new ConcurrentLinkedQueue<>();
+
+  public void index(final Product product) {
+    final Integer productId = product.getProductId();
+    if (Objects.isNull(product.getTitle())) {
+      remove(productId);
+      return;
+    }
+
+    lock.writeLock().lock();
+    try {
+      final Integer existingDocument = documentsByProductId.get(productId);
+      final Title previousTitle = Objects.isNull(existingDocument) ? null : titles[existingDocument];
+      // Most changes to a product are inventory changes, those leave the words alone
+      if (Objects.nonNull(previousTitle) && previousTitle.text.equals(product.getTitle())) return;
+
+      final int document = Objects.isNull(existingDocument) ? newDocument(productId) : existingDocument;
+      final Title title = new Title(product.getTitle());
+      titles[document] = title;
+      titleLengths[document] = title.text.length();
+
+      final Set<String> previousWords = Objects.isNull(previousTitle) ? Collections.emptySet() : previousTitle.words;
+      for (final String word : previousWords) if (!title.words.contains(word)) removeFromWord(word, document);
+      for (final String word : title.words) if (!previousWords.contains(word)) addToWord(word, document);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  // A product without a title has no words to be found by
+  private void remove(final Integer productId) {
+    lock.writeLock().lock();
+    try {
+      final Integer document = documentsByProductId.remove(productId);
+      if (Objects.isNull(document)) return;
+
+      titles[document].words.forEach(word -> removeFromWord(word, document));
+      titles[document] = null;
+      freeDocuments.push(document);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Returns the IDs of the best matching products for the query, best match first. Products with the same score are
+   * ordered by the length of their title (shorter first) and then by ID. Only products accepted by the filter are
+   * returned, the filter is only asked about products that would make it into the results.
+   */
+  public List<Integer> search(final String query, final int limit, final IntPredicate productFilter) {
+    final Set<String> queryWords = words(query);
+
+    final Scores scores = Optional.ofNullable(idleScores.poll()).orElseGet(Scores::new);
+    lock.readLock().lock();
+    try {
+      scores.reset(documentCount);
+
+      for (final String queryWord : queryWords) {
+        for (final Map.Entry<String, Postings> match : matchingWords(queryWord).entrySet()) {
+          final String word = match.getKey();
+          final Postings postings = match.getValue();
+          final double score = idf(postings.size) * (word.equals(queryWord)
+              ? 1.0 : PREFIX_WEIGHT * queryWord.length() / word.length());
+
+          for (int i = 0; i < postings.size; i++) scores.match(postings.documents[i], score);
+        }
+        scores.endOfQueryWord();
+      }
+
+      return topMatches(scores, limit, productFilter);
+    } finally {
+      lock.readLock().unlock();
+      idleScores.offer(scores);
+    }
+  }
+
+  private Map<String, Postings> matchingWords(final String queryWord) {
+    if (queryWord.length() < MIN_PREFIX_LENGTH) {
+      final Postings postings = postingsByWord.get(queryWord);
+      return Objects.isNull(postings) ? Collections.emptyMap() : Collections.singletonMap(queryWord, postings);
+    }
+
+    // Every word starting with the query word sorts between the query word itself and the query word followed by the
+    // highest possible character
+    final Map<String, Postings> matchingWords = new LinkedHashMap<>();
+    for (final Map.Entry<String, Postings> entry
+        : postingsByWord.subMap(queryWord, true, queryWord + Character.MAX_VALUE, false).entrySet()) {
+      if (matchingWords.size() == MAX_PREFIX_EXPANSIONS) break;
+      matchingWords.put(entry.getKey(), entry.getValue());
+    }
+
+    return matchingWords;
+  }
+
+  private List<Integer> topMatches(final Scores scores, final int limit, final IntPredicate productFilter) {
+    // Only the best "limit" matches are kept, the worst of them sits at the head of the queue
+    final PriorityQueue<Integer> topMatches = new PriorityQueue<>(limit + 1,
+        (first, second) -> compareMatches(scores, second, first));
+    for (int i = 0; i < scores.matchedCount; i++) {
+      final int document = scores.matched[i];
+      if (topMatches.size() == limit && compareMatches(scores, document, topMatches.peek()) >= 0) continue;
+      if (!productFilter.test(productIds[document])) continue;
+
+      topMatches.add(document);
+      if (topMatches.size() > limit) topMatches.poll();
+    }
+
+    final List<Integer> sortedMatches = new ArrayList<>(topMatches);
+    sortedMatches.sort((first, second) -> compareMatches(scores, first, second));
+
+    final List<Integer> matchingProductIds = new ArrayList<>(sortedMatches.size());
+    sortedMatches.forEach(document -> matchingProductIds.add(productIds[document]));
+    return matchingProductIds;
+  }
+
+  // Negative when the first match is better than the second
+  private int compareMatches(final Scores scores, final int first, final int second) {
+    final int byScore = Double.compare(scores.totals[second], scores.totals[first]);
+    if (byScore != 0) return byScore;
+
+    final int byTitleLength = Integer.compare(titleLengths[first], titleLengths[second]);
+    return byTitleLength != 0 ? byTitleLength : Integer.compare(productIds[first], productIds[second]);
+  }
+
+  // Inverse document frequency: the fewer products a word is in, the more it counts
+  private double idf(final int productsWithWord) {
+    return Math.log(1 + (double) Math.max(documentsByProductId.size(), 1) / Math.max(productsWithWord, 1));
+  }
+
+  // Reuses the number of a removed product before handing out a new one
+  private int newDocument(final Integer productId) {
+    final int document;
+    if (freeDocuments.isEmpty()) {
+      if (documentCount == productIds.length) {
+        productIds = Arrays.copyOf(productIds, documentCount * 2);
+        titles = Arrays.copyOf(titles, documentCount * 2);
+        titleLengths = Arrays.copyOf(titleLengths, documentCount * 2);
+      }
+      document = documentCount++;
+    } else {
+      document = freeDocuments.pop();
+    }
+
+    productIds[document] = productId;
+    documentsByProductId.put(productId, document);
+    return document;
+  }
+
+  private void addToWord(final String word, final int document) {
+    postingsByWord.computeIfAbsent(word, key -> new Postings()).add(document);
+  }
+
+  private void removeFromWord(final String word, final int document) {
+    final Postings postings = postingsByWord.get(word);
+    if (Objects.isNull(postings)) return;
+
+    postings.remove(document);
+    if (postings.size == 0) postingsByWord.remove(word);
+  }
+
+  // Words are runs of letters and digits, everything else separates them
+  static Set<String> words(final String text) {
+    final Set<String> words = new LinkedHashSet<>();
+    final String normalizedText = text.toLowerCase(Locale.ROOT);
+
+    int start = -1;
+    for (int i = 0; i <= normalizedText.length(); i++) {
+      final boolean partOfWord = i < normalizedText.length() && Character.isLetterOrDigit(normalizedText.charAt(i));
+      if (partOfWord && start < 0) start = i;
+      if (!partOfWord && start >= 0) {
+        words.add(normalizedText.substring(start, i));
+        start = -1;
+      }
+    }
+
+    return words;
+  }
+
+  private static class Title {
+    private final String text;
+    private final Set<String> words;
+
+    private Title(final String text) {
+      this.text = text;
+      this.words = words(text);
+    }
+  }
+
+  // The products that have a word, in no particular order
+  private static class Postings {
+    private int[] documents = new int[4];
+    private int size;
+
+    private void add(final int document) {
+      if (size == documents.length) documents = Arrays.copyOf(documents, size * 2);
+      documents[size++] = document;
+    }
+
+    private void remove(final int document) {
+      for (int i = 0; i < size; i++) {
+        if (documents[i] == document) {
+          documents[i] = documents[--size];
+          return;
+        }
+      }
+    }
+  }
+
+  /*
+   * A product is scored once per query word, for the best of the words it matched, and the query words are added up.
+   * Scores are always positive so a score of 0 means the product hasn't been matched yet.
+   */
+  private static class Scores {
+    private double[] totals = new double[0];
+    private double[] queryWordScores = new double[0];
+    private int[] matched = new int[0];
+    private int matchedCount;
+    private int[] matchedByQueryWord = new int[0];
+    private int matchedByQueryWordCount;
+
+    private void reset(final int documentCount) {
+      for (int i = 0; i < matchedCount; i++) totals[matched[i]] = 0;
+      for (int i = 0; i < matchedByQueryWordCount; i++) queryWordScores[matchedByQueryWord[i]] = 0;
+      matchedCount = 0;
+      matchedByQueryWordCount = 0;
+
+      if (totals.length < documentCount) {
+        totals = new double[documentCount];
+        queryWordScores = new double[documentCount];
+        matched = new int[documentCount];
+        matchedByQueryWord = new int[documentCount];
+      }
+    }
+
+    private void match(final int document, final double score) {
+      if (queryWordScores[document] == 0) matchedByQueryWord[matchedByQueryWordCount++] = document;
+      if (score > queryWordScores[document]) queryWordScores[document] = score;
+    }
+
+    private void endOfQueryWord() {
+      for (int i = 0; i < matchedByQueryWordCount; i++) {
+        final int document = matchedByQueryWord[i];
+        if (totals[document] == 0) matched[matchedCount++] = document;
+        totals[document] += queryWordScores[document];
+        queryWordScores[document] = 0;
+      }
+      matchedByQueryWordCount = 0;
+    }
+  }
+}
@@ -0,0 +1,23 @@
+package com.chintan.shopifychallenge.catalog;
+
+import com.chintan.shopifychallenge.models.Product;
+
+import java.util.function.ToLongFunction;
+
+/**
+ * The different values products can be sorted by, products with the same value are ordered by their ID.
+ */
+public enum ProductSort {
+  PRICE(product -> product.getPrice().getCents()),
+  INVENTORY(Product::getInventoryCount);
+
+  private final ToLongFunction<Product> sortValue;
+
+  ProductSort(final ToLongFunction<Product> sortValue) {
+    this.sortValue = sortValue;
+  }
+
+  long sortValueOf(final Product product) {
+    return sortValue.applyAsLong(product);
+  }
+}
@@ -0,0 +1,107 @@
+package com.chintan.shopifychallenge.catalog;
+
+import com.chintan.shopifychallenge.models.Product;
+import lombok.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.IntPredicate;
+
+/**
+ * Live ordering of all products by each {@link ProductSort}.
+ *
+ * Every product has one key per sort (its price or inventory and its ID) in a concurrent skip list, so finding the
+ * first product in a range takes O(log n) and every product after it is read in order without looking at the rest
+ * of the catalog. A product's keys are only moved when the value they are sorted by changes.
+ */
+@Component
+public class ProductSortIndex {
+  public static final String UNKNOWN_CURSOR_EXCEPTION_MESSAGE = "The product to continue after is not in the catalog.";
+
+  private final Map<ProductSort, NavigableSet<SortKey>> sortedKeys = new EnumMap<>(ProductSort.class);
+  private final Map<ProductSort, Map<Integer, SortKey>> keysByProductId = new EnumMap<>(ProductSort.class);
+
+  public ProductSortIndex() {
+    for (final ProductSort sort : ProductSort.values()) {
+      sortedKeys.put(sort, new ConcurrentSkipListSet<>());
+      keysByProductId.put(sort, new ConcurrentHashMap<>());
+    }
+  }
+
+  public void index(final Product product) {
+    for (final ProductSort sort : ProductSort.values()) {
+      final SortKey key = new SortKey(sort.sortValueOf(product), product.getProductId());
+
+      // Moving the key happens inside compute so two changes to the same product can't both leave a key behind
+      keysByProductId.get(sort).compute(product.getProductId(), (productId, previousKey) -> {
+        if (key.equals(previousKey)) return previousKey;
+
+        if (Objects.nonNull(previousKey)) sortedKeys.get(sort).remove(previousKey);
+        sortedKeys.get(sort).add(key);
+        return key;
+      });
+    }
+  }
+
+  /**
+   * Returns at most {@code limit} product IDs in the given order whose price is between {@code minPriceInCents} and
+   * {@code maxPriceInCents} (both inclusive) and that are accepted by the filter. Passing in {@code afterProductId}
+   * continues right after where that product currently is in the order.
+   */
+  public List<Integer> findProductIds(final ProductSort sort, final Sort.Direction direction,
+                                      final long minPriceInCents, final long maxPriceInCents,
+                                      final Integer afterProductId, final int limit, final IntPredicate productFilter) {
+    // Sorting by price narrows down the skip list itself, any other sort has to check the price of every product
+    final boolean byPrice = sort == ProductSort.PRICE;
+    final Map<Integer, SortKey> priceKeys = keysByProductId.get(ProductSort.PRICE);
+    final IntPredicate inPriceRange = productId -> {
+      final SortKey priceKey = priceKeys.get(productId);
+      return Objects.nonNull(priceKey) && priceKey.value >= minPriceInCents && priceKey.value <= maxPriceInCents;
+    };
+
+    SortKey from = new SortKey(byPrice ? minPriceInCents : Long.MIN_VALUE, Integer.MIN_VALUE);
+    SortKey to = new SortKey(byPrice ? maxPriceInCents : Long.MAX_VALUE, Integer.MAX_VALUE);
+    boolean fromInclusive = true;
+    boolean toInclusive = true;
+
+    if (Objects.nonNull(afterProductId)) {
+      final SortKey cursor = keysByProductId.get(sort).get(afterProductId);
+      if (Objects.isNull(cursor)) throw new IllegalArgumentException(UNKNOWN_CURSOR_EXCEPTION_MESSAGE);
+
+      if (direction.isAscending() && cursor.compareTo(from) >= 0) {
+        from = cursor;
+        fromInclusive = false;
+      } else if (direction.isDescending() && cursor.compareTo(to) <= 0) {
+        to = cursor;
+        toInclusive = false;
+      }
+    }
+    // The cursor is past the end of the range
+    if (from.compareTo(to) > 0) return Collections.emptyList();
+
+    final NavigableSet<SortKey> range = sortedKeys.get(sort).subSet(from, fromInclusive, to, toInclusive);
+    final List<Integer> productIds = new ArrayList<>(limit);
+    for (final SortKey key : direction.isAscending() ? range : range.descendingSet()) {
+      if (productIds.size() == limit) break;
+      if (!byPrice && !inPriceRange.test(key.productId)) continue;
+      if (productFilter.test(key.productId)) productIds.add(key.productId);
+    }
+
+    return productIds;
+  }
+
+  @Value
+  private static class SortKey implements Comparable<SortKey> {
+    long value;
+    int productId;
+
+    @Override
+    public int compareTo(final SortKey other) {
+      final int byValue = Long.compare(value, other.value);
+      return byValue != 0 ? byValue : Integer.compare(productId, other.productId);
+    }
+  }
+}
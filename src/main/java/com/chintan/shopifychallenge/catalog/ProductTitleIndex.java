@@ -0,0 +1,87 @@
+package com.chintan.shopifychallenge.catalog;
+
+import com.chintan.shopifychallenge.models.Product;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory index from product titles to product IDs so title lookups don't need to scan the "product" table.
+ *
+ * Titles are stored lower-cased in a sorted map which lets us answer case-insensitive lookups with a single get and
+ * prefix lookups with a range scan. Exact lookups use the same entry and then compare against the original titles.
+ */
+@Component
+public class ProductTitleIndex {
+  private final Map<Integer, String> titlesById = new ConcurrentHashMap<>();
+  private final ConcurrentNavigableMap<String, Set<Integer>> idsByNormalizedTitle = new ConcurrentSkipListMap<>();
+
+  public void index(final Product product) {
+    final Integer productId = product.getProductId();
+    final String title = product.getTitle();
+    final String previousTitle = Objects.isNull(title) ? titlesById.remove(productId) : titlesById.put(productId, title);
+
+    if (Objects.equals(previousTitle, title)) return;
+    if (Objects.nonNull(previousTitle)) removeFromTitle(previousTitle, productId);
+    if (Objects.nonNull(title)) addToTitle(title, productId);
+  }
+
+  /**
+   * Returns the IDs of all products matching the given title in ascending order.
+   */
+  public List<Integer> findProductIds(final String title, final TitleMatch titleMatch) {
+    final String normalizedTitle = normalize(title);
+
+    switch (titleMatch) {
+      case EXACT:
+        return idsWithTitle(normalizedTitle)
+            .stream()
+            .filter(productId -> title.equals(titlesById.get(productId)))
+            .sorted()
+            .collect(Collectors.toList());
+      case IGNORE_CASE:
+        return idsWithTitle(normalizedTitle)
+            .stream()
+            .sorted()
+            .collect(Collectors.toList());
+      case PREFIX:
+        // Every title starting with the prefix sorts between the prefix itself and the prefix followed by the
+        // highest possible character
+        return idsByNormalizedTitle.subMap(normalizedTitle, true, normalizedTitle + Character.MAX_VALUE, false)
+            .values()
+            .stream()
+            .flatMap(Set::stream)
+            .sorted()
+            .collect(Collectors.toList());
+      default:
+        throw new IllegalArgumentException("Unsupported title match: " + titleMatch);
+    }
+  }
+
+  private Set<Integer> idsWithTitle(final String normalizedTitle) {
+    return idsByNormalizedTitle.getOrDefault(normalizedTitle, Collections.emptySet());
+  }
+
+  private void addToTitle(final String title, final Integer productId) {
+    idsByNormalizedTitle.compute(normalize(title), (key, productIds) -> {
+      final Set<Integer> ids = Objects.isNull(productIds) ? ConcurrentHashMap.newKeySet() : productIds;
+      ids.add(productId);
+      return ids;
+    });
+  }
+
+  private void removeFromTitle(final String title, final Integer productId) {
+    idsByNormalizedTitle.computeIfPresent(normalize(title), (key, productIds) -> {
+      productIds.remove(productId);
+      return productIds.isEmpty() ? null : productIds;
+    });
+  }
+
+  private static String normalize(final String title) {
+    return title.toLowerCase(Locale.ROOT);
+  }
+}
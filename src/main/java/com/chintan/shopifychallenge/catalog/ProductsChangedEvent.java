@@ -0,0 +1,17 @@
+package com.chintan.shopifychallenge.catalog;
+
+import com.chintan.shopifychallenge.models.Product;
+import lombok.Value;
+
+import java.util.Collection;
+
+/**
+ * Published whenever rows in the "product" table are created or updated (e.g. inventory changing after a purchase)
+ * so the in-memory catalog structures can be kept current without re-reading the whole table.
+ *
+ * The products carried by this event reflect the state of the rows after the change.
+ */
+@Value
+public class ProductsChangedEvent {
+  private final Collection<Product> products;
+}
@@ -0,0 +1,10 @@
+package com.chintan.shopifychallenge.catalog;
+
+/**
+ * The different ways a product title can be matched against the title passed in by the caller.
+ */
+public enum TitleMatch {
+  EXACT,
+  IGNORE_CASE,
+  PREFIX
+}
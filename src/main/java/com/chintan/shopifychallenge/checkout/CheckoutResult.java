@@ -0,0 +1,30 @@
+package com.chintan.shopifychallenge.checkout;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.util.Objects;
+
+/**
+ * The outcome of purchasing a single cart in a batch of purchases, a failed purchase keeps the exception it would
+ * have thrown if it had been purchased on its own.
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class CheckoutResult {
+  private final Integer cartId;
+  private final RuntimeException failure;
+
+  public static CheckoutResult completed(final Integer cartId) {
+    return new CheckoutResult(cartId, null);
+  }
+
+  public static CheckoutResult failed(final Integer cartId, final RuntimeException failure) {
+    return new CheckoutResult(cartId, failure);
+  }
+
+  public boolean isCompleted() {
+    return Objects.isNull(failure);
+  }
+}
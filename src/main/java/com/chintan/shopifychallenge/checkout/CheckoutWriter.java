@@ -0,0 +1,245 @@
+package com.chintan.shopifychallenge.checkout;
+
+import com.chintan.shopifychallenge.cart.ActiveCartStore;
+import com.chintan.shopifychallenge.cart.CheckedOutCart;
+import com.chintan.shopifychallenge.catalog.InStockProductIndex;
+import com.chintan.shopifychallenge.catalog.ProductsChangedEvent;
+import com.chintan.shopifychallenge.inventory.HotInventory;
+import com.chintan.shopifychallenge.metrics.CheckoutMetrics;
+import com.chintan.shopifychallenge.metrics.CheckoutMetrics.FailureReason;
+import com.chintan.shopifychallenge.models.InventorySale;
+import com.chintan.shopifychallenge.models.Product;
+import com.chintan.shopifychallenge.repository.InventorySaleRepository;
+import com.chintan.shopifychallenge.repository.ProductRepository;
+import com.chintan.shopifychallenge.reservation.ProductReservations;
+import com.chintan.shopifychallenge.services.CartService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Writes purchases to the database, either one cart per transaction or a whole batch of carts in one transaction.
+ *
+ * Either way the product rows are locked (in ID order so concurrent purchases can't deadlock) and checked before
+ * anything is written, and the number of statements doesn't grow with the number of products. Hot products are
+ * taken from the {@link HotInventory} instead and only their sales are written. Products that were reserved when
+ * they were added to the cart have already been taken out of the inventory, so their reservations are simply deleted.
+ * Carts are checked out of the {@link ActiveCartStore}, only carts that had been written to the "cart" table are
+ * deleted from it.
+ */
+@Component
+public class CheckoutWriter {
+  private final ProductRepository productRepository;
+  private final ActiveCartStore activeCartStore;
+  private final InventorySaleRepository inventorySaleRepository;
+  private final HotInventory hotInventory;
+  private final InStockProductIndex inStockProductIndex;
+  private final ApplicationEventPublisher eventPublisher;
+  private final ProductReservations productReservations;
+  private final CheckoutMetrics checkoutMetrics;
+
+  @Autowired
+  public CheckoutWriter(final ProductRepository productRepository, final ActiveCartStore activeCartStore,
+                        final InventorySaleRepository inventorySaleRepository, final HotInventory hotInventory,
+                        final InStockProductIndex inStockProductIndex, final ProductReservations productReservations,
+                        final ApplicationEventPublisher eventPublisher, final CheckoutMetrics checkoutMetrics) {
+    this.productRepository = productRepository;
+    this.activeCartStore = activeCartStore;
+    this.inventorySaleRepository = inventorySaleRepository;
+    this.hotInventory = hotInventory;
+    this.inStockProductIndex = inStockProductIndex;
+    this.productReservations = productReservations;
+    this.eventPublisher = eventPublisher;
+    this.checkoutMetrics = checkoutMetrics;
+  }
+
+  /**
+   * Purchases every product in the cart and deletes the cart. The product rows are locked and checked in one query
+   * and then all decremented in one conditional set-based update, the products sent out with the event are read
+   * back once the update is done.
+   */
+  @Transactional
+  public void completeCartPurchase(final Integer cartId) {
+    final Optional<CheckedOutCart> cart = activeCartStore.checkOut(cartId);
+    if (!cart.isPresent()) {
+      checkoutMetrics.recordFailed(FailureReason.CART_DOES_NOT_EXIST);
+      throw new IllegalArgumentException(CartService.CART_DOES_NOT_EXIST_EXCEPTION_MESSAGE);
+    }
+
+    final Map<Integer, Set<Integer>> reservedProductIdsByCartId =
+        productReservations.lockReservedProductIds(Collections.singletonList(cartId));
+    final List<Integer> productIds = sortedProductIds(Collections.singletonList(cart.get()), reservedProductIdsByCartId);
+    final List<Integer> hotProductIds = productIds.stream().filter(hotInventory::isHot).collect(Collectors.toList());
+    productIds.removeAll(hotProductIds);
+
+    activeCartStore.complete(Collections.singletonList(cartId));
+
+    final List<Product> purchasedProducts = productIds.isEmpty() ? Collections.emptyList() : purchaseProducts(productIds);
+
+    // Hot products are taken last, so nothing has to be put back if one of the other products is sold out
+    if (!hotProductIds.isEmpty()) {
+      final Optional<Integer> soldOutProductId = hotInventory.takeAll(hotProductIds, cart.get().getCartId());
+      if (soldOutProductId.isPresent()) throw stockRunOut(soldOutProductId.get());
+
+      inventorySaleRepository.saveAll(sales(hotProductIds));
+    }
+
+    if (reservedProductIdsByCartId.containsKey(cartId)) productReservations.consume(Collections.singletonList(cartId));
+
+    eventPublisher.publishEvent(new ProductsChangedEvent(purchasedProducts));
+    checkoutMetrics.recordCompleted();
+  }
+
+  /**
+   * Purchases a batch of carts in one transaction. Every cart succeeds or fails on its own: carts are checked in the
+   * order they were passed in and a cart whose products are sold out (possibly by an earlier cart in the batch) is
+   * put back untouched. The results are returned in the same order as the cart IDs.
+   */
+  @Transactional
+  public List<CheckoutResult> completeCartPurchases(final List<Integer> cartIds) {
+    final Map<Integer, CheckedOutCart> cartsById = activeCartStore.checkOutAll(new HashSet<>(cartIds));
+
+    final Map<Integer, Set<Integer>> reservedProductIdsByCartId = productReservations.lockReservedProductIds(cartsById.keySet());
+    final List<Integer> productIds = sortedProductIds(cartsById.values(), reservedProductIdsByCartId);
+    productIds.removeIf(hotInventory::isHot);
+    // The stock left of each product as the batch goes on, starting from the locked rows
+    final Map<Integer, Integer> inventoryCountsById = productIds.isEmpty() ? new HashMap<>() :
+        productRepository.lockInventoryCounts(productIds);
+
+    final List<CheckoutResult> results = new ArrayList<>(cartIds.size());
+    final Set<Integer> purchasedCartIds = new HashSet<>();
+    final Map<Integer, Integer> purchasedQuantitiesById = new TreeMap<>();
+    final List<InventorySale> hotProductSales = new ArrayList<>();
+
+    for (final Integer cartId : cartIds) {
+      final CheckedOutCart cart = cartsById.get(cartId);
+      // The same cart can only be purchased once, just like if the purchases had been made one after another
+      if (Objects.isNull(cart) || purchasedCartIds.contains(cartId)) {
+        checkoutMetrics.recordFailed(FailureReason.CART_DOES_NOT_EXIST);
+        results.add(CheckoutResult.failed(cartId, new IllegalArgumentException(CartService.CART_DOES_NOT_EXIST_EXCEPTION_MESSAGE)));
+        continue;
+      }
+
+      final Set<Integer> reservedProductIds = reservedProductIdsByCartId.getOrDefault(cartId, Collections.emptySet());
+      final List<Integer> hotProductIds = new ArrayList<>();
+      final List<Integer> lockedProductIds = new ArrayList<>();
+      for (final Integer productId : cart.getProductIds()) {
+        if (reservedProductIds.contains(productId)) continue;
+        if (hotInventory.isHot(productId)) hotProductIds.add(productId);
+        else lockedProductIds.add(productId);
+      }
+
+      final Optional<Integer> soldOutProductId = lockedProductIds.stream()
+          .filter(productId -> inventoryCountsById.getOrDefault(productId, 0) < 1)
+          .findFirst();
+      if (soldOutProductId.isPresent()) {
+        activeCartStore.putBack(cartId);
+        results.add(CheckoutResult.failed(cartId, stockRunOut(soldOutProductId.get())));
+        continue;
+      }
+
+      final Optional<Integer> soldOutHotProductId = hotProductIds.isEmpty() ? Optional.empty() :
+          hotInventory.takeAll(hotProductIds, cartId);
+      if (soldOutHotProductId.isPresent()) {
+        activeCartStore.putBack(cartId);
+        results.add(CheckoutResult.failed(cartId, stockRunOut(soldOutHotProductId.get())));
+        continue;
+      }
+
+      for (final Integer productId : lockedProductIds) {
+        inventoryCountsById.merge(productId, -1, Integer::sum);
+        purchasedQuantitiesById.merge(productId, 1, Integer::sum);
+      }
+      hotProductSales.addAll(sales(hotProductIds));
+
+      purchasedCartIds.add(cartId);
+      checkoutMetrics.recordCompleted();
+      results.add(CheckoutResult.completed(cartId));
+    }
+
+    decrementInventories(purchasedQuantitiesById);
+    activeCartStore.complete(purchasedCartIds);
+    if (!hotProductSales.isEmpty()) inventorySaleRepository.saveAll(hotProductSales);
+    // Carts that failed keep their reservations, just like they keep their products
+    final List<Integer> purchasedCartIdsWithReservations = purchasedCartIds.stream()
+        .filter(reservedProductIdsByCartId::containsKey)
+        .collect(Collectors.toList());
+    if (!purchasedCartIdsWithReservations.isEmpty()) productReservations.consume(purchasedCartIdsWithReservations);
+    // The updates cleared the persistence context, so these are read from the rows they left behind
+    eventPublisher.publishEvent(new ProductsChangedEvent(purchasedQuantitiesById.isEmpty() ? Collections.emptyList() :
+        productRepository.findAllById(purchasedQuantitiesById.keySet())
+            .stream()
+            .sorted(Comparator.comparing(Product::getProductId))
+            .collect(Collectors.toList())));
+
+    return results;
+  }
+
+  // Returns the purchased products with their inventory after the purchase
+  private List<Product> purchaseProducts(final List<Integer> productIds) {
+    // Nothing else can change the stock of these products until this transaction ends, so if any of them is sold out
+    // the purchase fails before anything is written
+    final Map<Integer, Integer> inventoryCountsById = productRepository.lockInventoryCounts(productIds);
+    for (final Integer productId : productIds) {
+      if (inventoryCountsById.getOrDefault(productId, 0) < 1) throw stockRunOut(productId);
+    }
+
+    if (productRepository.decrementInventoryByOne(productIds) != productIds.size()) {
+      checkoutMetrics.recordFailed(FailureReason.STOCK_RUN_OUT);
+      throw new IllegalStateException(Product.STOCK_RUN_OUT_EXCEPTION_MESSAGE);
+    }
+
+    // The update cleared the persistence context, so these are read from the rows it left behind (which are still
+    // locked by this transaction)
+    return productRepository.findAllById(productIds);
+  }
+
+  // Takes the purchased units out of the inventory with one conditional update per distinct quantity, so the number
+  // of statements stays bounded by the batch size. The rows are locked and were checked above, so an update that
+  // misses a row means the inventory changed under the lock and the whole batch is rolled back.
+  private void decrementInventories(final Map<Integer, Integer> purchasedQuantitiesById) {
+    final Map<Integer, List<Integer>> productIdsByQuantity = purchasedQuantitiesById.entrySet()
+        .stream()
+        .collect(Collectors.groupingBy(Map.Entry::getValue, TreeMap::new,
+            Collectors.mapping(Map.Entry::getKey, Collectors.toList())));
+
+    productIdsByQuantity.forEach((quantity, productIds) -> {
+      if (productRepository.decrementInventoryIfAvailable(productIds, quantity) != productIds.size())
+        throw new IllegalStateException(Product.STOCK_RUN_OUT_EXCEPTION_MESSAGE);
+    });
+  }
+
+  // Records the failed purchase of a product that is sold out. A product the catalog still lists as in stock was sold
+  // out by another purchase since the catalog was last updated, which is counted as an inventory conflict.
+  private IllegalStateException stockRunOut(final Integer productId) {
+    if (inStockProductIndex.isInStock(productId)) checkoutMetrics.recordInventoryConflict();
+    checkoutMetrics.recordFailed(FailureReason.STOCK_RUN_OUT);
+
+    return new IllegalStateException(
+        String.format("%s (product %d)", Product.STOCK_RUN_OUT_EXCEPTION_MESSAGE, productId));
+  }
+
+  private static List<InventorySale> sales(final List<Integer> productIds) {
+    return productIds.stream()
+        .map(productId -> new InventorySale(null, productId, 1))
+        .collect(Collectors.toList());
+  }
+
+  // The IDs of the products in the carts, leaving out the ones that are reserved for the cart they are in
+  private static List<Integer> sortedProductIds(final Collection<CheckedOutCart> carts,
+                                                final Map<Integer, Set<Integer>> reservedProductIdsByCartId) {
+    return carts.stream()
+        .flatMap(cart -> cart.getProductIds()
+            .stream()
+            .filter(productId -> !reservedProductIdsByCartId
+                .getOrDefault(cart.getCartId(), Collections.emptySet())
+                .contains(productId)))
+        .distinct()
+        .sorted()
+        .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,151 @@
+package com.chintan.shopifychallenge.checkout;
+
+import com.chintan.shopifychallenge.config.GroupCommitProperties;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Group commit for purchases: callers put their cart on a queue and a single writer thread takes the queued carts
+ * off in batches and purchases each batch in one transaction.
+ *
+ * During a flash sale this turns thousands of short transactions fighting over the same product rows into a
+ * handful of larger ones. A batch is written as soon as it is full or once its first purchase has waited for
+ * "checkout.group-commit.max-linger". The batch sizes are published as the "checkouts.batch.size" metric.
+ */
+@Component
+@ConditionalOnProperty(prefix = "checkout.group-commit", name = "enabled", havingValue = "true")
+public class GroupCommitCheckoutQueue {
+  public static final String BATCH_SIZE_METER_NAME = "checkouts.batch.size";
+  public static final String QUEUE_SHUT_DOWN_EXCEPTION_MESSAGE = "Purchases are not being accepted right now.";
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(GroupCommitCheckoutQueue.class);
+
+  private final CheckoutWriter checkoutWriter;
+  private final int batchSize;
+  private final long maxLingerNanos;
+  private final DistributionSummary batchSizes;
+
+  private final BlockingQueue<PendingCheckout> pendingCheckouts = new LinkedBlockingQueue<>();
+  private final Thread writerThread = new Thread(this::writeBatches, "checkout-group-commit");
+  private volatile boolean running = true;
+
+  @Autowired
+  public GroupCommitCheckoutQueue(final CheckoutWriter checkoutWriter, final GroupCommitProperties groupCommitProperties,
+                                  final MeterRegistry meterRegistry) {
+    this.checkoutWriter = checkoutWriter;
+    this.batchSize = groupCommitProperties.getBatchSize();
+    this.maxLingerNanos = groupCommitProperties.getMaxLinger().toNanos();
+    this.batchSizes = DistributionSummary.builder(BATCH_SIZE_METER_NAME).register(meterRegistry);
+  }
+
+  @PostConstruct
+  public void start() {
+    writerThread.setDaemon(true);
+    writerThread.start();
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    running = false;
+    writerThread.interrupt();
+    writerThread.join(TimeUnit.SECONDS.toMillis(10));
+  }
+
+  /**
+   * Queues the purchase of the cart and waits until its batch has been written. Throws the same exceptions as
+   * purchasing the cart on its own would.
+   */
+  public void completeCartPurchase(final Integer cartId) {
+    if (!running) throw new IllegalStateException(QUEUE_SHUT_DOWN_EXCEPTION_MESSAGE);
+
+    final PendingCheckout pendingCheckout = new PendingCheckout(cartId);
+    pendingCheckouts.add(pendingCheckout);
+    // The writer may have stopped between the check above and the purchase being queued
+    if (!running && pendingCheckouts.remove(pendingCheckout)) throw new IllegalStateException(QUEUE_SHUT_DOWN_EXCEPTION_MESSAGE);
+
+    try {
+      pendingCheckout.result.join();
+    } catch (final CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+      throw e;
+    }
+  }
+
+  private void writeBatches() {
+    final List<PendingCheckout> batch = new ArrayList<>(batchSize);
+
+    while (running) {
+      try {
+        batch.add(pendingCheckouts.take());
+        final long lingerDeadline = System.nanoTime() + maxLingerNanos;
+
+        while (batch.size() < batchSize) {
+          // Everything that is already queued is taken right away, only an unfilled batch waits for more
+          pendingCheckouts.drainTo(batch, batchSize - batch.size());
+          if (batch.size() == batchSize) break;
+
+          final PendingCheckout nextCheckout = pendingCheckouts.poll(lingerDeadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+          if (Objects.isNull(nextCheckout)) break;
+          batch.add(nextCheckout);
+        }
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+
+      writeBatch(batch);
+      batch.clear();
+    }
+
+    // Purchases that were queued while shutting down are failed instead of leaving their callers waiting forever
+    pendingCheckouts.drainTo(batch);
+    batch.forEach(pendingCheckout ->
+        pendingCheckout.result.completeExceptionally(new IllegalStateException(QUEUE_SHUT_DOWN_EXCEPTION_MESSAGE)));
+  }
+
+  private void writeBatch(final List<PendingCheckout> batch) {
+    batchSizes.record(batch.size());
+
+    try {
+      final List<CheckoutResult> results = checkoutWriter.completeCartPurchases(batch.stream()
+          .map(pendingCheckout -> pendingCheckout.cartId)
+          .collect(Collectors.toList()));
+
+      for (int i = 0; i < batch.size(); i++) {
+        final CheckoutResult result = results.get(i);
+        if (result.isCompleted()) batch.get(i).result.complete(null);
+        else batch.get(i).result.completeExceptionally(result.getFailure());
+      }
+    } catch (final RuntimeException e) {
+      // The whole batch was rolled back so every purchase in it failed
+      LOGGER.error("Failed to write a batch of {} purchases", batch.size(), e);
+      batch.forEach(pendingCheckout -> pendingCheckout.result.completeExceptionally(e));
+    }
+  }
+
+  private static final class PendingCheckout {
+    private final Integer cartId;
+    private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+    private PendingCheckout(final Integer cartId) {
+      this.cartId = cartId;
+    }
+  }
+}
@@ -0,0 +1,22 @@
+package com.chintan.shopifychallenge.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Settings for the carts kept in memory, configured through the "carts.active.*" application properties.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "carts.active")
+public class ActiveCartProperties {
+  // NOTE: Carts that haven't been used for this long are written to the "cart" table and dropped from memory
+  private Duration idleTimeout = Duration.ofMinutes(30);
+  // NOTE: The least recently used carts are dropped from memory (once written) when there are more than this many
+  private int maximumSize = 100_000;
+  // NOTE: This is how long a change to a cart can stay in memory only, i.e. what a crash can lose
+  private Duration writeBehindInterval = Duration.ofSeconds(5);
+}
@@ -0,0 +1,30 @@
+package com.chintan.shopifychallenge.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * Lets clients ask for products and carts in CBOR or Smile instead of JSON by setting the Accept header (and send cart
+ * requests in them by setting the Content-Type header).
+ *
+ * The models are mapped through their annotations, so all three encodings carry the same fields.
+ */
+@Configuration
+public class BinaryFormatsConfig {
+  public static final String APPLICATION_CBOR_VALUE = "application/cbor";
+  public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+  // NOTE: These get builders of their own, changing the factory on the shared builder would change the JSON mapper too
+  @Bean
+  public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter() {
+    return new MappingJackson2CborHttpMessageConverter(Jackson2ObjectMapperBuilder.cbor().build());
+  }
+
+  @Bean
+  public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter() {
+    return new MappingJackson2SmileHttpMessageConverter(Jackson2ObjectMapperBuilder.smile().build());
+  }
+}
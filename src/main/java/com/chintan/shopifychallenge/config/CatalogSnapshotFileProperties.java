@@ -0,0 +1,19 @@
+package com.chintan.shopifychallenge.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings for the catalog snapshot file, configured through the "catalog.snapshot-file.*" application properties.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "catalog.snapshot-file")
+public class CatalogSnapshotFileProperties {
+  // NOTE: The catalog is loaded from this file at startup if it exists (and the "product" table is empty), it is also
+  // where the "catalogsnapshot" actuator endpoint writes to by default. No path means no file is loaded.
+  private String path;
+  // NOTE: The products from the file are inserted into the "product" table in JDBC batches of this size
+  private int insertBatchSize = 10_000;
+}
@@ -0,0 +1,19 @@
+package com.chintan.shopifychallenge.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Settings for the in-memory catalog snapshot, configured through the "catalog.snapshot.*" application properties.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "catalog.snapshot")
+public class CatalogSnapshotProperties {
+  // NOTE: Product changes are gathered and swapped into the snapshot together at this interval, so it is the longest
+  // a committed change can take to show up in product reads. Zero swaps every change in as soon as it is committed.
+  private Duration maxStaleness = Duration.ofMillis(100);
+}
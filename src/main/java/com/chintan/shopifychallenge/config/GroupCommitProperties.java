@@ -0,0 +1,22 @@
+package com.chintan.shopifychallenge.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Settings for group commit checkouts, configured through the "checkout.group-commit.*" application properties.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "checkout.group-commit")
+public class GroupCommitProperties {
+  // NOTE: When disabled every purchase runs in its own transaction
+  private boolean enabled = false;
+  private int batchSize = 100;
+  // NOTE: This is the longest a purchase waits for others to join its batch, it is added to the latency of a
+  // purchase when traffic is low
+  private Duration maxLinger = Duration.ofMillis(5);
+}
@@ -0,0 +1,24 @@
+package com.chintan.shopifychallenge.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Settings for the in-memory inventory of hot products, configured through the "inventory.hot-products.*"
+ * application properties.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "inventory.hot-products")
+public class HotInventoryProperties {
+  // NOTE: Only these products are sold from memory, every other product is sold straight from the "product" table
+  private Set<Integer> productIds = new HashSet<>();
+  private int stripes = Runtime.getRuntime().availableProcessors();
+  // NOTE: This is how far the inventory in the "product" table can lag behind the sales of hot products
+  private Duration flushInterval = Duration.ofSeconds(1);
+}
@@ -0,0 +1,31 @@
+package com.chintan.shopifychallenge.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Settings for the server-sent inventory feed, configured through the "inventory.feed.*" application properties.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "inventory.feed")
+public class InventoryFeedProperties {
+  // NOTE: Changes are sent to subscribers together at this interval, a product that changes several times in between
+  // is only sent once with its latest inventory
+  private Duration sendInterval = Duration.ofMillis(100);
+  // NOTE: A subscriber that falls behind by more products than this has its changes dropped and is told to read the
+  // inventory again instead
+  private int maxPendingChanges = 1_000;
+  private int maxSubscribers = 10_000;
+  // NOTE: Subscribers that haven't been sent anything for this long are sent a comment, which is how connections that
+  // were closed without us noticing are dropped
+  private Duration heartbeatInterval = Duration.ofSeconds(15);
+  // NOTE: Subscriptions end after this long, clients reconnect (EventSource does so on its own)
+  private Duration timeout = Duration.ofMinutes(30);
+  // NOTE: Events are written to the subscribers by this many threads, a subscriber that is slow to read only holds up
+  // one of them and its changes are conflated in the meantime
+  private int senderThreads = 4;
+}
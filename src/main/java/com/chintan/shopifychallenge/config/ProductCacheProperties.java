@@ -0,0 +1,20 @@
+package com.chintan.shopifychallenge.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Settings for the in-process product cache, configured through the "products.cache.*" application properties.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "products.cache")
+public class ProductCacheProperties {
+  private long maximumSize = 10_000;
+  // NOTE: This is the longest a cached product can be served without being re-read from the database, it bounds how
+  // stale stock levels can get if an inventory change was missed (e.g. a change made by another instance)
+  private Duration expireAfterWrite = Duration.ofSeconds(5);
+}
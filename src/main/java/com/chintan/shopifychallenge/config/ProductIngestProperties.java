@@ -0,0 +1,20 @@
+package com.chintan.shopifychallenge.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings for bulk product imports, configured through the "products.ingest.*" application properties.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "products.ingest")
+public class ProductIngestProperties {
+  // NOTE: Each batch is written in one transaction and one JDBC batch, the in-memory indexes are updated once per batch
+  private int batchSize = 5000;
+  // NOTE: Once this many batches are waiting to be written the upload isn't read any further until one is done
+  private int maxPendingBatches = 2;
+  // NOTE: Every failed row is counted but only this many of them are listed in the report
+  private int maxReportedErrors = 100;
+}
@@ -0,0 +1,23 @@
+package com.chintan.shopifychallenge.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Settings for reserving products in carts, configured through the "carts.reservations.*" application properties.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "carts.reservations")
+public class ReservationProperties {
+  // NOTE: When disabled, adding a product to a cart doesn't hold any stock and purchases take whatever is left
+  private boolean enabled = true;
+  // NOTE: This is how long a product stays reserved in a cart that isn't purchased
+  private Duration ttl = Duration.ofMinutes(15);
+  // NOTE: Reservations are released at most this much later than their TTL
+  private Duration tickDuration = Duration.ofSeconds(1);
+  private int wheelSize = 1024;
+}
@@ -1,5 +1,6 @@
 package com.chintan.shopifychallenge.controllers;
 
+import com.chintan.shopifychallenge.config.BinaryFormatsConfig;
 import com.chintan.shopifychallenge.models.Cart;
 import com.chintan.shopifychallenge.models.Product;
 import com.chintan.shopifychallenge.models.controllers.CreateCart;
@@ -15,7 +16,8 @@ import java.util.Optional;
 import java.util.stream.Collectors;
 
 @RestController
-@RequestMapping(value = "/carts", produces = MediaType.APPLICATION_JSON_VALUE)
+@RequestMapping(value = "/carts", produces = {
+    MediaType.APPLICATION_JSON_VALUE, BinaryFormatsConfig.APPLICATION_CBOR_VALUE, BinaryFormatsConfig.APPLICATION_SMILE_VALUE})
 public class CartsController {
   public static final String CART_DOES_NOT_EXIST_ERROR_MESSAGE = "This cart does not exist in the database.";
 
@@ -40,11 +42,9 @@ public class CartsController {
   public Cart createCart(@RequestBody(required = false) CreateCart createCart) {
     if (Objects.isNull(createCart)) return cartService.createNewCart();
 
-    List<Product> productsInCart = createCart.getProductIds()
+    // All the products are fetched at once, the ones that do not exist are already filtered out
+    List<Product> productsInCart = productService.getProductsByIds(createCart.getProductIds())
         .stream()
-        .map(productService::getProductById)
-        .filter(Optional::isPresent) // Filter out all products that do not exist
-        .map(Optional::get)
         .filter(Product::inStock) // Filter out all products that are not in-stock
         .collect(Collectors.toList());
 
@@ -60,6 +60,11 @@ public class CartsController {
     return cartService.addNewProductsToCart(cartId, productToAdd.get());
   }
 
+  @DeleteMapping("{cartId}/products/{productId}")
+  public Cart removeProductFromCart(@PathVariable final Integer cartId, @PathVariable final Integer productId) {
+    return cartService.removeProductFromCart(cartId, productId);
+  }
+
   @PutMapping("{cartId}/complete")
   public void completePurchase(@PathVariable final Integer cartId) {
     cartService.completeCartPurchase(cartId);
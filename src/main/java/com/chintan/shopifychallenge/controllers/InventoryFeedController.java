@@ -0,0 +1,32 @@
+package com.chintan.shopifychallenge.controllers;
+
+import com.chintan.shopifychallenge.inventory.InventoryFeed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Collections;
+import java.util.Objects;
+import java.util.Set;
+
+@RestController
+@RequestMapping("/products/inventory")
+public class InventoryFeedController {
+  private final InventoryFeed inventoryFeed;
+
+  @Autowired
+  public InventoryFeedController(final InventoryFeed inventoryFeed) {
+    this.inventoryFeed = inventoryFeed;
+  }
+
+  // NOTE: Meant to replace polling single products or the in-stock products, the request stays open and the changes
+  // are pushed as they are committed
+  @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter streamInventoryChanges(@RequestParam(required = false) final Set<Integer> productIds) {
+    return inventoryFeed.subscribe(Objects.isNull(productIds) ? Collections.emptySet() : productIds);
+  }
+}
@@ -0,0 +1,52 @@
+package com.chintan.shopifychallenge.controllers;
+
+import com.chintan.shopifychallenge.ingest.CsvProductRowReader;
+import com.chintan.shopifychallenge.ingest.IngestReport;
+import com.chintan.shopifychallenge.ingest.NdjsonProductRowReader;
+import com.chintan.shopifychallenge.ingest.ProductIngester;
+import com.chintan.shopifychallenge.ingest.ProductRowReader;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Bulk imports of products, the body is read and written to the database a batch at a time while it is being
+ * uploaded.
+ */
+@RestController
+@RequestMapping(value = "/products/import", produces = MediaType.APPLICATION_JSON_VALUE)
+public class ProductIngestController {
+  public static final String NDJSON_VALUE = "application/x-ndjson";
+  public static final String CSV_VALUE = "text/csv";
+
+  private final ProductIngester productIngester;
+  private final ObjectMapper objectMapper;
+
+  @Autowired
+  public ProductIngestController(final ProductIngester productIngester, final ObjectMapper objectMapper) {
+    this.productIngester = productIngester;
+    this.objectMapper = objectMapper;
+  }
+
+  @PostMapping(consumes = NDJSON_VALUE)
+  public IngestReport importNdjson(final InputStream body) throws IOException, InterruptedException {
+    return ingest(new NdjsonProductRowReader(body, objectMapper));
+  }
+
+  @PostMapping(consumes = CSV_VALUE)
+  public IngestReport importCsv(final InputStream body) throws IOException, InterruptedException {
+    return ingest(new CsvProductRowReader(body));
+  }
+
+  private IngestReport ingest(final ProductRowReader reader) throws IOException, InterruptedException {
+    try (final ProductRowReader rowReader = reader) {
+      return productIngester.ingest(rowReader);
+    }
+  }
+}
@@ -1,44 +1,171 @@
 package com.chintan.shopifychallenge.controllers;
 
+import com.chintan.shopifychallenge.catalog.EncodedCatalog;
+import com.chintan.shopifychallenge.catalog.EncodedCatalogCache;
+import com.chintan.shopifychallenge.catalog.ProductSort;
+import com.chintan.shopifychallenge.catalog.TitleMatch;
+import com.chintan.shopifychallenge.config.BinaryFormatsConfig;
+import com.chintan.shopifychallenge.models.Money;
 import com.chintan.shopifychallenge.models.Product;
+import com.chintan.shopifychallenge.models.controllers.ProductPage;
 import com.chintan.shopifychallenge.services.ProductService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 @RestController
-@RequestMapping(value = "/products", produces = MediaType.APPLICATION_JSON_VALUE)
+@RequestMapping(value = "/products", produces = {
+    MediaType.APPLICATION_JSON_VALUE, BinaryFormatsConfig.APPLICATION_CBOR_VALUE, BinaryFormatsConfig.APPLICATION_SMILE_VALUE})
 public class ProductsController {
+  public static final int MAX_PAGE_SIZE = 1000;
+
   public static final String EMPTY_PRODUCT_TITLE_ERROR_MESSAGE = "You cannot pass in an empty product title.";
   public static final String PRODUCT_DOES_NOT_EXIST_ERROR_MESSAGE = "This product does not exist in the database.";
+  public static final String INVALID_PAGE_SIZE_ERROR_MESSAGE = "The page size has to be between 1 and " + MAX_PAGE_SIZE + ".";
+  public static final String EMPTY_SEARCH_QUERY_ERROR_MESSAGE = "You cannot search with an empty query.";
+  public static final String INVALID_SEARCH_LIMIT_ERROR_MESSAGE = "The search limit has to be between 1 and " + MAX_PAGE_SIZE + ".";
+  public static final String INVALID_PRICE_RANGE_ERROR_MESSAGE = "The minimum price cannot be more than the maximum price.";
+
+  // Products are read from the database in pages of this size while streaming so memory use stays bounded
+  private static final int STREAM_PAGE_SIZE = 500;
+
+  private static final String GZIP_ENCODING = "gzip";
+  // NOTE: Both the format and the encoding of the catalog depend on the request headers, so caches have to key on both
+  private static final String VARY_HEADER_VALUE = HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING;
+  private static final List<MediaType> PRODUCIBLE_TYPES = Arrays.asList(MediaType.APPLICATION_JSON,
+      MediaType.valueOf(BinaryFormatsConfig.APPLICATION_CBOR_VALUE), MediaType.valueOf(BinaryFormatsConfig.APPLICATION_SMILE_VALUE));
 
   private final ProductService productService;
+  private final EncodedCatalogCache encodedCatalogCache;
+  private final ObjectMapper objectMapper;
 
   @Autowired
-  public ProductsController(final ProductService productService) {
+  public ProductsController(final ProductService productService, final EncodedCatalogCache encodedCatalogCache,
+                            final ObjectMapper objectMapper) {
     this.productService = productService;
+    this.encodedCatalogCache = encodedCatalogCache;
+    this.objectMapper = objectMapper;
   }
 
+  // NOTE: The whole catalog is polled far more often than it changes, so JSON is served from bytes that were encoded (and
+  // gzipped) once per catalog snapshot, and clients that already have the current catalog get an empty 304 back.
+  // Clients that prefer CBOR or Smile get the products encoded by the message converters instead.
   @GetMapping
-  public List<Product> getAllProducts() {
-    return productService.getAllProducts();
+  public ResponseEntity<?> getAllProducts(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) final String accept,
+                                          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) final String ifNoneMatch,
+                                          @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) final String acceptEncoding) {
+    if (prefersBinaryFormat(accept))
+      return ResponseEntity.ok().header(HttpHeaders.VARY, VARY_HEADER_VALUE).body(productService.getAllProducts());
+    return toResponse(encodedCatalogCache.getAllProducts(), ifNoneMatch, acceptEncoding);
   }
 
   @GetMapping(params = "showInStockOnly")
-  public List<Product> getInStockProducts(@RequestParam(required = false, defaultValue = "false") final boolean showInStockOnly) {
-    if (showInStockOnly) return productService.getAllInStockProducts();
-    else return getAllProducts();
+  public ResponseEntity<?> getInStockProducts(@RequestParam(required = false, defaultValue = "false") final boolean showInStockOnly,
+                                              @RequestHeader(value = HttpHeaders.ACCEPT, required = false) final String accept,
+                                              @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) final String ifNoneMatch,
+                                              @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) final String acceptEncoding) {
+    if (!showInStockOnly) return getAllProducts(accept, ifNoneMatch, acceptEncoding);
+
+    if (prefersBinaryFormat(accept))
+      return ResponseEntity.ok().header(HttpHeaders.VARY, VARY_HEADER_VALUE).body(productService.getAllInStockProducts());
+    return toResponse(encodedCatalogCache.getInStockProducts(), ifNoneMatch, acceptEncoding);
   }
 
   @GetMapping(params = "productTitle")
-  public List<Product> getProductsByTitle(@RequestParam(required = false) final String productTitle) {
+  public List<Product> getProductsByTitle(@RequestParam(required = false) final String productTitle,
+                                          @RequestParam(required = false, defaultValue = "EXACT") final TitleMatch titleMatch) {
     Preconditions.checkArgument(!Strings.isNullOrEmpty(productTitle), EMPTY_PRODUCT_TITLE_ERROR_MESSAGE);
-    return productService.getProductsByTitle(productTitle);
+    return productService.getProductsByTitle(productTitle, titleMatch);
+  }
+
+  @GetMapping("page")
+  public ProductPage getProductsPage(@RequestParam(required = false) final Integer afterId,
+                                     @RequestParam(required = false, defaultValue = "100") final int limit,
+                                     @RequestParam(required = false, defaultValue = "false") final boolean showInStockOnly,
+                                     @RequestParam(required = false) final String productTitle,
+                                     @RequestParam(required = false, defaultValue = "EXACT") final TitleMatch titleMatch) {
+    Preconditions.checkArgument(limit > 0 && limit <= MAX_PAGE_SIZE, INVALID_PAGE_SIZE_ERROR_MESSAGE);
+    checkProductTitle(productTitle);
+
+    final List<Product> products = getPage(afterId, limit, showInStockOnly, productTitle, titleMatch);
+    final Integer nextAfterId = products.size() < limit ? null : lastProductId(products);
+
+    return new ProductPage(products, nextAfterId);
+  }
+
+  // NOTE: Unlike productTitle this matches single words anywhere in the title (and the start of words), so "cable" finds
+  // both "Lightning Cable" and "USBC Cable". The results are ranked by how well they match, best match first.
+  @GetMapping("search")
+  public List<Product> searchProducts(@RequestParam(required = false) final String query,
+                                     @RequestParam(required = false, defaultValue = "20") final int limit,
+                                     @RequestParam(required = false, defaultValue = "false") final boolean showInStockOnly) {
+    Preconditions.checkArgument(Objects.nonNull(query) && !query.trim().isEmpty(), EMPTY_SEARCH_QUERY_ERROR_MESSAGE);
+    Preconditions.checkArgument(limit > 0 && limit <= MAX_PAGE_SIZE, INVALID_SEARCH_LIMIT_ERROR_MESSAGE);
+    return productService.searchProducts(query, limit, showInStockOnly);
+  }
+
+  // NOTE: Products are read in order from an in-memory index, so a page costs about the same no matter how large the
+  // catalog is. The next page continues after wherever "afterId" is in the order at the time it is requested.
+  @GetMapping("sorted")
+  public ProductPage getSortedProducts(@RequestParam(required = false, defaultValue = "PRICE") final ProductSort sortBy,
+                                       @RequestParam(required = false, defaultValue = "ASC") final Sort.Direction direction,
+                                       @RequestParam(required = false) final BigDecimal minPrice,
+                                       @RequestParam(required = false) final BigDecimal maxPrice,
+                                       @RequestParam(required = false, defaultValue = "false") final boolean showInStockOnly,
+                                       @RequestParam(required = false) final Integer afterId,
+                                       @RequestParam(required = false, defaultValue = "100") final int limit) {
+    Preconditions.checkArgument(limit > 0 && limit <= MAX_PAGE_SIZE, INVALID_PAGE_SIZE_ERROR_MESSAGE);
+    final Money minimumPrice = Objects.isNull(minPrice) ? null : Money.of(minPrice);
+    final Money maximumPrice = Objects.isNull(maxPrice) ? null : Money.of(maxPrice);
+    Preconditions.checkArgument(Objects.isNull(minimumPrice) || Objects.isNull(maximumPrice)
+        || minimumPrice.compareTo(maximumPrice) <= 0, INVALID_PRICE_RANGE_ERROR_MESSAGE);
+
+    final List<Product> products = productService.getSortedProducts(sortBy, direction, minimumPrice, maximumPrice,
+        showInStockOnly, afterId, limit);
+    final Integer nextAfterId = products.size() < limit ? null : lastProductId(products);
+
+    return new ProductPage(products, nextAfterId);
+  }
+
+  // The stream is written with the JSON generator directly, so it is only available as JSON
+  @GetMapping(value = "stream", produces = MediaType.APPLICATION_JSON_VALUE)
+  public StreamingResponseBody streamProducts(@RequestParam(required = false, defaultValue = "false") final boolean showInStockOnly,
+                                              @RequestParam(required = false) final String productTitle,
+                                              @RequestParam(required = false, defaultValue = "EXACT") final TitleMatch titleMatch) {
+    checkProductTitle(productTitle);
+
+    return outputStream -> {
+      final JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream);
+      generator.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+      generator.writeStartArray();
+
+      List<Product> products = getPage(null, STREAM_PAGE_SIZE, showInStockOnly, productTitle, titleMatch);
+      while (!products.isEmpty()) {
+        for (final Product product : products) generator.writeObject(product);
+        generator.flush(); // Send each page to the client as soon as it has been read
+
+        if (products.size() < STREAM_PAGE_SIZE) break;
+        products = getPage(lastProductId(products), STREAM_PAGE_SIZE, showInStockOnly, productTitle, titleMatch);
+      }
+
+      generator.writeEndArray();
+      generator.close();
+    };
   }
 
   @GetMapping("{productId}")
@@ -48,4 +175,76 @@ public class ProductsController {
     if (!singleProduct.isPresent()) throw new IllegalArgumentException(PRODUCT_DOES_NOT_EXIST_ERROR_MESSAGE);
     return singleProduct.get();
   }
+
+  @PutMapping("{productId}/restock")
+  public Product restockProduct(@PathVariable final Integer productId, @RequestParam final int quantity) {
+    return productService.restockProduct(productId, quantity);
+  }
+
+  private static ResponseEntity<byte[]> toResponse(final EncodedCatalog encodedCatalog, final String ifNoneMatch,
+                                                   final String acceptEncoding) {
+    final boolean gzip = acceptsGzip(acceptEncoding);
+    final String entityTag = gzip ? encodedCatalog.getGzipEntityTag() : encodedCatalog.getEntityTag();
+    final boolean notModified = matchesAny(ifNoneMatch, encodedCatalog);
+    final ResponseEntity.BodyBuilder response = ResponseEntity.status(notModified ? HttpStatus.NOT_MODIFIED : HttpStatus.OK)
+        .eTag(entityTag)
+        .header(HttpHeaders.VARY, VARY_HEADER_VALUE);
+
+    if (notModified) return response.build();
+    if (gzip) return response.header(HttpHeaders.CONTENT_ENCODING, GZIP_ENCODING).body(encodedCatalog.getGzippedJson());
+    return response.body(encodedCatalog.getJson());
+  }
+
+  // Whatever type the client prefers out of the ones we can produce, "*/*" and no Accept header at all mean JSON
+  private static boolean prefersBinaryFormat(final String accept) {
+    if (Objects.isNull(accept)) return false;
+
+    final List<MediaType> acceptedTypes = MediaType.parseMediaTypes(accept);
+    MediaType.sortBySpecificityAndQuality(acceptedTypes);
+
+    return acceptedTypes.stream()
+        .filter(acceptedType -> acceptedType.getQualityValue() > 0)
+        .filter(acceptedType -> PRODUCIBLE_TYPES.stream().anyMatch(acceptedType::includes))
+        .findFirst()
+        .map(acceptedType -> !acceptedType.includes(MediaType.APPLICATION_JSON))
+        .orElse(false);
+  }
+
+  // Either tag means the client already has these products, no matter which encoding it was sent in
+  private static boolean matchesAny(final String ifNoneMatch, final EncodedCatalog encodedCatalog) {
+    if (Objects.isNull(ifNoneMatch)) return false;
+
+    return Arrays.stream(ifNoneMatch.split(","))
+        .map(String::trim)
+        .map(entityTag -> entityTag.startsWith("W/") ? entityTag.substring(2) : entityTag)
+        .anyMatch(entityTag -> entityTag.equals("*")
+            || entityTag.equals(encodedCatalog.getEntityTag())
+            || entityTag.equals(encodedCatalog.getGzipEntityTag()));
+  }
+
+  private static boolean acceptsGzip(final String acceptEncoding) {
+    if (Objects.isNull(acceptEncoding)) return false;
+
+    return Arrays.stream(acceptEncoding.split(","))
+        .map(coding -> coding.trim().split(";"))
+        .anyMatch(coding -> coding[0].trim().equalsIgnoreCase(GZIP_ENCODING)
+            && !(coding.length > 1 && coding[1].replace(" ", "").matches("q=0(\\.0*)?")));
+  }
+
+  // A title takes precedence over showInStockOnly when both are passed in
+  private List<Product> getPage(final Integer afterId, final int limit, final boolean showInStockOnly,
+                                final String productTitle, final TitleMatch titleMatch) {
+    if (Objects.nonNull(productTitle)) return productService.getProductsByTitlePage(productTitle, titleMatch, afterId, limit);
+    if (showInStockOnly) return productService.getInStockProductsPage(afterId, limit);
+    return productService.getProductsPage(afterId, limit);
+  }
+
+  private static void checkProductTitle(final String productTitle) {
+    // The title is optional for these endpoints but if it has been passed in, it cannot be empty
+    Preconditions.checkArgument(Objects.isNull(productTitle) || !productTitle.isEmpty(), EMPTY_PRODUCT_TITLE_ERROR_MESSAGE);
+  }
+
+  private static Integer lastProductId(final List<Product> products) {
+    return products.get(products.size() - 1).getProductId();
+  }
 }
@@ -0,0 +1,125 @@
+package com.chintan.shopifychallenge.ingest;
+
+import com.chintan.shopifychallenge.models.Money;
+import com.google.common.base.Preconditions;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Reads CSV with a header row naming the columns: "title", "price" and "inventoryCount" are required, "productId" is
+ * optional and the columns can be in any order. Values can be quoted (with "" for a quote inside them) but can't span
+ * lines.
+ */
+public class CsvProductRowReader implements ProductRowReader {
+  public static final String MISSING_HEADER_ERROR_MESSAGE =
+      "The first line has to name the title, price and inventoryCount columns.";
+
+  private static final String PRODUCT_ID_COLUMN = "productId";
+  private static final String TITLE_COLUMN = "title";
+  private static final String PRICE_COLUMN = "price";
+  private static final String INVENTORY_COUNT_COLUMN = "inventoryCount";
+
+  private final BufferedReader reader;
+  private long lineNumber;
+
+  private int productIdIndex = -1;
+  private int titleIndex = -1;
+  private int priceIndex = -1;
+  private int inventoryCountIndex = -1;
+
+  public CsvProductRowReader(final InputStream inputStream) {
+    this.reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+  }
+
+  @Override
+  public ProductRow next() throws IOException {
+    final String line = nextLine();
+    if (Objects.isNull(line)) return null;
+
+    // The header is read along with the first row so an empty body isn't an error
+    if (titleIndex < 0) {
+      readHeader(line);
+      return next();
+    }
+
+    final List<String> values = split(line);
+    try {
+      return new ProductRow(
+          productIdIndex < 0 || value(values, productIdIndex).isEmpty() ? null : Integer.valueOf(value(values, productIdIndex)),
+          value(values, titleIndex),
+          value(values, priceIndex).isEmpty() ? null : Money.of(value(values, priceIndex)),
+          value(values, inventoryCountIndex).isEmpty() ? null : Integer.valueOf(value(values, inventoryCountIndex)));
+    } catch (final NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid number: " + e.getMessage(), e);
+    }
+  }
+
+  @Override
+  public long lineNumber() {
+    return lineNumber;
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+
+  private String nextLine() throws IOException {
+    String line;
+    do {
+      line = reader.readLine();
+      if (Objects.isNull(line)) return null;
+      lineNumber++;
+    } while (line.trim().isEmpty());
+
+    return line;
+  }
+
+  private void readHeader(final String line) {
+    final List<String> columns = split(line);
+    productIdIndex = columns.indexOf(PRODUCT_ID_COLUMN);
+    titleIndex = columns.indexOf(TITLE_COLUMN);
+    priceIndex = columns.indexOf(PRICE_COLUMN);
+    inventoryCountIndex = columns.indexOf(INVENTORY_COUNT_COLUMN);
+
+    // None of the rows can be read without knowing the columns
+    Preconditions.checkState(titleIndex >= 0 && priceIndex >= 0 && inventoryCountIndex >= 0, MISSING_HEADER_ERROR_MESSAGE);
+  }
+
+  // Missing trailing values are read as empty
+  private static String value(final List<String> values, final int index) {
+    return index < values.size() ? values.get(index).trim() : "";
+  }
+
+  private static List<String> split(final String line) {
+    final List<String> values = new ArrayList<>();
+    final StringBuilder value = new StringBuilder();
+    boolean quoted = false;
+
+    for (int i = 0; i < line.length(); i++) {
+      final char character = line.charAt(i);
+      if (quoted) {
+        if (character != '"') value.append(character);
+        else if (i + 1 < line.length() && line.charAt(i + 1) == '"') value.append(line.charAt(++i));
+        else quoted = false;
+      } else if (character == '"') {
+        quoted = true;
+      } else if (character == ',') {
+        values.add(value.toString());
+        value.setLength(0);
+      } else {
+        value.append(character);
+      }
+    }
+    values.add(value.toString());
+
+    return values;
+  }
+}
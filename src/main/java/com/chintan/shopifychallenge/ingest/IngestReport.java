@@ -0,0 +1,15 @@
+package com.chintan.shopifychallenge.ingest;
+
+import lombok.Value;
+
+import java.util.List;
+
+@Value
+public class IngestReport {
+  private final long rowsWritten;
+  private final long rowsFailed;
+  private final long elapsedMillis;
+  private final double rowsPerSecond;
+  // NOTE: Only the first "products.ingest.max-reported-errors" failed rows are listed, rowsFailed counts all of them
+  private final List<RowError> errors;
+}
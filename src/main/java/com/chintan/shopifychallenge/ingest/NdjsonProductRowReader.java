@@ -0,0 +1,52 @@
+package com.chintan.shopifychallenge.ingest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * Reads newline delimited JSON, one product object per line. Blank lines are skipped.
+ */
+public class NdjsonProductRowReader implements ProductRowReader {
+  private final BufferedReader reader;
+  private final ObjectMapper objectMapper;
+  private long lineNumber;
+
+  public NdjsonProductRowReader(final InputStream inputStream, final ObjectMapper objectMapper) {
+    this.reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    this.objectMapper = objectMapper;
+  }
+
+  @Override
+  public ProductRow next() throws IOException {
+    String line;
+    do {
+      line = reader.readLine();
+      if (Objects.isNull(line)) return null;
+      lineNumber++;
+    } while (line.trim().isEmpty());
+
+    // Each line is parsed on its own so a broken line can't throw off the ones after it
+    try {
+      return objectMapper.readValue(line, ProductRow.class);
+    } catch (final JsonProcessingException e) {
+      throw new IllegalArgumentException("Invalid JSON: " + e.getOriginalMessage(), e);
+    }
+  }
+
+  @Override
+  public long lineNumber() {
+    return lineNumber;
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+}
@@ -0,0 +1,92 @@
+package com.chintan.shopifychallenge.ingest;
+
+import com.chintan.shopifychallenge.catalog.ProductsChangedEvent;
+import com.chintan.shopifychallenge.inventory.HotInventory;
+import com.chintan.shopifychallenge.models.Product;
+import com.chintan.shopifychallenge.repository.ProductRepository;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Writes one batch of imported rows to the "product" table.
+ */
+@Component
+public class ProductIngestWriter {
+  public static final String PRODUCT_DOES_NOT_EXIST_ERROR_MESSAGE = "There is no product with this ID to update.";
+  public static final String HOT_PRODUCT_ERROR_MESSAGE =
+      "This product is sold from memory, its inventory can only be changed by restocking it.";
+
+  private final ProductRepository productRepository;
+  private final HotInventory hotInventory;
+  private final ApplicationEventPublisher eventPublisher;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Autowired
+  public ProductIngestWriter(final ProductRepository productRepository, final HotInventory hotInventory,
+                             final ApplicationEventPublisher eventPublisher) {
+    this.productRepository = productRepository;
+    this.hotInventory = hotInventory;
+    this.eventPublisher = eventPublisher;
+  }
+
+  /**
+   * Adds and updates the products of all the given rows in one transaction and returns the rows that couldn't be
+   * written. The in-memory indexes are updated once for the whole batch after it has been committed.
+   */
+  @Transactional
+  public List<RowError> write(final List<ProductRow> rows) {
+    // The whole batch goes out in a single JDBC batch per statement instead of the smaller one every other
+    // transaction uses
+    entityManager.unwrap(Session.class).setJdbcBatchSize(rows.size());
+
+    // The products being updated are locked and read in one query, so no purchase, reservation or restock can change
+    // their inventory between the read and the commit that writes the changes to them
+    final Set<Integer> productIds = rows.stream()
+        .map(ProductRow::getProductId)
+        .filter(Objects::nonNull)
+        .collect(Collectors.toSet());
+    final Map<Integer, Product> existingProducts = productIds.isEmpty() ? Collections.emptyMap() :
+        productRepository.findAllByIdForUpdate(productIds)
+            .stream()
+            .collect(Collectors.toMap(Product::getProductId, Function.identity()));
+
+    final List<RowError> errors = new ArrayList<>();
+    final List<Product> newProducts = new ArrayList<>();
+    final Map<Integer, Product> updatedProducts = new LinkedHashMap<>();
+    for (final ProductRow row : rows) {
+      if (Objects.isNull(row.getProductId())) {
+        newProducts.add(new Product(null, row.getTitle(), row.getPrice(), row.getInventoryCount()));
+        continue;
+      }
+
+      final Product product = existingProducts.get(row.getProductId());
+      if (Objects.isNull(product)) {
+        errors.add(new RowError(row.getLineNumber(), PRODUCT_DOES_NOT_EXIST_ERROR_MESSAGE));
+      } else if (hotInventory.isHot(product.getProductId()) && product.getInventoryCount() != row.getInventoryCount()) {
+        errors.add(new RowError(row.getLineNumber(), HOT_PRODUCT_ERROR_MESSAGE));
+      } else {
+        product.setTitle(row.getTitle());
+        product.setPrice(row.getPrice());
+        product.setInventoryCount(row.getInventoryCount());
+        updatedProducts.put(product.getProductId(), product);
+      }
+    }
+
+    final List<Product> changedProducts = new ArrayList<>(productRepository.saveAll(newProducts));
+    changedProducts.addAll(updatedProducts.values());
+    if (!changedProducts.isEmpty()) eventPublisher.publishEvent(new ProductsChangedEvent(changedProducts));
+
+    return errors;
+  }
+}
@@ -0,0 +1,175 @@
+package com.chintan.shopifychallenge.ingest;
+
+import com.chintan.shopifychallenge.config.ProductIngestProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.*;
+
+/**
+ * Imports products from a {@link ProductRowReader} in batches of "products.ingest.batch-size" rows.
+ *
+ * Rows are parsed on the caller's thread while earlier batches are written on a writer thread, one batch after the
+ * other so later rows for the same product win. At most "products.ingest.max-pending-batches" batches wait to be
+ * written: once that many are waiting the caller stops reading, which leaves the rest of the upload unread until the
+ * database catches up. Rows that can't be parsed or written are reported and the rest of the import carries on.
+ */
+@Component
+public class ProductIngester {
+  public static final String ROWS_METER_NAME = "products.ingest.rows";
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ProductIngester.class);
+
+  private final ProductIngestWriter productIngestWriter;
+  private final ProductIngestProperties productIngestProperties;
+  private final Counter writtenRows;
+  private final Counter failedRows;
+
+  // Each import only ever has one batch being written at a time, so this only grows with the number of imports
+  private final ExecutorService writerExecutor = Executors.newCachedThreadPool(runnable -> {
+    final Thread thread = new Thread(runnable, "product-ingest");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  @Autowired
+  public ProductIngester(final ProductIngestWriter productIngestWriter,
+                         final ProductIngestProperties productIngestProperties, final MeterRegistry meterRegistry) {
+    this.productIngestWriter = productIngestWriter;
+    this.productIngestProperties = productIngestProperties;
+    this.writtenRows = meterRegistry.counter(ROWS_METER_NAME, "result", "written");
+    this.failedRows = meterRegistry.counter(ROWS_METER_NAME, "result", "failed");
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    writerExecutor.shutdown();
+    writerExecutor.awaitTermination(30, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Reads every row and returns once all of them have been written. If the body can't be read to the end, the
+   * batches read before that are still written.
+   */
+  public IngestReport ingest(final ProductRowReader reader) throws IOException, InterruptedException {
+    final long startNanos = System.nanoTime();
+    final int batchSize = productIngestProperties.getBatchSize();
+    final Semaphore pendingBatches = new Semaphore(productIngestProperties.getMaxPendingBatches());
+    final Tally tally = new Tally(productIngestProperties.getMaxReportedErrors());
+
+    CompletableFuture<Void> lastWrite = CompletableFuture.completedFuture(null);
+    try {
+      List<ProductRow> batch = new ArrayList<>(batchSize);
+      for (ProductRow row = nextRow(reader, tally); Objects.nonNull(row); row = nextRow(reader, tally)) {
+        batch.add(row);
+        if (batch.size() < batchSize) continue;
+
+        lastWrite = writeAfter(lastWrite, batch, pendingBatches, tally);
+        batch = new ArrayList<>(batchSize);
+      }
+      if (!batch.isEmpty()) lastWrite = writeAfter(lastWrite, batch, pendingBatches, tally);
+    } finally {
+      lastWrite.join();
+    }
+
+    final IngestReport report = tally.toReport(System.nanoTime() - startNanos);
+    LOGGER.info("Imported {} products ({} rows failed) in {} ms, {} rows per second", report.getRowsWritten(),
+        report.getRowsFailed(), report.getElapsedMillis(), Math.round(report.getRowsPerSecond()));
+
+    return report;
+  }
+
+  // Skips over the rows that can't be parsed, returns null once everything has been read
+  private ProductRow nextRow(final ProductRowReader reader, final Tally tally) throws IOException {
+    while (true) {
+      try {
+        final ProductRow row = reader.next();
+        if (Objects.isNull(row)) return null;
+
+        row.setLineNumber(reader.lineNumber());
+        row.validate();
+        return row;
+      } catch (final IllegalArgumentException e) {
+        tally.failed(Collections.singletonList(new RowError(reader.lineNumber(), e.getMessage())));
+        failedRows.increment();
+      }
+    }
+  }
+
+  private CompletableFuture<Void> writeAfter(final CompletableFuture<Void> previousWrite, final List<ProductRow> batch,
+                                             final Semaphore pendingBatches, final Tally tally) throws InterruptedException {
+    // This is where the back-pressure comes from, the caller waits here while the writer is behind
+    pendingBatches.acquire();
+
+    return previousWrite.handleAsync((ignored, previousFailure) -> {
+      try {
+        writeBatch(batch, tally);
+      } finally {
+        pendingBatches.release();
+      }
+      return null;
+    }, writerExecutor);
+  }
+
+  private void writeBatch(final List<ProductRow> batch, final Tally tally) {
+    List<RowError> errors;
+    try {
+      errors = productIngestWriter.write(batch);
+    } catch (final RuntimeException e) {
+      LOGGER.error("Failed to write a batch of {} imported products", batch.size(), e);
+      final String message = "The batch this row was in could not be written: " + e.getMessage();
+
+      errors = new ArrayList<>(batch.size());
+      for (final ProductRow row : batch) errors.add(new RowError(row.getLineNumber(), message));
+    }
+
+    tally.written(batch.size() - errors.size());
+    tally.failed(errors);
+    writtenRows.increment(batch.size() - errors.size());
+    failedRows.increment(errors.size());
+  }
+
+  // Counted from both the reading and the writing thread
+  private static class Tally {
+    private final int maxReportedErrors;
+    private final List<RowError> errors = new ArrayList<>();
+    private long rowsWritten;
+    private long rowsFailed;
+
+    private Tally(final int maxReportedErrors) {
+      this.maxReportedErrors = maxReportedErrors;
+    }
+
+    private synchronized void written(final int rows) {
+      rowsWritten += rows;
+    }
+
+    private synchronized void failed(final List<RowError> rowErrors) {
+      rowsFailed += rowErrors.size();
+      for (final RowError rowError : rowErrors) {
+        if (errors.size() == maxReportedErrors) break;
+        errors.add(rowError);
+      }
+    }
+
+    private synchronized IngestReport toReport(final long elapsedNanos) {
+      final double elapsedSeconds = Math.max(elapsedNanos, 1) / (double) TimeUnit.SECONDS.toNanos(1);
+      // Parse errors are reported as they are read and write errors once their batch is done, so they're sorted here
+      errors.sort(Comparator.comparingLong(RowError::getLineNumber));
+
+      return new IngestReport(rowsWritten, rowsFailed, TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+          (rowsWritten + rowsFailed) / elapsedSeconds, new ArrayList<>(errors));
+    }
+  }
+}
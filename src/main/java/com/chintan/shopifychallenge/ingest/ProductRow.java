@@ -0,0 +1,42 @@
+package com.chintan.shopifychallenge.ingest;
+
+import com.chintan.shopifychallenge.models.Money;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Strings;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Objects;
+
+/**
+ * A single product read from an import. Rows without a product ID are added as new products, rows with one replace
+ * the title, price and inventory of that product.
+ */
+@Data
+@NoArgsConstructor // NOTE: This constructor is needed for the ObjectMapper to deserialize NDJSON rows
+@AllArgsConstructor
+public class ProductRow {
+  public static final String MISSING_TITLE_ERROR_MESSAGE = "A product needs a title.";
+  public static final String INVALID_PRICE_ERROR_MESSAGE = "A product needs a price that isn't negative.";
+  public static final String INVALID_INVENTORY_ERROR_MESSAGE = "A product needs an inventory count that isn't negative.";
+
+  private Integer productId;
+  private String title;
+  private Money price;
+  private Integer inventoryCount;
+  // NOTE: This is set by the importer and only used to point out which rows failed
+  @JsonIgnore
+  private long lineNumber;
+
+  public ProductRow(final Integer productId, final String title, final Money price, final Integer inventoryCount) {
+    this(productId, title, price, inventoryCount, 0);
+  }
+
+  public void validate() {
+    Preconditions.checkArgument(!Strings.isNullOrEmpty(title), MISSING_TITLE_ERROR_MESSAGE);
+    Preconditions.checkArgument(Objects.nonNull(price) && price.getCents() >= 0, INVALID_PRICE_ERROR_MESSAGE);
+    Preconditions.checkArgument(Objects.nonNull(inventoryCount) && inventoryCount >= 0, INVALID_INVENTORY_ERROR_MESSAGE);
+  }
+}
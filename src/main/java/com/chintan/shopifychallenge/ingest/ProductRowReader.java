@@ -0,0 +1,19 @@
+package com.chintan.shopifychallenge.ingest;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reads the rows of an import one at a time, straight from the uploaded body so it never has to be held in memory.
+ */
+public interface ProductRowReader extends Closeable {
+  /**
+   * Returns the next row or null once everything has been read. A row that can't be parsed throws an
+   * IllegalArgumentException, reading carries on with the row after it. A body that can't be read at all throws an
+   * IllegalStateException.
+   */
+  ProductRow next() throws IOException;
+
+  // The line of the body the last row was read from, starting at 1
+  long lineNumber();
+}
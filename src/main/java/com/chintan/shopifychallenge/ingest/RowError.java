@@ -0,0 +1,9 @@
+package com.chintan.shopifychallenge.ingest;
+
+import lombok.Value;
+
+@Value
+public class RowError {
+  private final long lineNumber;
+  private final String message;
+}
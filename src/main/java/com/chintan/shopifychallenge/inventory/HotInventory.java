@@ -0,0 +1,149 @@
+package com.chintan.shopifychallenge.inventory;
+
+import com.chintan.shopifychallenge.config.HotInventoryProperties;
+import com.chintan.shopifychallenge.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sells the configured hot products from memory instead of from their row in the "product" table.
+ *
+ * A hot product's stock is loaded into a {@link StripedInventory} at startup and purchases take from the stripe
+ * their cart maps to, so purchases of the same product don't queue up behind the same row lock. Every sale is
+ * recorded in the "inventory_sale" table by the purchase's own transaction and the sales are applied to the
+ * "product" table in the background by the {@link InventorySaleFlusher}. Any sales that weren't applied before a
+ * crash are applied at the next startup before the stock is loaded, so the stock in memory always matches the
+ * database.
+ *
+ * NOTE: The stock in memory belongs to this instance, so hot products should only be configured when a single
+ * instance is running.
+ */
+@Component
+public class HotInventory {
+  private static final Logger LOGGER = LoggerFactory.getLogger(HotInventory.class);
+
+  private final HotInventoryProperties hotInventoryProperties;
+  private final ProductRepository productRepository;
+  private final InventorySaleFlusher inventorySaleFlusher;
+
+  private final Map<Integer, StripedInventory> inventoriesByProductId = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService flushScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    final Thread thread = new Thread(runnable, "hot-inventory-flush");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private volatile boolean loaded = false;
+
+  @Autowired
+  public HotInventory(final HotInventoryProperties hotInventoryProperties, final ProductRepository productRepository,
+                      final InventorySaleFlusher inventorySaleFlusher) {
+    this.hotInventoryProperties = hotInventoryProperties;
+    this.productRepository = productRepository;
+    this.inventorySaleFlusher = inventorySaleFlusher;
+  }
+
+  // Runs before the web server starts accepting requests so no purchase can happen before the stock is loaded
+  @EventListener(ContextRefreshedEvent.class)
+  public synchronized void loadInventory() {
+    if (loaded || hotInventoryProperties.getProductIds().isEmpty()) return;
+
+    inventorySaleFlusher.flushSales();
+    productRepository.findAllById(hotInventoryProperties.getProductIds()).forEach(product -> inventoriesByProductId.put(
+        product.getProductId(), new StripedInventory(hotInventoryProperties.getStripes(), product.getInventoryCount())));
+
+    final long flushIntervalMillis = hotInventoryProperties.getFlushInterval().toMillis();
+    flushScheduler.scheduleWithFixedDelay(this::flushSales, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    loaded = true;
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    flushScheduler.shutdown();
+    flushScheduler.awaitTermination(10, TimeUnit.SECONDS);
+    if (loaded) flushSales();
+  }
+
+  public boolean isHot(final Integer productId) {
+    return inventoriesByProductId.containsKey(productId);
+  }
+
+  /**
+   * Takes one unit of every given hot product for the cart, or none of them if any of them is sold out in which case
+   * the ID of that product is returned.
+   *
+   * Has to be called inside a transaction: the units are put back if the transaction rolls back, the transaction
+   * is responsible for recording the sales if it commits.
+   */
+  public Optional<Integer> takeAll(final Collection<Integer> productIds, final Integer cartId) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive())
+      throw new IllegalStateException("Hot products can only be taken inside a transaction.");
+
+    final List<Integer> takenProductIds = new ArrayList<>(productIds.size());
+    for (final Integer productId : productIds) {
+      if (!inventoryOf(productId).tryTake(cartId)) {
+        takenProductIds.forEach(takenProductId -> inventoryOf(takenProductId).release(cartId));
+        return Optional.of(productId);
+      }
+      takenProductIds.add(productId);
+    }
+
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+      @Override
+      public void afterCompletion(final int status) {
+        if (status != TransactionSynchronization.STATUS_COMMITTED)
+          takenProductIds.forEach(takenProductId -> inventoryOf(takenProductId).release(cartId));
+      }
+    });
+
+    return Optional.empty();
+  }
+
+  /**
+   * Adds restocked units of a hot product once the transaction that restocked it in the database commits.
+   */
+  public void restock(final Integer productId, final int quantity) {
+    if (!isHot(productId)) return;
+
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      inventoryOf(productId).add(quantity);
+      return;
+    }
+
+    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+      @Override
+      public void afterCommit() {
+        inventoryOf(productId).add(quantity);
+      }
+    });
+  }
+
+  private StripedInventory inventoryOf(final Integer productId) {
+    final StripedInventory inventory = inventoriesByProductId.get(productId);
+    if (Objects.isNull(inventory)) throw new IllegalArgumentException("Product " + productId + " is not a hot product.");
+
+    return inventory;
+  }
+
+  private void flushSales() {
+    try {
+      inventorySaleFlusher.flushSales();
+    } catch (final RuntimeException e) {
+      // The sales stay recorded so the next flush (or the next startup) applies them
+      LOGGER.error("Failed to apply the sales of hot products", e);
+    }
+  }
+}
@@ -0,0 +1,31 @@
+package com.chintan.shopifychallenge.inventory;
+
+import com.chintan.shopifychallenge.models.Product;
+import lombok.Value;
+
+/**
+ * The new inventory of a product, as sent to the subscribers of the {@link InventoryFeed}.
+ */
+@Value
+public class InventoryChange {
+  Integer productId;
+  int inventoryCount;
+  boolean inStock;
+  // NOTE: True when the product sold out or came back in stock since the last change the subscriber was sent
+  boolean inStockChanged;
+
+  public static InventoryChange of(final Product product, final boolean wasInStock) {
+    return new InventoryChange(product.getProductId(), product.getInventoryCount(), product.inStock(),
+        product.inStock() != wasInStock);
+  }
+
+  /**
+   * Combines this change with a later change to the same product, the later inventory wins but the product is only
+   * marked as having changed stock if it did so across both changes.
+   */
+  InventoryChange conflate(final InventoryChange laterChange) {
+    final boolean wasInStock = inStockChanged != inStock;
+    return new InventoryChange(productId, laterChange.inventoryCount, laterChange.inStock,
+        laterChange.inStock != wasInStock);
+  }
+}
@@ -0,0 +1,66 @@
+package com.chintan.shopifychallenge.inventory;
+
+import lombok.Value;
+
+import java.util.*;
+
+/**
+ * The inventory changes waiting to be sent to one subscriber of the {@link InventoryFeed}.
+ *
+ * Only the latest change of each product is kept (conflated with the ones before it so an in-stock transition isn't
+ * lost), so a subscriber that reads slowly falls behind by at most one change per product instead of by every
+ * change. If more products change than fit in the buffer before they can be sent, the changes are dropped and the
+ * subscriber is told to read the inventory again instead. A new subscriber starts out being told to read it.
+ */
+class InventoryChangeBuffer {
+  // Empty means every product
+  private final Set<Integer> productIds;
+  private final int capacity;
+
+  private final Map<Integer, InventoryChange> pendingChanges = new LinkedHashMap<>();
+  private boolean resync = true;
+  private boolean sending = false;
+
+  InventoryChangeBuffer(final Set<Integer> productIds, final int capacity) {
+    this.productIds = productIds;
+    this.capacity = capacity;
+  }
+
+  synchronized void add(final InventoryChange change) {
+    if (!productIds.isEmpty() && !productIds.contains(change.getProductId())) return;
+
+    final InventoryChange pendingChange = pendingChanges.get(change.getProductId());
+    if (Objects.nonNull(pendingChange)) {
+      pendingChanges.put(change.getProductId(), pendingChange.conflate(change));
+    } else if (pendingChanges.size() == capacity) {
+      pendingChanges.clear();
+      resync = true;
+    } else {
+      pendingChanges.put(change.getProductId(), change);
+    }
+  }
+
+  /**
+   * Takes everything waiting to be sent, nothing is taken while the previous batch is still being sent so a slow
+   * subscriber only ever has one send in progress. An empty batch is only returned when asked for.
+   */
+  synchronized Optional<Batch> take(final boolean evenIfEmpty) {
+    if (sending || (!evenIfEmpty && !resync && pendingChanges.isEmpty())) return Optional.empty();
+
+    final Batch batch = new Batch(resync, new ArrayList<>(pendingChanges.values()));
+    pendingChanges.clear();
+    resync = false;
+    sending = true;
+    return Optional.of(batch);
+  }
+
+  synchronized void sent() {
+    sending = false;
+  }
+
+  @Value
+  static class Batch {
+    boolean resync;
+    List<InventoryChange> changes;
+  }
+}
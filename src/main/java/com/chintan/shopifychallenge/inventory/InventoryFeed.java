@@ -0,0 +1,164 @@
+package com.chintan.shopifychallenge.inventory;
+
+import com.chintan.shopifychallenge.config.InventoryFeedProperties;
+import com.google.common.base.Preconditions;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Streams the inventory changes of products to their subscribers as server-sent events.
+ *
+ * Every change is added to the {@link InventoryChangeBuffer} of each subscriber, and every send interval the buffered
+ * changes are written to the subscriber as one "inventory" event by a small pool of sender threads. The open
+ * subscriptions are async requests, so they don't hold on to a servlet thread while waiting for changes.
+ *
+ * A "resync" event tells the subscriber to read the inventory again (e.g. from "GET /products"), it is sent first
+ * to every new subscriber and again whenever changes had to be dropped because the subscriber fell too far behind.
+ */
+@Component
+public class InventoryFeed {
+  public static final String TOO_MANY_SUBSCRIBERS_EXCEPTION_MESSAGE =
+      "The inventory feed has too many subscribers right now, try again later.";
+  public static final String CHANGES_EVENT_NAME = "inventory";
+  public static final String RESYNC_EVENT_NAME = "resync";
+  public static final String SUBSCRIBERS_METER_NAME = "inventory.feed.subscribers";
+  public static final String RESYNCS_METER_NAME = "inventory.feed.resyncs";
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(InventoryFeed.class);
+
+  private final InventoryFeedProperties inventoryFeedProperties;
+  private final Counter resyncs;
+  private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+  private final ScheduledExecutorService sendScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    final Thread thread = new Thread(runnable, "inventory-feed");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private final ExecutorService senders;
+
+  @Autowired
+  public InventoryFeed(final InventoryFeedProperties inventoryFeedProperties, final MeterRegistry meterRegistry) {
+    this.inventoryFeedProperties = inventoryFeedProperties;
+    this.resyncs = meterRegistry.counter(RESYNCS_METER_NAME);
+    meterRegistry.gaugeCollectionSize(SUBSCRIBERS_METER_NAME, Collections.emptyList(), subscribers);
+
+    final AtomicInteger senderCount = new AtomicInteger();
+    this.senders = Executors.newFixedThreadPool(inventoryFeedProperties.getSenderThreads(), runnable -> {
+      final Thread thread = new Thread(runnable, "inventory-feed-sender-" + senderCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  @PostConstruct
+  public void start() {
+    final long sendIntervalMillis = Math.max(inventoryFeedProperties.getSendInterval().toMillis(), 1);
+    sendScheduler.scheduleWithFixedDelay(this::sendPendingChangesSafely, sendIntervalMillis, sendIntervalMillis,
+        TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    sendScheduler.shutdown();
+    senders.shutdown();
+    senders.awaitTermination(10, TimeUnit.SECONDS);
+    subscribers.forEach(subscriber -> subscriber.emitter.complete());
+  }
+
+  /**
+   * Subscribes to the changes of the given products, or of every product when no product IDs are given.
+   */
+  public SseEmitter subscribe(final Set<Integer> productIds) {
+    Preconditions.checkState(subscribers.size() < inventoryFeedProperties.getMaxSubscribers(),
+        TOO_MANY_SUBSCRIBERS_EXCEPTION_MESSAGE);
+
+    final SseEmitter emitter = new SseEmitter(inventoryFeedProperties.getTimeout().toMillis());
+    subscribe(emitter, productIds);
+    return emitter;
+  }
+
+  void subscribe(final SseEmitter emitter, final Set<Integer> productIds) {
+    final Subscriber subscriber = new Subscriber(emitter,
+        new InventoryChangeBuffer(productIds, inventoryFeedProperties.getMaxPendingChanges()));
+
+    emitter.onCompletion(() -> subscribers.remove(subscriber));
+    emitter.onTimeout(() -> subscribers.remove(subscriber));
+    emitter.onError(error -> subscribers.remove(subscriber));
+    subscribers.add(subscriber);
+  }
+
+  // NOTE: This runs on the thread that committed the changes, it only adds them to the buffers and never waits on a
+  // subscriber
+  public void publish(final Collection<InventoryChange> inventoryChanges) {
+    if (inventoryChanges.isEmpty()) return;
+
+    for (final Subscriber subscriber : subscribers) inventoryChanges.forEach(subscriber.buffer::add);
+  }
+
+  void sendPendingChanges() {
+    final long now = System.nanoTime();
+    final long heartbeatIntervalNanos = inventoryFeedProperties.getHeartbeatInterval().toNanos();
+
+    for (final Subscriber subscriber : subscribers) {
+      final boolean heartbeatDue = now - subscriber.lastSentNanos >= heartbeatIntervalNanos;
+      subscriber.buffer.take(heartbeatDue).ifPresent(batch -> senders.execute(() -> send(subscriber, batch)));
+    }
+  }
+
+  // An exception would stop the scheduler from running this again
+  private void sendPendingChangesSafely() {
+    try {
+      sendPendingChanges();
+    } catch (RuntimeException e) {
+      LOGGER.error("Sending the inventory changes to the subscribers failed.", e);
+    }
+  }
+
+  private void send(final Subscriber subscriber, final InventoryChangeBuffer.Batch batch) {
+    try {
+      if (batch.isResync()) {
+        resyncs.increment();
+        subscriber.emitter.send(SseEmitter.event().name(RESYNC_EVENT_NAME).data(""));
+      }
+
+      if (!batch.getChanges().isEmpty()) {
+        subscriber.emitter.send(SseEmitter.event().name(CHANGES_EVENT_NAME).data(batch.getChanges(), MediaType.APPLICATION_JSON));
+      } else if (!batch.isResync()) {
+        subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+      }
+      subscriber.lastSentNanos = System.nanoTime();
+    } catch (IOException | IllegalStateException e) {
+      // The client went away or the subscription already ended, the container completes the request on its own
+      subscribers.remove(subscriber);
+    } finally {
+      subscriber.buffer.sent();
+    }
+  }
+
+  private static class Subscriber {
+    private final SseEmitter emitter;
+    private final InventoryChangeBuffer buffer;
+    private volatile long lastSentNanos = System.nanoTime();
+
+    private Subscriber(final SseEmitter emitter, final InventoryChangeBuffer buffer) {
+      this.emitter = emitter;
+      this.buffer = buffer;
+    }
+  }
+}
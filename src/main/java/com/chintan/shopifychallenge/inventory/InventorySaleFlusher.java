@@ -0,0 +1,54 @@
+package com.chintan.shopifychallenge.inventory;
+
+import com.chintan.shopifychallenge.catalog.ProductsChangedEvent;
+import com.chintan.shopifychallenge.models.InventorySale;
+import com.chintan.shopifychallenge.repository.InventorySaleRepository;
+import com.chintan.shopifychallenge.repository.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Applies the recorded sales of hot products to the inventory in the "product" table.
+ */
+@Component
+public class InventorySaleFlusher {
+  private final InventorySaleRepository inventorySaleRepository;
+  private final ProductRepository productRepository;
+  private final ApplicationEventPublisher eventPublisher;
+
+  @Autowired
+  public InventorySaleFlusher(final InventorySaleRepository inventorySaleRepository,
+                              final ProductRepository productRepository, final ApplicationEventPublisher eventPublisher) {
+    this.inventorySaleRepository = inventorySaleRepository;
+    this.productRepository = productRepository;
+    this.eventPublisher = eventPublisher;
+  }
+
+  /**
+   * Subtracts every committed sale from its product's inventory and deletes the sales, all in one transaction so a
+   * sale is either still recorded or already applied, never both or neither.
+   */
+  @Transactional
+  public void flushSales() {
+    // Only the sales that are read here are deleted, sales committed in the meantime are left for the next flush
+    final List<InventorySale> sales = inventorySaleRepository.findAll();
+    if (sales.isEmpty()) return;
+
+    // The products are updated in ID order, the same order purchases lock them in
+    final Map<Integer, Integer> soldQuantitiesByProductId = new TreeMap<>();
+    sales.forEach(sale -> soldQuantitiesByProductId.merge(sale.getProductId(), sale.getQuantity(), Integer::sum));
+
+    soldQuantitiesByProductId.forEach(productRepository::decrementInventory);
+    inventorySaleRepository.deleteInBatch(sales);
+
+    eventPublisher.publishEvent(new ProductsChangedEvent(
+        productRepository.findAllById(new ArrayList<>(soldQuantitiesByProductId.keySet()))));
+  }
+}
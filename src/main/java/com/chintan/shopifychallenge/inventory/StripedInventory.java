@@ -0,0 +1,71 @@
+package com.chintan.shopifychallenge.inventory;
+
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The stock of a single product split across several lock-free counters (stripes).
+ *
+ * Purchases take from the stripe their hint maps to and only borrow from the other stripes once it runs dry, so
+ * concurrent purchases of the same product mostly update different counters instead of all retrying the same one.
+ */
+final class StripedInventory {
+  // Each stripe gets its own cache line so threads updating neighbouring stripes don't slow each other down
+  private static final int PADDING = 8;
+
+  private final int stripeCount;
+  private final AtomicLongArray stripes;
+
+  StripedInventory(final int stripeCount, final long quantity) {
+    Preconditions.checkArgument(stripeCount > 0, "There has to be at least one stripe.");
+    this.stripeCount = stripeCount;
+    this.stripes = new AtomicLongArray(stripeCount * PADDING);
+    add(quantity);
+  }
+
+  /**
+   * Takes one unit, starting with the stripe the hint maps to. Returns false if every stripe was empty.
+   */
+  boolean tryTake(final int stripeHint) {
+    final int homeStripe = Math.floorMod(stripeHint, stripeCount);
+
+    for (int i = 0; i < stripeCount; i++) {
+      if (tryTakeFrom((homeStripe + i) % stripeCount)) return true;
+    }
+    return false;
+  }
+
+  // Puts back a unit that was taken but not sold
+  void release(final int stripeHint) {
+    stripes.incrementAndGet(Math.floorMod(stripeHint, stripeCount) * PADDING);
+  }
+
+  // Spreads new stock evenly across the stripes
+  void add(final long quantity) {
+    Preconditions.checkArgument(quantity >= 0, "Only a positive quantity can be added.");
+
+    for (int stripe = 0; stripe < stripeCount; stripe++) {
+      final long share = quantity / stripeCount + (stripe < quantity % stripeCount ? 1 : 0);
+      if (share > 0) stripes.addAndGet(stripe * PADDING, share);
+    }
+  }
+
+  // NOTE: This is only a snapshot when purchases are happening at the same time
+  long available() {
+    long available = 0;
+    for (int stripe = 0; stripe < stripeCount; stripe++) available += stripes.get(stripe * PADDING);
+
+    return available;
+  }
+
+  private boolean tryTakeFrom(final int stripe) {
+    final int index = stripe * PADDING;
+
+    long available;
+    while ((available = stripes.get(index)) > 0) {
+      if (stripes.compareAndSet(index, available, available - 1)) return true;
+    }
+    return false;
+  }
+}
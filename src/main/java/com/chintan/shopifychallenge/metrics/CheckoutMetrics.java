@@ -0,0 +1,60 @@
+package com.chintan.shopifychallenge.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Counts completed and failed checkouts as the "checkouts" metric (tagged with the outcome and why it failed) and
+ * the inventory conflicts between concurrent checkouts as "checkouts.inventory.conflicts".
+ */
+@Component
+public class CheckoutMetrics {
+  public static final String CHECKOUTS_METER_NAME = "checkouts";
+  public static final String INVENTORY_CONFLICTS_METER_NAME = "checkouts.inventory.conflicts";
+
+  public enum FailureReason {
+    CART_DOES_NOT_EXIST,
+    STOCK_RUN_OUT
+  }
+
+  // The counters are all registered up front so recording a checkout never has to look them up
+  private final Counter completedCheckouts;
+  private final Map<FailureReason, Counter> failedCheckouts = new EnumMap<>(FailureReason.class);
+  private final Counter inventoryConflicts;
+
+  @Autowired
+  public CheckoutMetrics(final MeterRegistry meterRegistry) {
+    this.completedCheckouts = Counter.builder(CHECKOUTS_METER_NAME)
+        .tag("outcome", "completed")
+        .tag("reason", "none")
+        .register(meterRegistry);
+
+    for (final FailureReason failureReason : FailureReason.values()) {
+      failedCheckouts.put(failureReason, Counter.builder(CHECKOUTS_METER_NAME)
+          .tag("outcome", "failed")
+          .tag("reason", failureReason.name().toLowerCase())
+          .register(meterRegistry));
+    }
+
+    // A conflict is a product the catalog still lists as in stock but which another checkout sold out before this
+    // one could lock it
+    this.inventoryConflicts = Counter.builder(INVENTORY_CONFLICTS_METER_NAME).register(meterRegistry);
+  }
+
+  public void recordCompleted() {
+    completedCheckouts.increment();
+  }
+
+  public void recordFailed(final FailureReason failureReason) {
+    failedCheckouts.get(failureReason).increment();
+  }
+
+  public void recordInventoryConflict() {
+    inventoryConflicts.increment();
+  }
+}
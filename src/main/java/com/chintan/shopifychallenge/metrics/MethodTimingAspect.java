@@ -0,0 +1,100 @@
+package com.chintan.shopifychallenge.metrics;
+
+import com.chintan.shopifychallenge.repository.ProductRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Value;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Times every public service method and every repository call.
+ *
+ * The timings are published as the "service.calls" and "repository.calls" metrics tagged with the class, the method
+ * and the exception thrown (or "none"). The HTTP endpoints themselves are already timed by Spring Boot as
+ * "http.server.requests".
+ */
+@Aspect
+@Component
+public class MethodTimingAspect {
+  public static final String SERVICE_CALLS_METER_NAME = "service.calls";
+  public static final String REPOSITORY_CALLS_METER_NAME = "repository.calls";
+
+  private static final String REPOSITORY_PACKAGE = ProductRepository.class.getPackage().getName();
+
+  private final MeterRegistry meterRegistry;
+  // Repositories are proxies so the name of the repository interface is looked up once per proxy class
+  private final Map<Class<?>, String> repositoryNames = new ConcurrentHashMap<>();
+  // Building and registering a timer looks it up in the registry, so that is only done the first time a method is
+  // called (or throws a given exception)
+  private final Map<TimerKey, Timer> timers = new ConcurrentHashMap<>();
+
+  @Autowired
+  public MethodTimingAspect(final MeterRegistry meterRegistry) {
+    this.meterRegistry = meterRegistry;
+  }
+
+  @Around("execution(public * com.chintan.shopifychallenge.services.*.*(..))")
+  public Object timeServiceCall(final ProceedingJoinPoint joinPoint) throws Throwable {
+    return time(SERVICE_CALLS_METER_NAME, joinPoint.getSignature().getDeclaringType().getSimpleName(), joinPoint);
+  }
+
+  @Around("this(org.springframework.data.repository.Repository)")
+  public Object timeRepositoryCall(final ProceedingJoinPoint joinPoint) throws Throwable {
+    return time(REPOSITORY_CALLS_METER_NAME, repositoryName(joinPoint.getThis()), joinPoint);
+  }
+
+  private Object time(final String meterName, final String className, final ProceedingJoinPoint joinPoint) throws Throwable {
+    final Timer.Sample sample = Timer.start(meterRegistry);
+    String exception = "none";
+
+    try {
+      return joinPoint.proceed();
+    } catch (final Throwable throwable) {
+      exception = throwable.getClass().getSimpleName();
+      throw throwable;
+    } finally {
+      final Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+      sample.stop(timer(new TimerKey(meterName, className, method, exception)));
+    }
+  }
+
+  private Timer timer(final TimerKey timerKey) {
+    // NOTE: computeIfAbsent locks the entry even when it is already there, so the common case is a plain read
+    final Timer timer = timers.get(timerKey);
+    if (Objects.nonNull(timer)) return timer;
+
+    return timers.computeIfAbsent(timerKey, key -> Timer.builder(key.getMeterName())
+        .tag("class", key.getClassName())
+        .tag("method", key.getMethod().getName())
+        .tag("exception", key.getException())
+        .register(meterRegistry));
+  }
+
+  private String repositoryName(final Object repositoryProxy) {
+    return repositoryNames.computeIfAbsent(repositoryProxy.getClass(), proxyClass -> Arrays.stream(proxyClass.getInterfaces())
+        .filter(proxiedInterface -> proxiedInterface.getName().startsWith(REPOSITORY_PACKAGE))
+        .findFirst()
+        .map(Class::getSimpleName)
+        .orElse(proxyClass.getSimpleName()));
+  }
+
+  // NOTE: The class is part of the key since repositories share the methods they inherit from Spring Data
+  @Value
+  private static class TimerKey {
+    String meterName;
+    String className;
+    Method method;
+    String exception;
+  }
+}
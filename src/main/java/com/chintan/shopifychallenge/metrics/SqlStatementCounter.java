@@ -0,0 +1,47 @@
+package com.chintan.shopifychallenge.metrics;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread between {@link #start()} and {@link #stop()}.
+ *
+ * Registers itself as Hibernate's statement inspector, counting is only a thread local lookup and an increment so
+ * it is cheap enough to leave on for every request.
+ */
+@Component
+public class SqlStatementCounter implements StatementInspector, HibernatePropertiesCustomizer {
+  private final ThreadLocal<int[]> statementCount = new ThreadLocal<>();
+
+  @Override
+  public void customize(final Map<String, Object> hibernateProperties) {
+    hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, this);
+  }
+
+  @Override
+  public String inspect(final String sql) {
+    final int[] count = statementCount.get();
+    if (Objects.nonNull(count)) count[0]++;
+
+    return sql;
+  }
+
+  public void start() {
+    statementCount.set(new int[1]);
+  }
+
+  /**
+   * Returns how many statements were prepared since {@link #start()} was called on this thread (or 0 if it wasn't).
+   */
+  public int stop() {
+    final int[] count = statementCount.get();
+    statementCount.remove();
+
+    return Objects.isNull(count) ? 0 : count[0];
+  }
+}
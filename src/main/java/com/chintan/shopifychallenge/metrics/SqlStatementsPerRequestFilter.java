@@ -0,0 +1,50 @@
+package com.chintan.shopifychallenge.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.web.servlet.WebMvcTags;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Records how many SQL statements each request ran as the "http.server.requests.sql.statements" metric, tagged with
+ * the same method and uri as Spring Boot's "http.server.requests" timer.
+ *
+ * NOTE: Statements that run after the request thread is released (e.g. while streaming products) aren't counted.
+ */
+@Component
+public class SqlStatementsPerRequestFilter extends OncePerRequestFilter {
+  public static final String SQL_STATEMENTS_METER_NAME = "http.server.requests.sql.statements";
+
+  private final SqlStatementCounter sqlStatementCounter;
+  private final MeterRegistry meterRegistry;
+
+  @Autowired
+  public SqlStatementsPerRequestFilter(final SqlStatementCounter sqlStatementCounter, final MeterRegistry meterRegistry) {
+    this.sqlStatementCounter = sqlStatementCounter;
+    this.meterRegistry = meterRegistry;
+  }
+
+  @Override
+  protected void doFilterInternal(final HttpServletRequest request, final HttpServletResponse response,
+                                  final FilterChain filterChain) throws ServletException, IOException {
+    sqlStatementCounter.start();
+    try {
+      filterChain.doFilter(request, response);
+    } finally {
+      final int statements = sqlStatementCounter.stop();
+      DistributionSummary.builder(SQL_STATEMENTS_METER_NAME)
+          .baseUnit("statements")
+          .tags(WebMvcTags.method(request), WebMvcTags.uri(request, response))
+          .register(meterRegistry)
+          .record(statements);
+    }
+  }
+}
@@ -1,11 +1,11 @@
 package com.chintan.shopifychallenge.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.*;
+import org.hibernate.annotations.SortNatural;
 
 import javax.persistence.*;
-import java.math.BigDecimal;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 
 /**
  * This model class is defining how a row in the table "cart" would look in the database.
@@ -14,7 +14,6 @@ import java.util.List;
  */
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 @Entity
 @Table(name = "cart")
 public class Cart {
@@ -22,29 +21,92 @@ public class Cart {
       "This product is not currently present in the cart";
   public static final String PRODUCT_ALREADY_IN_CART_EXCEPTION_MESSAGE = "This product is already present in the cart";
 
+  // NOTE: Carts are created in memory first, so their IDs are handed out by the ActiveCartStore instead of the database
   @Id
-  @GeneratedValue
   private Integer cartId;
 
+  // NOTE: The products are keyed by their ID so checking, adding and removing a product doesn't have to compare it
+  // against every other product in the cart. Only their IDs and prices are stored (below), the ActiveCartStore fills
+  // the products in from the "product" table when it hands a cart out.
+  @Getter(AccessLevel.NONE)
   @Setter(AccessLevel.NONE)
-  @ManyToMany
-  private List<Product> products = new ArrayList<>();
+  @Transient
+  private Map<Integer, Product> products = new LinkedHashMap<>();
 
+  // NOTE: What each product cost when it was added to the cart, keyed by the product's ID. Removing a product takes
+  // this amount off the total even if its price has changed since. Hibernate only inserts/deletes the one row of
+  // the "cart_products" table that changed.
+  @Getter(AccessLevel.NONE)
   @Setter(AccessLevel.NONE)
-  private BigDecimal totalCost = BigDecimal.ZERO;
+  @ElementCollection
+  @CollectionTable(name = "cart_products", joinColumns = @JoinColumn(name = "cart_id"))
+  @MapKeyColumn(name = "product_id")
+  @Column(name = "price_in_cents")
+  @SortNatural
+  private SortedMap<Integer, Long> productPricesInCents = new TreeMap<>();
+
+  // NOTE: The running total is kept as plain cents since it changes every time a product is added or removed,
+  // it is only turned into Money when someone asks for it
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  private long totalCostInCents;
+
+  // The products are priced at their current price
+  public Cart(final Integer cartId, final Collection<Product> products, final Money totalCost) {
+    this.cartId = cartId;
+    products.forEach(product -> {
+      this.products.put(product.getProductId(), product);
+      this.productPricesInCents.put(product.getProductId(), product.getPrice().getCents());
+    });
+    this.totalCostInCents = totalCost.getCents();
+  }
+
+  public Cart(final Integer cartId, final Collection<Product> products, final Map<Integer, Long> productPricesInCents,
+              final Money totalCost) {
+    this.cartId = cartId;
+    products.forEach(product -> this.products.put(product.getProductId(), product));
+    this.productPricesInCents.putAll(productPricesInCents);
+    this.totalCostInCents = totalCost.getCents();
+  }
+
+  public Collection<Product> getProducts() {
+    return Collections.unmodifiableCollection(this.products.values());
+  }
+
+  // NOTE: Ascending, and unlike the products these are also there when the cart was read from the "cart" table
+  @JsonIgnore
+  public Set<Integer> getProductIds() {
+    return Collections.unmodifiableSet(this.productPricesInCents.keySet());
+  }
+
+  // What the product cost when it was added to the cart
+  public long getPriceInCents(final Integer productId) {
+    final Long priceInCents = this.productPricesInCents.get(productId);
+    if (Objects.isNull(priceInCents)) throw new IllegalArgumentException(PRODUCT_NOT_PRESENT_EXCEPTION_MESSAGE);
+
+    return priceInCents;
+  }
+
+  public Money getTotalCost() {
+    return Money.ofCents(this.totalCostInCents);
+  }
+
+  public boolean containsProduct(final Integer productId) {
+    return this.productPricesInCents.containsKey(productId);
+  }
 
   public void addProduct(final Product product) {
-    if (products.contains(product)) throw new IllegalArgumentException(PRODUCT_ALREADY_IN_CART_EXCEPTION_MESSAGE);
-    this.products.add(product);
-    this.totalCost = this.totalCost.add(product.getPrice());
+    if (containsProduct(product.getProductId())) throw new IllegalArgumentException(PRODUCT_ALREADY_IN_CART_EXCEPTION_MESSAGE);
+    this.products.put(product.getProductId(), product);
+    this.productPricesInCents.put(product.getProductId(), product.getPrice().getCents());
+    this.totalCostInCents = Math.addExact(this.totalCostInCents, product.getPrice().getCents());
   }
 
-  // FIXME: Future addition would be to allow removal of products that are present in the cart already
-  public void removeProduct(final Product product) {
-    if (!this.products.contains(product))
-      throw new IllegalArgumentException(PRODUCT_NOT_PRESENT_EXCEPTION_MESSAGE);
+  public void removeProduct(final Integer productId) {
+    final Long removedPriceInCents = this.productPricesInCents.remove(productId);
+    if (Objects.isNull(removedPriceInCents)) throw new IllegalArgumentException(PRODUCT_NOT_PRESENT_EXCEPTION_MESSAGE);
 
-    this.products.remove(product);
-    this.totalCost = this.totalCost.subtract(product.getPrice());
+    this.products.remove(productId);
+    this.totalCostInCents = Math.subtractExact(this.totalCostInCents, removedPriceInCents);
   }
 }
@@ -0,0 +1,30 @@
+package com.chintan.shopifychallenge.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * This model class is defining how a row in the table "inventory_sale" would look in the database.
+ *
+ * Every purchase of a hot product adds a row in the same transaction that deletes the cart, the rows are folded into
+ * the inventory of the "product" table later on and then deleted.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "inventory_sale")
+public class InventorySale {
+  @Id
+  @GeneratedValue
+  private Long saleId;
+
+  private Integer productId;
+  private int quantity;
+}
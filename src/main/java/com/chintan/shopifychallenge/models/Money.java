@@ -0,0 +1,124 @@
+package com.chintan.shopifychallenge.models;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * An amount of money stored as a whole number of cents.
+ *
+ * Adding and subtracting amounts is plain long arithmetic instead of going through {@link BigDecimal}, which is only
+ * used when parsing amounts that were passed in. In JSON an amount is still written as a number with two decimals
+ * (e.g. 3.99) so the API looks exactly the same as when prices were {@link BigDecimal}s.
+ */
+@JsonSerialize(using = Money.Serializer.class)
+@JsonDeserialize(using = Money.Deserializer.class)
+public final class Money implements Comparable<Money> {
+  public static final String INVALID_AMOUNT_EXCEPTION_MESSAGE = "An amount of money cannot have more than two decimals.";
+  public static final Money ZERO = new Money(0);
+
+  private static final int SCALE = 2;
+  private static final int CENTS_PER_UNIT = 100;
+
+  private final long cents;
+
+  private Money(final long cents) {
+    this.cents = cents;
+  }
+
+  public static Money ofCents(final long cents) {
+    return cents == 0 ? ZERO : new Money(cents);
+  }
+
+  public static Money of(final BigDecimal amount) {
+    try {
+      return ofCents(amount.setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact());
+    } catch (ArithmeticException e) {
+      throw new IllegalArgumentException(INVALID_AMOUNT_EXCEPTION_MESSAGE, e);
+    }
+  }
+
+  public static Money of(final String amount) {
+    return of(new BigDecimal(amount));
+  }
+
+  public long getCents() {
+    return cents;
+  }
+
+  public Money plus(final Money other) {
+    return ofCents(Math.addExact(this.cents, other.cents));
+  }
+
+  public Money minus(final Money other) {
+    return ofCents(Math.subtractExact(this.cents, other.cents));
+  }
+
+  public BigDecimal toBigDecimal() {
+    return BigDecimal.valueOf(cents, SCALE);
+  }
+
+  @Override
+  public int compareTo(final Money other) {
+    return Long.compare(this.cents, other.cents);
+  }
+
+  @Override
+  public boolean equals(final Object other) {
+    return other instanceof Money && ((Money) other).cents == this.cents;
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(cents);
+  }
+
+  // Formats the amount the same way BigDecimal.toPlainString() would with a scale of 2 (e.g. -0.05 or 12.30)
+  @Override
+  public String toString() {
+    final long units = Math.abs(cents / CENTS_PER_UNIT);
+    final long remainingCents = Math.abs(cents % CENTS_PER_UNIT);
+
+    return new StringBuilder(24)
+        .append(cents < 0 ? "-" : "")
+        .append(units)
+        .append(remainingCents < 10 ? ".0" : ".")
+        .append(remainingCents)
+        .toString();
+  }
+
+  static class Serializer extends StdSerializer<Money> {
+    Serializer() {
+      super(Money.class);
+    }
+
+    @Override
+    public void serialize(final Money money, final JsonGenerator generator, final SerializerProvider provider) throws IOException {
+      // Text formats get the exact digits, binary formats (CBOR, Smile) can't write a number as text so they get a decimal
+      if (generator.canWriteFormattedNumbers()) generator.writeNumber(money.toString());
+      else generator.writeNumber(money.toBigDecimal());
+    }
+  }
+
+  static class Deserializer extends StdDeserializer<Money> {
+    Deserializer() {
+      super(Money.class);
+    }
+
+    @Override
+    public Money deserialize(final JsonParser parser, final DeserializationContext context) throws IOException {
+      if (parser.hasToken(JsonToken.VALUE_STRING)) return Money.of(parser.getText().trim());
+      return Money.of(parser.getDecimalValue());
+    }
+  }
+}
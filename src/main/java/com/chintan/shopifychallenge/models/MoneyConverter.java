@@ -0,0 +1,21 @@
+package com.chintan.shopifychallenge.models;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+import java.util.Objects;
+
+/**
+ * Stores {@link Money} columns as the number of cents so the database never has to deal with decimals either.
+ */
+@Converter(autoApply = true)
+public class MoneyConverter implements AttributeConverter<Money, Long> {
+  @Override
+  public Long convertToDatabaseColumn(final Money money) {
+    return Objects.isNull(money) ? null : money.getCents();
+  }
+
+  @Override
+  public Money convertToEntityAttribute(final Long cents) {
+    return Objects.isNull(cents) ? null : Money.ofCents(cents);
+  }
+}
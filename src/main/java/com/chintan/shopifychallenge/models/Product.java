@@ -1,11 +1,12 @@
 package com.chintan.shopifychallenge.models;
 
-import lombok.AllArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
 import javax.persistence.*;
-import java.math.BigDecimal;
 
 /**
  * This model class is defining how a row in the table "product" would look in the database.
@@ -13,12 +14,13 @@ import java.math.BigDecimal;
  * All the fields defined will be columns in the table and we create the rows through our endpoints.
  */
 @Data
+@EqualsAndHashCode(exclude = "version")
 @NoArgsConstructor
-@AllArgsConstructor
 @Entity
 @Table(name = "product")
 public class Product {
   public static final String STOCK_RUN_OUT_EXCEPTION_MESSAGE = "This product cannot be added to cart/purchased since stock has run out.";
+  public static final String INVALID_RESTOCK_QUANTITY_EXCEPTION_MESSAGE = "A product can only be restocked by a positive quantity.";
 
   @Id
   @GeneratedValue
@@ -27,9 +29,30 @@ public class Product {
   // NOTE: This is not the ID because there are cases where products could have the same title
   // but not be the same product.
   private String title;
-  private BigDecimal price;
+  @Column(name = "price_in_cents")
+  private Money price;
   private int inventoryCount;
 
+  // NOTE: Goes up with every change to the row, including the bulk inventory updates in ProductRepository. The rows
+  // are locked while they change so a higher version is always a later change, which lets the in-memory catalog drop
+  // changes that reach it out of order.
+  @JsonIgnore
+  @Version
+  @ColumnDefault("0")
+  private long version;
+
+  public Product(final Integer productId, final String title, final Money price, final int inventoryCount) {
+    this.productId = productId;
+    this.title = title;
+    this.price = price;
+    this.inventoryCount = inventoryCount;
+  }
+
+  // Of two copies of the same product, returns the one from the later change (the other one when they are the same)
+  public static Product newer(final Product product, final Product otherProduct) {
+    return otherProduct.getVersion() >= product.getVersion() ? otherProduct : product;
+  }
+
   public boolean inStock() {
     return this.inventoryCount > 0;
   }
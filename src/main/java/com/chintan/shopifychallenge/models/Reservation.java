@@ -0,0 +1,29 @@
+package com.chintan.shopifychallenge.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+/**
+ * This model class is defining how a row in the table "reservation" would look in the database.
+ *
+ * A reservation holds one unit of a product for a cart: the unit has already been taken out of the product's
+ * inventory and is either purchased with the cart or put back once the reservation expires.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "reservation", indexes = @Index(columnList = "cartId"))
+public class Reservation {
+  @Id
+  @GeneratedValue
+  private Long reservationId;
+
+  private Integer cartId;
+  private Integer productId;
+  private Instant expiresAt;
+}
@@ -0,0 +1,17 @@
+package com.chintan.shopifychallenge.models.controllers;
+
+import com.chintan.shopifychallenge.models.Product;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductPage {
+  private List<Product> products;
+  // NOTE: This is null once the last page has been returned, otherwise it is passed back in as "afterId"
+  private Integer nextAfterId;
+}
@@ -1,13 +1,31 @@
 package com.chintan.shopifychallenge.repository;
 
 import com.chintan.shopifychallenge.models.Cart;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
+
 /*
  * An instance of this will contain methods to query the table "cart" by using methods such as
  * findAll() and findById() and it also allows you add and "complete" (delete) carts through methods
  * like save() and delete().
  */
 @Repository
-public interface CartRepository extends JpaRepository<Cart, Integer> {}
+public interface CartRepository extends JpaRepository<Cart, Integer> {
+  // A cart is almost always used together with its products so their IDs and prices are fetched in the same query
+  @Override
+  @EntityGraph(attributePaths = "productPricesInCents")
+  Optional<Cart> findById(Integer cartId);
+
+  @Override
+  @EntityGraph(attributePaths = "productPricesInCents")
+  List<Cart> findAllById(Iterable<Integer> cartIds);
+
+  @Query("SELECT MAX(c.cartId) FROM Cart c")
+  Optional<Integer> findMaxCartId();
+}
+
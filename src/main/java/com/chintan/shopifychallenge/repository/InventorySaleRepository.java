@@ -0,0 +1,13 @@
+package com.chintan.shopifychallenge.repository;
+
+import com.chintan.shopifychallenge.models.InventorySale;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/*
+ * An instance of this will contain methods to query the table "inventory_sale", sales of hot products are added with
+ * saveAll() and removed with deleteInBatch() once they have been applied to the "product" table.
+ */
+@Repository
+public interface InventorySaleRepository extends JpaRepository<InventorySale, Long> {
+}
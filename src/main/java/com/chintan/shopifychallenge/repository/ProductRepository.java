@@ -1,12 +1,75 @@
 package com.chintan.shopifychallenge.repository;
 
 import com.chintan.shopifychallenge.models.Product;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /*
  * An instance of this will contain methods to query the table "product" by using methods such as
  * findAll() and findById() and it also allows you add and delete products through methods like save() and delete().
  */
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Integer> {}
\ No newline at end of file
+public interface ProductRepository extends JpaRepository<Product, Integer> {
+  // Keyset pagination: the next page starts right after the last product ID the caller has already seen
+  List<Product> findByProductIdGreaterThanOrderByProductIdAsc(Integer productId, Pageable pageable);
+
+  // Locks the rows of all the given products until the transaction ends and reads them. Products already in the
+  // persistence context are returned as they were first read, so this has to be the transaction's first read of them.
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT p FROM Product p WHERE p.productId IN :productIds ORDER BY p.productId")
+  List<Product> findAllByIdForUpdate(@Param("productIds") Collection<Integer> productIds);
+
+  // Locks the rows of all the given products until the transaction ends. The rows are locked in ID order so
+  // transactions locking overlapping sets of products can't deadlock. Only the inventory counts are read, straight
+  // from the rows: products already in the persistence context would otherwise be returned as they were when they
+  // were first read, not as they are once locked.
+  @Query(value = "SELECT product_id, inventory_count FROM product WHERE product_id IN (:productIds) " +
+      "ORDER BY product_id FOR UPDATE", nativeQuery = true)
+  List<Object[]> findInventoryCountsForUpdate(@Param("productIds") Collection<Integer> productIds);
+
+  /**
+   * Locks the rows of the given products until the transaction ends and returns their inventory counts by product
+   * ID, products that don't exist are left out.
+   */
+  default Map<Integer, Integer> lockInventoryCounts(final Collection<Integer> productIds) {
+    final Map<Integer, Integer> inventoryCountsById = new HashMap<>();
+    findInventoryCountsForUpdate(productIds)
+        .forEach(row -> inventoryCountsById.put(((Number) row[0]).intValue(), ((Number) row[1]).intValue()));
+    return inventoryCountsById;
+  }
+
+  // Inventory is only ever changed in the database so concurrent purchases can't overwrite each other's updates.
+  // Bulk updates skip Hibernate's versioning, so they bump the product's version themselves. These return the number
+  // of rows updated: fewer than expected means a product doesn't exist (or doesn't have enough stock).
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("UPDATE Product p SET p.version = p.version + 1, p.inventoryCount = p.inventoryCount - 1 " +
+      "WHERE p.productId IN :productIds AND p.inventoryCount >= 1")
+  int decrementInventoryByOne(@Param("productIds") Collection<Integer> productIds);
+
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("UPDATE Product p SET p.version = p.version + 1, p.inventoryCount = p.inventoryCount - :quantity " +
+      "WHERE p.productId IN :productIds AND p.inventoryCount >= :quantity")
+  int decrementInventoryIfAvailable(@Param("productIds") Collection<Integer> productIds, @Param("quantity") int quantity);
+
+  // Unlike the updates above, this one is unconditional since it applies sales that have already happened
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("UPDATE Product p SET p.version = p.version + 1, p.inventoryCount = p.inventoryCount - :quantity " +
+      "WHERE p.productId = :productId")
+  int decrementInventory(@Param("productId") Integer productId, @Param("quantity") int quantity);
+
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("UPDATE Product p SET p.version = p.version + 1, p.inventoryCount = p.inventoryCount + :quantity " +
+      "WHERE p.productId = :productId")
+  int incrementInventory(@Param("productId") Integer productId, @Param("quantity") int quantity);
+}
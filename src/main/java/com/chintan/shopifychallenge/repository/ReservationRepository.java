@@ -0,0 +1,40 @@
+package com.chintan.shopifychallenge.repository;
+
+import com.chintan.shopifychallenge.models.Reservation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/*
+ * An instance of this will contain methods to query the table "reservation". Reservations are removed with the
+ * delete queries below, which return the number of rows deleted so only one of a purchase and an expiry can ever
+ * release the same reservation.
+ */
+@Repository
+public interface ReservationRepository extends JpaRepository<Reservation, Long> {
+  // Locks the reservations so they can't expire while the carts they belong to are being purchased
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("SELECT r FROM Reservation r WHERE r.cartId IN :cartIds ORDER BY r.reservationId")
+  List<Reservation> findAllByCartIdForUpdate(@Param("cartIds") Collection<Integer> cartIds);
+
+  Optional<Reservation> findByCartIdAndProductId(Integer cartId, Integer productId);
+
+  @Query("SELECT MAX(r.cartId) FROM Reservation r")
+  Optional<Integer> findMaxCartId();
+
+  @Modifying(flushAutomatically = true)
+  @Query("DELETE FROM Reservation r WHERE r.reservationId = :reservationId")
+  int deleteReservation(@Param("reservationId") Long reservationId);
+
+  @Modifying(flushAutomatically = true)
+  @Query("DELETE FROM Reservation r WHERE r.cartId IN :cartIds")
+  int deleteAllByCartId(@Param("cartIds") Collection<Integer> cartIds);
+}
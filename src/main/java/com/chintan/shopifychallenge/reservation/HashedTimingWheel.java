@@ -0,0 +1,100 @@
+package com.chintan.shopifychallenge.reservation;
+
+import com.google.common.base.Preconditions;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A hashed timing wheel: a ring of buckets where each bucket holds the timeouts that are due when the wheel's hand
+ * reaches it (possibly a number of turns later).
+ *
+ * Scheduling a timeout is constant time and every tick only looks at the timeouts in one bucket, so keeping track of
+ * millions of timeouts doesn't mean scanning all of them on every tick. Timeouts fire at most one tick late and
+ * never early.
+ *
+ * Timeouts can be scheduled from any thread but {@link #expireDue(long)} has to be called from one thread at a time.
+ */
+public final class HashedTimingWheel<T> {
+  private final long tickMillis;
+  private final long startMillis;
+  private final int mask;
+  private final List<Deque<Timeout<T>>> buckets;
+
+  private final Queue<Timeout<T>> scheduledTimeouts = new ConcurrentLinkedQueue<>();
+  // The next tick whose bucket hasn't been expired yet
+  private long nextTick = 0;
+
+  public HashedTimingWheel(final long tickMillis, final int wheelSize, final long startMillis) {
+    Preconditions.checkArgument(tickMillis > 0, "The tick duration has to be positive.");
+    Preconditions.checkArgument(wheelSize > 0 && wheelSize <= (1 << 30), "The wheel size has to be between 1 and 2^30.");
+
+    // The wheel size is rounded up to a power of two so the bucket of a tick can be found with a mask
+    int bucketCount = 1;
+    while (bucketCount < wheelSize) bucketCount <<= 1;
+
+    this.tickMillis = tickMillis;
+    this.startMillis = startMillis;
+    this.mask = bucketCount - 1;
+    this.buckets = new ArrayList<>(bucketCount);
+    for (int i = 0; i < bucketCount; i++) buckets.add(new ArrayDeque<>());
+  }
+
+  public void schedule(final T item, final long deadlineMillis) {
+    // Rounded up so a timeout never fires before its deadline
+    final long deadlineTick = Math.max(0, (deadlineMillis - startMillis + tickMillis - 1) / tickMillis);
+    scheduledTimeouts.add(new Timeout<>(item, deadlineTick));
+  }
+
+  /**
+   * Moves the wheel's hand up to the given time and returns the items of every timeout that is now due.
+   */
+  public List<T> expireDue(final long nowMillis) {
+    final long currentTick = (nowMillis - startMillis) / tickMillis;
+    final List<T> expiredItems = new ArrayList<>();
+
+    addScheduledTimeouts();
+    while (nextTick <= currentTick) {
+      final Iterator<Timeout<T>> timeouts = buckets.get((int) (nextTick & mask)).iterator();
+      while (timeouts.hasNext()) {
+        final Timeout<T> timeout = timeouts.next();
+        if (timeout.remainingTurns > 0) {
+          timeout.remainingTurns--;
+        } else {
+          timeouts.remove();
+          expiredItems.add(timeout.item);
+        }
+      }
+      nextTick++;
+    }
+
+    return expiredItems;
+  }
+
+  public int size() {
+    return buckets.stream().mapToInt(Deque::size).sum() + scheduledTimeouts.size();
+  }
+
+  private void addScheduledTimeouts() {
+    final int bucketCount = mask + 1;
+
+    Timeout<T> timeout;
+    while ((timeout = scheduledTimeouts.poll()) != null) {
+      // Timeouts whose deadline has already passed go in the next bucket to be expired
+      final long tick = Math.max(timeout.deadlineTick, nextTick);
+      timeout.remainingTurns = (tick - nextTick) / bucketCount;
+      buckets.get((int) (tick & mask)).add(timeout);
+    }
+  }
+
+  private static final class Timeout<T> {
+    private final T item;
+    private final long deadlineTick;
+    private long remainingTurns;
+
+    private Timeout(final T item, final long deadlineTick) {
+      this.item = item;
+      this.deadlineTick = deadlineTick;
+    }
+  }
+}
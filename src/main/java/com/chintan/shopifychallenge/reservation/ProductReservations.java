@@ -0,0 +1,122 @@
+package com.chintan.shopifychallenge.reservation;
+
+import com.chintan.shopifychallenge.catalog.ProductsChangedEvent;
+import com.chintan.shopifychallenge.config.ReservationProperties;
+import com.chintan.shopifychallenge.inventory.HotInventory;
+import com.chintan.shopifychallenge.models.Product;
+import com.chintan.shopifychallenge.models.Reservation;
+import com.chintan.shopifychallenge.repository.ProductRepository;
+import com.chintan.shopifychallenge.repository.ReservationRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Reserves products for carts: adding a product to a cart takes a unit out of the product's inventory right away, so
+ * a purchase can't fail later on because someone else bought the last unit in the meantime.
+ *
+ * Reservations that aren't purchased put their unit back once they expire (see {@link ReservationExpiryScheduler}),
+ * the number of expired reservations is published as the "carts.reservations.expired" metric. Hot products are
+ * never reserved since they are sold from memory (see {@link HotInventory}).
+ */
+@Component
+public class ProductReservations {
+  public static final String EXPIRED_RESERVATIONS_METER_NAME = "carts.reservations.expired";
+
+  private final ReservationProperties reservationProperties;
+  private final ReservationRepository reservationRepository;
+  private final ProductRepository productRepository;
+  private final HotInventory hotInventory;
+  private final ApplicationEventPublisher eventPublisher;
+  private final Counter expiredReservations;
+
+  @Autowired
+  public ProductReservations(final ReservationProperties reservationProperties,
+                             final ReservationRepository reservationRepository, final ProductRepository productRepository,
+                             final HotInventory hotInventory, final ApplicationEventPublisher eventPublisher,
+                             final MeterRegistry meterRegistry) {
+    this.reservationProperties = reservationProperties;
+    this.reservationRepository = reservationRepository;
+    this.productRepository = productRepository;
+    this.hotInventory = hotInventory;
+    this.eventPublisher = eventPublisher;
+    this.expiredReservations = Counter.builder(EXPIRED_RESERVATIONS_METER_NAME).register(meterRegistry);
+  }
+
+  /**
+   * Reserves a unit of the product for the cart, throws an exception if the product is sold out.
+   */
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void reserve(final Integer cartId, final Integer productId) {
+    if (!reservationProperties.isEnabled() || hotInventory.isHot(productId)) return;
+
+    if (productRepository.decrementInventoryByOne(Collections.singletonList(productId)) == 0)
+      throw new IllegalStateException(Product.STOCK_RUN_OUT_EXCEPTION_MESSAGE);
+
+    final Reservation reservation = reservationRepository.save(
+        new Reservation(null, cartId, productId, Instant.now().plus(reservationProperties.getTtl())));
+
+    eventPublisher.publishEvent(new ReservationCreatedEvent(reservation));
+    publishProductChanged(productId);
+  }
+
+  // Puts the unit back if the product is still reserved for the cart
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void release(final Integer cartId, final Integer productId) {
+    if (!reservationProperties.isEnabled()) return;
+
+    reservationRepository.findByCartIdAndProductId(cartId, productId).ifPresent(this::putBack);
+  }
+
+  // Puts the unit back unless the reservation has been purchased (or released) in the meantime
+  @Transactional
+  public void expire(final Long reservationId) {
+    reservationRepository.findById(reservationId).ifPresent(reservation -> {
+      if (putBack(reservation)) expiredReservations.increment();
+    });
+  }
+
+  /**
+   * Returns the IDs of the products reserved for each of the carts. The reservations are locked until the
+   * transaction ends so none of them can expire while the carts are being purchased.
+   */
+  @Transactional(propagation = Propagation.MANDATORY)
+  public Map<Integer, Set<Integer>> lockReservedProductIds(final Collection<Integer> cartIds) {
+    if (!reservationProperties.isEnabled() || cartIds.isEmpty()) return Collections.emptyMap();
+
+    final Map<Integer, Set<Integer>> reservedProductIdsByCartId = new HashMap<>();
+    reservationRepository.findAllByCartIdForUpdate(cartIds).forEach(reservation -> reservedProductIdsByCartId
+        .computeIfAbsent(reservation.getCartId(), cartId -> new HashSet<>())
+        .add(reservation.getProductId()));
+
+    return reservedProductIdsByCartId;
+  }
+
+  // Deletes the reservations of purchased carts, their units have been sold so nothing is put back
+  @Transactional(propagation = Propagation.MANDATORY)
+  public void consume(final Collection<Integer> cartIds) {
+    if (!reservationProperties.isEnabled() || cartIds.isEmpty()) return;
+
+    reservationRepository.deleteAllByCartId(cartIds);
+  }
+
+  private boolean putBack(final Reservation reservation) {
+    if (reservationRepository.deleteReservation(reservation.getReservationId()) == 0) return false;
+
+    productRepository.incrementInventory(reservation.getProductId(), 1);
+    publishProductChanged(reservation.getProductId());
+    return true;
+  }
+
+  private void publishProductChanged(final Integer productId) {
+    productRepository.findById(productId)
+        .ifPresent(product -> eventPublisher.publishEvent(new ProductsChangedEvent(Collections.singletonList(product))));
+  }
+}
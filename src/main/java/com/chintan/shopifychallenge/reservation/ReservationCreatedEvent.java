@@ -0,0 +1,13 @@
+package com.chintan.shopifychallenge.reservation;
+
+import com.chintan.shopifychallenge.models.Reservation;
+import lombok.Value;
+
+/**
+ * Published when a product is reserved in a cart so the reservation's expiry can be scheduled once the transaction
+ * that created it has committed.
+ */
+@Value
+public class ReservationCreatedEvent {
+  private final Reservation reservation;
+}
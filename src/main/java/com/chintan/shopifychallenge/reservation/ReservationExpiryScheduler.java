@@ -0,0 +1,111 @@
+package com.chintan.shopifychallenge.reservation;
+
+import com.chintan.shopifychallenge.config.ReservationProperties;
+import com.chintan.shopifychallenge.models.Reservation;
+import com.chintan.shopifychallenge.repository.ReservationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Expires reservations once their TTL has passed.
+ *
+ * Every reservation is put on a {@link HashedTimingWheel} when it is created, so finding the reservations that are
+ * due is only a matter of looking at the current bucket on every tick instead of sweeping the "reservation" table.
+ * Reservations that were made before a restart are read back onto the wheel once at startup.
+ *
+ * A reservation that fails to expire (e.g. its product's row is locked by purchases for too long) is put back on the
+ * wheel for a later tick, up to {@link #MAX_EXPIRY_ATTEMPTS} times. Otherwise its unit would stay out of stock until
+ * the next restart.
+ */
+@Component
+public class ReservationExpiryScheduler {
+  static final int MAX_EXPIRY_ATTEMPTS = 5;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ReservationExpiryScheduler.class);
+
+  private final ReservationProperties reservationProperties;
+  private final ReservationRepository reservationRepository;
+  private final ProductReservations productReservations;
+  private final HashedTimingWheel<Long> timingWheel;
+  // NOTE: Only used by the ticker thread
+  private final Map<Long, Integer> failedExpiryAttempts = new HashMap<>();
+
+  private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    final Thread thread = new Thread(runnable, "reservation-expiry");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private boolean started = false;
+
+  @Autowired
+  public ReservationExpiryScheduler(final ReservationProperties reservationProperties,
+                                    final ReservationRepository reservationRepository,
+                                    final ProductReservations productReservations) {
+    this.reservationProperties = reservationProperties;
+    this.reservationRepository = reservationRepository;
+    this.productReservations = productReservations;
+    this.timingWheel = new HashedTimingWheel<>(reservationProperties.getTickDuration().toMillis(),
+        reservationProperties.getWheelSize(), System.currentTimeMillis());
+  }
+
+  @EventListener(ContextRefreshedEvent.class)
+  public synchronized void start() {
+    if (started || !reservationProperties.isEnabled()) return;
+
+    reservationRepository.findAll().forEach(this::schedule);
+
+    final long tickMillis = reservationProperties.getTickDuration().toMillis();
+    ticker.scheduleAtFixedRate(() -> expireDueReservations(System.currentTimeMillis()), tickMillis, tickMillis,
+        TimeUnit.MILLISECONDS);
+    started = true;
+  }
+
+  @PreDestroy
+  public void stop() throws InterruptedException {
+    ticker.shutdown();
+    ticker.awaitTermination(10, TimeUnit.SECONDS);
+  }
+
+  // Only reservations that were committed are scheduled
+  @TransactionalEventListener
+  public void onReservationCreated(final ReservationCreatedEvent reservationCreatedEvent) {
+    schedule(reservationCreatedEvent.getReservation());
+  }
+
+  private void schedule(final Reservation reservation) {
+    timingWheel.schedule(reservation.getReservationId(), reservation.getExpiresAt().toEpochMilli());
+  }
+
+  void expireDueReservations(final long nowMillis) {
+    for (final Long reservationId : timingWheel.expireDue(nowMillis)) {
+      try {
+        productReservations.expire(reservationId);
+        failedExpiryAttempts.remove(reservationId);
+      } catch (final RuntimeException e) {
+        final int attempts = failedExpiryAttempts.merge(reservationId, 1, Integer::sum);
+        if (attempts < MAX_EXPIRY_ATTEMPTS) {
+          // Every attempt waits one tick longer than the one before, so contention has time to die down
+          LOGGER.warn("Failed to expire reservation {}, trying again ({} of {})", reservationId, attempts + 1,
+              MAX_EXPIRY_ATTEMPTS, e);
+          timingWheel.schedule(reservationId, nowMillis + attempts * reservationProperties.getTickDuration().toMillis());
+        } else {
+          // The reservation stays in the table so it is put back on the wheel at the next startup
+          failedExpiryAttempts.remove(reservationId);
+          LOGGER.error("Failed to expire reservation {} after {} attempts", reservationId, MAX_EXPIRY_ATTEMPTS, e);
+        }
+      }
+    }
+  }
+}
@@ -1,11 +1,14 @@
 package com.chintan.shopifychallenge.services;
 
+import com.chintan.shopifychallenge.cart.ActiveCartStore;
+import com.chintan.shopifychallenge.checkout.CheckoutWriter;
+import com.chintan.shopifychallenge.checkout.GroupCommitCheckoutQueue;
 import com.chintan.shopifychallenge.models.Cart;
 import com.chintan.shopifychallenge.models.Product;
-import com.chintan.shopifychallenge.repository.CartRepository;
-import com.chintan.shopifychallenge.repository.ProductRepository;
+import com.chintan.shopifychallenge.reservation.ProductReservations;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Collections;
 import java.util.List;
@@ -15,51 +18,66 @@ import java.util.Optional;
 public class CartService {
   public static final String CART_DOES_NOT_EXIST_EXCEPTION_MESSAGE = "This cart does not exist.";
 
-  private final ProductRepository productRepository;
-  private final CartRepository cartRepository;
+  private final ActiveCartStore activeCartStore;
+  private final CheckoutWriter checkoutWriter;
+  private final Optional<GroupCommitCheckoutQueue> groupCommitCheckoutQueue;
+  private final ProductReservations productReservations;
 
   @Autowired
-  public CartService(final ProductRepository productRepository, final CartRepository cartRepository) {
-    this.productRepository = productRepository;
-    this.cartRepository = cartRepository;
+  public CartService(final ActiveCartStore activeCartStore, final CheckoutWriter checkoutWriter,
+                     final Optional<GroupCommitCheckoutQueue> groupCommitCheckoutQueue,
+                     final ProductReservations productReservations) {
+    this.activeCartStore = activeCartStore;
+    this.checkoutWriter = checkoutWriter;
+    this.groupCommitCheckoutQueue = groupCommitCheckoutQueue;
+    this.productReservations = productReservations;
   }
 
   public Optional<Cart> viewCart(final Integer cartId) {
-    return cartRepository.findById(cartId);
+    return activeCartStore.get(cartId);
   }
 
   public Cart createNewCart() {
     return createNewCart(Collections.emptyList());
   }
 
+  // Every product added to a cart is reserved for it, so the cart is not created if any of them is sold out. The cart
+  // itself is only kept in memory (see ActiveCartStore), it is added last so a failed reservation leaves nothing behind.
+  @Transactional
   public Cart createNewCart(final List<Product> productsInCart) {
     final Cart newCart = new Cart();
     productsInCart.forEach(newCart::addProduct);
+    newCart.setCartId(activeCartStore.newCartId());
 
-    return cartRepository.save(newCart);
+    productsInCart.forEach(product -> productReservations.reserve(newCart.getCartId(), product.getProductId()));
+    return activeCartStore.create(newCart);
   }
 
+  @Transactional
   public Cart addNewProductsToCart(final Integer cartId, final Product productToAdd) {
-    final Cart existingCart = getCartIfItExists(cartId);
-    existingCart.addProduct(productToAdd);
+    // Checked before reserving, otherwise adding a product that is in the cart could fail as sold out because of the
+    // cart's own reservation
+    if (activeCartStore.containsProduct(cartId, productToAdd.getProductId()))
+      throw new IllegalArgumentException(Cart.PRODUCT_ALREADY_IN_CART_EXCEPTION_MESSAGE);
 
-    return cartRepository.save(existingCart);
+    productReservations.reserve(cartId, productToAdd.getProductId());
+    return activeCartStore.addProduct(cartId, productToAdd);
   }
 
-  public void completeCartPurchase(final Integer cartId) {
-    final Cart existingCart = getCartIfItExists(cartId);
-
-    // Buy all the products from the cart to decrease their inventory and update the database
-    existingCart.getProducts().forEach(Product::buyProduct);
-    productRepository.saveAll(existingCart.getProducts());
+  @Transactional
+  public Cart removeProductFromCart(final Integer cartId, final Integer productId) {
+    final Cart updatedCart = activeCartStore.removeProduct(cartId, productId);
+    productReservations.release(cartId, productId);
 
-    cartRepository.delete(existingCart);
+    return updatedCart;
   }
 
-  private Cart getCartIfItExists(final Integer cartId) {
-    final Optional<Cart> cart = cartRepository.findById(cartId);
-    if (!cart.isPresent()) throw new IllegalArgumentException(CART_DOES_NOT_EXIST_EXCEPTION_MESSAGE);
-
-    return cart.get();
+  /**
+   * Purchases every product in the cart and deletes the cart. With group commit enabled the purchase is queued and
+   * written together with other purchases, otherwise it is written in its own transaction.
+   */
+  public void completeCartPurchase(final Integer cartId) {
+    if (groupCommitCheckoutQueue.isPresent()) groupCommitCheckoutQueue.get().completeCartPurchase(cartId);
+    else checkoutWriter.completeCartPurchase(cartId);
   }
 }
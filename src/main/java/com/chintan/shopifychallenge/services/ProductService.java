@@ -1,42 +1,271 @@
 package com.chintan.shopifychallenge.services;
 
+import com.chintan.shopifychallenge.catalog.CatalogSnapshot;
+import com.chintan.shopifychallenge.catalog.CatalogSnapshotFileLoader;
+import com.chintan.shopifychallenge.catalog.InStockProductIndex;
+import com.chintan.shopifychallenge.catalog.ProductCatalog;
+import com.chintan.shopifychallenge.catalog.ProductCache;
+import com.chintan.shopifychallenge.catalog.ProductSearchIndex;
+import com.chintan.shopifychallenge.catalog.ProductSort;
+import com.chintan.shopifychallenge.catalog.ProductSortIndex;
+import com.chintan.shopifychallenge.catalog.ProductTitleIndex;
+import com.chintan.shopifychallenge.catalog.ProductsChangedEvent;
+import com.chintan.shopifychallenge.catalog.TitleMatch;
+import com.chintan.shopifychallenge.inventory.HotInventory;
+import com.chintan.shopifychallenge.inventory.InventoryChange;
+import com.chintan.shopifychallenge.inventory.InventoryFeed;
+import com.chintan.shopifychallenge.models.Money;
 import com.chintan.shopifychallenge.models.Product;
 import com.chintan.shopifychallenge.repository.ProductRepository;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Striped;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 public class ProductService {
+  public static final String PRODUCT_DOES_NOT_EXIST_EXCEPTION_MESSAGE = "This product does not exist.";
+  // NOTE: Postgres can't bind more than 32767 parameters in one statement, so products are read by ID in queries of
+  // at most this many IDs
+  public static final int MAX_IDS_PER_QUERY = 1000;
+
   private final ProductRepository productRepository;
+  private final ProductTitleIndex productTitleIndex;
+  private final ProductSearchIndex productSearchIndex;
+  private final ProductSortIndex productSortIndex;
+  private final InStockProductIndex inStockProductIndex;
+  private final ProductCache productCache;
+  private final ProductCatalog productCatalog;
+  private final CatalogSnapshotFileLoader catalogSnapshotFileLoader;
+  private final HotInventory hotInventory;
+  private final InventoryFeed inventoryFeed;
+  private final ApplicationEventPublisher eventPublisher;
+
+  // The version of the last change of each product that was applied to the in-memory structures. Checking it and
+  // applying a change happen under the product's lock, so the changes of a product are applied in version order.
+  private final Map<Integer, Long> appliedVersions = new ConcurrentHashMap<>();
+  private final Striped<Lock> productLocks = Striped.lock(1024);
 
   @Autowired
-  public ProductService(final ProductRepository productRepository) {
+  public ProductService(final ProductRepository productRepository, final ProductTitleIndex productTitleIndex,
+                        final ProductSearchIndex productSearchIndex, final ProductSortIndex productSortIndex,
+                        final InStockProductIndex inStockProductIndex, final ProductCache productCache,
+                        final ProductCatalog productCatalog, final CatalogSnapshotFileLoader catalogSnapshotFileLoader,
+                        final HotInventory hotInventory, final InventoryFeed inventoryFeed,
+                        final ApplicationEventPublisher eventPublisher) {
     this.productRepository = productRepository;
+    this.productTitleIndex = productTitleIndex;
+    this.productSearchIndex = productSearchIndex;
+    this.productSortIndex = productSortIndex;
+    this.inStockProductIndex = inStockProductIndex;
+    this.productCache = productCache;
+    this.productCatalog = productCatalog;
+    this.catalogSnapshotFileLoader = catalogSnapshotFileLoader;
+    this.hotInventory = hotInventory;
+    this.inventoryFeed = inventoryFeed;
+    this.eventPublisher = eventPublisher;
+  }
+
+  // The indexes are built once the database has been preloaded and before the web server starts accepting requests.
+  // Products that were just loaded from the catalog snapshot file are indexed as they are instead of being read back.
+  @EventListener(ContextRefreshedEvent.class)
+  public void loadProductIndexes() {
+    final List<Product> products = catalogSnapshotFileLoader.takeLoadedProducts().orElseGet(productRepository::findAll);
+    products.forEach(product -> {
+      indexProduct(product);
+      appliedVersions.put(product.getProductId(), product.getVersion());
+    });
+    productCatalog.replaceAll(products);
   }
 
+  // Runs once the transaction that changed the products has committed, so rolled back changes never reach the indexes.
+  // Each committing thread runs this on its own, so the changes of two transactions can get here in either order even
+  // though the rows were changed one after the other. A change older than the one already applied is dropped.
+  @TransactionalEventListener(fallbackExecution = true)
+  public void onProductsChanged(final ProductsChangedEvent productsChangedEvent) {
+    final SortedMap<Integer, Product> changesById = new TreeMap<>();
+    productsChangedEvent.getProducts()
+        .forEach(product -> changesById.merge(product.getProductId(), product, Product::newer));
+
+    // The locks are taken in a consistent order so two events changing the same products can't deadlock
+    final List<Lock> locks = Lists.newArrayList(productLocks.bulkGet(changesById.keySet()));
+    locks.forEach(Lock::lock);
+    try {
+      final List<Product> newerProducts = changesById.values()
+          .stream()
+          .filter(product -> !appliedVersions.containsKey(product.getProductId()) ||
+              product.getVersion() >= appliedVersions.get(product.getProductId()))
+          .collect(Collectors.toList());
+
+      // Whether the products were in stock has to be read before the in-stock index is updated
+      final List<InventoryChange> inventoryChanges = newerProducts.stream()
+          .map(product -> InventoryChange.of(product, inStockProductIndex.isInStock(product.getProductId())))
+          .collect(Collectors.toList());
+
+      newerProducts.forEach(product -> {
+        indexProduct(product);
+        appliedVersions.put(product.getProductId(), product.getVersion());
+      });
+      productCatalog.update(newerProducts);
+      inventoryFeed.publish(inventoryChanges);
+    } finally {
+      Lists.reverse(locks).forEach(Lock::unlock);
+    }
+  }
+
+  // NOTE: The catalog reads below are served from the catalog snapshot, which can be up to
+  // "catalog.snapshot.max-staleness" behind the database
   public List<Product> getAllProducts() {
-    return productRepository.findAll();
+    return productCatalog.snapshot().getAll();
   }
 
   public List<Product> getAllInStockProducts() {
-    return productRepository.findAll()
-        .stream()
-        .filter(Product::inStock)
-        .collect(Collectors.toList());
+    return productCatalog.snapshot().getInStock();
   }
 
   public List<Product> getProductsByTitle(final String productTitle) {
-    return productRepository.findAll()
+    return getProductsByTitle(productTitle, TitleMatch.EXACT);
+  }
+
+  public List<Product> getProductsByTitle(final String productTitle, final TitleMatch titleMatch) {
+    return productCatalog.snapshot().getAll(productTitleIndex.findProductIds(productTitle, titleMatch));
+  }
+
+  /**
+   * Finds the products whose titles best match the words in the query, best match first. A query word matches a word
+   * in the title regardless of case and also matches the words it is the start of.
+   */
+  public List<Product> searchProducts(final String query, final int limit, final boolean inStockOnly) {
+    return getFromSnapshotInOrder(productSearchIndex.search(query, limit,
+        productId -> !inStockOnly || inStockProductIndex.isInStock(productId)));
+  }
+
+  /**
+   * Returns at most {@code limit} products in the given order, optionally only the ones priced between
+   * {@code minPrice} and {@code maxPrice} (both inclusive) or in stock. Passing in {@code afterProductId} continues
+   * right after that product.
+   */
+  public List<Product> getSortedProducts(final ProductSort sort, final Sort.Direction direction,
+                                         final Money minPrice, final Money maxPrice, final boolean inStockOnly,
+                                         final Integer afterProductId, final int limit) {
+    return getFromSnapshotInOrder(productSortIndex.findProductIds(sort, direction,
+        Objects.isNull(minPrice) ? Long.MIN_VALUE : minPrice.getCents(),
+        Objects.isNull(maxPrice) ? Long.MAX_VALUE : maxPrice.getCents(),
+        afterProductId, limit, productId -> !inStockOnly || inStockProductIndex.isInStock(productId)));
+  }
+
+  public List<Product> getProductsPage(final Integer afterProductId, final int limit) {
+    return productRepository.findByProductIdGreaterThanOrderByProductIdAsc(
+        startOfPage(afterProductId), PageRequest.of(0, limit));
+  }
+
+  public List<Product> getInStockProductsPage(final Integer afterProductId, final int limit) {
+    return findAllSortedById(inStockProductIndex.getInStockProductIds(startOfPage(afterProductId), limit));
+  }
+
+  public List<Product> getProductsByTitlePage(final String productTitle, final TitleMatch titleMatch,
+                                              final Integer afterProductId, final int limit) {
+    final Integer startOfPage = startOfPage(afterProductId);
+    final List<Integer> productIdsInPage = productTitleIndex.findProductIds(productTitle, titleMatch)
         .stream()
-        .filter(product -> product.getTitle().equals(productTitle))
+        .filter(productId -> productId > startOfPage)
+        .limit(limit)
         .collect(Collectors.toList());
+
+    return findAllSortedById(productIdsInPage);
   }
 
+  // Products that were saved without a ProductsChangedEvent (e.g. by a bulk load) aren't in the snapshot until the
+  // indexes are reloaded, those are read through the cache
   public Optional<Product> getProductById(final Integer productId) {
-    return productRepository.findById(productId);
+    final Optional<Product> product = productCatalog.snapshot().get(productId);
+    if (product.isPresent()) return product;
+
+    return productCache.get(productId, productRepository::findById);
+  }
+
+  /**
+   * Fetches all the given products in one query. Products that don't exist are left out and the rest are returned in
+   * the same order as the IDs that were passed in (including any duplicates).
+   */
+  public List<Product> getProductsByIds(final List<Integer> productIds) {
+    if (productIds.isEmpty()) return Collections.emptyList();
+
+    final Map<Integer, Product> productsById = findAllById(new HashSet<>(productIds))
+        .stream()
+        .collect(Collectors.toMap(Product::getProductId, Function.identity()));
+
+    return productIds.stream()
+        .map(productsById::get)
+        .filter(Objects::nonNull)
+        .collect(Collectors.toList());
+  }
+
+  @Transactional
+  public Product restockProduct(final Integer productId, final int quantity) {
+    if (quantity <= 0) throw new IllegalArgumentException(Product.INVALID_RESTOCK_QUANTITY_EXCEPTION_MESSAGE);
+    if (productRepository.incrementInventory(productId, quantity) == 0)
+      throw new IllegalArgumentException(PRODUCT_DOES_NOT_EXIST_EXCEPTION_MESSAGE);
+    // Hot products are sold from memory so the restocked units are added there as well
+    hotInventory.restock(productId, quantity);
+
+    // This has to come from the database and not the cache since the cache is only updated once this transaction commits
+    final Product restockedProduct = productRepository.findById(productId).get();
+    eventPublisher.publishEvent(new ProductsChangedEvent(Collections.singletonList(restockedProduct)));
+
+    return restockedProduct;
+  }
+
+  // Keeps the order of the IDs, products that haven't made it into the snapshot yet are left out
+  private List<Product> getFromSnapshotInOrder(final List<Integer> productIds) {
+    final CatalogSnapshot snapshot = productCatalog.snapshot();
+    return productIds.stream()
+        .map(snapshot::get)
+        .filter(Optional::isPresent)
+        .map(Optional::get)
+        .collect(Collectors.toList());
+  }
+
+  private List<Product> findAllSortedById(final List<Integer> productIds) {
+    if (productIds.isEmpty()) return Collections.emptyList();
+
+    return findAllById(productIds)
+        .stream()
+        .sorted(Comparator.comparing(Product::getProductId))
+        .collect(Collectors.toList());
+  }
+
+  private List<Product> findAllById(final Collection<Integer> productIds) {
+    final List<Product> products = new ArrayList<>(productIds.size());
+    Lists.partition(new ArrayList<>(productIds), MAX_IDS_PER_QUERY)
+        .forEach(productIdsInQuery -> products.addAll(productRepository.findAllById(productIdsInQuery)));
+
+    return products;
+  }
+
+  // Passing in no product ID means the caller wants the first page
+  private static Integer startOfPage(final Integer afterProductId) {
+    return Objects.isNull(afterProductId) ? Integer.MIN_VALUE : afterProductId;
+  }
+
+  private void indexProduct(final Product product) {
+    productTitleIndex.index(product);
+    productSearchIndex.index(product);
+    productSortIndex.index(product);
+    inStockProductIndex.index(product);
+    productCache.update(product);
   }
 }
@@ -0,0 +1,209 @@
+package com.chintan.shopifychallenge.cart;
+
+import com.chintan.shopifychallenge.config.ActiveCartProperties;
+import com.chintan.shopifychallenge.models.Cart;
+import com.chintan.shopifychallenge.models.Money;
+import com.chintan.shopifychallenge.models.Product;
+import com.chintan.shopifychallenge.repository.CartRepository;
+import com.chintan.shopifychallenge.repository.ProductRepository;
+import com.chintan.shopifychallenge.repository.ReservationRepository;
+import com.chintan.shopifychallenge.services.CartService;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner.StrictStubs;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@RunWith(StrictStubs.class)
+public class ActiveCartStoreTest {
+  private final Product productOne = new Product(1, "1", Money.of("1.00"), 5);
+  private final Product productTwo = new Product(2, "2", Money.of("2.00"), 2);
+
+  @Mock(answer = Answers.RETURNS_DEFAULTS)
+  private CartRepository mockCartRepository;
+  @Mock(answer = Answers.RETURNS_DEFAULTS)
+  private ProductRepository mockProductRepository;
+  @Mock(answer = Answers.RETURNS_DEFAULTS)
+  private ReservationRepository mockReservationRepository;
+  @Mock(answer = Answers.RETURNS_DEFAULTS)
+  private ActiveCartFlusher mockActiveCartFlusher;
+
+  private ActiveCartProperties activeCartProperties;
+  private ActiveCartStore activeCartStore;
+
+  @Before
+  public void setup() {
+    activeCartProperties = new ActiveCartProperties();
+    activeCartProperties.setWriteBehindInterval(Duration.ofHours(1));
+
+    activeCartStore = new ActiveCartStore(activeCartProperties, mockCartRepository, mockProductRepository,
+        mockReservationRepository, mockActiveCartFlusher, new SimpleMeterRegistry());
+    // Stands in for the transaction a purchase runs in
+    TransactionSynchronizationManager.initSynchronization();
+  }
+
+  @After
+  public void teardown() throws InterruptedException {
+    TransactionSynchronizationManager.clearSynchronization();
+    activeCartStore.stop();
+  }
+
+  @Test
+  public void newCartId_carries_on_from_highest_id_in_database() {
+    when(mockCartRepository.findMaxCartId()).thenReturn(Optional.of(40));
+    when(mockReservationRepository.findMaxCartId()).thenReturn(Optional.of(42));
+    activeCartStore.start();
+
+    assertThat(activeCartStore.newCartId()).isEqualTo(43);
+    assertThat(activeCartStore.newCartId()).isEqualTo(44);
+  }
+
+  @Test
+  public void newCartId_throws_exception_before_start() {
+    assertThatThrownBy(() -> activeCartStore.newCartId()).isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void addProduct_happypath() {
+    final Integer cartId = createCart(productTwo);
+    when(mockProductRepository.findAllById(Sets.newHashSet(1, 2))).thenReturn(Lists.newArrayList(productTwo, productOne));
+
+    final Cart updatedCart = activeCartStore.addProduct(cartId, productOne);
+
+    assertThat(updatedCart).isEqualTo(new Cart(cartId, Lists.newArrayList(productOne, productTwo), Money.of("3.00")));
+    verify(mockCartRepository, never()).findById(anyInt());
+  }
+
+  @Test
+  public void addProduct_throws_exception_when_same_product_is_added() {
+    final Integer cartId = createCart(productOne);
+
+    assertThatThrownBy(() -> activeCartStore.addProduct(cartId, productOne))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining(Cart.PRODUCT_ALREADY_IN_CART_EXCEPTION_MESSAGE);
+  }
+
+  @Test
+  public void addProduct_throws_exception_when_cart_is_nonexistent() {
+    assertThatThrownBy(() -> activeCartStore.addProduct(7, productOne))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining(CartService.CART_DOES_NOT_EXIST_EXCEPTION_MESSAGE);
+    verify(mockCartRepository).findById(7);
+  }
+
+  @Test
+  public void removeProduct_happypath() {
+    final Integer cartId = createCart(productOne, productTwo);
+    when(mockProductRepository.findAllById(Collections.singleton(2))).thenReturn(Lists.newArrayList(productTwo));
+
+    final Cart updatedCart = activeCartStore.removeProduct(cartId, 1);
+
+    assertThat(updatedCart).isEqualTo(new Cart(cartId, Lists.newArrayList(productTwo), Money.of("2.00")));
+  }
+
+  @Test
+  public void get_reads_cart_from_table_when_it_is_not_in_memory() {
+    final Cart storedCart = new Cart(7, Lists.newArrayList(productOne), Money.of("1.00"));
+    when(mockCartRepository.findById(7)).thenReturn(Optional.of(storedCart));
+    when(mockProductRepository.findAllById(Collections.singleton(1))).thenReturn(Lists.newArrayList(productOne));
+
+    assertThat(activeCartStore.get(7)).isEqualTo(Optional.of(storedCart));
+    assertThat(activeCartStore.get(7)).isEqualTo(Optional.of(storedCart));
+    // The second read comes from memory
+    verify(mockCartRepository, times(1)).findById(7);
+  }
+
+  @Test
+  public void checkOut_claims_cart_until_transaction_rolls_back() {
+    final Integer cartId = createCart();
+
+    assertThat(activeCartStore.checkOut(cartId)).isPresent();
+    assertThat(activeCartStore.checkOut(cartId)).isEmpty();
+
+    TransactionSynchronizationManager.getSynchronizations()
+        .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+    assertThat(activeCartStore.checkOut(cartId)).isPresent();
+  }
+
+  @Test
+  public void checkOut_returns_product_ids_and_total_without_reading_products() {
+    final Integer cartId = createCart(productTwo, productOne);
+
+    assertThat(activeCartStore.checkOut(cartId))
+        .isEqualTo(Optional.of(new CheckedOutCart(cartId, Lists.newArrayList(1, 2), Money.of("3.00"))));
+    verifyZeroInteractions(mockProductRepository);
+  }
+
+  @Test
+  public void removeProduct_takes_off_price_product_was_added_at() {
+    final Integer cartId = createCart(productOne, productTwo);
+    final Product repricedProductTwo = new Product(2, "2", Money.of("5.00"), 1);
+    when(mockProductRepository.findAllById(Collections.singleton(2))).thenReturn(Lists.newArrayList(repricedProductTwo));
+
+    final Cart updatedCart = activeCartStore.removeProduct(cartId, 1);
+    assertThat(updatedCart.getTotalCost()).isEqualTo(Money.of("2.00"));
+    assertThat(updatedCart.getPriceInCents(2)).isEqualTo(200);
+
+    assertThat(activeCartStore.removeProduct(cartId, 2).getTotalCost()).isEqualTo(Money.ZERO);
+  }
+
+  @Test
+  public void complete_does_not_touch_cart_table_when_cart_was_never_written() {
+    final Integer cartId = createCart();
+    activeCartStore.checkOut(cartId);
+
+    activeCartStore.complete(Collections.singletonList(cartId));
+
+    TransactionSynchronizationManager.getSynchronizations()
+        .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+    verify(mockCartRepository, never()).deleteAll(any());
+  }
+
+  @Test
+  public void writeBehind_writes_changed_carts_once() {
+    final Integer cartId = createCart();
+
+    activeCartStore.writeBehind();
+    activeCartStore.writeBehind();
+
+    verify(mockActiveCartFlusher, times(1))
+        .flushCarts(Collections.singletonList(new Cart(cartId, Collections.emptyList(), Money.of("0.00"))));
+  }
+
+  @Test
+  public void writeBehind_drops_written_carts_when_over_maximum_size() {
+    activeCartProperties.setMaximumSize(0);
+    final Integer cartId = createCart();
+
+    activeCartStore.writeBehind();
+
+    when(mockCartRepository.findById(cartId)).thenReturn(Optional.empty());
+    assertThat(activeCartStore.get(cartId)).isEmpty();
+  }
+
+  private Integer createCart(final Product... products) {
+    activeCartStore.start();
+
+    final Cart cart = new Cart();
+    for (final Product product : products) cart.addProduct(product);
+    cart.setCartId(activeCartStore.newCartId());
+
+    return activeCartStore.create(cart).getCartId();
+  }
+}
@@ -0,0 +1,64 @@
+package com.chintan.shopifychallenge.cart;
+
+import com.chintan.shopifychallenge.models.Cart;
+import com.chintan.shopifychallenge.models.Money;
+import com.chintan.shopifychallenge.models.Product;
+import com.chintan.shopifychallenge.repository.CartRepository;
+import com.chintan.shopifychallenge.repository.ProductRepository;
+import com.chintan.shopifychallenge.services.CartService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+ * Runs against the embedded H2 database to check that carts only reach the "cart" table when they are written
+ * behind, and that purchasing a written cart deletes it from the table.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:writebehind;DB_CLOSE_ON_EXIT=FALSE",
+    "carts.active.write-behind-interval=1h"
+})
+public class ActiveCartWriteBehindTest {
+  @Autowired
+  private CartService cartService;
+  @Autowired
+  private ActiveCartStore activeCartStore;
+  @Autowired
+  private CartRepository cartRepository;
+  @Autowired
+  private ProductRepository productRepository;
+
+  @Test
+  public void writeBehind_writes_latest_cart_and_purchase_deletes_it() {
+    final Product firstProduct = productRepository.save(new Product(null, "First", Money.of("1.50"), 10));
+    final Product secondProduct = productRepository.save(new Product(null, "Second", Money.of("2.50"), 10));
+
+    final Integer cartId = cartService.createNewCart(Collections.singletonList(firstProduct)).getCartId();
+    cartService.addNewProductsToCart(cartId, secondProduct);
+    assertThat(cartRepository.findById(cartId)).isEmpty();
+
+    activeCartStore.writeBehind();
+
+    final Cart writtenCart = cartRepository.findById(cartId).get();
+    assertThat(writtenCart.getProductIds()).containsExactly(firstProduct.getProductId(), secondProduct.getProductId());
+    assertThat(writtenCart.getTotalCost()).isEqualTo(Money.of("4.00"));
+
+    cartService.removeProductFromCart(cartId, firstProduct.getProductId());
+    activeCartStore.writeBehind();
+    assertThat(cartRepository.findById(cartId).get().getTotalCost()).isEqualTo(Money.of("2.50"));
+
+    cartService.completeCartPurchase(cartId);
+
+    assertThat(cartRepository.findById(cartId)).isEmpty();
+    assertThat(cartService.viewCart(cartId)).isEmpty();
+  }
+}
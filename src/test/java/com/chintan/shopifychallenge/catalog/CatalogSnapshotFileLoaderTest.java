@@ -0,0 +1,87 @@
+package com.chintan.shopifychallenge.catalog;
+
+import com.chintan.shopifychallenge.models.Money;
+import com.chintan.shopifychallenge.models.Product;
+import com.chintan.shopifychallenge.repository.ProductRepository;
+import com.chintan.shopifychallenge.services.ProductService;
+import com.google.common.collect.Lists;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+ * Runs against the embedded H2 database to check that a catalog snapshot file is loaded into the database and the
+ * product reads at startup, and that the endpoint writes the current catalog back to it. The file is written before
+ * the application context is started.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:snapshotfile;DB_CLOSE_ON_EXIT=FALSE",
+    "spring.datasource.initialization-mode=never",
+    "catalog.snapshot-file.path=${java.io.tmpdir}/catalog-snapshot-file-loader-test.bin",
+    "catalog.snapshot.max-staleness=0"
+})
+public class CatalogSnapshotFileLoaderTest {
+  private static final Path SNAPSHOT_PATH = Paths.get(System.getProperty("java.io.tmpdir"), "catalog-snapshot-file-loader-test.bin");
+  private static final List<Product> SNAPSHOT_PRODUCTS = Lists.newArrayList(
+      new Product(100, "Snapshot Cable", Money.of("3.99"), 10),
+      new Product(101, "Snapshot Cable", Money.of("4.99"), 0),
+      new Product(102, "Snapshot Headphones", Money.of("59.99"), 2));
+
+  @Autowired
+  private ProductRepository productRepository;
+  @Autowired
+  private ProductService productService;
+  @Autowired
+  private CatalogSnapshotFileEndpoint catalogSnapshotFileEndpoint;
+
+  @BeforeClass
+  public static void writeSnapshotFile() throws Exception {
+    CatalogSnapshotFile.write(SNAPSHOT_PATH, SNAPSHOT_PRODUCTS);
+  }
+
+  @AfterClass
+  public static void deleteSnapshotFile() throws Exception {
+    Files.deleteIfExists(SNAPSHOT_PATH);
+  }
+
+  @Test
+  public void snapshot_file_is_loaded_at_startup_and_written_back() throws Exception {
+    assertThat(productRepository.findAll()).containsExactlyInAnyOrderElementsOf(SNAPSHOT_PRODUCTS);
+    assertThat(productService.getAllProducts()).containsExactlyElementsOf(SNAPSHOT_PRODUCTS);
+    assertThat(productService.getAllInStockProducts()).extracting(Product::getProductId).containsExactly(100, 102);
+    assertThat(productService.getProductsByTitle("Snapshot Cable")).extracting(Product::getProductId).containsExactly(100, 101);
+
+    final Product restockedProduct = productService.restockProduct(101, 5);
+    final CatalogSnapshotFileEndpoint.WrittenSnapshot writtenSnapshot = catalogSnapshotFileEndpoint.writeSnapshot();
+
+    assertThat(writtenSnapshot.getProducts()).isEqualTo(3);
+    assertThat(writtenSnapshot.getBytes()).isEqualTo(Files.size(SNAPSHOT_PATH));
+    assertThat(CatalogSnapshotFile.read(SNAPSHOT_PATH))
+        .containsExactly(SNAPSHOT_PRODUCTS.get(0), restockedProduct, SNAPSHOT_PRODUCTS.get(2));
+  }
+
+  @Test
+  public void product_added_after_loading_gets_id_after_loaded_products() {
+    // Saved straight through the repository so no event adds it to the catalog the other test checks
+    final Product addedProduct = productRepository.save(new Product(null, "Added Product", Money.of("1.00"), 1));
+    try {
+      assertThat(addedProduct.getProductId()).isGreaterThan(102);
+    } finally {
+      productRepository.delete(addedProduct);
+    }
+  }
+}
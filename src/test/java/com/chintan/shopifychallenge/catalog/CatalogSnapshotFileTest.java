@@ -0,0 +1,82 @@
+package com.chintan.shopifychallenge.catalog;
+
+import com.chintan.shopifychallenge.models.Money;
+import com.chintan.shopifychallenge.models.Product;
+import com.google.common.collect.Lists;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
+
+public class CatalogSnapshotFileTest {
+  private final List<Product> products = Lists.newArrayList(
+      new Product(1, "USB Cable", Money.of("3.99"), 10),
+      new Product(7, "Caf\u00e9 \u2615", Money.of("0.00"), 0),
+      new Product(3, "USB Cable", Money.of("12345678.90"), Integer.MAX_VALUE));
+
+  @Rule
+  public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void read_returns_written_products() throws Exception {
+    final Path path = temporaryFolder.getRoot().toPath().resolve("catalog.bin");
+
+    CatalogSnapshotFile.write(path, products);
+
+    assertThat(CatalogSnapshotFile.read(path)).containsExactlyElementsOf(products);
+  }
+
+  @Test
+  public void write_stores_each_title_once() throws Exception {
+    final Path path = temporaryFolder.getRoot().toPath().resolve("catalog.bin");
+
+    final long bytes = CatalogSnapshotFile.write(path, products);
+
+    final int titleBytes = "USB Cable".length() + "Caf\u00e9 \u2615".getBytes(StandardCharsets.UTF_8).length;
+    assertThat(bytes).isEqualTo(CatalogSnapshotFile.HEADER_BYTES + 3 * CatalogSnapshotFile.RECORD_BYTES + titleBytes);
+    assertThat(Files.size(path)).isEqualTo(bytes);
+  }
+
+  @Test
+  public void write_replaces_existing_file() throws Exception {
+    final Path path = temporaryFolder.getRoot().toPath().resolve("catalog.bin");
+    CatalogSnapshotFile.write(path, products);
+
+    CatalogSnapshotFile.write(path, Collections.emptyList());
+
+    assertThat(CatalogSnapshotFile.read(path)).isEmpty();
+    assertThat(temporaryFolder.getRoot().list()).containsExactly("catalog.bin");
+  }
+
+  @Test
+  public void read_throws_exception_when_file_is_not_a_snapshot() throws Exception {
+    final Path path = temporaryFolder.newFile().toPath();
+    Files.write(path, ByteBuffer.allocate(CatalogSnapshotFile.HEADER_BYTES).putInt(42).array());
+
+    assertThatThrownBy(() -> CatalogSnapshotFile.read(path))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining(CatalogSnapshotFile.INVALID_FILE_EXCEPTION_MESSAGE);
+  }
+
+  @Test
+  public void read_throws_exception_when_file_is_truncated() throws Exception {
+    final Path path = temporaryFolder.getRoot().toPath().resolve("catalog.bin");
+    CatalogSnapshotFile.write(path, products);
+    final byte[] bytes = Files.readAllBytes(path);
+    Files.write(path, Arrays.copyOf(bytes, bytes.length - 1));
+
+    assertThatThrownBy(() -> CatalogSnapshotFile.read(path))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining(CatalogSnapshotFile.TRUNCATED_FILE_EXCEPTION_MESSAGE);
+  }
+}
@@ -0,0 +1,79 @@
+package com.chintan.shopifychallenge.catalog;
+
+import com.chintan.shopifychallenge.models.Money;
+import com.chintan.shopifychallenge.models.Product;
+import com.google.common.collect.Lists;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
+
+public class CatalogSnapshotTest {
+  private final Product productOne = new Product(1, "product1", Money.of("3.59"), 9);
+  private final Product productThree = new Product(3, "product3", Money.of("1.99"), 0);
+  private final Product productFive = new Product(5, "product5", Money.of("50.99"), 10);
+
+  private CatalogSnapshot snapshot;
+
+  @Before
+  public void setup() {
+    snapshot = CatalogSnapshot.of(Lists.newArrayList(productFive, productOne, productThree));
+  }
+
+  @Test
+  public void getAll_is_sorted_by_product_id() {
+    assertThat(snapshot.getAll()).containsExactly(productOne, productThree, productFive);
+    assertThat(snapshot.size()).isEqualTo(3);
+  }
+
+  @Test
+  public void getInStock_leaves_out_sold_out_products() {
+    assertThat(snapshot.getInStock()).containsExactly(productOne, productFive);
+  }
+
+  @Test
+  public void get_returns_empty_optional_when_product_is_not_in_snapshot() {
+    assertThat(snapshot.get(3)).contains(productThree);
+    assertThat(snapshot.get(4)).isEmpty();
+  }
+
+  @Test
+  public void getAll_by_ids_skips_missing_products_and_duplicates() {
+    assertThat(snapshot.getAll(Lists.newArrayList(5, 4, 1, 5))).containsExactly(productOne, productFive);
+  }
+
+  @Test
+  public void withChanges_adds_and_replaces_products_without_changing_old_snapshot() {
+    final Product restockedProduct = new Product(3, "product3", Money.of("1.99"), 4);
+    final Product newProduct = new Product(4, "product4", Money.of("2.00"), 1);
+
+    final CatalogSnapshot newSnapshot = snapshot.withChanges(Lists.newArrayList(newProduct, restockedProduct));
+
+    assertThat(newSnapshot.getAll()).containsExactly(productOne, restockedProduct, newProduct, productFive);
+    assertThat(newSnapshot.getInStock()).containsExactly(productOne, restockedProduct, newProduct, productFive);
+    assertThat(snapshot.getAll()).containsExactly(productOne, productThree, productFive);
+    assertThat(snapshot.getInStock()).containsExactly(productOne, productFive);
+  }
+
+  @Test
+  public void withChanges_keeps_last_change_to_a_product() {
+    final Product purchasedOnce = new Product(1, "product1", Money.of("3.59"), 8);
+    final Product purchasedTwice = new Product(1, "product1", Money.of("3.59"), 7);
+
+    assertThat(snapshot.withChanges(Lists.newArrayList(purchasedOnce, purchasedTwice)).get(1)).contains(purchasedTwice);
+  }
+
+  @Test
+  public void withChanges_returns_same_snapshot_when_nothing_changed() {
+    assertThat(snapshot.withChanges(Collections.emptyList())).isSameAs(snapshot);
+  }
+
+  @Test
+  public void getAll_cannot_be_modified() {
+    assertThatThrownBy(() -> snapshot.getAll().set(0, productFive))
+        .isInstanceOf(UnsupportedOperationException.class);
+  }
+}
@@ -0,0 +1,96 @@
+package com.chintan.shopifychallenge.catalog;
+
+import com.chintan.shopifychallenge.config.CatalogSnapshotProperties;
+import com.chintan.shopifychallenge.models.Money;
+import com.chintan.shopifychallenge.models.Product;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
+
+public class EncodedCatalogCacheTest {
+  private final List<Product> products = Lists.newArrayList(
+      new Product(1, "product1", Money.of("3.59"), 9),
+      new Product(2, "product2", Money.of("50.99"), 0));
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private ProductCatalog productCatalog;
+  private EncodedCatalogCache encodedCatalogCache;
+
+  @Before
+  public void setup() {
+    final CatalogSnapshotProperties catalogSnapshotProperties = new CatalogSnapshotProperties();
+    catalogSnapshotProperties.setMaxStaleness(Duration.ZERO);
+    productCatalog = new ProductCatalog(catalogSnapshotProperties, meterRegistry);
+    productCatalog.replaceAll(products);
+
+    encodedCatalogCache = new EncodedCatalogCache(productCatalog, objectMapper, meterRegistry);
+  }
+
+  @Test
+  public void getAllProducts_happypath() throws Exception {
+    final EncodedCatalog encodedCatalog = encodedCatalogCache.getAllProducts();
+
+    assertThat(readProducts(encodedCatalog.getJson())).containsExactlyElementsOf(products);
+    assertThat(gunzip(encodedCatalog.getGzippedJson())).isEqualTo(encodedCatalog.getJson());
+    assertThat(encodedCatalog.getEntityTag()).startsWith("\"").endsWith("\"");
+    assertThat(encodedCatalog.getGzipEntityTag()).isNotEqualTo(encodedCatalog.getEntityTag());
+  }
+
+  @Test
+  public void getInStockProducts_leaves_out_sold_out_products() throws Exception {
+    final EncodedCatalog encodedCatalog = encodedCatalogCache.getInStockProducts();
+
+    assertThat(readProducts(encodedCatalog.getJson())).containsExactly(products.get(0));
+    assertThat(encodedCatalog.getEntityTag()).isNotEqualTo(encodedCatalogCache.getAllProducts().getEntityTag());
+  }
+
+  @Test
+  public void getAllProducts_encodes_once_per_snapshot() {
+    final EncodedCatalog encodedCatalog = encodedCatalogCache.getAllProducts();
+
+    assertThat(encodedCatalogCache.getAllProducts()).isSameAs(encodedCatalog);
+    assertThat(meterRegistry.get(EncodedCatalogCache.ENCODINGS_METER_NAME).counter().count()).isEqualTo(1);
+  }
+
+  @Test
+  public void getAllProducts_encodes_again_once_catalog_changes() throws Exception {
+    final Product purchasedProduct = new Product(1, "product1", Money.of("3.59"), 8);
+    final EncodedCatalog encodedCatalog = encodedCatalogCache.getAllProducts();
+
+    productCatalog.update(Lists.newArrayList(purchasedProduct));
+    final EncodedCatalog changedCatalog = encodedCatalogCache.getAllProducts();
+
+    assertThat(changedCatalog.getEntityTag()).isNotEqualTo(encodedCatalog.getEntityTag());
+    assertThat(readProducts(changedCatalog.getJson())).containsExactly(purchasedProduct, products.get(1));
+  }
+
+  @Test
+  public void entity_tag_stays_the_same_for_the_same_products() {
+    final EncodedCatalog encodedCatalog = encodedCatalogCache.getAllProducts();
+
+    productCatalog.replaceAll(products);
+
+    assertThat(encodedCatalogCache.getAllProducts().getEntityTag()).isEqualTo(encodedCatalog.getEntityTag());
+  }
+
+  private List<Product> readProducts(final byte[] json) throws Exception {
+    return objectMapper.readValue(json, new TypeReference<List<Product>>() {});
+  }
+
+  private static byte[] gunzip(final byte[] gzipped) throws Exception {
+    return ByteStreams.toByteArray(new GZIPInputStream(new ByteArrayInputStream(gzipped)));
+  }
+}
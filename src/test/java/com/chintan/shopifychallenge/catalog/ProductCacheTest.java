@@ -0,0 +1,100 @@
+package com.chintan.shopifychallenge.catalog;
+
+import com.chintan.shopifychallenge.config.ProductCacheProperties;
+import com.chintan.shopifychallenge.models.Money;
+import com.chintan.shopifychallenge.models.Product;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ProductCacheTest {
+  private final Product product = new Product(1, "1", Money.of("1.99"), 2);
+
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final AtomicInteger databaseLookups = new AtomicInteger();
+
+  private ProductCache productCache;
+
+  @Before
+  public void setup() {
+    final ProductCacheProperties productCacheProperties = new ProductCacheProperties();
+    productCacheProperties.setMaximumSize(1);
+    productCache = new ProductCache(productCacheProperties, meterRegistry);
+  }
+
+  @Test
+  public void get_only_loads_product_once() {
+    productCache.get(1, this::loadProduct);
+    assertThat(productCache.get(1, this::loadProduct)).contains(product);
+
+    assertThat(databaseLookups.get()).isEqualTo(1);
+    assertThat(meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count()).isEqualTo(1);
+    assertThat(meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count()).isEqualTo(1);
+  }
+
+  @Test
+  public void get_does_not_cache_nonexistent_products() {
+    productCache.get(2, productId -> Optional.empty());
+
+    assertThat(productCache.get(2, this::loadProduct)).contains(product);
+    assertThat(databaseLookups.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void get_evicts_products_once_maximum_size_is_reached() {
+    productCache.get(1, this::loadProduct);
+    productCache.get(2, this::loadProduct);
+    productCache.get(1, this::loadProduct);
+
+    assertThat(databaseLookups.get()).isEqualTo(3);
+    assertThat(meterRegistry.get("cache.evictions").functionCounter().count()).isGreaterThanOrEqualTo(1);
+  }
+
+  @Test
+  public void update_only_replaces_cached_products() {
+    final Product purchasedProduct = new Product(1, "1", Money.of("1.99"), 1);
+
+    productCache.update(purchasedProduct);
+    assertThat(productCache.get(1, this::loadProduct)).contains(product);
+
+    productCache.update(purchasedProduct);
+    assertThat(productCache.get(1, this::loadProduct)).contains(purchasedProduct);
+  }
+
+  @Test
+  public void update_does_not_replace_newer_cached_product() {
+    final Product newerProduct = new Product(1, "1", Money.of("1.99"), 0);
+    newerProduct.setVersion(2);
+    productCache.get(1, productId -> Optional.of(newerProduct));
+
+    productCache.update(product);
+
+    assertThat(productCache.get(1, this::loadProduct)).contains(newerProduct);
+  }
+
+  @Test
+  public void get_keeps_change_cached_while_product_was_loading() {
+    final Product newerProduct = new Product(1, "1", Money.of("1.99"), 0);
+    newerProduct.setVersion(2);
+
+    // The change is cached after the product was read but before the read copy is cached
+    productCache.get(1, productId -> {
+      productCache.get(1, changedProductId -> Optional.of(newerProduct));
+      return loadProduct(productId);
+    });
+
+    assertThat(productCache.get(1, this::loadProduct)).contains(newerProduct);
+    assertThat(databaseLookups.get()).isEqualTo(1);
+  }
+
+  private Optional<Product> loadProduct(final Integer productId) {
+    databaseLookups.incrementAndGet();
+    return Optional.of(product);
+  }
+}
@@ -0,0 +1,80 @@
+package com.chintan.shopifychallenge.catalog;
+
+import com.chintan.shopifychallenge.models.Money;
+import com.chintan.shopifychallenge.models.Product;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
+
+public class ProductSearchIndexTest {
+  private ProductSearchIndex productSearchIndex;
+
+  @Before
+  public void setup() {
+    productSearchIndex = new ProductSearchIndex();
+    productSearchIndex.index(new Product(3, "USBC Cable", Money.of("10.99"), 10));
+    productSearchIndex.index(new Product(1, "Lightning Cable", Money.of("3.99"), 10));
+    productSearchIndex.index(new Product(7, "Lightning to USB-C Adapter", Money.of("5.00"), 0));
+    productSearchIndex.index(new Product(8, "Pepsi Can 250mL", Money.of("2.00"), 2));
+    productSearchIndex.index(new Product(9, "Cabbage", Money.of("2.00"), 2));
+  }
+
+  @Test
+  public void search_finds_word_anywhere_in_title() {
+    assertThat(productSearchIndex.search("cable", 10, productId -> true)).containsExactly(3, 1);
+  }
+
+  @Test
+  public void search_ranks_products_matching_more_words_first() {
+    assertThat(productSearchIndex.search("lightning cable", 10, productId -> true)).containsExactly(1, 3, 7);
+  }
+
+  @Test
+  public void search_ranks_whole_words_before_prefixes() {
+    productSearchIndex.index(new Product(10, "Cab", Money.of("1.00"), 1));
+
+    assertThat(productSearchIndex.search("cab", 10, productId -> true)).hasSize(4).startsWith(10);
+  }
+
+  @Test
+  public void search_matches_start_of_words() {
+    assertThat(productSearchIndex.search("LIGHT", 10, productId -> true)).containsExactly(1, 7);
+  }
+
+  @Test
+  public void search_single_letter_only_matches_whole_words() {
+    assertThat(productSearchIndex.search("c", 10, productId -> true)).containsExactly(7);
+  }
+
+  @Test
+  public void search_leaves_out_filtered_products() {
+    assertThat(productSearchIndex.search("lightning", 10, productId -> productId != 1)).containsExactly(7);
+  }
+
+  @Test
+  public void search_returns_at_most_limit_products() {
+    assertThat(productSearchIndex.search("cable lightning", 2, productId -> true)).containsExactly(1, 3);
+  }
+
+  @Test
+  public void search_returns_empty_list_when_nothing_matches() {
+    assertThat(productSearchIndex.search("coke", 10, productId -> true)).isEmpty();
+    assertThat(productSearchIndex.search("--", 10, productId -> true)).isEmpty();
+  }
+
+  @Test
+  public void index_moves_product_when_title_changes() {
+    productSearchIndex.index(new Product(3, "Coke Can 355mL", Money.of("1.50"), 5));
+
+    assertThat(productSearchIndex.search("cable", 10, productId -> true)).containsExactly(1);
+    assertThat(productSearchIndex.search("can", 10, productId -> true)).containsExactly(3, 8);
+  }
+
+  @Test
+  public void index_drops_product_whose_title_was_cleared() {
+    productSearchIndex.index(new Product(3, null, Money.of("10.99"), 10));
+
+    assertThat(productSearchIndex.search("cable", 10, productId -> true)).containsExactly(1);
+  }
+}
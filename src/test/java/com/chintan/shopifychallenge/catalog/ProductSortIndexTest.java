@@ -0,0 +1,85 @@
+package com.chintan.shopifychallenge.catalog;
+
+import com.chintan.shopifychallenge.models.Money;
+import com.chintan.shopifychallenge.models.Product;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.domain.Sort;
+
+import java.util.List;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
+
+public class ProductSortIndexTest {
+  private ProductSortIndex productSortIndex;
+
+  @Before
+  public void setup() {
+    productSortIndex = new ProductSortIndex();
+    productSortIndex.index(new Product(3, "USBC Cable", Money.of("10.99"), 10));
+    productSortIndex.index(new Product(1, "USB Cable", Money.of("3.99"), 0));
+    productSortIndex.index(new Product(7, "Lightning Cable", Money.of("5.00"), 4));
+    productSortIndex.index(new Product(8, "Lightning Cable", Money.of("2.00"), 2));
+    productSortIndex.index(new Product(9, "Pepsi Can 250mL", Money.of("2.00"), 25));
+  }
+
+  @Test
+  public void findProductIds_sorts_by_price_then_id() {
+    assertThat(findByPrice(Sort.Direction.ASC, Long.MIN_VALUE, Long.MAX_VALUE, null, 10)).containsExactly(8, 9, 1, 7, 3);
+    assertThat(findByPrice(Sort.Direction.DESC, Long.MIN_VALUE, Long.MAX_VALUE, null, 10)).containsExactly(3, 7, 1, 9, 8);
+  }
+
+  @Test
+  public void findProductIds_sorts_by_inventory() {
+    assertThat(productSortIndex.findProductIds(ProductSort.INVENTORY, Sort.Direction.DESC, Long.MIN_VALUE, Long.MAX_VALUE,
+        null, 10, productId -> true)).containsExactly(9, 3, 7, 8, 1);
+  }
+
+  @Test
+  public void findProductIds_only_returns_products_in_price_range() {
+    assertThat(findByPrice(Sort.Direction.ASC, 300, 500, null, 10)).containsExactly(1, 7);
+    assertThat(productSortIndex.findProductIds(ProductSort.INVENTORY, Sort.Direction.ASC, 300, 500,
+        null, 10, productId -> true)).containsExactly(1, 7);
+  }
+
+  @Test
+  public void findProductIds_returns_at_most_limit_products() {
+    assertThat(findByPrice(Sort.Direction.ASC, Long.MIN_VALUE, Long.MAX_VALUE, null, 2)).containsExactly(8, 9);
+  }
+
+  @Test
+  public void findProductIds_continues_after_given_product() {
+    assertThat(findByPrice(Sort.Direction.ASC, Long.MIN_VALUE, Long.MAX_VALUE, 9, 2)).containsExactly(1, 7);
+    assertThat(findByPrice(Sort.Direction.DESC, Long.MIN_VALUE, Long.MAX_VALUE, 1, 10)).containsExactly(9, 8);
+    // The product to continue after doesn't have to be in the price range
+    assertThat(findByPrice(Sort.Direction.ASC, 300, 500, 8, 10)).containsExactly(1, 7);
+    assertThat(findByPrice(Sort.Direction.ASC, 300, 500, 3, 10)).isEmpty();
+  }
+
+  @Test
+  public void findProductIds_leaves_out_filtered_products() {
+    assertThat(productSortIndex.findProductIds(ProductSort.PRICE, Sort.Direction.ASC, Long.MIN_VALUE, Long.MAX_VALUE,
+        null, 2, productId -> productId != 9)).containsExactly(8, 1);
+  }
+
+  @Test
+  public void findProductIds_throws_exception_when_product_to_continue_after_is_unknown() {
+    assertThatThrownBy(() -> findByPrice(Sort.Direction.ASC, Long.MIN_VALUE, Long.MAX_VALUE, 42, 10))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining(ProductSortIndex.UNKNOWN_CURSOR_EXCEPTION_MESSAGE);
+  }
+
+  @Test
+  public void index_moves_product_when_price_changes() {
+    productSortIndex.index(new Product(3, "USBC Cable", Money.of("0.99"), 10));
+
+    assertThat(findByPrice(Sort.Direction.ASC, Long.MIN_VALUE, Long.MAX_VALUE, null, 10)).containsExactly(3, 8, 9, 1, 7);
+  }
+
+  private List<Integer> findByPrice(final Sort.Direction direction, final long minPriceInCents,
+                                              final long maxPriceInCents, final Integer afterProductId, final int limit) {
+    return productSortIndex.findProductIds(ProductSort.PRICE, direction, minPriceInCents, maxPriceInCents,
+        afterProductId, limit, productId -> true);
+  }
+}
@@ -0,0 +1,50 @@
+package com.chintan.shopifychallenge.catalog;
+
+import com.chintan.shopifychallenge.models.Money;
+import com.chintan.shopifychallenge.models.Product;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
+
+public class ProductTitleIndexTest {
+  private ProductTitleIndex productTitleIndex;
+
+  @Before
+  public void setup() {
+    productTitleIndex = new ProductTitleIndex();
+    productTitleIndex.index(new Product(3, "USBC Cable", Money.of("10.99"), 10));
+    productTitleIndex.index(new Product(1, "USB Cable", Money.of("3.99"), 10));
+    productTitleIndex.index(new Product(7, "Lightning Cable", Money.of("5.00"), 0));
+    productTitleIndex.index(new Product(8, "Lightning Cable", Money.of("2.00"), 2));
+    productTitleIndex.index(new Product(9, "lightning cable", Money.of("2.00"), 2));
+  }
+
+  @Test
+  public void findProductIds_exact_match_is_case_sensitive() {
+    assertThat(productTitleIndex.findProductIds("Lightning Cable", TitleMatch.EXACT)).containsExactly(7, 8);
+  }
+
+  @Test
+  public void findProductIds_ignore_case_match() {
+    assertThat(productTitleIndex.findProductIds("LIGHTNING CABLE", TitleMatch.IGNORE_CASE)).containsExactly(7, 8, 9);
+  }
+
+  @Test
+  public void findProductIds_prefix_match() {
+    assertThat(productTitleIndex.findProductIds("usb", TitleMatch.PREFIX)).containsExactly(1, 3);
+  }
+
+  @Test
+  public void findProductIds_returns_empty_list_when_no_titles_match() {
+    assertThat(productTitleIndex.findProductIds("Pepsi", TitleMatch.PREFIX)).isEmpty();
+  }
+
+  @Test
+  public void index_moves_product_when_title_changes() {
+    productTitleIndex.index(new Product(1, "Pepsi Can 250mL", Money.of("2.50"), 5));
+
+    assertThat(productTitleIndex.findProductIds("USB Cable", TitleMatch.EXACT)).isEmpty();
+    assertThat(productTitleIndex.findProductIds("Pepsi Can 250mL", TitleMatch.EXACT)).containsExactly(1);
+  }
+}
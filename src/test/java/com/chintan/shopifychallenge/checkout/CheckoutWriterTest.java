@@ -0,0 +1,334 @@
+package com.chintan.shopifychallenge.checkout;
+
+import com.chintan.shopifychallenge.cart.ActiveCartStore;
+import com.chintan.shopifychallenge.cart.CheckedOutCart;
+import com.chintan.shopifychallenge.catalog.InStockProductIndex;
+import com.chintan.shopifychallenge.catalog.ProductsChangedEvent;
+import com.chintan.shopifychallenge.inventory.HotInventory;
+import com.chintan.shopifychallenge.metrics.CheckoutMetrics;
+import com.chintan.shopifychallenge.models.InventorySale;
+import com.chintan.shopifychallenge.models.Money;
+import com.chintan.shopifychallenge.models.Product;
+import com.chintan.shopifychallenge.repository.InventorySaleRepository;
+import com.chintan.shopifychallenge.repository.ProductRepository;
+import com.chintan.shopifychallenge.reservation.ProductReservations;
+import com.chintan.shopifychallenge.services.CartService;
+import com.google.common.collect.ImmutableMap;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.util.Lists;
+import org.assertj.core.util.Sets;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Answers;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner.StrictStubs;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@RunWith(StrictStubs.class)
+public class CheckoutWriterTest {
+  private final CheckedOutCart emptyCart = new CheckedOutCart(0, Collections.emptyList(), Money.ZERO);
+
+
+  @Mock(answer = Answers.RETURNS_DEFAULTS)
+  private ActiveCartStore mockActiveCartStore;
+  @Mock(answer = Answers.RETURNS_DEFAULTS)
+  private ProductRepository mockProductRepository;
+  @Mock(answer = Answers.RETURNS_DEFAULTS)
+  private InventorySaleRepository mockInventorySaleRepository;
+  @Mock(answer = Answers.RETURNS_DEFAULTS)
+  private HotInventory mockHotInventory;
+  @Mock(answer = Answers.RETURNS_DEFAULTS)
+  private InStockProductIndex mockInStockProductIndex;
+  @Mock(answer = Answers.RETURNS_DEFAULTS)
+  private ProductReservations mockProductReservations;
+  @Mock(answer = Answers.RETURNS_DEFAULTS)
+  private ApplicationEventPublisher mockEventPublisher;
+
+  private MeterRegistry meterRegistry;
+  private CheckoutWriter checkoutWriter;
+
+  @Before
+  public void setup() {
+    meterRegistry = new SimpleMeterRegistry();
+    checkoutWriter = new CheckoutWriter(mockProductRepository, mockActiveCartStore, mockInventorySaleRepository,
+        mockHotInventory, mockInStockProductIndex, mockProductReservations, mockEventPublisher,
+        new CheckoutMetrics(meterRegistry));
+  }
+
+  @Test
+  public void completeCartPurchase_happypath() {
+    final int expectedCartID = 2;
+    final CheckedOutCart initialCart = new CheckedOutCart(expectedCartID, Lists.newArrayList(1, 2), Money.of("3.00"));
+    final List<Integer> productIds = Lists.newArrayList(1, 2);
+    final List<Product> purchasedProducts = Lists.newArrayList(
+        new Product(1, "1", Money.of("1.00"), 4), new Product(2, "2", Money.of("2.00"), 1));
+
+    when(mockActiveCartStore.checkOut(expectedCartID)).thenReturn(Optional.of(initialCart));
+    when(mockProductRepository.lockInventoryCounts(productIds)).thenReturn(ImmutableMap.of(1, 5, 2, 2));
+    when(mockProductRepository.decrementInventoryByOne(productIds)).thenReturn(2);
+    when(mockProductRepository.findAllById(productIds)).thenReturn(purchasedProducts);
+
+    checkoutWriter.completeCartPurchase(expectedCartID);
+
+    // The products sent out are read back after the update instead of being worked out from what was locked
+    final InOrder inOrder = inOrder(mockProductRepository);
+    inOrder.verify(mockProductRepository).lockInventoryCounts(productIds);
+    inOrder.verify(mockProductRepository).decrementInventoryByOne(productIds);
+    inOrder.verify(mockProductRepository).findAllById(productIds);
+    verify(mockProductRepository, never()).saveAll(any());
+    verify(mockActiveCartStore).complete(Collections.singletonList(2));
+    verify(mockEventPublisher).publishEvent(new ProductsChangedEvent(purchasedProducts));
+    assertThat(checkouts("completed", "none")).isEqualTo(1.0);
+  }
+
+  @Test
+  public void completeCartPurchase_without_products_does_not_touch_inventory() {
+    when(mockActiveCartStore.checkOut(anyInt())).thenReturn(Optional.of(emptyCart));
+
+    checkoutWriter.completeCartPurchase(0);
+
+    verify(mockActiveCartStore).complete(Collections.singletonList(0));
+    verifyZeroInteractions(mockProductRepository);
+    assertThat(checkouts("completed", "none")).isEqualTo(1.0);
+  }
+
+  @Test
+  public void completeCartPurchase_throws_exception_when_product_is_out_of_stock() {
+    final CheckedOutCart outOfStockCart = new CheckedOutCart(0, Lists.newArrayList(3), Money.of("1.00"));
+
+    when(mockActiveCartStore.checkOut(anyInt())).thenReturn(Optional.of(outOfStockCart));
+    when(mockProductRepository.lockInventoryCounts(Lists.newArrayList(3))).thenReturn(ImmutableMap.of(3, 0));
+
+    assertThatThrownBy(() -> checkoutWriter.completeCartPurchase(0))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining(Product.STOCK_RUN_OUT_EXCEPTION_MESSAGE);
+    verify(mockProductRepository, never()).decrementInventoryByOne(any());
+    verifyZeroInteractions(mockEventPublisher);
+    assertThat(checkouts("failed", "stock_run_out")).isEqualTo(1.0);
+    assertThat(meterRegistry.get(CheckoutMetrics.INVENTORY_CONFLICTS_METER_NAME).counter().count()).isZero();
+  }
+
+  @Test
+  public void completeCartPurchase_does_not_update_inventory_when_any_product_is_short() {
+    final CheckedOutCart initialCart = new CheckedOutCart(0, Lists.newArrayList(1, 2), Money.of("3.00"));
+
+    when(mockActiveCartStore.checkOut(anyInt())).thenReturn(Optional.of(initialCart));
+    when(mockProductRepository.lockInventoryCounts(Lists.newArrayList(1, 2))).thenReturn(ImmutableMap.of(1, 0, 2, 2));
+    when(mockInStockProductIndex.isInStock(1)).thenReturn(true);
+
+    assertThatThrownBy(() -> checkoutWriter.completeCartPurchase(0))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining("product 1");
+    verify(mockProductRepository, never()).decrementInventoryByOne(any());
+    // The catalog still listed product 1 as in stock so another checkout must have bought the last of it
+    assertThat(meterRegistry.get(CheckoutMetrics.INVENTORY_CONFLICTS_METER_NAME).counter().count()).isEqualTo(1.0);
+  }
+
+  @Test
+  public void completeCartPurchase_throws_exception_when_product_sells_out_between_lock_and_update() {
+    final CheckedOutCart initialCart = new CheckedOutCart(0, Lists.newArrayList(1), Money.of("1.00"));
+
+    when(mockActiveCartStore.checkOut(anyInt())).thenReturn(Optional.of(initialCart));
+    when(mockProductRepository.lockInventoryCounts(Lists.newArrayList(1))).thenReturn(ImmutableMap.of(1, 1));
+    when(mockProductRepository.decrementInventoryByOne(Lists.newArrayList(1))).thenReturn(0);
+
+    assertThatThrownBy(() -> checkoutWriter.completeCartPurchase(0))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining(Product.STOCK_RUN_OUT_EXCEPTION_MESSAGE);
+    verifyZeroInteractions(mockEventPublisher);
+    assertThat(checkouts("failed", "stock_run_out")).isEqualTo(1.0);
+  }
+
+  @Test
+  public void completeCartPurchase_throws_exception_when_cart_is_nonexistent() {
+    when(mockActiveCartStore.checkOut(anyInt())).thenReturn(Optional.empty());
+
+    assertThatThrownBy(() -> checkoutWriter.completeCartPurchase(0))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining(CartService.CART_DOES_NOT_EXIST_EXCEPTION_MESSAGE);
+    assertThat(checkouts("failed", "cart_does_not_exist")).isEqualTo(1.0);
+  }
+
+  @Test
+  public void completeCartPurchase_records_sale_of_hot_product_instead_of_updating_it() {
+    final CheckedOutCart initialCart = new CheckedOutCart(4, Lists.newArrayList(1, 2), Money.of("3.00"));
+
+    when(mockActiveCartStore.checkOut(4)).thenReturn(Optional.of(initialCart));
+    when(mockHotInventory.isHot(anyInt())).thenAnswer(invocation -> invocation.getArgument(0).equals(2));
+    when(mockProductRepository.lockInventoryCounts(Lists.newArrayList(1))).thenReturn(ImmutableMap.of(1, 5));
+    when(mockProductRepository.decrementInventoryByOne(Lists.newArrayList(1))).thenReturn(1);
+    when(mockProductRepository.findAllById(Lists.newArrayList(1)))
+        .thenReturn(Lists.newArrayList(new Product(1, "1", Money.of("1.00"), 4)));
+    when(mockHotInventory.takeAll(Lists.newArrayList(2), 4)).thenReturn(Optional.empty());
+
+    checkoutWriter.completeCartPurchase(4);
+
+    verify(mockInventorySaleRepository).saveAll(Lists.newArrayList(new InventorySale(null, 2, 1)));
+    verify(mockEventPublisher).publishEvent(new ProductsChangedEvent(Lists.newArrayList(new Product(1, "1", Money.of("1.00"), 4))));
+    assertThat(checkouts("completed", "none")).isEqualTo(1.0);
+  }
+
+  @Test
+  public void completeCartPurchase_throws_exception_when_hot_product_is_sold_out() {
+    final CheckedOutCart initialCart = new CheckedOutCart(4, Lists.newArrayList(2), Money.of("2.00"));
+
+    when(mockActiveCartStore.checkOut(4)).thenReturn(Optional.of(initialCart));
+    when(mockHotInventory.isHot(2)).thenReturn(true);
+    when(mockHotInventory.takeAll(Lists.newArrayList(2), 4)).thenReturn(Optional.of(2));
+
+    assertThatThrownBy(() -> checkoutWriter.completeCartPurchase(4))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining("product 2");
+    verifyZeroInteractions(mockInventorySaleRepository, mockEventPublisher);
+    verify(mockProductRepository, never()).lockInventoryCounts(any());
+    assertThat(checkouts("failed", "stock_run_out")).isEqualTo(1.0);
+  }
+
+  @Test
+  public void completeCartPurchase_consumes_reservations_instead_of_updating_reserved_products() {
+    final CheckedOutCart initialCart = new CheckedOutCart(4, Lists.newArrayList(1, 2), Money.of("3.00"));
+
+    when(mockActiveCartStore.checkOut(4)).thenReturn(Optional.of(initialCart));
+    when(mockProductReservations.lockReservedProductIds(Collections.singletonList(4)))
+        .thenReturn(Collections.singletonMap(4, Sets.newHashSet(2)));
+    when(mockProductRepository.lockInventoryCounts(Lists.newArrayList(1))).thenReturn(ImmutableMap.of(1, 5));
+    when(mockProductRepository.decrementInventoryByOne(Lists.newArrayList(1))).thenReturn(1);
+    when(mockProductRepository.findAllById(Lists.newArrayList(1)))
+        .thenReturn(Lists.newArrayList(new Product(1, "1", Money.of("1.00"), 4)));
+
+    checkoutWriter.completeCartPurchase(4);
+
+    verify(mockProductReservations).consume(Collections.singletonList(4));
+    verify(mockEventPublisher).publishEvent(new ProductsChangedEvent(Lists.newArrayList(new Product(1, "1", Money.of("1.00"), 4))));
+    assertThat(checkouts("completed", "none")).isEqualTo(1.0);
+  }
+
+  @Test
+  public void completeCartPurchase_with_only_reserved_products_does_not_touch_inventory() {
+    final CheckedOutCart initialCart = new CheckedOutCart(4, Lists.newArrayList(1, 2), Money.of("3.00"));
+
+    when(mockActiveCartStore.checkOut(4)).thenReturn(Optional.of(initialCart));
+    when(mockProductReservations.lockReservedProductIds(Collections.singletonList(4)))
+        .thenReturn(Collections.singletonMap(4, Sets.newHashSet(1, 2)));
+
+    checkoutWriter.completeCartPurchase(4);
+
+    verify(mockActiveCartStore).complete(Collections.singletonList(4));
+    verify(mockProductReservations).consume(Collections.singletonList(4));
+    verifyZeroInteractions(mockProductRepository);
+  }
+
+  @Test
+  public void completeCartPurchases_decrements_each_product_once_per_purchased_quantity() {
+    final CheckedOutCart firstCart = new CheckedOutCart(1, Lists.newArrayList(1), Money.of("1.00"));
+    final CheckedOutCart secondCart = new CheckedOutCart(2, Lists.newArrayList(1, 2), Money.of("3.00"));
+    final List<Product> purchasedProducts = Lists.newArrayList(
+        new Product(1, "1", Money.of("1.00"), 3), new Product(2, "2", Money.of("2.00"), 1));
+
+    when(mockActiveCartStore.checkOutAll(Sets.newHashSet(1, 2))).thenReturn(cartsById(firstCart, secondCart));
+    when(mockProductRepository.lockInventoryCounts(Lists.newArrayList(1, 2))).thenReturn(new HashMap<>(ImmutableMap.of(1, 5, 2, 2)));
+    when(mockProductRepository.decrementInventoryIfAvailable(Lists.newArrayList(2), 1)).thenReturn(1);
+    when(mockProductRepository.decrementInventoryIfAvailable(Lists.newArrayList(1), 2)).thenReturn(1);
+    when(mockProductRepository.findAllById(new TreeSet<>(Lists.newArrayList(1, 2)))).thenReturn(purchasedProducts);
+
+    final List<CheckoutResult> results = checkoutWriter.completeCartPurchases(Lists.newArrayList(1, 2));
+
+    assertThat(results).containsExactly(CheckoutResult.completed(1), CheckoutResult.completed(2));
+    verify(mockActiveCartStore).complete(Sets.newHashSet(1, 2));
+    verify(mockEventPublisher).publishEvent(new ProductsChangedEvent(purchasedProducts));
+    assertThat(checkouts("completed", "none")).isEqualTo(2.0);
+  }
+
+  @Test
+  public void completeCartPurchases_fails_only_carts_whose_products_sold_out_earlier_in_batch() {
+    final CheckedOutCart firstCart = new CheckedOutCart(1, Lists.newArrayList(3), Money.of("1.00"));
+    final CheckedOutCart secondCart = new CheckedOutCart(2, Lists.newArrayList(3), Money.of("1.00"));
+    final CheckedOutCart thirdCart = new CheckedOutCart(3, Lists.newArrayList(1), Money.of("1.00"));
+
+    when(mockActiveCartStore.checkOutAll(Sets.newHashSet(1, 2, 3))).thenReturn(cartsById(firstCart, secondCart, thirdCart));
+    when(mockProductRepository.lockInventoryCounts(Lists.newArrayList(1, 3))).thenReturn(new HashMap<>(ImmutableMap.of(1, 5, 3, 1)));
+    when(mockProductRepository.decrementInventoryIfAvailable(Lists.newArrayList(1, 3), 1)).thenReturn(2);
+
+    final List<CheckoutResult> results = checkoutWriter.completeCartPurchases(Lists.newArrayList(1, 2, 3));
+
+    assertThat(results.get(0).isCompleted()).isTrue();
+    assertThat(results.get(1).getFailure())
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining("product 3");
+    assertThat(results.get(2).isCompleted()).isTrue();
+    verify(mockActiveCartStore).complete(Sets.newHashSet(1, 3));
+    verify(mockActiveCartStore).putBack(2);
+    assertThat(checkouts("failed", "stock_run_out")).isEqualTo(1.0);
+  }
+
+  @Test
+  public void completeCartPurchases_rolls_back_when_inventory_changed_under_the_lock() {
+    final CheckedOutCart cart = new CheckedOutCart(1, Lists.newArrayList(1), Money.of("1.00"));
+
+    when(mockActiveCartStore.checkOutAll(Sets.newHashSet(1))).thenReturn(cartsById(cart));
+    when(mockProductRepository.lockInventoryCounts(Lists.newArrayList(1))).thenReturn(new HashMap<>(ImmutableMap.of(1, 1)));
+    when(mockProductRepository.decrementInventoryIfAvailable(Lists.newArrayList(1), 1)).thenReturn(0);
+
+    assertThatThrownBy(() -> checkoutWriter.completeCartPurchases(Lists.newArrayList(1)))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining(Product.STOCK_RUN_OUT_EXCEPTION_MESSAGE);
+    verifyZeroInteractions(mockEventPublisher);
+  }
+
+  @Test
+  public void completeCartPurchases_fails_nonexistent_and_repeated_carts() {
+    final CheckedOutCart cart = new CheckedOutCart(1, Lists.newArrayList(1), Money.of("1.00"));
+
+    when(mockActiveCartStore.checkOutAll(Sets.newHashSet(1, 2))).thenReturn(cartsById(cart));
+    when(mockProductRepository.lockInventoryCounts(Lists.newArrayList(1))).thenReturn(new HashMap<>(ImmutableMap.of(1, 5)));
+    when(mockProductRepository.decrementInventoryIfAvailable(Lists.newArrayList(1), 1)).thenReturn(1);
+
+    final List<CheckoutResult> results = checkoutWriter.completeCartPurchases(Lists.newArrayList(1, 2, 1));
+
+    assertThat(results.get(0).isCompleted()).isTrue();
+    assertThat(results.get(1).getFailure()).hasMessageContaining(CartService.CART_DOES_NOT_EXIST_EXCEPTION_MESSAGE);
+    assertThat(results.get(2).getFailure()).hasMessageContaining(CartService.CART_DOES_NOT_EXIST_EXCEPTION_MESSAGE);
+    assertThat(checkouts("failed", "cart_does_not_exist")).isEqualTo(2.0);
+  }
+
+  @Test
+  public void completeCartPurchases_consumes_reservations_of_purchased_carts_only() {
+    final CheckedOutCart firstCart = new CheckedOutCart(1, Lists.newArrayList(3), Money.of("1.00"));
+    final CheckedOutCart secondCart = new CheckedOutCart(2, Lists.newArrayList(1, 3), Money.of("2.00"));
+    final CheckedOutCart thirdCart = new CheckedOutCart(3, Lists.newArrayList(1), Money.of("1.00"));
+
+    when(mockActiveCartStore.checkOutAll(Sets.newHashSet(1, 2, 3))).thenReturn(cartsById(firstCart, secondCart, thirdCart));
+    final Map<Integer, Set<Integer>> reservedProductIdsByCartId = new HashMap<>();
+    reservedProductIdsByCartId.put(2, Sets.newHashSet(1));
+    reservedProductIdsByCartId.put(3, Sets.newHashSet(1));
+    when(mockProductReservations.lockReservedProductIds(Sets.newHashSet(1, 2, 3))).thenReturn(reservedProductIdsByCartId);
+    when(mockProductRepository.lockInventoryCounts(Lists.newArrayList(3))).thenReturn(new HashMap<>(ImmutableMap.of(3, 1)));
+    when(mockProductRepository.decrementInventoryIfAvailable(Lists.newArrayList(3), 1)).thenReturn(1);
+
+    final List<CheckoutResult> results = checkoutWriter.completeCartPurchases(Lists.newArrayList(1, 2, 3));
+
+    assertThat(results.get(0).isCompleted()).isTrue();
+    assertThat(results.get(1).getFailure()).hasMessageContaining("product 3");
+    assertThat(results.get(2).isCompleted()).isTrue();
+    verify(mockProductReservations).consume(Lists.newArrayList(3));
+  }
+
+  private static Map<Integer, CheckedOutCart> cartsById(final CheckedOutCart... carts) {
+    final Map<Integer, CheckedOutCart> cartsById = new LinkedHashMap<>();
+    for (final CheckedOutCart cart : carts) cartsById.put(cart.getCartId(), cart);
+    return cartsById;
+  }
+
+  private double checkouts(final String outcome, final String reason) {
+    return meterRegistry.get(CheckoutMetrics.CHECKOUTS_METER_NAME).tag("outcome", outcome).tag("reason", reason).counter().count();
+  }
+}
\ No newline at end of file
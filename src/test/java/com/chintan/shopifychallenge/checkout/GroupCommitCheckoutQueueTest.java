@@ -0,0 +1,108 @@
+package com.chintan.shopifychallenge.checkout;
+
+import com.chintan.shopifychallenge.config.GroupCommitProperties;
+import com.chintan.shopifychallenge.models.Product;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner.StrictStubs;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@RunWith(StrictStubs.class)
+public class GroupCommitCheckoutQueueTest {
+  private static final int BATCH_SIZE = 3;
+
+  @Mock(answer = Answers.RETURNS_DEFAULTS)
+  private CheckoutWriter mockCheckoutWriter;
+
+  // Every purchase blocks until its batch is written so each one needs its own thread
+  private final ExecutorService purchasers = Executors.newFixedThreadPool(BATCH_SIZE);
+  private GroupCommitCheckoutQueue groupCommitCheckoutQueue;
+
+  @Before
+  public void setup() {
+    final GroupCommitProperties groupCommitProperties = new GroupCommitProperties();
+    groupCommitProperties.setBatchSize(BATCH_SIZE);
+    // Long enough that a batch is only ever written once it is full
+    groupCommitProperties.setMaxLinger(Duration.ofMinutes(1));
+
+    groupCommitCheckoutQueue = new GroupCommitCheckoutQueue(mockCheckoutWriter, groupCommitProperties, new SimpleMeterRegistry());
+    groupCommitCheckoutQueue.start();
+  }
+
+  @After
+  public void teardown() throws InterruptedException {
+    groupCommitCheckoutQueue.stop();
+    purchasers.shutdownNow();
+  }
+
+  @Test
+  public void completeCartPurchase_writes_queued_purchases_in_one_batch() throws Exception {
+    when(mockCheckoutWriter.completeCartPurchases(anyList())).thenAnswer(invocation -> {
+      final List<Integer> cartIds = invocation.getArgument(0);
+      return cartIds.stream()
+          .map(cartId -> cartId == 2
+              ? CheckoutResult.failed(cartId, new IllegalStateException(Product.STOCK_RUN_OUT_EXCEPTION_MESSAGE))
+              : CheckoutResult.completed(cartId))
+          .collect(Collectors.toList());
+    });
+
+    final CompletableFuture<Void> firstPurchase = purchaseInBackground(1);
+    final CompletableFuture<Void> secondPurchase = purchaseInBackground(2);
+    final CompletableFuture<Void> thirdPurchase = purchaseInBackground(3);
+
+    firstPurchase.get(10, TimeUnit.SECONDS);
+    thirdPurchase.get(10, TimeUnit.SECONDS);
+    assertThatThrownBy(() -> secondPurchase.get(10, TimeUnit.SECONDS))
+        .isInstanceOf(ExecutionException.class)
+        .hasCauseInstanceOf(IllegalStateException.class)
+        .hasMessageContaining(Product.STOCK_RUN_OUT_EXCEPTION_MESSAGE);
+    verify(mockCheckoutWriter, times(1)).completeCartPurchases(anyList());
+  }
+
+  @Test
+  public void completeCartPurchase_fails_every_purchase_when_batch_fails() {
+    when(mockCheckoutWriter.completeCartPurchases(anyList())).thenThrow(new IllegalStateException("database is down"));
+
+    final List<CompletableFuture<Void>> purchases = IntStream.rangeClosed(1, BATCH_SIZE)
+        .mapToObj(this::purchaseInBackground)
+        .collect(Collectors.toList());
+
+    for (final CompletableFuture<Void> purchase : purchases) {
+      assertThatThrownBy(() -> purchase.get(10, TimeUnit.SECONDS))
+          .isInstanceOf(ExecutionException.class)
+          .hasMessageContaining("database is down");
+    }
+  }
+
+  @Test
+  public void completeCartPurchase_throws_exception_when_queue_is_stopped() throws InterruptedException {
+    groupCommitCheckoutQueue.stop();
+
+    assertThatThrownBy(() -> groupCommitCheckoutQueue.completeCartPurchase(1))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining(GroupCommitCheckoutQueue.QUEUE_SHUT_DOWN_EXCEPTION_MESSAGE);
+    verifyZeroInteractions(mockCheckoutWriter);
+  }
+
+  private CompletableFuture<Void> purchaseInBackground(final int cartId) {
+    return CompletableFuture.runAsync(() -> groupCommitCheckoutQueue.completeCartPurchase(cartId), purchasers);
+  }
+}
@@ -1,6 +1,7 @@
 package com.chintan.shopifychallenge.controllers;
 
 import com.chintan.shopifychallenge.models.Cart;
+import com.chintan.shopifychallenge.models.Money;
 import com.chintan.shopifychallenge.models.Product;
 import com.chintan.shopifychallenge.models.controllers.CreateCart;
 import com.chintan.shopifychallenge.services.CartService;
@@ -13,7 +14,6 @@ import org.mockito.Answers;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner.StrictStubs;
 
-import java.math.BigDecimal;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -26,10 +26,10 @@ import static org.mockito.Mockito.*;
 @RunWith(StrictStubs.class)
 public class CartsControllerTest {
   private final Integer cartId = 1;
-  private final Cart emptyCart = new Cart(cartId, Collections.emptyList(), BigDecimal.ZERO);
+  private final Cart emptyCart = new Cart(cartId, Collections.emptyList(), Money.ZERO);
 
   private final Integer productId = 1;
-  private final Product singleProduct = new Product(productId, "1", new BigDecimal(1.00), 2);
+  private final Product singleProduct = new Product(productId, "1", Money.of("1.00"), 2);
 
   @Mock(answer = Answers.RETURNS_SMART_NULLS)
   private CartService mockCartService;
@@ -71,7 +71,7 @@ public class CartsControllerTest {
   public void createCart_with_list_of_productIds_happypath() {
     final List<Integer> productIds = Lists.newArrayList(productId);
 
-    when(mockProductService.getProductById(productId)).thenReturn(Optional.of(singleProduct));
+    when(mockProductService.getProductsByIds(productIds)).thenReturn(Lists.newArrayList(singleProduct));
     when(mockCartService.createNewCart(Lists.newArrayList(singleProduct))).thenReturn(emptyCart);
 
     assertThat(cartsController.createCart(new CreateCart(productIds))).isEqualTo(emptyCart);
@@ -80,8 +80,8 @@ public class CartsControllerTest {
 
   @Test
   public void createCart_filters_out_nonexistent_products() {
-    // When all product fetch requests return an empty optional, we should pass in an empty list into createNewCart()
-    when(mockProductService.getProductById(anyInt())).thenReturn(Optional.empty());
+    // When none of the products exist, we should pass in an empty list into createNewCart()
+    when(mockProductService.getProductsByIds(Lists.newArrayList(1, 2, 3))).thenReturn(Collections.emptyList());
     when(mockCartService.createNewCart(Collections.emptyList())).thenReturn(emptyCart);
 
     assertThat(cartsController.createCart(new CreateCart(Lists.newArrayList(1, 2, 3))))
@@ -89,6 +89,18 @@ public class CartsControllerTest {
     verifyNoMoreInteractions(mockCartService, mockProductService);
   }
 
+  @Test
+  public void createCart_filters_out_of_stock_products() {
+    final Product outOfStockProduct = new Product(2, "out of stock", Money.of("1.00"), 0);
+
+    when(mockProductService.getProductsByIds(Lists.newArrayList(productId, 2)))
+        .thenReturn(Lists.newArrayList(singleProduct, outOfStockProduct));
+    when(mockCartService.createNewCart(Lists.newArrayList(singleProduct))).thenReturn(emptyCart);
+
+    assertThat(cartsController.createCart(new CreateCart(Lists.newArrayList(productId, 2)))).isEqualTo(emptyCart);
+    verifyNoMoreInteractions(mockCartService, mockProductService);
+  }
+
   @Test
   public void addProductToCart_happypath() {
     when(mockProductService.getProductById(productId)).thenReturn(Optional.of(singleProduct));
@@ -109,7 +121,7 @@ public class CartsControllerTest {
 
   @Test
   public void addProductToCart_throws_exception_when_product_is_out_of_stock() {
-    final Product outOfStockProduct = new Product(productId, "out of stock", BigDecimal.ONE, 0);
+    final Product outOfStockProduct = new Product(productId, "out of stock", Money.of("1.00"), 0);
     when(mockProductService.getProductById(anyInt())).thenReturn(Optional.of(outOfStockProduct));
 
     assertThatThrownBy(() -> cartsController.addProductToCart(cartId, productId))
@@ -129,6 +141,24 @@ public class CartsControllerTest {
     verifyNoMoreInteractions(mockCartService, mockProductService);
   }
 
+  @Test
+  public void removeProductFromCart_happypath() {
+    when(mockCartService.removeProductFromCart(cartId, productId)).thenReturn(emptyCart);
+
+    assertThat(cartsController.removeProductFromCart(cartId, productId)).isEqualTo(emptyCart);
+    verifyNoMoreInteractions(mockCartService, mockProductService);
+  }
+
+  @Test
+  public void removeProductFromCart_throws_exception_when_cart_is_nonexistent() {
+    final RuntimeException expectedException = new RuntimeException();
+
+    doThrow(expectedException).when(mockCartService).removeProductFromCart(cartId, productId);
+
+    assertThatThrownBy(() -> cartsController.removeProductFromCart(cartId, productId))
+        .isEqualTo(expectedException);
+  }
+
   @Test
   public void completePurchase_throws_exception_when_cart_is_nonexistent() {
     final RuntimeException expectedException = new RuntimeException();
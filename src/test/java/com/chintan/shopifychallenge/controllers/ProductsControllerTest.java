@@ -1,7 +1,16 @@
 package com.chintan.shopifychallenge.controllers;
 
+import com.chintan.shopifychallenge.catalog.EncodedCatalog;
+import com.chintan.shopifychallenge.catalog.EncodedCatalogCache;
+import com.chintan.shopifychallenge.catalog.ProductSort;
+import com.chintan.shopifychallenge.catalog.TitleMatch;
+import com.chintan.shopifychallenge.config.BinaryFormatsConfig;
+import com.chintan.shopifychallenge.models.Money;
 import com.chintan.shopifychallenge.models.Product;
+import com.chintan.shopifychallenge.models.controllers.ProductPage;
 import com.chintan.shopifychallenge.services.ProductService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.assertj.core.util.Lists;
 import org.junit.Before;
 import org.junit.Test;
@@ -9,7 +18,12 @@ import org.junit.runner.RunWith;
 import org.mockito.Answers;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner.StrictStubs;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 
+import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
 import java.util.Collections;
 import java.util.List;
@@ -17,75 +31,144 @@ import java.util.Optional;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 @RunWith(StrictStubs.class)
 public class ProductsControllerTest {
   private final List<Product> productsList = Lists.newArrayList(
-      new Product(1, "1", new BigDecimal(1.99), 2),
-      new Product(2, "2", new BigDecimal(1.99), 3));
+      new Product(1, "1", Money.of("1.99"), 2),
+      new Product(2, "2", Money.of("1.99"), 3));
 
   @Mock(answer = Answers.RETURNS_SMART_NULLS)
   private ProductService mockProductService;
+  @Mock(answer = Answers.RETURNS_DEFAULTS)
+  private EncodedCatalogCache mockEncodedCatalogCache;
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
 
   private ProductsController productsController;
+  private EncodedCatalog encodedCatalog;
 
   @Before
-  public void setup() {
-    productsController = new ProductsController(mockProductService);
+  public void setup() throws Exception {
+    productsController = new ProductsController(mockProductService, mockEncodedCatalogCache, objectMapper);
+    encodedCatalog = new EncodedCatalog("\"abc\"", "\"abc-gzip\"", objectMapper.writeValueAsBytes(productsList), new byte[]{1});
   }
 
   @Test
-  public void getAllProducts_happypath() {
-    when(mockProductService.getAllProducts()).thenReturn(productsList);
+  public void getAllProducts_happypath() throws Exception {
+    when(mockEncodedCatalogCache.getAllProducts()).thenReturn(encodedCatalog);
 
-    List<Product> actualProducts = productsController.getAllProducts();
+    final ResponseEntity<?> response = productsController.getAllProducts(null, null, null);
 
-    assertThat(actualProducts).containsExactlyInAnyOrderElementsOf(productsList);
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    assertThat(response.getHeaders().getETag()).isEqualTo(encodedCatalog.getEntityTag());
+    assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isNull();
+    assertThat(response.getHeaders().getVary()).containsExactly(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+    assertThat(readProducts((byte[]) response.getBody())).containsExactlyElementsOf(productsList);
   }
 
   @Test
-  public void getAllProducts_returns_empty_list_when_no_products_present() {
-    when(mockProductService.getAllProducts()).thenReturn(Collections.emptyList());
+  public void getAllProducts_sends_gzipped_body_when_client_accepts_it() {
+    when(mockEncodedCatalogCache.getAllProducts()).thenReturn(encodedCatalog);
+
+    final ResponseEntity<?> response = productsController.getAllProducts(null, null, "deflate, gzip;q=0.8");
 
-    assertThat(productsController.getAllProducts()).isEmpty();
+    assertThat(response.getHeaders().getETag()).isEqualTo(encodedCatalog.getGzipEntityTag());
+    assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+    assertThat(response.getBody()).isSameAs(encodedCatalog.getGzippedJson());
   }
 
   @Test
-  public void getInStockProducts_happypath() {
-    when(productsController.getInStockProducts(true)).thenReturn(productsList);
+  public void getAllProducts_does_not_gzip_when_client_refuses_it() {
+    when(mockEncodedCatalogCache.getAllProducts()).thenReturn(encodedCatalog);
 
-    List<Product> actualProducts = productsController.getInStockProducts(true);
+    final ResponseEntity<?> response = productsController.getAllProducts(null, null, "gzip;q=0");
 
-    verify(mockProductService, times(0)).getAllProducts();
-    assertThat(actualProducts).containsExactlyInAnyOrderElementsOf(productsList);
+    assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isNull();
+    assertThat(response.getBody()).isSameAs(encodedCatalog.getJson());
   }
 
   @Test
-  public void getInStockProducts_returns_all_products_if_we_pass_in_false() {
+  public void getAllProducts_returns_not_modified_when_client_has_current_catalog() {
+    when(mockEncodedCatalogCache.getAllProducts()).thenReturn(encodedCatalog);
+
+    final ResponseEntity<?> response =
+        productsController.getAllProducts(null, "\"stale\", W/" + encodedCatalog.getGzipEntityTag(), "gzip");
+
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+    assertThat(response.getHeaders().getETag()).isEqualTo(encodedCatalog.getGzipEntityTag());
+    assertThat(response.getBody()).isNull();
+  }
+
+  @Test
+  public void getAllProducts_returns_catalog_when_client_has_stale_catalog() {
+    when(mockEncodedCatalogCache.getAllProducts()).thenReturn(encodedCatalog);
+
+    assertThat(productsController.getAllProducts(null, "\"stale\"", null).getStatusCode()).isEqualTo(HttpStatus.OK);
+  }
+
+  @Test
+  public void getAllProducts_sends_products_to_converters_when_client_prefers_binary_format() {
     when(mockProductService.getAllProducts()).thenReturn(productsList);
 
-    List<Product> actualProducts = productsController.getInStockProducts(false);
+    final ResponseEntity<?> response =
+        productsController.getAllProducts("application/json;q=0.5, " + BinaryFormatsConfig.APPLICATION_CBOR_VALUE, null, null);
 
-    verify(mockProductService, times(0)).getAllInStockProducts();
-    assertThat(actualProducts).containsExactlyInAnyOrderElementsOf(productsList);
+    verify(mockEncodedCatalogCache, times(0)).getAllProducts();
+    assertThat(response.getHeaders().getVary()).containsExactly(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+    assertThat(response.getBody()).isEqualTo(productsList);
   }
 
   @Test
-  public void getInStockProducts_returns_empty_list_when_no_products_present() {
-    when(mockProductService.getAllInStockProducts()).thenReturn(Collections.emptyList());
+  public void getAllProducts_sends_json_when_client_accepts_anything() {
+    when(mockEncodedCatalogCache.getAllProducts()).thenReturn(encodedCatalog);
+
+    final ResponseEntity<?> response = productsController.getAllProducts("*/*", null, null);
 
     verify(mockProductService, times(0)).getAllProducts();
-    assertThat(productsController.getInStockProducts(true)).isEmpty();
+    assertThat(response.getBody()).isSameAs(encodedCatalog.getJson());
+  }
+
+  @Test
+  public void getInStockProducts_sends_products_to_converters_when_client_prefers_binary_format() {
+    when(mockProductService.getAllInStockProducts()).thenReturn(productsList);
+
+    final ResponseEntity<?> response =
+        productsController.getInStockProducts(true, BinaryFormatsConfig.APPLICATION_SMILE_VALUE, null, null);
+
+    assertThat(response.getHeaders().getVary()).containsExactly(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+    assertThat(response.getBody()).isEqualTo(productsList);
+  }
+
+  @Test
+  public void getInStockProducts_happypath() {
+    when(mockEncodedCatalogCache.getInStockProducts()).thenReturn(encodedCatalog);
+
+    final ResponseEntity<?> response = productsController.getInStockProducts(true, null, null, null);
+
+    verify(mockEncodedCatalogCache, times(0)).getAllProducts();
+    assertThat(response.getBody()).isSameAs(encodedCatalog.getJson());
+  }
+
+  @Test
+  public void getInStockProducts_returns_all_products_if_we_pass_in_false() {
+    when(mockEncodedCatalogCache.getAllProducts()).thenReturn(encodedCatalog);
+
+    final ResponseEntity<?> response = productsController.getInStockProducts(false, null, null, null);
+
+    verify(mockEncodedCatalogCache, times(0)).getInStockProducts();
+    assertThat(response.getBody()).isSameAs(encodedCatalog.getJson());
   }
 
   @Test
   public void getProductsByTitle_happypath() {
     final String expectedTitle = "Same Title";
-    when(mockProductService.getProductsByTitle(expectedTitle)).thenReturn(productsList);
+    when(mockProductService.getProductsByTitle(expectedTitle, TitleMatch.EXACT)).thenReturn(productsList);
 
-    List<Product> actualProducts = productsController.getProductsByTitle(expectedTitle);
+    List<Product> actualProducts = productsController.getProductsByTitle(expectedTitle, TitleMatch.EXACT);
 
     verify(mockProductService, times(0)).getAllProducts();
     assertThat(actualProducts).containsExactlyInAnyOrderElementsOf(productsList);
@@ -94,15 +177,127 @@ public class ProductsControllerTest {
 
   @Test
   public void getProductsByTitle_returns_no_products_if_title_does_not_match() {
-    when(mockProductService.getProductsByTitle(anyString())).thenReturn(Collections.emptyList());
+    when(mockProductService.getProductsByTitle(anyString(), any(TitleMatch.class))).thenReturn(Collections.emptyList());
 
     verify(mockProductService, times(0)).getAllProducts();
-    assertThat(productsController.getProductsByTitle("non-matching-title")).isEmpty();
+    assertThat(productsController.getProductsByTitle("non-matching-title", TitleMatch.EXACT)).isEmpty();
+  }
+
+  @Test
+  public void getProductsByTitle_passes_title_match_to_service() {
+    when(mockProductService.getProductsByTitle("same", TitleMatch.PREFIX)).thenReturn(productsList);
+
+    assertThat(productsController.getProductsByTitle("same", TitleMatch.PREFIX))
+        .containsExactlyInAnyOrderElementsOf(productsList);
   }
 
   @Test
   public void getProductsByTitle_throws_exception_when_passed_in_no_title() {
-    assertThatThrownBy(() -> productsController.getProductsByTitle(""))
+    assertThatThrownBy(() -> productsController.getProductsByTitle("", TitleMatch.EXACT))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining(ProductsController.EMPTY_PRODUCT_TITLE_ERROR_MESSAGE);
+  }
+
+  @Test
+  public void searchProducts_happypath() {
+    when(mockProductService.searchProducts("cable", 20, true)).thenReturn(productsList);
+
+    assertThat(productsController.searchProducts("cable", 20, true)).containsExactlyElementsOf(productsList);
+  }
+
+  @Test
+  public void searchProducts_throws_exception_when_passed_in_empty_query() {
+    assertThatThrownBy(() -> productsController.searchProducts(" ", 20, false))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining(ProductsController.EMPTY_SEARCH_QUERY_ERROR_MESSAGE);
+    assertThatThrownBy(() -> productsController.searchProducts(null, 20, false))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining(ProductsController.EMPTY_SEARCH_QUERY_ERROR_MESSAGE);
+  }
+
+  @Test
+  public void searchProducts_throws_exception_when_limit_is_invalid() {
+    assertThatThrownBy(() -> productsController.searchProducts("cable", 0, false))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining(ProductsController.INVALID_SEARCH_LIMIT_ERROR_MESSAGE);
+    assertThatThrownBy(() -> productsController.searchProducts("cable", ProductsController.MAX_PAGE_SIZE + 1, false))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining(ProductsController.INVALID_SEARCH_LIMIT_ERROR_MESSAGE);
+  }
+
+  @Test
+  public void getSortedProducts_returns_cursor_for_next_page_when_page_is_full() {
+    when(mockProductService.getSortedProducts(ProductSort.PRICE, Sort.Direction.ASC, Money.of("1.00"), Money.of("5.00"),
+        true, null, productsList.size())).thenReturn(productsList);
+
+    final ProductPage productPage = productsController.getSortedProducts(ProductSort.PRICE, Sort.Direction.ASC,
+        new BigDecimal("1.00"), new BigDecimal("5"), true, null, productsList.size());
+
+    assertThat(productPage.getProducts()).containsExactlyElementsOf(productsList);
+    assertThat(productPage.getNextAfterId()).isEqualTo(productsList.get(productsList.size() - 1).getProductId());
+  }
+
+  @Test
+  public void getSortedProducts_throws_exception_when_price_range_is_invalid() {
+    assertThatThrownBy(() -> productsController.getSortedProducts(ProductSort.PRICE, Sort.Direction.ASC,
+        new BigDecimal("5.00"), new BigDecimal("1.00"), false, null, 10))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining(ProductsController.INVALID_PRICE_RANGE_ERROR_MESSAGE);
+  }
+
+  @Test
+  public void getProductsPage_returns_cursor_for_next_page_when_page_is_full() {
+    when(mockProductService.getProductsPage(null, 2)).thenReturn(productsList);
+
+    final ProductPage actualPage = productsController.getProductsPage(null, 2, false, null, TitleMatch.EXACT);
+
+    assertThat(actualPage.getProducts()).containsExactlyElementsOf(productsList);
+    assertThat(actualPage.getNextAfterId()).isEqualTo(2);
+  }
+
+  @Test
+  public void getProductsPage_returns_no_cursor_on_last_page() {
+    when(mockProductService.getInStockProductsPage(2, 5)).thenReturn(productsList);
+
+    final ProductPage actualPage = productsController.getProductsPage(2, 5, true, null, TitleMatch.EXACT);
+
+    assertThat(actualPage.getProducts()).containsExactlyElementsOf(productsList);
+    assertThat(actualPage.getNextAfterId()).isNull();
+  }
+
+  @Test
+  public void getProductsPage_uses_title_over_in_stock_filter() {
+    when(mockProductService.getProductsByTitlePage("1", TitleMatch.PREFIX, null, 5)).thenReturn(productsList);
+
+    assertThat(productsController.getProductsPage(null, 5, true, "1", TitleMatch.PREFIX).getProducts())
+        .containsExactlyElementsOf(productsList);
+    verify(mockProductService, times(0)).getInStockProductsPage(any(), anyInt());
+  }
+
+  @Test
+  public void getProductsPage_throws_exception_when_page_size_is_invalid() {
+    assertThatThrownBy(() -> productsController.getProductsPage(null, ProductsController.MAX_PAGE_SIZE + 1, false, null, TitleMatch.EXACT))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining(ProductsController.INVALID_PAGE_SIZE_ERROR_MESSAGE);
+    assertThatThrownBy(() -> productsController.getProductsPage(null, 0, false, null, TitleMatch.EXACT))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining(ProductsController.INVALID_PAGE_SIZE_ERROR_MESSAGE);
+  }
+
+  @Test
+  public void streamProducts_writes_every_page_as_one_json_array() throws Exception {
+    when(mockProductService.getProductsPage(null, 500)).thenReturn(productsList);
+
+    final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    productsController.streamProducts(false, null, TitleMatch.EXACT).writeTo(outputStream);
+
+    final List<Product> actualProducts = objectMapper.readValue(outputStream.toByteArray(), new TypeReference<List<Product>>() {});
+    assertThat(actualProducts).containsExactlyElementsOf(productsList);
+  }
+
+  @Test
+  public void streamProducts_throws_exception_when_passed_in_empty_title() {
+    assertThatThrownBy(() -> productsController.streamProducts(false, "", TitleMatch.EXACT))
         .isInstanceOf(IllegalArgumentException.class)
         .hasMessageContaining(ProductsController.EMPTY_PRODUCT_TITLE_ERROR_MESSAGE);
   }
@@ -110,7 +305,7 @@ public class ProductsControllerTest {
   @Test
   public void getSingleProduct_happypath() {
     final Integer expectedProductId = 1;
-    final Product singleProduct = new Product(expectedProductId, "1", new BigDecimal(1.99), 2);
+    final Product singleProduct = new Product(expectedProductId, "1", Money.of("1.99"), 2);
 
     when(mockProductService.getProductById(expectedProductId)).thenReturn(Optional.of(singleProduct));
 
@@ -126,4 +321,16 @@ public class ProductsControllerTest {
         .isInstanceOf(IllegalArgumentException.class)
         .hasMessageContaining(ProductsController.PRODUCT_DOES_NOT_EXIST_ERROR_MESSAGE);
   }
-}
\ No newline at end of file
+
+  @Test
+  public void restockProduct_happypath() {
+    final Product restockedProduct = new Product(1, "1", Money.of("1.99"), 7);
+    when(mockProductService.restockProduct(1, 5)).thenReturn(restockedProduct);
+
+    assertThat(productsController.restockProduct(1, 5)).isEqualTo(restockedProduct);
+  }
+
+  private List<Product> readProducts(final byte[] json) throws Exception {
+    return objectMapper.readValue(json, new TypeReference<List<Product>>() {});
+  }
+}
@@ -0,0 +1,57 @@
+package com.chintan.shopifychallenge.ingest;
+
+import com.chintan.shopifychallenge.models.Money;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+public class CsvProductRowReaderTest {
+  @Test
+  public void next_happypath() throws Exception {
+    final CsvProductRowReader reader = reader("inventoryCount,title,price,productId\n" +
+        "5,USB Cable,3.99,\n" +
+        "\n" +
+        "0,\"Cable, \"\"braided\"\"\",10.50,7\n");
+
+    assertThat(reader.next()).isEqualTo(new ProductRow(null, "USB Cable", Money.of("3.99"), 5));
+    assertThat(reader.lineNumber()).isEqualTo(2);
+    assertThat(reader.next()).isEqualTo(new ProductRow(7, "Cable, \"braided\"", Money.of("10.50"), 0));
+    assertThat(reader.lineNumber()).isEqualTo(4);
+    assertThat(reader.next()).isNull();
+  }
+
+  @Test
+  public void next_reads_missing_values_as_null() throws Exception {
+    final CsvProductRowReader reader = reader("title,price,inventoryCount\nUSB Cable\n");
+
+    assertThat(reader.next()).isEqualTo(new ProductRow(null, "USB Cable", null, null));
+  }
+
+  @Test
+  public void next_throws_exception_for_invalid_row_and_carries_on() throws Exception {
+    final CsvProductRowReader reader = reader("title,price,inventoryCount\nUSB Cable,3.99,lots\nPepsi,2.50,5\n");
+
+    assertThatThrownBy(reader::next).isInstanceOf(IllegalArgumentException.class);
+    assertThat(reader.next()).isEqualTo(new ProductRow(null, "Pepsi", Money.of("2.50"), 5));
+  }
+
+  @Test
+  public void next_throws_exception_when_header_is_missing_columns() {
+    assertThatThrownBy(() -> reader("title,inventoryCount\nUSB Cable,5\n").next())
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining(CsvProductRowReader.MISSING_HEADER_ERROR_MESSAGE);
+  }
+
+  @Test
+  public void next_returns_null_for_empty_body() throws Exception {
+    assertThat(reader("").next()).isNull();
+  }
+
+  private static CsvProductRowReader reader(final String body) {
+    return new CsvProductRowReader(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+  }
+}
@@ -0,0 +1,41 @@
+package com.chintan.shopifychallenge.ingest;
+
+import com.chintan.shopifychallenge.models.Money;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+public class NdjsonProductRowReaderTest {
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Test
+  public void next_happypath() throws Exception {
+    final NdjsonProductRowReader reader = reader(
+        "{\"title\":\"USB Cable\",\"price\":3.99,\"inventoryCount\":5}\n" +
+        "\n" +
+        "{\"productId\":7,\"title\":\"Pepsi\",\"price\":\"2.50\",\"inventoryCount\":0}");
+
+    assertThat(reader.next()).isEqualTo(new ProductRow(null, "USB Cable", Money.of("3.99"), 5));
+    assertThat(reader.lineNumber()).isEqualTo(1);
+    assertThat(reader.next()).isEqualTo(new ProductRow(7, "Pepsi", Money.of("2.50"), 0));
+    assertThat(reader.lineNumber()).isEqualTo(3);
+    assertThat(reader.next()).isNull();
+  }
+
+  @Test
+  public void next_throws_exception_for_invalid_line_and_carries_on() throws Exception {
+    final NdjsonProductRowReader reader = reader("{\"title\":\"USB\n{\"title\":\"Pepsi\",\"price\":2.50,\"inventoryCount\":5}\n");
+
+    assertThatThrownBy(reader::next).isInstanceOf(IllegalArgumentException.class);
+    assertThat(reader.next()).isEqualTo(new ProductRow(null, "Pepsi", Money.of("2.50"), 5));
+  }
+
+  private NdjsonProductRowReader reader(final String body) {
+    return new NdjsonProductRowReader(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), objectMapper);
+  }
+}
@@ -0,0 +1,95 @@
+package com.chintan.shopifychallenge.ingest;
+
+import com.chintan.shopifychallenge.catalog.TitleMatch;
+import com.chintan.shopifychallenge.models.Money;
+import com.chintan.shopifychallenge.models.Product;
+import com.chintan.shopifychallenge.repository.ProductRepository;
+import com.chintan.shopifychallenge.services.CartService;
+import com.chintan.shopifychallenge.services.ProductService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+ * Runs against the embedded H2 database to check that imported rows are added and updated in batches and that the
+ * product reads see them once each batch has been committed.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:ingest;DB_CLOSE_ON_EXIT=FALSE",
+    "products.ingest.batch-size=2",
+    "catalog.snapshot.max-staleness=0"
+})
+public class ProductIngestIntegrationTest {
+  @Autowired
+  private ProductIngester productIngester;
+  @Autowired
+  private ProductRepository productRepository;
+  @Autowired
+  private ProductService productService;
+  @Autowired
+  private CartService cartService;
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Test
+  public void ingest_adds_and_updates_products() throws Exception {
+    final Product existingProduct = productRepository.save(new Product(null, "Old Title", Money.of("1.00"), 1));
+
+    final String body = "title,price,inventoryCount,productId\n" +
+        "Imported One,2.50,10,\n" +
+        "Imported Two,3.50,0,\n" +
+        "New Title,1.25,7," + existingProduct.getProductId() + "\n" +
+        "Missing,1.00,1,999999\n";
+    final IngestReport report = productIngester.ingest(
+        new CsvProductRowReader(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8))));
+
+    assertThat(report.getRowsWritten()).isEqualTo(3);
+    assertThat(report.getErrors()).containsExactly(new RowError(5, ProductIngestWriter.PRODUCT_DOES_NOT_EXIST_ERROR_MESSAGE));
+
+    assertThat(productRepository.findById(existingProduct.getProductId()).get())
+        .isEqualTo(new Product(existingProduct.getProductId(), "New Title", Money.of("1.25"), 7));
+    assertThat(productService.getProductsByTitle("Imported", TitleMatch.PREFIX))
+        .extracting(Product::getInventoryCount)
+        .containsExactly(10, 0);
+    assertThat(productService.getProductsByTitle("Old Title")).isEmpty();
+    assertThat(productService.getProductById(existingProduct.getProductId()).get().getTitle()).isEqualTo("New Title");
+  }
+
+  @Test
+  public void ingest_changes_price_of_product_in_a_cart_without_changing_the_cart() throws Exception {
+    final Product product = productRepository.save(new Product(null, "In A Cart", Money.of("1.00"), 5));
+    final Integer cartId = cartService.createNewCart(Collections.singletonList(product)).getCartId();
+
+    final String body = "title,price,inventoryCount,productId\n" + "In A Cart,2.00,5," + product.getProductId() + "\n";
+    final IngestReport report = productIngester.ingest(
+        new CsvProductRowReader(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8))));
+
+    assertThat(report.getErrors()).isEmpty();
+    assertThat(productRepository.findById(product.getProductId()).get().getPrice()).isEqualTo(Money.of("2.00"));
+    // The cart keeps the price the product was added at, so removing it takes the cart back to nothing
+    assertThat(cartService.viewCart(cartId).get().getTotalCost()).isEqualTo(Money.of("1.00"));
+    assertThat(cartService.removeProductFromCart(cartId, product.getProductId()).getTotalCost()).isEqualTo(Money.ZERO);
+  }
+
+  @Test
+  public void ingest_reads_ndjson() throws Exception {
+    final String body = "{\"title\":\"Ndjson Product\",\"price\":4.99,\"inventoryCount\":3}\n";
+    final IngestReport report = productIngester.ingest(
+        new NdjsonProductRowReader(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), objectMapper));
+
+    assertThat(report.getRowsWritten()).isEqualTo(1);
+    assertThat(productService.getProductsByTitle("Ndjson Product")).extracting(Product::getPrice).containsExactly(Money.of("4.99"));
+  }
+}
@@ -0,0 +1,122 @@
+package com.chintan.shopifychallenge.ingest;
+
+import com.chintan.shopifychallenge.config.ProductIngestProperties;
+import com.chintan.shopifychallenge.models.Money;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Answers;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner.StrictStubs;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@RunWith(StrictStubs.class)
+public class ProductIngesterTest {
+  @Mock(answer = Answers.RETURNS_DEFAULTS)
+  private ProductIngestWriter mockProductIngestWriter;
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private ProductIngester productIngester;
+
+  @Before
+  public void setup() {
+    final ProductIngestProperties productIngestProperties = new ProductIngestProperties();
+    productIngestProperties.setBatchSize(2);
+    productIngestProperties.setMaxPendingBatches(1);
+    productIngestProperties.setMaxReportedErrors(2);
+
+    productIngester = new ProductIngester(mockProductIngestWriter, productIngestProperties, meterRegistry);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    productIngester.stop();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void ingest_happypath() throws Exception {
+    when(mockProductIngestWriter.write(anyList())).thenReturn(Collections.emptyList());
+
+    final IngestReport report = productIngester.ingest(reader(row(1), row(2), row(3), row(4), row(5)));
+
+    final ArgumentCaptor<List<ProductRow>> batches = ArgumentCaptor.forClass(List.class);
+    verify(mockProductIngestWriter, times(3)).write(batches.capture());
+    assertThat(batches.getAllValues()).extracting(List::size).containsExactly(2, 2, 1);
+    assertThat(batches.getAllValues().get(2).get(0).getLineNumber()).isEqualTo(5);
+
+    assertThat(report.getRowsWritten()).isEqualTo(5);
+    assertThat(report.getRowsFailed()).isZero();
+    assertThat(report.getErrors()).isEmpty();
+    assertThat(meterRegistry.get(ProductIngester.ROWS_METER_NAME).tag("result", "written").counter().count()).isEqualTo(5);
+  }
+
+  @Test
+  public void ingest_reports_invalid_rows_and_writes_the_rest() throws Exception {
+    when(mockProductIngestWriter.write(anyList())).thenReturn(Collections.emptyList());
+
+    final IngestReport report = productIngester.ingest(reader(row(1), "not json", "{\"title\":\"no price\",\"inventoryCount\":1}", row(4)));
+
+    verify(mockProductIngestWriter, times(1)).write(anyList());
+    assertThat(report.getRowsWritten()).isEqualTo(2);
+    assertThat(report.getRowsFailed()).isEqualTo(2);
+    assertThat(report.getErrors()).extracting(RowError::getLineNumber).containsExactly(2L, 3L);
+    assertThat(report.getErrors().get(1).getMessage()).isEqualTo(ProductRow.INVALID_PRICE_ERROR_MESSAGE);
+  }
+
+  @Test
+  public void ingest_reports_rows_the_writer_rejects() throws Exception {
+    when(mockProductIngestWriter.write(anyList()))
+        .thenReturn(Collections.singletonList(new RowError(2, ProductIngestWriter.PRODUCT_DOES_NOT_EXIST_ERROR_MESSAGE)));
+
+    final IngestReport report = productIngester.ingest(reader(row(1), row(2)));
+
+    assertThat(report.getRowsWritten()).isEqualTo(1);
+    assertThat(report.getErrors()).containsExactly(new RowError(2, ProductIngestWriter.PRODUCT_DOES_NOT_EXIST_ERROR_MESSAGE));
+  }
+
+  @Test
+  public void ingest_fails_every_row_of_a_batch_that_cannot_be_written_and_carries_on() throws Exception {
+    when(mockProductIngestWriter.write(anyList()))
+        .thenThrow(new IllegalStateException("database is down"))
+        .thenReturn(Collections.emptyList());
+
+    final IngestReport report = productIngester.ingest(reader(row(1), row(2), row(3)));
+
+    assertThat(report.getRowsWritten()).isEqualTo(1);
+    assertThat(report.getRowsFailed()).isEqualTo(2);
+    assertThat(report.getErrors()).extracting(RowError::getLineNumber).containsExactly(1L, 2L);
+    assertThat(report.getErrors().get(0).getMessage()).contains("database is down");
+  }
+
+  @Test
+  public void ingest_only_lists_the_first_errors() throws Exception {
+    final IngestReport report = productIngester.ingest(reader("a", "b", "c"));
+
+    verifyZeroInteractions(mockProductIngestWriter);
+    assertThat(report.getRowsFailed()).isEqualTo(3);
+    assertThat(report.getErrors()).extracting(RowError::getLineNumber).containsExactly(1L, 2L);
+  }
+
+  private static String row(final int number) {
+    return "{\"title\":\"product" + number + "\",\"price\":" + Money.ofCents(number * 100) + ",\"inventoryCount\":" + number + "}";
+  }
+
+  private static ProductRowReader reader(final String... lines) {
+    final byte[] body = String.join("\n", lines).getBytes(StandardCharsets.UTF_8);
+    return new NdjsonProductRowReader(new ByteArrayInputStream(body), new ObjectMapper());
+  }
+}
@@ -0,0 +1,119 @@
+package com.chintan.shopifychallenge.inventory;
+
+import com.chintan.shopifychallenge.config.HotInventoryProperties;
+import com.chintan.shopifychallenge.models.Money;
+import com.chintan.shopifychallenge.models.Product;
+import com.chintan.shopifychallenge.repository.ProductRepository;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner.StrictStubs;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@RunWith(StrictStubs.class)
+public class HotInventoryTest {
+  @Mock(answer = Answers.RETURNS_DEFAULTS)
+  private ProductRepository mockProductRepository;
+  @Mock(answer = Answers.RETURNS_DEFAULTS)
+  private InventorySaleFlusher mockInventorySaleFlusher;
+
+  private HotInventory hotInventory;
+
+  @Before
+  public void setup() {
+    final HotInventoryProperties hotInventoryProperties = new HotInventoryProperties();
+    hotInventoryProperties.setProductIds(Sets.newHashSet(1, 2));
+    hotInventoryProperties.setStripes(4);
+
+    when(mockProductRepository.findAllById(Sets.newHashSet(1, 2))).thenReturn(Lists.newArrayList(
+        new Product(1, "1", Money.of("1.00"), 3), new Product(2, "2", Money.of("2.00"), 1)));
+
+    hotInventory = new HotInventory(hotInventoryProperties, mockProductRepository, mockInventorySaleFlusher);
+    hotInventory.loadInventory();
+    // Stands in for the transaction a purchase runs in
+    TransactionSynchronizationManager.initSynchronization();
+  }
+
+  @After
+  public void teardown() throws InterruptedException {
+    TransactionSynchronizationManager.clearSynchronization();
+    hotInventory.stop();
+  }
+
+  @Test
+  public void loadInventory_applies_outstanding_sales_before_loading_stock() {
+    verify(mockInventorySaleFlusher, atLeastOnce()).flushSales();
+    assertThat(hotInventory.isHot(1)).isTrue();
+    assertThat(hotInventory.isHot(3)).isFalse();
+    assertThat(takeRemaining(1)).isEqualTo(3);
+  }
+
+  @Test
+  public void takeAll_takes_nothing_when_any_product_is_sold_out() {
+    assertThat(hotInventory.takeAll(Lists.newArrayList(1, 2), 10)).isEmpty();
+    assertThat(hotInventory.takeAll(Lists.newArrayList(1, 2), 11)).isEqualTo(Optional.of(2));
+
+    assertThat(takeRemaining(1)).isEqualTo(2);
+    assertThat(takeRemaining(2)).isZero();
+  }
+
+  @Test
+  public void takeAll_puts_units_back_when_transaction_rolls_back() {
+    hotInventory.takeAll(Lists.newArrayList(1, 2), 10);
+
+    TransactionSynchronizationManager.getSynchronizations()
+        .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+    assertThat(takeRemaining(1)).isEqualTo(3);
+    assertThat(takeRemaining(2)).isEqualTo(1);
+  }
+
+  @Test
+  public void takeAll_keeps_units_taken_when_transaction_commits() {
+    hotInventory.takeAll(Lists.newArrayList(1), 10);
+
+    TransactionSynchronizationManager.getSynchronizations()
+        .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+    assertThat(takeRemaining(1)).isEqualTo(2);
+  }
+
+  @Test
+  public void takeAll_throws_exception_outside_of_transaction() {
+    TransactionSynchronizationManager.clearSynchronization();
+
+    assertThatThrownBy(() -> hotInventory.takeAll(Lists.newArrayList(1), 10)).isInstanceOf(IllegalStateException.class);
+
+    TransactionSynchronizationManager.initSynchronization();
+  }
+
+  @Test
+  public void restock_adds_units_once_transaction_commits() {
+    hotInventory.restock(1, 5);
+    assertThat(takeRemaining(1)).isEqualTo(3);
+
+    TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+    assertThat(takeRemaining(1)).isEqualTo(5);
+  }
+
+  // Takes every unit of the product that is left, which is how many units are left
+  private int takeRemaining(final Integer productId) {
+    int taken = 0;
+    while (!hotInventory.takeAll(Collections.singletonList(productId), 99).isPresent()) taken++;
+
+    return taken;
+  }
+}
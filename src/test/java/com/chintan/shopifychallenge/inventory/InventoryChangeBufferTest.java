@@ -0,0 +1,105 @@
+package com.chintan.shopifychallenge.inventory;
+
+import com.chintan.shopifychallenge.models.Money;
+import com.chintan.shopifychallenge.models.Product;
+import com.google.common.collect.Sets;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
+
+public class InventoryChangeBufferTest {
+  private InventoryChangeBuffer inventoryChangeBuffer;
+
+  @Before
+  public void setup() {
+    inventoryChangeBuffer = new InventoryChangeBuffer(Collections.emptySet(), 2);
+    // Every new subscriber is told to read the inventory first
+    assertThat(takeSent().isResync()).isTrue();
+  }
+
+  @Test
+  public void take_happypath() {
+    inventoryChangeBuffer.add(change(1, 5, 6));
+    inventoryChangeBuffer.add(change(2, 0, 1));
+
+    final InventoryChangeBuffer.Batch batch = takeSent();
+
+    assertThat(batch.isResync()).isFalse();
+    assertThat(batch.getChanges()).containsExactly(
+        new InventoryChange(1, 5, true, false), new InventoryChange(2, 0, false, true));
+  }
+
+  @Test
+  public void take_returns_nothing_when_no_changes_are_waiting() {
+    assertThat(inventoryChangeBuffer.take(false)).isEmpty();
+    assertThat(inventoryChangeBuffer.take(true).get().getChanges()).isEmpty();
+  }
+
+  @Test
+  public void add_keeps_only_latest_inventory_of_each_product() {
+    inventoryChangeBuffer.add(change(1, 5, 6));
+    inventoryChangeBuffer.add(change(1, 4, 5));
+    inventoryChangeBuffer.add(change(1, 3, 4));
+
+    assertThat(takeSent().getChanges()).containsExactly(new InventoryChange(1, 3, true, false));
+  }
+
+  @Test
+  public void add_keeps_in_stock_transition_of_conflated_changes() {
+    inventoryChangeBuffer.add(change(1, 0, 1));
+    inventoryChangeBuffer.add(change(1, 0, 0));
+    inventoryChangeBuffer.add(change(2, 1, 0));
+    inventoryChangeBuffer.add(change(2, 0, 1));
+
+    // Product 1 sold out along the way, product 2 came back in stock and sold out again
+    assertThat(takeSent().getChanges()).containsExactly(
+        new InventoryChange(1, 0, false, true), new InventoryChange(2, 0, false, false));
+  }
+
+  @Test
+  public void add_drops_changes_and_asks_for_resync_when_buffer_is_full() {
+    inventoryChangeBuffer.add(change(1, 5, 6));
+    inventoryChangeBuffer.add(change(2, 5, 6));
+    inventoryChangeBuffer.add(change(3, 5, 6));
+    inventoryChangeBuffer.add(change(4, 5, 6));
+
+    final InventoryChangeBuffer.Batch batch = takeSent();
+
+    assertThat(batch.isResync()).isTrue();
+    assertThat(batch.getChanges()).containsExactly(new InventoryChange(4, 5, true, false));
+  }
+
+  @Test
+  public void add_ignores_products_that_were_not_subscribed_to() {
+    inventoryChangeBuffer = new InventoryChangeBuffer(Sets.newHashSet(2), 2);
+    inventoryChangeBuffer.add(change(1, 5, 6));
+    inventoryChangeBuffer.add(change(2, 5, 6));
+
+    assertThat(takeSent().getChanges()).containsExactly(new InventoryChange(2, 5, true, false));
+  }
+
+  @Test
+  public void take_returns_nothing_while_previous_batch_is_being_sent() {
+    inventoryChangeBuffer.add(change(1, 5, 6));
+    assertThat(inventoryChangeBuffer.take(false)).isPresent();
+
+    inventoryChangeBuffer.add(change(1, 4, 5));
+    assertThat(inventoryChangeBuffer.take(true)).isEmpty();
+
+    inventoryChangeBuffer.sent();
+    assertThat(inventoryChangeBuffer.take(false).get().getChanges()).containsExactly(new InventoryChange(1, 4, true, false));
+  }
+
+  private InventoryChangeBuffer.Batch takeSent() {
+    final InventoryChangeBuffer.Batch batch = inventoryChangeBuffer.take(false).get();
+    inventoryChangeBuffer.sent();
+    return batch;
+  }
+
+  private static InventoryChange change(final int productId, final int inventoryCount, final int previousInventoryCount) {
+    return InventoryChange.of(new Product(productId, "title", Money.of("1.00"), inventoryCount), previousInventoryCount > 0);
+  }
+}
@@ -0,0 +1,99 @@
+package com.chintan.shopifychallenge.inventory;
+
+import com.chintan.shopifychallenge.config.InventoryFeedProperties;
+import com.chintan.shopifychallenge.models.Money;
+import com.chintan.shopifychallenge.models.Product;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Answers;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner.StrictStubs;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@RunWith(StrictStubs.class)
+public class InventoryFeedTest {
+  @Mock(answer = Answers.RETURNS_DEFAULTS)
+  private SseEmitter mockEmitter;
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private InventoryFeed inventoryFeed;
+
+  @Before
+  public void setup() {
+    final InventoryFeedProperties inventoryFeedProperties = new InventoryFeedProperties();
+    inventoryFeedProperties.setMaxSubscribers(1);
+    inventoryFeed = new InventoryFeed(inventoryFeedProperties, meterRegistry);
+  }
+
+  @After
+  public void teardown() throws InterruptedException {
+    inventoryFeed.stop();
+  }
+
+  @Test
+  public void sendPendingChanges_happypath() throws IOException {
+    inventoryFeed.subscribe(mockEmitter, Collections.emptySet());
+    inventoryFeed.publish(Collections.singletonList(
+        InventoryChange.of(new Product(1, "1", Money.of("1.00"), 0), true)));
+
+    inventoryFeed.sendPendingChanges();
+
+    // A new subscriber is told to read the inventory before it is sent the changes
+    assertThat(sentData(2)).containsExactly("", Collections.singletonList(new InventoryChange(1, 0, false, true)));
+  }
+
+  @Test
+  public void sendPendingChanges_drops_subscriber_that_went_away() throws Exception {
+    doThrow(new IOException("Broken pipe")).when(mockEmitter).send(any(SseEmitter.SseEventBuilder.class));
+    inventoryFeed.subscribe(mockEmitter, Collections.emptySet());
+
+    inventoryFeed.sendPendingChanges();
+
+    final long deadline = System.currentTimeMillis() + 1000;
+    while (subscriberCount() > 0 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+    assertThat(subscriberCount()).isZero();
+  }
+
+  @Test
+  public void subscribe_throws_exception_when_there_are_too_many_subscribers() {
+    inventoryFeed.subscribe(mockEmitter, Collections.emptySet());
+
+    assertThatThrownBy(() -> inventoryFeed.subscribe(Collections.emptySet()))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining(InventoryFeed.TOO_MANY_SUBSCRIBERS_EXCEPTION_MESSAGE);
+  }
+
+  private double subscriberCount() {
+    return meterRegistry.get(InventoryFeed.SUBSCRIBERS_METER_NAME).gauge().value();
+  }
+
+  // The data of every event that was sent, in the order the events were sent
+  private List<Object> sentData(final int events) throws IOException {
+    final ArgumentCaptor<SseEmitter.SseEventBuilder> sentEvents = ArgumentCaptor.forClass(SseEmitter.SseEventBuilder.class);
+    verify(mockEmitter, timeout(1000).times(events)).send(sentEvents.capture());
+
+    return sentEvents.getAllValues().stream()
+        .flatMap(event -> event.build().stream())
+        // The "event:" and "data:" lines around the data are sent as plain text
+        .filter(data -> Objects.isNull(data.getMediaType()) || !data.getMediaType().isCompatibleWith(MediaType.TEXT_PLAIN))
+        .map(ResponseBodyEmitter.DataWithMediaType::getData)
+        .collect(Collectors.toList());
+  }
+}
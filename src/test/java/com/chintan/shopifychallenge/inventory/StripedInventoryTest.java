@@ -0,0 +1,78 @@
+package com.chintan.shopifychallenge.inventory;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+
+public class StripedInventoryTest {
+  @Test
+  public void add_spreads_quantity_across_stripes() {
+    final StripedInventory stripedInventory = new StripedInventory(4, 10);
+
+    assertThat(stripedInventory.available()).isEqualTo(10);
+  }
+
+  @Test
+  public void tryTake_borrows_from_other_stripes_when_own_stripe_is_empty() {
+    // With 2 stripes and 2 units, each stripe holds one unit
+    final StripedInventory stripedInventory = new StripedInventory(2, 2);
+
+    assertThat(stripedInventory.tryTake(0)).isTrue();
+    assertThat(stripedInventory.tryTake(0)).isTrue();
+    assertThat(stripedInventory.tryTake(1)).isFalse();
+    assertThat(stripedInventory.available()).isZero();
+  }
+
+  @Test
+  public void release_puts_unit_back() {
+    final StripedInventory stripedInventory = new StripedInventory(3, 1);
+
+    assertThat(stripedInventory.tryTake(-7)).isTrue();
+    stripedInventory.release(-7);
+
+    assertThat(stripedInventory.available()).isEqualTo(1);
+    assertThat(stripedInventory.tryTake(5)).isTrue();
+  }
+
+  @Test
+  public void add_throws_exception_when_quantity_is_negative() {
+    assertThatThrownBy(() -> new StripedInventory(2, -1)).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void tryTake_never_hands_out_more_than_available_when_concurrent() throws Exception {
+    final int threads = 16;
+    final int takesPerThread = 10_000;
+    final int initialQuantity = 50_000;
+    final StripedInventory stripedInventory = new StripedInventory(8, initialQuantity);
+
+    final ExecutorService executorService = Executors.newFixedThreadPool(threads);
+    final CountDownLatch startingLine = new CountDownLatch(1);
+    final AtomicInteger successfulTakes = new AtomicInteger();
+
+    final List<Future<?>> takers = new ArrayList<>();
+    for (int i = 0; i < threads; i++) {
+      final int stripeHint = i;
+      takers.add(executorService.submit(() -> {
+        startingLine.await();
+        for (int j = 0; j < takesPerThread; j++) {
+          if (stripedInventory.tryTake(stripeHint)) successfulTakes.incrementAndGet();
+        }
+        return null;
+      }));
+    }
+
+    startingLine.countDown();
+    for (final Future<?> taker : takers) taker.get(1, TimeUnit.MINUTES);
+    executorService.shutdown();
+
+    assertThat(successfulTakes.get()).isEqualTo(initialQuantity);
+    assertThat(stripedInventory.available()).isZero();
+  }
+}
@@ -0,0 +1,74 @@
+package com.chintan.shopifychallenge.metrics;
+
+import com.chintan.shopifychallenge.cart.ActiveCartStore;
+import com.chintan.shopifychallenge.checkout.CheckoutWriter;
+import com.chintan.shopifychallenge.reservation.ProductReservations;
+import com.chintan.shopifychallenge.services.CartService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner.StrictStubs;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.util.Optional;
+
+import static com.chintan.shopifychallenge.metrics.MethodTimingAspect.SERVICE_CALLS_METER_NAME;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.doThrow;
+
+@RunWith(StrictStubs.class)
+public class MethodTimingAspectTest {
+  @Mock(answer = Answers.RETURNS_DEFAULTS)
+  private ActiveCartStore mockActiveCartStore;
+  @Mock(answer = Answers.RETURNS_DEFAULTS)
+  private CheckoutWriter mockCheckoutWriter;
+  @Mock(answer = Answers.RETURNS_DEFAULTS)
+  private ProductReservations mockProductReservations;
+
+  private MeterRegistry meterRegistry;
+  private CartService timedCartService;
+
+  @Before
+  public void setup() {
+    meterRegistry = new SimpleMeterRegistry();
+
+    // Proxies the service the same way Spring does, so the calls go through the aspect
+    final AspectJProxyFactory proxyFactory = new AspectJProxyFactory(
+        new CartService(mockActiveCartStore, mockCheckoutWriter, Optional.empty(), mockProductReservations));
+    proxyFactory.setProxyTargetClass(true);
+    proxyFactory.addAspect(new MethodTimingAspect(meterRegistry));
+    timedCartService = proxyFactory.getProxy();
+  }
+
+  @Test
+  public void service_calls_are_recorded_in_one_timer_per_method() {
+    timedCartService.viewCart(1);
+    timedCartService.viewCart(2);
+
+    assertThat(meterRegistry.get(SERVICE_CALLS_METER_NAME).tag("method", "viewCart").timers()).hasSize(1);
+    assertThat(meterRegistry.get(SERVICE_CALLS_METER_NAME)
+        .tag("class", "CartService")
+        .tag("method", "viewCart")
+        .tag("exception", "none")
+        .timer()
+        .count()).isEqualTo(2);
+  }
+
+  @Test
+  public void service_calls_that_throw_are_recorded_with_the_exception() {
+    doThrow(new IllegalStateException()).when(mockCheckoutWriter).completeCartPurchase(1);
+
+    assertThatThrownBy(() -> timedCartService.completeCartPurchase(1)).isInstanceOf(IllegalStateException.class);
+    assertThat(meterRegistry.get(SERVICE_CALLS_METER_NAME)
+        .tag("class", "CartService")
+        .tag("method", "completeCartPurchase")
+        .tag("exception", "IllegalStateException")
+        .timer()
+        .count()).isEqualTo(1);
+  }
+}
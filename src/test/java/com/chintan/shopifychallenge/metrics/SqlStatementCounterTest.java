@@ -0,0 +1,47 @@
+package com.chintan.shopifychallenge.metrics;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+public class SqlStatementCounterTest {
+  private SqlStatementCounter sqlStatementCounter;
+
+  @Before
+  public void setup() {
+    sqlStatementCounter = new SqlStatementCounter();
+  }
+
+  @Test
+  public void stop_returns_statements_inspected_since_start() {
+    sqlStatementCounter.inspect("select 1");
+    sqlStatementCounter.start();
+    sqlStatementCounter.inspect("select 2");
+    sqlStatementCounter.inspect("select 3");
+
+    assertThat(sqlStatementCounter.stop()).isEqualTo(2);
+  }
+
+  @Test
+  public void stop_returns_zero_when_not_started() {
+    sqlStatementCounter.inspect("select 1");
+
+    assertThat(sqlStatementCounter.stop()).isZero();
+  }
+
+  @Test
+  public void inspect_does_not_count_statements_from_other_threads() throws Exception {
+    sqlStatementCounter.start();
+    CompletableFuture.runAsync(() -> sqlStatementCounter.inspect("select 1")).get();
+
+    assertThat(sqlStatementCounter.stop()).isZero();
+  }
+
+  @Test
+  public void inspect_returns_statement_unchanged() {
+    assertThat(sqlStatementCounter.inspect("select 1")).isEqualTo("select 1");
+  }
+}
@@ -0,0 +1,120 @@
+package com.chintan.shopifychallenge.models;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/*
+ * Property style tests: every check is repeated over randomly generated amounts (with a fixed seed so failures can be
+ * reproduced) and compared against what the previous BigDecimal based implementation would have produced.
+ */
+public class MoneyTest {
+  private static final int TRIALS = 1_000;
+  private static final long MAX_PRICE_IN_CENTS = 10_000_000;
+
+  private final Random random = new Random(20190114L);
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Test
+  public void sums_match_big_decimal_sums() {
+    for (int trial = 0; trial < TRIALS; trial++) {
+      BigDecimal expectedTotal = BigDecimal.ZERO;
+      Money actualTotal = Money.ZERO;
+
+      for (int i = 0, count = random.nextInt(200); i < count; i++) {
+        final BigDecimal price = randomPrice();
+        expectedTotal = expectedTotal.add(price);
+        actualTotal = actualTotal.plus(Money.of(price));
+      }
+
+      assertThat(actualTotal.toBigDecimal()).isEqualByComparingTo(expectedTotal);
+    }
+  }
+
+  @Test
+  public void cart_totals_match_big_decimal_totals_when_adding_and_removing_products() {
+    for (int trial = 0; trial < TRIALS; trial++) {
+      final Cart cart = new Cart();
+      final List<Product> productsInCart = new ArrayList<>();
+      BigDecimal expectedTotal = BigDecimal.ZERO;
+
+      for (int productId = 0, count = random.nextInt(100); productId < count; productId++) {
+        if (!productsInCart.isEmpty() && random.nextInt(4) == 0) {
+          final Product removedProduct = productsInCart.remove(random.nextInt(productsInCart.size()));
+          cart.removeProduct(removedProduct.getProductId());
+          expectedTotal = expectedTotal.subtract(removedProduct.getPrice().toBigDecimal());
+        } else {
+          final BigDecimal price = randomPrice();
+          final Product addedProduct = new Product(productId, "product" + productId, Money.of(price), 1);
+          productsInCart.add(addedProduct);
+          cart.addProduct(addedProduct);
+          expectedTotal = expectedTotal.add(price);
+        }
+      }
+
+      assertThat(cart.getTotalCost().toBigDecimal()).isEqualByComparingTo(expectedTotal);
+    }
+  }
+
+  @Test
+  public void json_matches_big_decimal_json() throws Exception {
+    for (int trial = 0; trial < TRIALS; trial++) {
+      final long cents = random.nextInt(2) == 0 ? -randomCents() : randomCents();
+      final BigDecimal expectedAmount = BigDecimal.valueOf(cents, 2);
+
+      final String actualJson = objectMapper.writeValueAsString(Money.ofCents(cents));
+
+      assertThat(actualJson).isEqualTo(objectMapper.writeValueAsString(expectedAmount));
+      assertThat(objectMapper.readValue(actualJson, Money.class)).isEqualTo(Money.ofCents(cents));
+    }
+  }
+
+  @Test
+  public void json_reads_prices_written_without_two_decimals() throws Exception {
+    assertThat(objectMapper.readValue("5", Money.class)).isEqualTo(Money.ofCents(500));
+    assertThat(objectMapper.readValue("2.5", Money.class)).isEqualTo(Money.ofCents(250));
+    assertThat(objectMapper.readValue("\"3.99\"", Money.class)).isEqualTo(Money.ofCents(399));
+  }
+
+  @Test
+  public void binary_formats_write_prices_as_decimals() throws Exception {
+    for (final ObjectMapper binaryMapper : new ObjectMapper[]{new ObjectMapper(new CBORFactory()), new ObjectMapper(new SmileFactory())}) {
+      final byte[] encodedMoney = binaryMapper.writeValueAsBytes(Money.ofCents(1999));
+
+      assertThat(binaryMapper.readTree(encodedMoney).decimalValue()).isEqualByComparingTo("19.99");
+      assertThat(binaryMapper.readValue(encodedMoney, Money.class)).isEqualTo(Money.ofCents(1999));
+    }
+  }
+
+  @Test
+  public void of_throws_exception_when_amount_has_fractions_of_a_cent() {
+    assertThatThrownBy(() -> Money.of("1.999"))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining(Money.INVALID_AMOUNT_EXCEPTION_MESSAGE);
+  }
+
+  @Test
+  public void toString_pads_cents() {
+    assertThat(Money.ofCents(5).toString()).isEqualTo("0.05");
+    assertThat(Money.ofCents(-5).toString()).isEqualTo("-0.05");
+    assertThat(Money.ofCents(1230).toString()).isEqualTo("12.30");
+    assertThat(Money.ZERO.toString()).isEqualTo("0.00");
+  }
+
+  private BigDecimal randomPrice() {
+    return BigDecimal.valueOf(randomCents(), 2);
+  }
+
+  private long randomCents() {
+    return (long) (random.nextDouble() * MAX_PRICE_IN_CENTS);
+  }
+}
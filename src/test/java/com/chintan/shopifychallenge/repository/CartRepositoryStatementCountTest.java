@@ -0,0 +1,94 @@
+package com.chintan.shopifychallenge.repository;
+
+import com.chintan.shopifychallenge.metrics.SqlStatementCounter;
+import com.chintan.shopifychallenge.models.Cart;
+import com.chintan.shopifychallenge.models.Money;
+import com.chintan.shopifychallenge.models.Product;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+/*
+ * Runs against the embedded H2 database and counts the SQL statements Hibernate sends so we can prove that a cart is
+ * read together with the IDs and prices of its products in one query, and that adding or removing a product only writes the one row of
+ * the "cart_products" table that changed instead of rewriting the whole collection.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:cartrepository;DB_CLOSE_ON_EXIT=FALSE")
+public class CartRepositoryStatementCountTest {
+  private static final int PRODUCTS_IN_CART = 20;
+
+  @Autowired
+  private CartRepository cartRepository;
+  @Autowired
+  private ProductRepository productRepository;
+  @Autowired
+  private SqlStatementCounter sqlStatementCounter;
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  private TransactionTemplate transactionTemplate;
+
+  @Before
+  public void setup() {
+    transactionTemplate = new TransactionTemplate(transactionManager);
+  }
+
+  @Test
+  public void findById_reads_cart_and_its_product_prices_in_one_statement() {
+    final Integer cartId = saveCart(Integer.MAX_VALUE - 1);
+
+    final int statements = transactionTemplate.execute(status -> {
+      sqlStatementCounter.start();
+      final Cart cart = cartRepository.findById(cartId).get();
+      assertThat(cart.getProductIds().size()).isEqualTo(PRODUCTS_IN_CART);
+      return sqlStatementCounter.stop();
+    });
+
+    assertThat(statements).isEqualTo(1);
+  }
+
+  @Test
+  public void adding_and_removing_a_product_writes_one_row_of_the_collection() {
+    final Integer cartId = saveCart(Integer.MAX_VALUE - 2);
+    final Product addedProduct = productRepository.save(new Product(null, "Added", Money.of("2.00"), 1));
+
+    // The cart's total is updated and one "cart_products" row is inserted, rewriting the collection would also
+    // delete every row first
+    assertThat(writeStatements(cartId, cart -> cart.addProduct(addedProduct))).isEqualTo(2);
+    assertThat(writeStatements(cartId, cart -> cart.removeProduct(addedProduct.getProductId()))).isEqualTo(2);
+  }
+
+  // Loads the cart, changes it and counts the statements flushing the change sends
+  private int writeStatements(final Integer cartId, final Consumer<Cart> change) {
+    return transactionTemplate.execute(status -> {
+      final Cart cart = cartRepository.findById(cartId).get();
+      change.accept(cart);
+
+      sqlStatementCounter.start();
+      cartRepository.flush();
+      return sqlStatementCounter.stop();
+    });
+  }
+
+  // Carts are given their IDs by the ActiveCartStore, these are picked far away from the ones it hands out
+  private Integer saveCart(final Integer cartId) {
+    final List<Product> products = new ArrayList<>();
+    for (int i = 0; i < PRODUCTS_IN_CART; i++) products.add(new Product(null, "Product " + i, Money.of("1.00"), 10));
+
+    return cartRepository.save(new Cart(cartId, productRepository.saveAll(products), Money.of("20.00"))).getCartId();
+  }
+}
@@ -0,0 +1,60 @@
+package com.chintan.shopifychallenge.reservation;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class HashedTimingWheelTest {
+  private static final long TICK_MILLIS = 100;
+  private static final long START_MILLIS = 10_000;
+
+  @Test
+  public void expireDue_never_expires_timeout_before_its_deadline() {
+    final HashedTimingWheel<String> timingWheel = new HashedTimingWheel<>(TICK_MILLIS, 8, START_MILLIS);
+    timingWheel.schedule("a", START_MILLIS + 250);
+
+    assertThat(timingWheel.expireDue(START_MILLIS + 200)).isEmpty();
+    assertThat(timingWheel.expireDue(START_MILLIS + 299)).isEmpty();
+    assertThat(timingWheel.expireDue(START_MILLIS + 300)).containsExactly("a");
+    assertThat(timingWheel.size()).isZero();
+  }
+
+  @Test
+  public void expireDue_waits_for_timeouts_more_than_one_turn_away() {
+    // 4 buckets of 100ms, so the wheel turns every 400ms
+    final HashedTimingWheel<String> timingWheel = new HashedTimingWheel<>(TICK_MILLIS, 4, START_MILLIS);
+    timingWheel.schedule("next turn", START_MILLIS + 100);
+    timingWheel.schedule("three turns later", START_MILLIS + 1300);
+
+    assertThat(timingWheel.expireDue(START_MILLIS + 100)).containsExactly("next turn");
+    assertThat(timingWheel.expireDue(START_MILLIS + 500)).isEmpty();
+    assertThat(timingWheel.expireDue(START_MILLIS + 1299)).isEmpty();
+    assertThat(timingWheel.expireDue(START_MILLIS + 1300)).containsExactly("three turns later");
+  }
+
+  @Test
+  public void expireDue_expires_timeout_scheduled_in_the_past_on_next_call() {
+    final HashedTimingWheel<String> timingWheel = new HashedTimingWheel<>(TICK_MILLIS, 8, START_MILLIS);
+    assertThat(timingWheel.expireDue(START_MILLIS + 500)).isEmpty();
+
+    timingWheel.schedule("late", START_MILLIS + 100);
+
+    assertThat(timingWheel.expireDue(START_MILLIS + 600)).containsExactly("late");
+  }
+
+  @Test
+  public void expireDue_returns_every_timeout_due_when_ticks_were_skipped() {
+    final HashedTimingWheel<Integer> timingWheel = new HashedTimingWheel<>(TICK_MILLIS, 3, START_MILLIS);
+    for (int i = 1; i <= 10; i++) timingWheel.schedule(i, START_MILLIS + i * TICK_MILLIS);
+
+    assertThat(timingWheel.expireDue(START_MILLIS + 650)).containsExactlyInAnyOrder(1, 2, 3, 4, 5, 6);
+    assertThat(timingWheel.size()).isEqualTo(4);
+  }
+
+  @Test
+  public void constructor_throws_exception_when_tick_is_not_positive() {
+    assertThatThrownBy(() -> new HashedTimingWheel<String>(0, 8, START_MILLIS))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
@@ -0,0 +1,145 @@
+package com.chintan.shopifychallenge.reservation;
+
+import com.chintan.shopifychallenge.catalog.ProductsChangedEvent;
+import com.chintan.shopifychallenge.config.ReservationProperties;
+import com.chintan.shopifychallenge.inventory.HotInventory;
+import com.chintan.shopifychallenge.models.Money;
+import com.chintan.shopifychallenge.models.Product;
+import com.chintan.shopifychallenge.models.Reservation;
+import com.chintan.shopifychallenge.repository.ProductRepository;
+import com.chintan.shopifychallenge.repository.ReservationRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.util.Lists;
+import org.assertj.core.util.Sets;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner.StrictStubs;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.AdditionalAnswers.returnsFirstArg;
+import static org.mockito.Mockito.*;
+
+@RunWith(StrictStubs.class)
+public class ProductReservationsTest {
+  private final Product product = new Product(1, "1", Money.of("1.00"), 4);
+  private final Reservation reservation = new Reservation(7L, 2, 1, Instant.now());
+
+  @Mock(answer = Answers.RETURNS_DEFAULTS)
+  private ReservationRepository mockReservationRepository;
+  @Mock(answer = Answers.RETURNS_DEFAULTS)
+  private ProductRepository mockProductRepository;
+  @Mock(answer = Answers.RETURNS_DEFAULTS)
+  private HotInventory mockHotInventory;
+  @Mock(answer = Answers.RETURNS_DEFAULTS)
+  private ApplicationEventPublisher mockEventPublisher;
+
+  private ReservationProperties reservationProperties;
+  private MeterRegistry meterRegistry;
+  private ProductReservations productReservations;
+
+  @Before
+  public void setup() {
+    reservationProperties = new ReservationProperties();
+    meterRegistry = new SimpleMeterRegistry();
+    productReservations = new ProductReservations(reservationProperties, mockReservationRepository,
+        mockProductRepository, mockHotInventory, mockEventPublisher, meterRegistry);
+  }
+
+  @Test
+  public void reserve_happypath() {
+    when(mockProductRepository.decrementInventoryByOne(Collections.singletonList(1))).thenReturn(1);
+    when(mockReservationRepository.save(any())).then(returnsFirstArg());
+    when(mockProductRepository.findById(1)).thenReturn(Optional.of(product));
+
+    productReservations.reserve(2, 1);
+
+    verify(mockReservationRepository).save(argThat(reservation -> reservation.getCartId() == 2
+        && reservation.getProductId() == 1 && reservation.getExpiresAt().isAfter(Instant.now())));
+    verify(mockEventPublisher).publishEvent(any(ReservationCreatedEvent.class));
+    verify(mockEventPublisher).publishEvent(new ProductsChangedEvent(Collections.singletonList(product)));
+  }
+
+  @Test
+  public void reserve_throws_exception_when_product_is_sold_out() {
+    when(mockProductRepository.decrementInventoryByOne(Collections.singletonList(1))).thenReturn(0);
+
+    assertThatThrownBy(() -> productReservations.reserve(2, 1))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining(Product.STOCK_RUN_OUT_EXCEPTION_MESSAGE);
+    verifyZeroInteractions(mockReservationRepository, mockEventPublisher);
+  }
+
+  @Test
+  public void reserve_skips_hot_products() {
+    when(mockHotInventory.isHot(1)).thenReturn(true);
+
+    productReservations.reserve(2, 1);
+
+    verifyZeroInteractions(mockProductRepository, mockReservationRepository);
+  }
+
+  @Test
+  public void reserve_does_nothing_when_disabled() {
+    reservationProperties.setEnabled(false);
+
+    productReservations.reserve(2, 1);
+
+    verifyZeroInteractions(mockProductRepository, mockReservationRepository, mockHotInventory);
+  }
+
+  @Test
+  public void release_puts_reserved_unit_back() {
+    when(mockReservationRepository.findByCartIdAndProductId(2, 1)).thenReturn(Optional.of(reservation));
+    when(mockReservationRepository.deleteReservation(7L)).thenReturn(1);
+    when(mockProductRepository.findById(1)).thenReturn(Optional.of(product));
+
+    productReservations.release(2, 1);
+
+    verify(mockProductRepository).incrementInventory(1, 1);
+    verify(mockEventPublisher).publishEvent(new ProductsChangedEvent(Collections.singletonList(product)));
+  }
+
+  @Test
+  public void expire_puts_reserved_unit_back() {
+    when(mockReservationRepository.findById(7L)).thenReturn(Optional.of(reservation));
+    when(mockReservationRepository.deleteReservation(7L)).thenReturn(1);
+
+    productReservations.expire(7L);
+
+    verify(mockProductRepository).incrementInventory(1, 1);
+    assertThat(meterRegistry.get(ProductReservations.EXPIRED_RESERVATIONS_METER_NAME).counter().count()).isEqualTo(1.0);
+  }
+
+  @Test
+  public void expire_does_nothing_when_reservation_was_purchased_in_the_meantime() {
+    when(mockReservationRepository.findById(7L)).thenReturn(Optional.of(reservation));
+    when(mockReservationRepository.deleteReservation(7L)).thenReturn(0);
+
+    productReservations.expire(7L);
+
+    verifyZeroInteractions(mockProductRepository, mockEventPublisher);
+    assertThat(meterRegistry.get(ProductReservations.EXPIRED_RESERVATIONS_METER_NAME).counter().count()).isZero();
+  }
+
+  @Test
+  public void lockReservedProductIds_groups_products_by_cart() {
+    when(mockReservationRepository.findAllByCartIdForUpdate(Lists.newArrayList(2, 3))).thenReturn(Lists.newArrayList(
+        new Reservation(7L, 2, 1, Instant.now()), new Reservation(8L, 2, 4, Instant.now()),
+        new Reservation(9L, 3, 1, Instant.now())));
+
+    assertThat(productReservations.lockReservedProductIds(Lists.newArrayList(2, 3)))
+        .containsEntry(2, Sets.newHashSet(1, 4))
+        .containsEntry(3, Sets.newHashSet(1))
+        .hasSize(2);
+  }
+}
@@ -0,0 +1,70 @@
+package com.chintan.shopifychallenge.reservation;
+
+import com.chintan.shopifychallenge.config.ReservationProperties;
+import com.chintan.shopifychallenge.models.Reservation;
+import com.chintan.shopifychallenge.repository.ReservationRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Answers;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner.StrictStubs;
+import org.springframework.dao.PessimisticLockingFailureException;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.mockito.Mockito.*;
+
+@RunWith(StrictStubs.class)
+public class ReservationExpirySchedulerTest {
+  private static final long TICK_MILLIS = 100;
+
+  @Mock(answer = Answers.RETURNS_DEFAULTS)
+  private ReservationRepository mockReservationRepository;
+  @Mock(answer = Answers.RETURNS_DEFAULTS)
+  private ProductReservations mockProductReservations;
+
+  private ReservationExpiryScheduler reservationExpiryScheduler;
+  private long nowMillis;
+
+  @Before
+  public void setup() {
+    final ReservationProperties reservationProperties = new ReservationProperties();
+    reservationProperties.setTickDuration(Duration.ofMillis(TICK_MILLIS));
+    reservationExpiryScheduler = new ReservationExpiryScheduler(reservationProperties, mockReservationRepository,
+        mockProductReservations);
+
+    nowMillis = System.currentTimeMillis();
+    reservationExpiryScheduler.onReservationCreated(
+        new ReservationCreatedEvent(new Reservation(7L, 2, 1, Instant.ofEpochMilli(nowMillis))));
+  }
+
+  @Test
+  public void expireDueReservations_tries_again_on_a_later_tick_when_expiring_fails() {
+    doThrow(new PessimisticLockingFailureException("Lock timeout")).doNothing().when(mockProductReservations).expire(7L);
+
+    tick(2);
+    verify(mockProductReservations, times(1)).expire(7L);
+
+    tick(2);
+    verify(mockProductReservations, times(2)).expire(7L);
+
+    tick(10);
+    verifyNoMoreInteractions(mockProductReservations);
+  }
+
+  @Test
+  public void expireDueReservations_gives_up_after_max_attempts() {
+    doThrow(new PessimisticLockingFailureException("Lock timeout")).when(mockProductReservations).expire(7L);
+
+    for (int i = 0; i < 10; i++) tick(ReservationExpiryScheduler.MAX_EXPIRY_ATTEMPTS + 1);
+
+    verify(mockProductReservations, times(ReservationExpiryScheduler.MAX_EXPIRY_ATTEMPTS)).expire(7L);
+  }
+
+  private void tick(final int ticks) {
+    nowMillis += ticks * TICK_MILLIS;
+    reservationExpiryScheduler.expireDueReservations(nowMillis);
+  }
+}
@@ -0,0 +1,80 @@
+package com.chintan.shopifychallenge.services;
+
+import com.chintan.shopifychallenge.models.Money;
+import com.chintan.shopifychallenge.models.Product;
+import com.chintan.shopifychallenge.repository.ProductRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+/*
+ * Runs against the embedded H2 database so we can prove the conditional inventory decrements never oversell a product
+ * when many checkouts for the same product happen at the same time. Reservations are disabled so every cart can hold
+ * the product and the stock is only taken at checkout.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:concurrency;DB_CLOSE_ON_EXIT=FALSE;LOCK_TIMEOUT=30000",
+    "carts.reservations.enabled=false"
+})
+public class CartServiceConcurrencyTest {
+  private static final int CHECKOUT_THREADS = 300;
+  private static final int INITIAL_INVENTORY = 100;
+
+  @Autowired
+  private CartService cartService;
+  @Autowired
+  private ProductRepository productRepository;
+
+  @Test
+  public void completeCartPurchase_never_oversells_a_single_product() throws Exception {
+    final Product hotProduct = productRepository.save(
+        new Product(null, "Hot Product", Money.of("9.99"), INITIAL_INVENTORY));
+
+    final List<Integer> cartIds = new ArrayList<>();
+    for (int i = 0; i < CHECKOUT_THREADS; i++)
+      cartIds.add(cartService.createNewCart(Collections.singletonList(hotProduct)).getCartId());
+
+    final ExecutorService executorService = Executors.newFixedThreadPool(CHECKOUT_THREADS);
+    final CountDownLatch startingLine = new CountDownLatch(1);
+    final AtomicInteger completedPurchases = new AtomicInteger();
+    final AtomicInteger stockRunOutFailures = new AtomicInteger();
+
+    final List<Future<?>> checkouts = new ArrayList<>();
+    for (final Integer cartId : cartIds) {
+      checkouts.add(executorService.submit(() -> {
+        startingLine.await();
+        try {
+          cartService.completeCartPurchase(cartId);
+          completedPurchases.incrementAndGet();
+        } catch (IllegalStateException e) {
+          if (e.getMessage().contains(Product.STOCK_RUN_OUT_EXCEPTION_MESSAGE)) stockRunOutFailures.incrementAndGet();
+          else throw e;
+        }
+        return null;
+      }));
+    }
+
+    startingLine.countDown();
+    for (final Future<?> checkout : checkouts) checkout.get(1, TimeUnit.MINUTES);
+    executorService.shutdown();
+
+    final int remainingInventory = productRepository.findById(hotProduct.getProductId()).get().getInventoryCount();
+
+    assertThat(completedPurchases.get()).isEqualTo(INITIAL_INVENTORY);
+    assertThat(stockRunOutFailures.get()).isEqualTo(CHECKOUT_THREADS - INITIAL_INVENTORY);
+    assertThat(remainingInventory).isZero();
+  }
+}
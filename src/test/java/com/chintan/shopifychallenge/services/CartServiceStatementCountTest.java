@@ -0,0 +1,61 @@
+package com.chintan.shopifychallenge.services;
+
+import com.chintan.shopifychallenge.metrics.SqlStatementCounter;
+import com.chintan.shopifychallenge.models.Money;
+import com.chintan.shopifychallenge.models.Product;
+import com.chintan.shopifychallenge.repository.ProductRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+/*
+ * Runs against the embedded H2 database and counts the SQL statements Hibernate sends so we can prove that completing
+ * a purchase costs the same number of round trips no matter how many products are in the cart.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:statementcount;DB_CLOSE_ON_EXIT=FALSE",
+    // Keeps the carts out of the "cart" table so every checkout is measured the same way
+    "carts.active.write-behind-interval=1h"
+})
+public class CartServiceStatementCountTest {
+  // Locking the cart's reservations and deleting them. The cart is only in memory so there is nothing to delete from
+  // the "cart" table. With reservations disabled, the products are locked, decremented and read back instead.
+  private static final int MAX_CHECKOUT_STATEMENTS = 5;
+
+  @Autowired
+  private CartService cartService;
+  @Autowired
+  private ProductRepository productRepository;
+  @Autowired
+  private SqlStatementCounter sqlStatementCounter;
+
+  @Test
+  public void completeCartPurchase_statement_count_does_not_grow_with_cart_size() {
+    final int singleProductStatements = checkoutStatements(1);
+
+    assertThat(singleProductStatements).isLessThanOrEqualTo(MAX_CHECKOUT_STATEMENTS);
+    assertThat(checkoutStatements(10)).isEqualTo(singleProductStatements);
+    assertThat(checkoutStatements(200)).isEqualTo(singleProductStatements);
+  }
+
+  private int checkoutStatements(final int productsInCart) {
+    final List<Product> products = new ArrayList<>();
+    for (int i = 0; i < productsInCart; i++) products.add(new Product(null, "Product " + i, Money.of("1.00"), 10));
+
+    final Integer cartId = cartService.createNewCart(productRepository.saveAll(products)).getCartId();
+
+    sqlStatementCounter.start();
+    cartService.completeCartPurchase(cartId);
+    return sqlStatementCounter.stop();
+  }
+}
@@ -1,9 +1,12 @@
 package com.chintan.shopifychallenge.services;
 
+import com.chintan.shopifychallenge.cart.ActiveCartStore;
+import com.chintan.shopifychallenge.checkout.CheckoutWriter;
+import com.chintan.shopifychallenge.checkout.GroupCommitCheckoutQueue;
 import com.chintan.shopifychallenge.models.Cart;
+import com.chintan.shopifychallenge.models.Money;
 import com.chintan.shopifychallenge.models.Product;
-import com.chintan.shopifychallenge.repository.CartRepository;
-import com.chintan.shopifychallenge.repository.ProductRepository;
+import com.chintan.shopifychallenge.reservation.ProductReservations;
 import org.assertj.core.util.Lists;
 import org.junit.Before;
 import org.junit.Test;
@@ -12,118 +15,142 @@ import org.mockito.Answers;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner.StrictStubs;
 
-import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
+import static org.mockito.AdditionalAnswers.returnsFirstArg;
 import static org.mockito.Mockito.*;
 
 @RunWith(StrictStubs.class)
 public class CartServiceTest {
-  private final Cart emptyCart = new Cart();
-
-  private final Product productOne = new Product(1, "1", new BigDecimal(1.00), 5);
-  private final Product productTwo = new Product(2, "2", new BigDecimal(2.00), 2);
+  private final Product productOne = new Product(1, "1", Money.of("1.00"), 5);
+  private final Product productTwo = new Product(2, "2", Money.of("2.00"), 2);
   private final List<Product> productsList = Lists.newArrayList(productOne, productTwo);
 
   @Mock(answer = Answers.RETURNS_DEFAULTS)
-  private CartRepository mockCartRepository;
+  private ActiveCartStore mockActiveCartStore;
+  @Mock(answer = Answers.RETURNS_DEFAULTS)
+  private CheckoutWriter mockCheckoutWriter;
   @Mock(answer = Answers.RETURNS_DEFAULTS)
-  private ProductRepository mockProductRepository;
+  private ProductReservations mockProductReservations;
 
   private CartService cartService;
 
   @Before
   public void setup() {
-    cartService = new CartService(mockProductRepository, mockCartRepository);
+    cartService = new CartService(mockActiveCartStore, mockCheckoutWriter, Optional.empty(), mockProductReservations);
   }
 
   @Test
   public void createNewCart_happypath() {
+    final int expectedCartID = 2;
+    when(mockActiveCartStore.newCartId()).thenReturn(expectedCartID);
+    when(mockActiveCartStore.create(any())).then(returnsFirstArg());
+
     cartService.createNewCart(productsList);
 
-    final Cart expectedCart = new Cart(null, productsList, new BigDecimal(3.00));
-    verify(mockCartRepository).save(expectedCart);
+    final Cart expectedCart = new Cart(expectedCartID, productsList, Money.of("3.00"));
+    verify(mockActiveCartStore).create(expectedCart);
+    verify(mockProductReservations).reserve(expectedCartID, productOne.getProductId());
+    verify(mockProductReservations).reserve(expectedCartID, productTwo.getProductId());
   }
 
   @Test
   public void createNewCart_without_products() {
+    final int expectedCartID = 2;
+    when(mockActiveCartStore.newCartId()).thenReturn(expectedCartID);
+
     cartService.createNewCart();
 
-    verify(mockCartRepository).save(emptyCart);
+    verify(mockActiveCartStore).create(new Cart(expectedCartID, Lists.emptyList(), Money.of("0.00")));
+    verifyZeroInteractions(mockProductReservations);
+  }
+
+  @Test
+  public void createNewCart_does_not_create_cart_when_product_is_sold_out() {
+    when(mockActiveCartStore.newCartId()).thenReturn(2);
+    doThrow(new IllegalStateException(Product.STOCK_RUN_OUT_EXCEPTION_MESSAGE))
+        .when(mockProductReservations).reserve(2, productTwo.getProductId());
+
+    assertThatThrownBy(() -> cartService.createNewCart(productsList))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining(Product.STOCK_RUN_OUT_EXCEPTION_MESSAGE);
+    verify(mockActiveCartStore, never()).create(any());
   }
 
   @Test
   public void addNewProductsToCart_happypath() {
     final int expectedCartID = 2;
-    when(mockCartRepository.findById(expectedCartID)).thenReturn(Optional.of(emptyCart));
+    when(mockActiveCartStore.containsProduct(expectedCartID, productOne.getProductId())).thenReturn(false);
 
     cartService.addNewProductsToCart(expectedCartID, productOne);
 
-    final Cart expectedCart = new Cart(null, Lists.newArrayList(productOne), new BigDecimal(1.00));
-    verify(mockCartRepository).save(expectedCart);
+    verify(mockProductReservations).reserve(expectedCartID, productOne.getProductId());
+    verify(mockActiveCartStore).addProduct(expectedCartID, productOne);
   }
 
   @Test
   public void addNewProductsToCart_throws_exception_when_cart_is_nonexistent() {
-    when(mockCartRepository.findById(anyInt())).thenReturn(Optional.empty());
+    when(mockActiveCartStore.containsProduct(anyInt(), anyInt()))
+        .thenThrow(new IllegalArgumentException(CartService.CART_DOES_NOT_EXIST_EXCEPTION_MESSAGE));
 
     assertThatThrownBy(() -> cartService.addNewProductsToCart(0, productOne))
         .isInstanceOf(IllegalArgumentException.class)
         .hasMessageContaining(CartService.CART_DOES_NOT_EXIST_EXCEPTION_MESSAGE);
+    verifyZeroInteractions(mockProductReservations);
   }
 
   @Test
   public void addNewProductsToCart_throws_exception_when_same_product_is_added() {
     final int expectedCartID = 2;
-    final Cart initialCart = new Cart(expectedCartID, productsList, new BigDecimal(3.00));
-    when(mockCartRepository.findById(expectedCartID)).thenReturn(Optional.of(initialCart));
+    when(mockActiveCartStore.containsProduct(expectedCartID, productOne.getProductId())).thenReturn(true);
 
     assertThatThrownBy(() -> cartService.addNewProductsToCart(expectedCartID, productOne))
         .isInstanceOf(IllegalArgumentException.class)
         .hasMessageContaining(Cart.PRODUCT_ALREADY_IN_CART_EXCEPTION_MESSAGE);
+    verifyZeroInteractions(mockProductReservations);
+    verify(mockActiveCartStore, never()).addProduct(anyInt(), any());
   }
 
   @Test
-  public void completeCartPurchase_happypath() {
+  public void removeProductFromCart_happypath() {
     final int expectedCartID = 2;
-    final Cart initialCart = new Cart(null, productsList, new BigDecimal(3.00));
 
-    when(mockCartRepository.findById(expectedCartID)).thenReturn(Optional.of(initialCart));
+    cartService.removeProductFromCart(expectedCartID, productOne.getProductId());
 
-    cartService.completeCartPurchase(expectedCartID);
+    verify(mockActiveCartStore).removeProduct(expectedCartID, productOne.getProductId());
+    verify(mockProductReservations).release(expectedCartID, productOne.getProductId());
+  }
 
-    List<Product> expectedProducts = purchaseProducts(productsList);
-    final Cart expectedCart = new Cart(null, expectedProducts, new BigDecimal(3.00));
+  @Test
+  public void removeProductFromCart_throws_exception_when_product_is_not_in_cart() {
+    final int expectedCartID = 2;
+    when(mockActiveCartStore.removeProduct(expectedCartID, productOne.getProductId()))
+        .thenThrow(new IllegalArgumentException(Cart.PRODUCT_NOT_PRESENT_EXCEPTION_MESSAGE));
 
-    verify(mockProductRepository).saveAll(expectedProducts);
-    verify(mockCartRepository).delete(expectedCart);
+    assertThatThrownBy(() -> cartService.removeProductFromCart(expectedCartID, productOne.getProductId()))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining(Cart.PRODUCT_NOT_PRESENT_EXCEPTION_MESSAGE);
+    verifyZeroInteractions(mockProductReservations);
   }
 
   @Test
-  public void completeCartPurchase_throws_exception_when_product_is_out_of_stock() {
-    final Product outOfStockProduct = new Product(3, "out of stock", new BigDecimal(1.00), 0);
-    final Cart outOfStockCart = new Cart(null, Lists.newArrayList(outOfStockProduct), new BigDecimal(1.00));
-
-    when(mockCartRepository.findById(anyInt())).thenReturn(Optional.of(outOfStockCart));
+  public void completeCartPurchase_writes_purchase_directly_without_group_commit() {
+    cartService.completeCartPurchase(2);
 
-    assertThatThrownBy(() -> cartService.completeCartPurchase(0))
-        .isInstanceOf(IllegalStateException.class)
-        .hasMessageContaining(Product.STOCK_RUN_OUT_EXCEPTION_MESSAGE);
+    verify(mockCheckoutWriter).completeCartPurchase(2);
   }
 
   @Test
-  public void completeCartPurchase_throws_exception_when_cart_is_nonexistent() {
-    when(mockCartRepository.findById(anyInt())).thenReturn(Optional.empty());
+  public void completeCartPurchase_queues_purchase_with_group_commit() {
+    final GroupCommitCheckoutQueue mockGroupCommitCheckoutQueue = mock(GroupCommitCheckoutQueue.class);
+    cartService = new CartService(mockActiveCartStore, mockCheckoutWriter, Optional.of(mockGroupCommitCheckoutQueue),
+        mockProductReservations);
 
-    assertThatThrownBy(() -> cartService.completeCartPurchase(0))
-        .isInstanceOf(IllegalArgumentException.class)
-        .hasMessageContaining(CartService.CART_DOES_NOT_EXIST_EXCEPTION_MESSAGE);
-  }
+    cartService.completeCartPurchase(2);
 
-  private List<Product> purchaseProducts(final List<Product> productsToPurchase) {
-    productsToPurchase.forEach(Product::buyProduct);
-    return productsToPurchase;
+    verify(mockGroupCommitCheckoutQueue).completeCartPurchase(2);
+    verifyZeroInteractions(mockCheckoutWriter);
   }
-}
\ No newline at end of file
+}
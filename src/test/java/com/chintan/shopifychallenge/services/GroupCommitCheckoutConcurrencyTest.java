@@ -0,0 +1,127 @@
+package com.chintan.shopifychallenge.services;
+
+import com.chintan.shopifychallenge.config.ReservationProperties;
+import com.chintan.shopifychallenge.models.Money;
+import com.chintan.shopifychallenge.models.Product;
+import com.chintan.shopifychallenge.repository.ProductRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+/*
+ * Runs against the embedded H2 database so we can prove batched checkouts never lose an inventory update made by a
+ * restock or a reservation that runs at the same time, and never oversell the product.
+ *
+ * The carts that are purchased are created with reservations turned off, so their stock is only taken at checkout
+ * by the batched update. Reservations are turned back on before the other carts are created, so those take (and
+ * put back) stock of the same product while the batches are being written.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:groupcommitconcurrency;DB_CLOSE_ON_EXIT=FALSE;LOCK_TIMEOUT=30000",
+    "checkout.group-commit.enabled=true",
+    "checkout.group-commit.batch-size=10",
+    "checkout.group-commit.max-linger=5ms"
+})
+public class GroupCommitCheckoutConcurrencyTest {
+  private static final int INITIAL_INVENTORY = 50;
+  private static final int CHECKOUTS = 200;
+  private static final int RESTOCKS = 20;
+  private static final int RESTOCK_QUANTITY = 5;
+  private static final int RESERVATIONS = 60;
+
+  @Autowired
+  private CartService cartService;
+  @Autowired
+  private ProductService productService;
+  @Autowired
+  private ProductRepository productRepository;
+  @Autowired
+  private ReservationProperties reservationProperties;
+
+  @Test
+  public void completeCartPurchase_keeps_concurrent_restocks_and_reservations() throws Exception {
+    final Product product = productRepository.save(new Product(null, "Contended Product", Money.of("9.99"), INITIAL_INVENTORY));
+
+    final List<Integer> checkoutCartIds = new ArrayList<>();
+    reservationProperties.setEnabled(false);
+    try {
+      for (int i = 0; i < CHECKOUTS; i++)
+        checkoutCartIds.add(cartService.createNewCart(Collections.singletonList(product)).getCartId());
+    } finally {
+      reservationProperties.setEnabled(true);
+    }
+
+    // Every purchase blocks until its batch is written so each one needs its own thread
+    final ExecutorService executorService = Executors.newFixedThreadPool(CHECKOUTS + RESTOCKS + RESERVATIONS);
+    final CountDownLatch startingLine = new CountDownLatch(1);
+    final AtomicInteger completedPurchases = new AtomicInteger();
+    final AtomicInteger stockRunOutFailures = new AtomicInteger();
+    final AtomicInteger heldReservations = new AtomicInteger();
+
+    final List<Future<?>> tasks = new ArrayList<>();
+    for (final Integer cartId : checkoutCartIds) {
+      tasks.add(executorService.submit(() -> {
+        startingLine.await();
+        try {
+          cartService.completeCartPurchase(cartId);
+          completedPurchases.incrementAndGet();
+        } catch (IllegalStateException e) {
+          if (e.getMessage().contains(Product.STOCK_RUN_OUT_EXCEPTION_MESSAGE)) stockRunOutFailures.incrementAndGet();
+          else throw e;
+        }
+        return null;
+      }));
+    }
+    for (int i = 0; i < RESTOCKS; i++) {
+      tasks.add(executorService.submit(() -> {
+        startingLine.await();
+        productService.restockProduct(product.getProductId(), RESTOCK_QUANTITY);
+        return null;
+      }));
+    }
+    for (int i = 0; i < RESERVATIONS; i++) {
+      final boolean putBack = i % 2 == 0;
+      tasks.add(executorService.submit(() -> {
+        startingLine.await();
+        final Integer cartId;
+        try {
+          cartId = cartService.createNewCart(Collections.singletonList(product)).getCartId();
+        } catch (IllegalStateException e) {
+          if (e.getMessage().contains(Product.STOCK_RUN_OUT_EXCEPTION_MESSAGE)) return null;
+          throw e;
+        }
+        heldReservations.incrementAndGet();
+
+        if (putBack) {
+          cartService.removeProductFromCart(cartId, product.getProductId());
+          heldReservations.decrementAndGet();
+        }
+        return null;
+      }));
+    }
+
+    startingLine.countDown();
+    for (final Future<?> task : tasks) task.get(1, TimeUnit.MINUTES);
+    executorService.shutdown();
+
+    final int remainingInventory = productRepository.findById(product.getProductId()).get().getInventoryCount();
+
+    assertThat(completedPurchases.get() + stockRunOutFailures.get()).isEqualTo(CHECKOUTS);
+    assertThat(remainingInventory).isGreaterThanOrEqualTo(0);
+    assertThat(remainingInventory).isEqualTo(
+        INITIAL_INVENTORY + RESTOCKS * RESTOCK_QUANTITY - completedPurchases.get() - heldReservations.get());
+  }
+}
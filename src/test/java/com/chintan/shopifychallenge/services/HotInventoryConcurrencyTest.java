@@ -0,0 +1,92 @@
+package com.chintan.shopifychallenge.services;
+
+import com.chintan.shopifychallenge.inventory.InventorySaleFlusher;
+import com.chintan.shopifychallenge.models.Product;
+import com.chintan.shopifychallenge.repository.InventorySaleRepository;
+import com.chintan.shopifychallenge.repository.ProductRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+/*
+ * Runs against the embedded H2 database with the preloaded "USB Cable" (product 1, 10 in stock) sold from memory, so
+ * we can prove hot products are never oversold and that their sales end up in the "product" table.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:hotinventory;DB_CLOSE_ON_EXIT=FALSE;LOCK_TIMEOUT=30000",
+    "inventory.hot-products.product-ids=1",
+    "inventory.hot-products.stripes=4",
+    "inventory.hot-products.flush-interval=1h"
+})
+public class HotInventoryConcurrencyTest {
+  private static final int HOT_PRODUCT_ID = 1;
+  private static final int CHECKOUT_THREADS = 300;
+  private static final int INITIAL_INVENTORY = 100;
+
+  @Autowired
+  private CartService cartService;
+  @Autowired
+  private ProductService productService;
+  @Autowired
+  private ProductRepository productRepository;
+  @Autowired
+  private InventorySaleRepository inventorySaleRepository;
+  @Autowired
+  private InventorySaleFlusher inventorySaleFlusher;
+
+  @Test
+  public void completeCartPurchase_never_oversells_a_hot_product() throws Exception {
+    final Product hotProduct = productService.restockProduct(HOT_PRODUCT_ID,
+        INITIAL_INVENTORY - productRepository.findById(HOT_PRODUCT_ID).get().getInventoryCount());
+
+    final List<Integer> cartIds = new ArrayList<>();
+    for (int i = 0; i < CHECKOUT_THREADS; i++)
+      cartIds.add(cartService.createNewCart(Collections.singletonList(hotProduct)).getCartId());
+
+    final ExecutorService executorService = Executors.newFixedThreadPool(CHECKOUT_THREADS);
+    final CountDownLatch startingLine = new CountDownLatch(1);
+    final AtomicInteger completedPurchases = new AtomicInteger();
+    final AtomicInteger stockRunOutFailures = new AtomicInteger();
+
+    final List<Future<?>> checkouts = new ArrayList<>();
+    for (final Integer cartId : cartIds) {
+      checkouts.add(executorService.submit(() -> {
+        startingLine.await();
+        try {
+          cartService.completeCartPurchase(cartId);
+          completedPurchases.incrementAndGet();
+        } catch (IllegalStateException e) {
+          if (e.getMessage().contains(Product.STOCK_RUN_OUT_EXCEPTION_MESSAGE)) stockRunOutFailures.incrementAndGet();
+          else throw e;
+        }
+        return null;
+      }));
+    }
+
+    startingLine.countDown();
+    for (final Future<?> checkout : checkouts) checkout.get(1, TimeUnit.MINUTES);
+    executorService.shutdown();
+
+    assertThat(completedPurchases.get()).isEqualTo(INITIAL_INVENTORY);
+    assertThat(stockRunOutFailures.get()).isEqualTo(CHECKOUT_THREADS - INITIAL_INVENTORY);
+    assertThat(inventorySaleRepository.count()).isEqualTo(INITIAL_INVENTORY);
+
+    inventorySaleFlusher.flushSales();
+
+    assertThat(productRepository.findById(HOT_PRODUCT_ID).get().getInventoryCount()).isZero();
+    assertThat(inventorySaleRepository.count()).isZero();
+  }
+}
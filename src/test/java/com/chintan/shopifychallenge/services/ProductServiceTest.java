@@ -1,92 +1,340 @@
 package com.chintan.shopifychallenge.services;
 
+import com.chintan.shopifychallenge.catalog.CatalogSnapshotFileLoader;
+import com.chintan.shopifychallenge.catalog.InStockProductIndex;
+import com.chintan.shopifychallenge.catalog.ProductCatalog;
+import com.chintan.shopifychallenge.catalog.ProductCache;
+import com.chintan.shopifychallenge.catalog.ProductSearchIndex;
+import com.chintan.shopifychallenge.catalog.ProductSort;
+import com.chintan.shopifychallenge.catalog.ProductSortIndex;
+import com.chintan.shopifychallenge.catalog.ProductTitleIndex;
+import com.chintan.shopifychallenge.catalog.ProductsChangedEvent;
+import com.chintan.shopifychallenge.catalog.TitleMatch;
+import com.chintan.shopifychallenge.config.CatalogSnapshotProperties;
+import com.chintan.shopifychallenge.config.ProductCacheProperties;
+import com.chintan.shopifychallenge.inventory.HotInventory;
+import com.chintan.shopifychallenge.inventory.InventoryChange;
+import com.chintan.shopifychallenge.inventory.InventoryFeed;
+import com.chintan.shopifychallenge.models.Money;
 import com.chintan.shopifychallenge.models.Product;
 import com.chintan.shopifychallenge.repository.ProductRepository;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Answers;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner.StrictStubs;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 
-import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 @RunWith(StrictStubs.class)
 public class ProductServiceTest {
 
   private final List<Product> allProducts = Lists.newArrayList(
-      new Product(1, "product1", new BigDecimal(3.59), 9),
-      new Product(2, "product2", new BigDecimal(50.99), 10),
-      new Product(3, "product3", new BigDecimal(1.99), 2));
+      new Product(1, "product1", Money.of("3.59"), 9),
+      new Product(2, "product2", Money.of("50.99"), 10),
+      new Product(3, "product3", Money.of("1.99"), 2));
 
   @Mock(answer = Answers.RETURNS_SMART_NULLS)
   private ProductRepository mockProductRepository;
+  @Mock(answer = Answers.RETURNS_DEFAULTS)
+  private CatalogSnapshotFileLoader mockCatalogSnapshotFileLoader;
+  @Mock(answer = Answers.RETURNS_DEFAULTS)
+  private HotInventory mockHotInventory;
+  @Mock(answer = Answers.RETURNS_DEFAULTS)
+  private InventoryFeed mockInventoryFeed;
+  @Mock(answer = Answers.RETURNS_DEFAULTS)
+  private ApplicationEventPublisher mockEventPublisher;
 
   private ProductService productService;
 
   @Before
   public void setup() {
-    productService = new ProductService(mockProductRepository);
+    final ProductCache productCache = new ProductCache(new ProductCacheProperties(), new SimpleMeterRegistry());
+    // Without a staleness bound every change is swapped into the snapshot right away
+    final CatalogSnapshotProperties catalogSnapshotProperties = new CatalogSnapshotProperties();
+    catalogSnapshotProperties.setMaxStaleness(Duration.ZERO);
+    final ProductCatalog productCatalog = new ProductCatalog(catalogSnapshotProperties, new SimpleMeterRegistry());
+
+    productService = new ProductService(mockProductRepository, new ProductTitleIndex(), new ProductSearchIndex(),
+        new ProductSortIndex(), new InStockProductIndex(), productCache, productCatalog, mockCatalogSnapshotFileLoader,
+        mockHotInventory, mockInventoryFeed, mockEventPublisher);
   }
 
   @Test
   public void getAllProducts_happypath() {
     when(mockProductRepository.findAll()).thenReturn(allProducts);
+    productService.loadProductIndexes();
 
     final List<Product> actualProducts = productService.getAllProducts();
 
-    assertThat(actualProducts).containsExactlyInAnyOrderElementsOf(allProducts);
+    assertThat(actualProducts).containsExactlyElementsOf(allProducts);
+    // Served from the snapshot, the products were only read once at startup
+    verify(mockProductRepository, times(1)).findAll();
+  }
+
+  @Test
+  public void loadProductIndexes_uses_products_loaded_from_snapshot_file() {
+    when(mockCatalogSnapshotFileLoader.takeLoadedProducts()).thenReturn(Optional.of(allProducts));
+
+    productService.loadProductIndexes();
+
+    assertThat(productService.getAllProducts()).containsExactlyElementsOf(allProducts);
+    assertThat(productService.getProductsByTitle("product2")).containsExactly(allProducts.get(1));
+    verifyZeroInteractions(mockProductRepository);
+  }
+
+  @Test
+  public void getAllProducts_reflects_changed_products() {
+    final Product purchasedProduct = new Product(2, "product2", Money.of("50.99"), 9);
+    when(mockProductRepository.findAll()).thenReturn(allProducts);
+    productService.loadProductIndexes();
+
+    productService.onProductsChanged(new ProductsChangedEvent(Lists.newArrayList(purchasedProduct)));
+
+    assertThat(productService.getAllProducts()).containsExactly(allProducts.get(0), purchasedProduct, allProducts.get(2));
   }
 
   @Test
   public void getAllInStockProducts_happypath() {
-    final Product outOfStockProduct = new Product(4, "product4", new BigDecimal(1.00), 0);
+    final Product outOfStockProduct = new Product(4, "product4", Money.of("1.00"), 0);
     final List<Product> mergedProducts = Lists.newArrayList(allProducts);
     mergedProducts.add(outOfStockProduct);
 
-    when(mockProductRepository.findAll()).thenReturn(mergedProducts);
+    productService.onProductsChanged(new ProductsChangedEvent(mergedProducts));
 
     final List<Product> actualProducts = productService.getAllInStockProducts();
 
-    assertThat(actualProducts).containsExactlyInAnyOrderElementsOf(allProducts);
+    assertThat(actualProducts).containsExactlyElementsOf(allProducts);
+    verifyZeroInteractions(mockProductRepository);
+  }
+
+  @Test
+  public void getAllInStockProducts_drops_products_that_sell_out() {
+    final Product soldOutProduct = new Product(3, "product3", Money.of("1.99"), 0);
+    productService.onProductsChanged(new ProductsChangedEvent(allProducts));
+    productService.onProductsChanged(new ProductsChangedEvent(Lists.newArrayList(soldOutProduct)));
+
+    assertThat(productService.getAllInStockProducts()).containsExactlyElementsOf(allProducts.subList(0, 2));
+  }
+
+  @Test
+  public void onProductsChanged_drops_changes_older_than_the_applied_one() {
+    final Product soldOutProduct = new Product(3, "product3", Money.of("1.99"), 0);
+    soldOutProduct.setVersion(2);
+    final Product olderProduct = new Product(3, "product3", Money.of("1.99"), 1);
+    olderProduct.setVersion(1);
+    productService.onProductsChanged(new ProductsChangedEvent(allProducts));
+
+    // The purchases committed in this order but their listeners ran the other way around
+    productService.onProductsChanged(new ProductsChangedEvent(Lists.newArrayList(soldOutProduct)));
+    productService.onProductsChanged(new ProductsChangedEvent(Lists.newArrayList(olderProduct)));
+
+    assertThat(productService.getAllInStockProducts()).containsExactlyElementsOf(allProducts.subList(0, 2));
+    assertThat(productService.getProductById(3)).contains(soldOutProduct);
+    verify(mockInventoryFeed).publish(Collections.emptyList());
+  }
+
+  @Test
+  public void getAllInStockProducts_returns_empty_list_when_everything_is_sold_out() {
+    productService.onProductsChanged(new ProductsChangedEvent(
+        Lists.newArrayList(new Product(4, "product4", Money.of("1.00"), 0))));
+
+    assertThat(productService.getAllInStockProducts()).isEmpty();
+    verifyZeroInteractions(mockProductRepository);
   }
 
   @Test
   public void getProductsByTitle_happypath() {
     final String sameTitle = "Same Title";
-    final Product sameTitleProductOne = new Product(1, sameTitle, new BigDecimal(3.99), 1);
-    final Product sameTitleProductTwo = new Product(2, sameTitle, new BigDecimal(4.99), 2);
+    final Product sameTitleProductOne = new Product(1, sameTitle, Money.of("3.99"), 1);
+    final Product sameTitleProductTwo = new Product(2, sameTitle, Money.of("4.99"), 2);
 
     final List<Product> allProducts = Lists.newArrayList(sameTitleProductOne, sameTitleProductTwo,
-        new Product(2, "product2", new BigDecimal(50.99), 10));
+        new Product(3, "product3", Money.of("50.99"), 10));
 
-    when(mockProductRepository.findAll()).thenReturn(allProducts);
+    productService.onProductsChanged(new ProductsChangedEvent(allProducts));
 
     final List<Product> actualProducts = productService.getProductsByTitle(sameTitle);
 
-    assertThat(actualProducts).containsExactlyInAnyOrder(sameTitleProductOne, sameTitleProductTwo);
+    assertThat(actualProducts).containsExactly(sameTitleProductOne, sameTitleProductTwo);
+    verifyZeroInteractions(mockProductRepository);
   }
 
   @Test
   public void getProductsByTitle_returns_empty_list_when_no_titles_match() {
-    when(mockProductRepository.findAll()).thenReturn(allProducts);
+    productService.onProductsChanged(new ProductsChangedEvent(allProducts));
 
     final List<Product> actualProducts = productService.getProductsByTitle("non-existent product title");
 
     assertThat(actualProducts).isEmpty();
+    verifyZeroInteractions(mockProductRepository);
+  }
+
+  @Test
+  public void getProductsByTitle_resolves_large_prefix_matches_without_querying() {
+    final List<Product> products = manyProducts(ProductService.MAX_IDS_PER_QUERY * 2);
+    productService.onProductsChanged(new ProductsChangedEvent(products));
+
+    assertThat(productService.getProductsByTitle("product", TitleMatch.PREFIX)).containsExactlyElementsOf(products);
+    verifyZeroInteractions(mockProductRepository);
+  }
+
+  @Test
+  public void getProductsByTitlePage_reads_large_prefix_pages_in_several_queries() {
+    final List<Product> products = manyProducts(ProductService.MAX_IDS_PER_QUERY + 1);
+    productService.onProductsChanged(new ProductsChangedEvent(products));
+    when(mockProductRepository.findAllById(anyList())).thenAnswer(invocation -> {
+      final List<Integer> productIds = invocation.getArgument(0);
+      return productIds.stream().map(productId -> products.get(productId - 1)).collect(Collectors.toList());
+    });
+
+    assertThat(productService.getProductsByTitlePage("product", TitleMatch.PREFIX, null, products.size()))
+        .containsExactlyElementsOf(products);
+    verify(mockProductRepository, times(2)).findAllById(anyList());
+  }
+
+  @Test
+  public void getProductsByTitle_matches_prefix_ignoring_case() {
+    when(mockProductRepository.findAll()).thenReturn(allProducts);
+
+    productService.loadProductIndexes();
+
+    assertThat(productService.getProductsByTitle("PRODUCT", TitleMatch.PREFIX))
+        .containsExactlyElementsOf(allProducts);
+  }
+
+  @Test
+  public void getProductsByTitle_reflects_renamed_products() {
+    final Product renamedProduct = new Product(1, "renamed", Money.of("3.59"), 9);
+
+    productService.onProductsChanged(new ProductsChangedEvent(allProducts));
+    productService.onProductsChanged(new ProductsChangedEvent(Lists.newArrayList(renamedProduct)));
+
+    assertThat(productService.getProductsByTitle("product1")).isEmpty();
+    assertThat(productService.getProductsByTitle("renamed")).containsExactly(renamedProduct);
+  }
+
+  @Test
+  public void onProductsChanged_publishes_inventory_changes() {
+    final Product soldOutProduct = new Product(1, "product1", Money.of("3.59"), 0);
+
+    productService.onProductsChanged(new ProductsChangedEvent(allProducts));
+    productService.onProductsChanged(new ProductsChangedEvent(Lists.newArrayList(soldOutProduct, allProducts.get(1))));
+
+    verify(mockInventoryFeed).publish(Lists.newArrayList(
+        new InventoryChange(1, 0, false, true), new InventoryChange(2, 10, true, false)));
+  }
+
+  @Test
+  public void searchProducts_happypath() {
+    final Product usbcCable = new Product(4, "USBC Cable", Money.of("10.99"), 0);
+    final Product lightningCable = new Product(5, "Lightning Cable", Money.of("5.00"), 3);
+    final List<Product> products = Lists.newArrayList(usbcCable, lightningCable, allProducts.get(0));
+
+    productService.onProductsChanged(new ProductsChangedEvent(products));
+
+    assertThat(productService.searchProducts("cable", 10, false)).containsExactly(usbcCable, lightningCable);
+    assertThat(productService.searchProducts("cable", 10, true)).containsExactly(lightningCable);
+    verifyZeroInteractions(mockProductRepository);
+  }
+
+  @Test
+  public void searchProducts_reflects_renamed_products() {
+    final Product renamedProduct = new Product(1, "Lightning Cable", Money.of("3.59"), 9);
+
+    productService.onProductsChanged(new ProductsChangedEvent(allProducts));
+    productService.onProductsChanged(new ProductsChangedEvent(Lists.newArrayList(renamedProduct)));
+
+    assertThat(productService.searchProducts("product1", 10, false)).isEmpty();
+    assertThat(productService.searchProducts("lightning", 10, false)).containsExactly(renamedProduct);
+  }
+
+  @Test
+  public void getSortedProducts_happypath() {
+    productService.onProductsChanged(new ProductsChangedEvent(allProducts));
+
+    assertThat(productService.getSortedProducts(ProductSort.PRICE, Sort.Direction.ASC, null, null, false, null, 10))
+        .containsExactly(allProducts.get(2), allProducts.get(0), allProducts.get(1));
+    verifyZeroInteractions(mockProductRepository);
+  }
+
+  @Test
+  public void getSortedProducts_only_returns_in_stock_products_in_price_range() {
+    final Product soldOutProduct = new Product(4, "product4", Money.of("2.99"), 0);
+    productService.onProductsChanged(new ProductsChangedEvent(allProducts));
+    productService.onProductsChanged(new ProductsChangedEvent(Lists.newArrayList(soldOutProduct)));
+
+    assertThat(productService.getSortedProducts(ProductSort.PRICE, Sort.Direction.DESC, Money.of("1.00"), Money.of("5.00"),
+        true, null, 10)).containsExactly(allProducts.get(0), allProducts.get(2));
+  }
+
+  @Test
+  public void getProductsPage_starts_after_given_product_id() {
+    when(mockProductRepository.findByProductIdGreaterThanOrderByProductIdAsc(1, PageRequest.of(0, 2)))
+        .thenReturn(allProducts.subList(1, 3));
+
+    assertThat(productService.getProductsPage(1, 2)).containsExactlyElementsOf(allProducts.subList(1, 3));
+  }
+
+  @Test
+  public void getProductsPage_starts_at_first_product_when_no_product_id_is_given() {
+    when(mockProductRepository.findByProductIdGreaterThanOrderByProductIdAsc(Integer.MIN_VALUE, PageRequest.of(0, 3)))
+        .thenReturn(allProducts);
+
+    assertThat(productService.getProductsPage(null, 3)).containsExactlyElementsOf(allProducts);
+  }
+
+  @Test
+  public void getInStockProductsPage_happypath() {
+    productService.onProductsChanged(new ProductsChangedEvent(allProducts));
+    when(mockProductRepository.findAllById(Lists.newArrayList(2))).thenReturn(allProducts.subList(1, 2));
+
+    assertThat(productService.getInStockProductsPage(1, 1)).containsExactlyElementsOf(allProducts.subList(1, 2));
+  }
+
+  @Test
+  public void getInStockProductsPage_reads_large_pages_in_several_queries() {
+    final List<Product> products = manyProducts(ProductService.MAX_IDS_PER_QUERY + 1);
+    productService.onProductsChanged(new ProductsChangedEvent(products));
+    when(mockProductRepository.findAllById(anyList())).thenAnswer(invocation -> {
+      final List<Integer> productIds = invocation.getArgument(0);
+      return productIds.stream().map(productId -> products.get(productId - 1)).collect(Collectors.toList());
+    });
+
+    assertThat(productService.getInStockProductsPage(null, products.size())).containsExactlyElementsOf(products);
+    verify(mockProductRepository, times(2)).findAllById(anyList());
+  }
+
+  @Test
+  public void getProductsByTitlePage_happypath() {
+    productService.onProductsChanged(new ProductsChangedEvent(allProducts));
+    when(mockProductRepository.findAllById(Lists.newArrayList(3))).thenReturn(allProducts.subList(2, 3));
+
+    assertThat(productService.getProductsByTitlePage("product", TitleMatch.PREFIX, 2, 10))
+        .containsExactlyElementsOf(allProducts.subList(2, 3));
   }
 
   @Test
   public void getProductById_happypath() {
     final int expectedId = 2;
     final Optional<Product> expectedProduct = Optional.of(
-        new Product(2, "2", new BigDecimal(3.99), 2));
+        new Product(2, "2", Money.of("3.99"), 2));
 
     when(mockProductRepository.findById(expectedId)).thenReturn(expectedProduct);
 
@@ -104,4 +352,91 @@ public class ProductServiceTest {
 
     assertThat(productService.getProductById(expectedId)).isEmpty();
   }
-}
\ No newline at end of file
+
+  @Test
+  public void getProductById_serves_products_in_snapshot_without_going_to_database() {
+    productService.onProductsChanged(new ProductsChangedEvent(allProducts));
+
+    assertThat(productService.getProductById(2)).contains(allProducts.get(1));
+    verifyZeroInteractions(mockProductRepository);
+  }
+
+  @Test
+  public void getProductById_serves_repeated_lookups_from_cache() {
+    final Product product = new Product(2, "2", Money.of("3.99"), 2);
+    when(mockProductRepository.findById(2)).thenReturn(Optional.of(product));
+
+    productService.getProductById(2);
+    assertThat(productService.getProductById(2)).contains(product);
+
+    verify(mockProductRepository, times(1)).findById(2);
+  }
+
+  @Test
+  public void getProductById_sees_inventory_changes_without_going_to_database() {
+    final Product product = new Product(2, "2", Money.of("3.99"), 2);
+    final Product purchasedProduct = new Product(2, "2", Money.of("3.99"), 1);
+    when(mockProductRepository.findById(2)).thenReturn(Optional.of(product));
+
+    productService.getProductById(2);
+    productService.onProductsChanged(new ProductsChangedEvent(Lists.newArrayList(purchasedProduct)));
+
+    assertThat(productService.getProductById(2)).contains(purchasedProduct);
+    verify(mockProductRepository, times(1)).findById(2);
+  }
+
+  @Test
+  public void getProductsByIds_keeps_requested_order_and_drops_nonexistent_products() {
+    when(mockProductRepository.findAllById(Lists.newArrayList(Sets.newHashSet(3, 10, 1)))).thenReturn(Lists.newArrayList(allProducts.get(0), allProducts.get(2)));
+
+    assertThat(productService.getProductsByIds(Lists.newArrayList(3, 10, 1, 3)))
+        .containsExactly(allProducts.get(2), allProducts.get(0), allProducts.get(2));
+  }
+
+  @Test
+  public void getProductsByIds_returns_empty_list_without_querying_when_no_ids_are_given() {
+    assertThat(productService.getProductsByIds(Collections.emptyList())).isEmpty();
+    verifyZeroInteractions(mockProductRepository);
+  }
+
+  @Test
+  public void restockProduct_happypath() {
+    final Product restockedProduct = new Product(4, "product4", Money.of("1.00"), 5);
+
+    when(mockProductRepository.incrementInventory(4, 5)).thenReturn(1);
+    when(mockProductRepository.findById(4)).thenReturn(Optional.of(restockedProduct));
+
+    assertThat(productService.restockProduct(4, 5)).isEqualTo(restockedProduct);
+    verify(mockHotInventory).restock(4, 5);
+    verify(mockEventPublisher).publishEvent(new ProductsChangedEvent(Lists.newArrayList(restockedProduct)));
+
+    // The event publisher is mocked so we deliver the event ourselves
+    productService.onProductsChanged(new ProductsChangedEvent(Lists.newArrayList(restockedProduct)));
+    assertThat(productService.getAllInStockProducts()).containsExactly(restockedProduct);
+  }
+
+  @Test
+  public void restockProduct_throws_exception_when_product_is_nonexistent() {
+    when(mockProductRepository.incrementInventory(anyInt(), anyInt())).thenReturn(0);
+
+    assertThatThrownBy(() -> productService.restockProduct(10, 5))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining(ProductService.PRODUCT_DOES_NOT_EXIST_EXCEPTION_MESSAGE);
+  }
+
+  @Test
+  public void restockProduct_throws_exception_when_quantity_is_not_positive() {
+    assertThatThrownBy(() -> productService.restockProduct(1, 0))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining(Product.INVALID_RESTOCK_QUANTITY_EXCEPTION_MESSAGE);
+    verifyZeroInteractions(mockProductRepository);
+  }
+
+  // Products with IDs 1 to the count, all in stock and with titles starting with "product"
+  private static List<Product> manyProducts(final int count) {
+    final List<Product> products = new ArrayList<>(count);
+    for (int productId = 1; productId <= count; productId++)
+      products.add(new Product(productId, "product" + productId, Money.of("1.00"), 1));
+    return products;
+  }
+}
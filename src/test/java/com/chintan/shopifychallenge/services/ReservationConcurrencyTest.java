@@ -0,0 +1,88 @@
+package com.chintan.shopifychallenge.services;
+
+import com.chintan.shopifychallenge.models.Money;
+import com.chintan.shopifychallenge.models.Product;
+import com.chintan.shopifychallenge.repository.ProductRepository;
+import com.chintan.shopifychallenge.repository.ReservationRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+/*
+ * Runs against the embedded H2 database with a short reservation TTL so we can prove a product is never reserved by
+ * more carts than it has stock, and that the stock comes back once the reservations expire.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:reservations;DB_CLOSE_ON_EXIT=FALSE;LOCK_TIMEOUT=30000",
+    "carts.reservations.ttl=2s",
+    "carts.reservations.tick-duration=100ms"
+})
+public class ReservationConcurrencyTest {
+  private static final int CART_THREADS = 300;
+  private static final int INITIAL_INVENTORY = 100;
+
+  @Autowired
+  private CartService cartService;
+  @Autowired
+  private ProductRepository productRepository;
+  @Autowired
+  private ReservationRepository reservationRepository;
+
+  @Test
+  public void createNewCart_never_reserves_more_than_stock_and_expired_reservations_are_put_back() throws Exception {
+    final Product product = productRepository.save(
+        new Product(null, "Reserved Product", Money.of("9.99"), INITIAL_INVENTORY));
+
+    final ExecutorService executorService = Executors.newFixedThreadPool(CART_THREADS);
+    final CountDownLatch startingLine = new CountDownLatch(1);
+    final AtomicInteger createdCarts = new AtomicInteger();
+    final AtomicInteger stockRunOutFailures = new AtomicInteger();
+
+    final List<Future<?>> carts = new ArrayList<>();
+    for (int i = 0; i < CART_THREADS; i++) {
+      carts.add(executorService.submit(() -> {
+        startingLine.await();
+        try {
+          cartService.createNewCart(Collections.singletonList(product));
+          createdCarts.incrementAndGet();
+        } catch (IllegalStateException e) {
+          if (e.getMessage().contains(Product.STOCK_RUN_OUT_EXCEPTION_MESSAGE)) stockRunOutFailures.incrementAndGet();
+          else throw e;
+        }
+        return null;
+      }));
+    }
+
+    startingLine.countDown();
+    for (final Future<?> cart : carts) cart.get(1, TimeUnit.MINUTES);
+    executorService.shutdown();
+
+    assertThat(createdCarts.get()).isEqualTo(INITIAL_INVENTORY);
+    assertThat(stockRunOutFailures.get()).isEqualTo(CART_THREADS - INITIAL_INVENTORY);
+    assertThat(inventoryCount(product)).isZero();
+
+    // None of the carts are purchased, so every reservation expires and its unit is put back
+    final long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+    while (reservationRepository.count() > 0 && System.currentTimeMillis() < deadline) Thread.sleep(100);
+
+    assertThat(reservationRepository.count()).isZero();
+    assertThat(inventoryCount(product)).isEqualTo(INITIAL_INVENTORY);
+  }
+
+  private int inventoryCount(final Product product) {
+    return productRepository.findById(product.getProductId()).get().getInventoryCount();
+  }
+}